@@ -1,9 +1,11 @@
 from contextlib import asynccontextmanager
 import os
 import logging
+from typing import List
 from fastapi import FastAPI, File, UploadFile, HTTPException
 from fastapi.middleware.cors import CORSMiddleware
 from fastapi.responses import Response
+from pydantic import BaseModel
 import io
 from background_removal import BackgroundRemover, BackgroundRemovalError
 from image_embedding import ImageEmbedder, ImageEmbeddingError
@@ -14,6 +16,12 @@ logger = logging.getLogger(__name__)
 model_cache = {}
 embedder_cache = {}
 
+MAX_TEXT_LENGTH = 1000
+MAX_EMBEDDING_BATCH_SIZE = 32
+
+class TextEmbeddingRequest(BaseModel):
+  text: str
+
 async def get_or_use_bg_remover_model(use_cloth_seg: bool) -> BackgroundRemover:
   cache_key = 'cloth_seg' if use_cloth_seg else 'general'
   if cache_key not in model_cache:
@@ -198,6 +206,107 @@ async def generate_embedding(file: UploadFile = File(...)):
             detail="An unexpected error occurred. Please try again."
         )
 
+@app.post("/api/embed-batch")
+async def generate_embeddings(files: List[UploadFile] = File(...)):
+    try:
+        embedder = await get_or_create_embedder()
+        logger.info("Image embedder initialized successfully")
+    except Exception as e:
+        logger.error(f"Failed to initialize image embedder: {e}")
+        raise HTTPException(
+            status_code=500,
+            detail="Embedding service is not available. Please try again later."
+        )
+
+    if len(files) > MAX_EMBEDDING_BATCH_SIZE:
+        raise HTTPException(
+            status_code=400,
+            detail=f"Too many files ({len(files)}). Maximum batch size is {MAX_EMBEDDING_BATCH_SIZE}."
+        )
+
+    allowed_types = [
+        "image/jpeg",
+        "image/jpg",
+        "image/png",
+        "image/webp",
+    ]
+    images = []
+    for file in files:
+        if file.content_type not in allowed_types:
+            raise HTTPException(
+                status_code=400,
+                detail=f"Invalid file type for {file.filename}. Allowed types: {', '.join(allowed_types)}"
+            )
+
+        contents = await file.read()
+        file_size_mb = len(contents) / (1024 * 1024)
+        if file_size_mb > 10:
+            raise HTTPException(
+                status_code=400,
+                detail=f"File {file.filename} too large ({file_size_mb:.1f}MB). Maximum size is 10MB."
+            )
+        images.append(contents)
+
+    try:
+        logger.info(f"Generating embeddings for batch of {len(images)} images")
+        embeddings = embedder.generate_embeddings(images)
+        logger.info(f"Successfully generated {len(embeddings)} embeddings")
+
+        return {
+            "embeddings": embeddings,
+            "model": "clip-vit-base-patch32",
+            "dimensions": len(embeddings[0]) if embeddings else 0
+        }
+    except ImageEmbeddingError as e:
+        logger.error(f"Embedding error: {e}")
+        raise HTTPException(status_code=500, detail=str(e))
+    except Exception as e:
+        logger.error(f"Unexpected error: {e}")
+        raise HTTPException(
+            status_code=500,
+            detail="An unexpected error occurred. Please try again."
+        )
+
+@app.post("/api/embed-text")
+async def generate_text_embedding(request: TextEmbeddingRequest):
+    try:
+        embedder = await get_or_create_embedder()
+        logger.info("Image embedder initialized successfully")
+    except Exception as e:
+        logger.error(f"Failed to initialize image embedder: {e}")
+        raise HTTPException(
+            status_code=500,
+            detail="Embedding service is not available. Please try again later."
+        )
+
+    text = request.text.strip()
+    if not text:
+        raise HTTPException(status_code=400, detail="Text must not be empty.")
+    if len(text) > MAX_TEXT_LENGTH:
+        raise HTTPException(
+            status_code=400,
+            detail=f"Text too long ({len(text)} characters). Maximum length is {MAX_TEXT_LENGTH}."
+        )
+
+    try:
+        embedding = embedder.generate_text_embedding(text)
+        logger.info(f"Successfully generated text embedding ({len(embedding)} dimensions)")
+
+        return {
+            "embedding": embedding,
+            "model": "clip-vit-base-patch32",
+            "dimensions": len(embedding)
+        }
+    except ImageEmbeddingError as e:
+        logger.error(f"Embedding error: {e}")
+        raise HTTPException(status_code=500, detail=str(e))
+    except Exception as e:
+        logger.error(f"Unexpected error: {e}")
+        raise HTTPException(
+            status_code=500,
+            detail="An unexpected error occurred. Please try again."
+        )
+
 # local testing
 if __name__ == "__main__":
     import uvicorn
@@ -17,6 +17,7 @@ class ImageEmbedder:
         self.model, _, self.preprocess = open_clip.create_model_and_transforms(
             model_name
         )
+        self.tokenizer = open_clip.get_tokenizer(model_name)
         self.model.eval()
         logger.info("CLIP model loaded successfully")
 
@@ -36,3 +37,34 @@ class ImageEmbedder:
         except Exception as e:
             logger.error(f"Failed to generate embedding: {e}")
             raise ImageEmbeddingError(f"Failed to generate embedding: {e}")
+
+    def generate_embeddings(self, images: list[bytes]) -> list[list[float]]:
+        try:
+            # Stack the preprocessed images into one batch so the model runs a single forward pass
+            image_tensors = torch.stack([
+                self.preprocess(Image.open(io.BytesIO(image_bytes)).convert("RGB"))
+                for image_bytes in images
+            ])
+
+            with torch.no_grad():
+                embeddings = self.model.encode_image(image_tensors)
+                embeddings = embeddings / embeddings.norm(dim=-1, keepdim=True)
+
+            return embeddings.tolist()
+        except Exception as e:
+            logger.error(f"Failed to generate batch embeddings: {e}")
+            raise ImageEmbeddingError(f"Failed to generate batch embeddings: {e}")
+
+    def generate_text_embedding(self, text: str) -> list[float]:
+        try:
+            # Text lands in the same space as the image embeddings, so the two can be compared directly
+            text_tokens = self.tokenizer([text])
+
+            with torch.no_grad():
+                embedding = self.model.encode_text(text_tokens)
+                embedding = embedding / embedding.norm(dim=-1, keepdim=True)
+
+            return embedding.squeeze().tolist()
+        except Exception as e:
+            logger.error(f"Failed to generate text embedding: {e}")
+            raise ImageEmbeddingError(f"Failed to generate text embedding: {e}")
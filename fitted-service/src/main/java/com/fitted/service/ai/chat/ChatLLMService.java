@@ -3,6 +3,7 @@ package com.fitted.service.ai.chat;
 import com.fitted.service.ai.chat.model.ChatMessage;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ChatLLMService {
 
@@ -13,5 +14,16 @@ public interface ChatLLMService {
      * @param conversationHistory the ordered list of prior messages in this session
      * @return the LLM's raw text response
      */
-    String sendMessage(String systemPrompt, List<ChatMessage> conversationHistory);
+    String sendMessage(ChatSystemPrompt systemPrompt, List<ChatMessage> conversationHistory);
+
+    /**
+     * Sends a conversation to the chat LLM and streams the response text as it is generated.
+     * Blocks the calling thread until the stream ends.
+     *
+     * @param systemPrompt the system prompt including outfit rules and closet context
+     * @param conversationHistory the ordered list of prior messages in this session
+     * @param onTextDelta invoked with each chunk of response text, in order
+     * @return the LLM's full raw text response
+     */
+    String streamMessage(ChatSystemPrompt systemPrompt, List<ChatMessage> conversationHistory, Consumer<String> onTextDelta);
 }
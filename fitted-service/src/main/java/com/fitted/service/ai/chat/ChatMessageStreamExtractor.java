@@ -0,0 +1,114 @@
+package com.fitted.service.ai.chat;
+
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Incrementally extracts the "message" field from a streamed LLM response so the user-facing text can be
+ * forwarded as it arrives, without waiting for the full JSON document.
+ * <p>
+ * The LLM is instructed to reply with {"message": "...", "recommendedItems": [...]}. Chunks are buffered
+ * until the opening quote of the message value is seen, then the JSON string is decoded and forwarded
+ * chunk by chunk until its closing quote. If the response does not start like JSON, it is forwarded as-is,
+ * mirroring the raw-text fallback in {@link ChatResponseParser}.
+ * <p>
+ * Not thread-safe; one instance per stream.
+ */
+class ChatMessageStreamExtractor implements Consumer<String> {
+
+    private static final Pattern MESSAGE_START_PATTERN = Pattern.compile("\"message\"\\s*:\\s*\"");
+
+    private enum State { DETECTING, SEARCHING, IN_MESSAGE, PLAIN_TEXT, DONE }
+
+    private final Consumer<String> onMessageDelta;
+    private final StringBuilder buffer = new StringBuilder();
+    private State state = State.DETECTING;
+    private int position = 0;
+
+    ChatMessageStreamExtractor(Consumer<String> onMessageDelta) {
+        this.onMessageDelta = onMessageDelta;
+    }
+
+    @Override
+    public void accept(String chunk) {
+        if (chunk == null || chunk.isEmpty() || state == State.DONE) {
+            return;
+        }
+
+        if (state == State.PLAIN_TEXT) {
+            onMessageDelta.accept(chunk);
+            return;
+        }
+
+        buffer.append(chunk);
+
+        if (state == State.DETECTING) {
+            String leading = buffer.toString().stripLeading();
+            if (leading.isEmpty()) {
+                return;
+            }
+            if (leading.charAt(0) != '{' && leading.charAt(0) != '`') {
+                state = State.PLAIN_TEXT;
+                onMessageDelta.accept(buffer.toString());
+                return;
+            }
+            state = State.SEARCHING;
+        }
+
+        if (state == State.SEARCHING) {
+            Matcher matcher = MESSAGE_START_PATTERN.matcher(buffer);
+            if (!matcher.find()) {
+                return;
+            }
+            position = matcher.end();
+            state = State.IN_MESSAGE;
+        }
+
+        StringBuilder decoded = new StringBuilder();
+        while (position < buffer.length()) {
+            char c = buffer.charAt(position);
+            if (c == '"') {
+                state = State.DONE;
+                break;
+            }
+            if (c != '\\') {
+                decoded.append(c);
+                position++;
+                continue;
+            }
+
+            // Escape sequence; wait for more input if it is split across chunks
+            if (position + 1 >= buffer.length()) {
+                break;
+            }
+            char escaped = buffer.charAt(position + 1);
+            if (escaped == 'u') {
+                if (position + 6 > buffer.length()) {
+                    break;
+                }
+                String hex = buffer.substring(position + 2, position + 6);
+                try {
+                    decoded.append((char) Integer.parseInt(hex, 16));
+                } catch (NumberFormatException e) {
+                    decoded.append("\\u").append(hex);
+                }
+                position += 6;
+                continue;
+            }
+            decoded.append(switch (escaped) {
+                case 'n' -> '\n';
+                case 't' -> '\t';
+                case 'r' -> '\r';
+                case 'b' -> '\b';
+                case 'f' -> '\f';
+                default -> escaped;
+            });
+            position += 2;
+        }
+
+        if (!decoded.isEmpty()) {
+            onMessageDelta.accept(decoded.toString());
+        }
+    }
+}
@@ -2,28 +2,29 @@ package com.fitted.service.ai.chat;
 
 import com.fitted.service.ai.chat.model.ChatMessage;
 import com.fitted.service.ai.chat.model.ChatSession;
+import com.fitted.service.ai.config.AIProperties;
 import com.fitted.service.dto.chat.ChatResponse;
 import com.fitted.service.dto.chat.RecommendedItemDTO;
 import com.fitted.service.exception.ResourceNotFoundException;
 import com.fitted.service.exception.ValidationException;
 import com.fitted.service.model.ClothingItem;
-import com.fitted.service.repository.ClothingItemRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Log4j2
 public class ChatService {
 
-    private static final String SYSTEM_PROMPT_TEMPLATE = """
+    // Sent as its own cacheable system block ahead of the closet, so it must not embed per-user data
+    private static final String SYSTEM_INSTRUCTIONS = """
             You are "Fitted AI Stylist," a personal fashion assistant. The user has a \
             virtual closet of clothing items listed below. Your job is to recommend \
             outfits from ONLY these items.
@@ -52,16 +53,23 @@ public class ChatService {
             - If the user wants to adjust the outfit, modify your previous recommendation
             - If you want to ask a follow-up question, use an empty recommendedItems array
             - Be conversational and friendly
-            - Do not wrap the JSON in markdown code fences
+            - Do not wrap the JSON in markdown code fences""";
 
-            USER'S CLOSET:
-            %s""";
+    private static final String CLOSET_SECTION_HEADER = "USER'S CLOSET:\n";
+    // Stands in for the closet listing of large closets, so the cached system prompt is the same every turn
+    private static final String RETRIEVED_CLOSET_NOTE = """
+            The closet is too large to list here. The items most relevant to the user's latest message are \
+            listed at the start of that message; treat them as the closet list.""";
+    private static final String RETRIEVED_ITEMS_HEADER = "RELEVANT CLOSET ITEMS:\n";
+    private static final String MESSAGE_SECTION_HEADER = "\n\nMESSAGE:\n";
 
     private final ChatSessionManager chatSessionManager;
+    private final ClosetContextCache closetContextCache;
     private final ClosetContextBuilder closetContextBuilder;
+    private final ClosetRetriever closetRetriever;
+    private final AIProperties aiProperties;
     private final ChatLLMService chatLLMService;
     private final ChatResponseParser chatResponseParser;
-    private final ClothingItemRepository clothingItemRepository;
 
     public ChatSession createSession(UUID userId) {
         return chatSessionManager.createSession(userId);
@@ -73,6 +81,18 @@ public class ChatService {
     }
 
     public ChatResponse sendMessage(String sessionId, String message, UUID userId) {
+        PreparedTurn turn = prepareTurn(sessionId, message, userId);
+
+        String rawResponse = chatLLMService.sendMessage(turn.systemPrompt(), turn.conversation());
+
+        return completeTurn(turn, rawResponse);
+    }
+
+    /**
+     * Validates the session, records the user's message and builds the prompt for this turn.
+     * Runs on the caller's thread so validation errors surface as regular HTTP errors.
+     */
+    PreparedTurn prepareTurn(String sessionId, String message, UUID userId) {
         ChatSession session = chatSessionManager.getSession(sessionId, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Chat session not found or expired"));
 
@@ -80,23 +100,59 @@ public class ChatService {
             throw new ValidationException("Message limit reached for this session. Please start a new session.");
         }
 
-        chatSessionManager.addMessage(sessionId, ChatMessage.user(message));
+        ChatMessage userMessage = ChatMessage.user(message);
+        chatSessionManager.addMessage(sessionId, userMessage);
 
-        List<ClothingItem> userItems = clothingItemRepository.findByUserId(userId);
-        Set<UUID> validItemIds = userItems.stream()
-                .map(ClothingItem::getId)
-                .collect(Collectors.toSet());
-        Map<UUID, ClothingItem> itemMap = userItems.stream()
-                .collect(Collectors.toMap(ClothingItem::getId, item -> item));
+        ClosetContextCache.ClosetSnapshot closet = closetContextCache.get(userId);
+        List<ChatMessage> conversation = session.getConversationHistory();
+        Optional<String> retrievedItems = retrieveRelevantItems(userId, message, closet);
+        ChatSystemPrompt systemPrompt = new ChatSystemPrompt(SYSTEM_INSTRUCTIONS,
+                CLOSET_SECTION_HEADER + (retrievedItems.isPresent() ? RETRIEVED_CLOSET_NOTE : closet.context()));
+        if (retrievedItems.isPresent()) {
+            conversation = withRetrievedItems(conversation, retrievedItems.get(), message);
+        }
 
-        String closetContext = closetContextBuilder.buildContext(userItems);
-        String systemPrompt = String.format(SYSTEM_PROMPT_TEMPLATE, closetContext);
+        // Keep the full closet for resolving recommendations, since earlier turns may have seen other items
+        return new PreparedTurn(session, userMessage, systemPrompt, List.copyOf(conversation), closet.itemMap());
+    }
 
-        String rawResponse = chatLLMService.sendMessage(systemPrompt, session.getConversationHistory());
+    /**
+     * Small closets are sent in full in the system prompt, so the cached context and the prompt cache prefix
+     * can be reused. Larger closets are narrowed to the items most relevant to this message, which change
+     * every turn and are therefore sent with the message, after the cache breakpoint.
+     *
+     * @return the narrowed closet listing, or empty if the full closet goes in the system prompt
+     */
+    private Optional<String> retrieveRelevantItems(UUID userId, String message, ClosetContextCache.ClosetSnapshot closet) {
+        if (closet.itemMap().size() <= aiProperties.getChat().getRetrievalMinClosetSize()) {
+            return Optional.empty();
+        }
+
+        return closetRetriever.findRelevantItems(userId, message, closet.itemMap())
+                .map(closetContextBuilder::buildContext);
+    }
+
+    /**
+     * The conversation to send, with the retrieved items prepended to the latest message. The session keeps
+     * the message as the user wrote it.
+     */
+    private static List<ChatMessage> withRetrievedItems(List<ChatMessage> history, String retrievedItems, String message) {
+        List<ChatMessage> conversation = new ArrayList<>(history);
+        conversation.set(conversation.size() - 1,
+                ChatMessage.user(RETRIEVED_ITEMS_HEADER + retrievedItems + MESSAGE_SECTION_HEADER + message));
+        return conversation;
+    }
+
+    /**
+     * Stores the assistant's full response in the session history and resolves its recommended items.
+     */
+    ChatResponse completeTurn(PreparedTurn turn, String rawResponse) {
+        String sessionId = turn.session().getSessionId();
+        Map<UUID, ClothingItem> itemMap = turn.itemMap();
 
         chatSessionManager.addMessage(sessionId, ChatMessage.assistant(rawResponse));
 
-        ChatResponseParser.ParsedChatResponse parsed = chatResponseParser.parse(rawResponse, validItemIds);
+        ChatResponseParser.ParsedChatResponse parsed = chatResponseParser.parse(rawResponse, itemMap.keySet());
 
         List<RecommendedItemDTO> recommendedItems = parsed.recommendedItems().stream()
                 .map(rec -> {
@@ -117,4 +173,15 @@ public class ChatService {
                 .recommendedItems(recommendedItems)
                 .build();
     }
+
+    /**
+     * Removes the user's message recorded by prepareTurn when the turn could not be started, so the history
+     * never holds a user message without a reply.
+     */
+    void abandonTurn(PreparedTurn turn) {
+        chatSessionManager.removeLastMessage(turn.session().getSessionId(), turn.userMessage());
+    }
+
+    record PreparedTurn(ChatSession session, ChatMessage userMessage, ChatSystemPrompt systemPrompt,
+                        List<ChatMessage> conversation, Map<UUID, ClothingItem> itemMap) {}
 }
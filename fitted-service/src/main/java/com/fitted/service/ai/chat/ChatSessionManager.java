@@ -52,6 +52,13 @@ public class ChatSessionManager {
         }
     }
 
+    public void removeLastMessage(String sessionId, ChatMessage message) {
+        ChatSession session = sessions.get(sessionId);
+        if (session != null) {
+            session.removeLastMessage(message);
+        }
+    }
+
     public boolean hasReachedMessageLimit(String sessionId) {
         ChatSession session = sessions.get(sessionId);
         if (session == null) {
@@ -0,0 +1,30 @@
+package com.fitted.service.ai.chat;
+
+import com.fitted.service.dto.chat.ChatResponse;
+import com.fitted.service.dto.chat.RecommendedItemDTO;
+
+/**
+ * Receives the events of a streamed chat turn. All callbacks are invoked from the chat stream executor.
+ */
+public interface ChatStreamHandler {
+
+    /**
+     * Called with each new piece of the assistant's conversational message, in order.
+     */
+    void onMessageDelta(String text);
+
+    /**
+     * Called once per recommended item after the full response has been parsed and the item resolved.
+     */
+    void onRecommendedItem(RecommendedItemDTO item);
+
+    /**
+     * Called once the full response has been stored in the session history.
+     */
+    void onComplete(ChatResponse response);
+
+    /**
+     * Called if the turn fails after streaming has started. No further callbacks follow.
+     */
+    void onError(Exception e);
+}
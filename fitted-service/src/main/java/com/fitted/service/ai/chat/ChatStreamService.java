@@ -0,0 +1,64 @@
+package com.fitted.service.ai.chat;
+
+import com.fitted.service.dto.chat.ChatResponse;
+import com.fitted.service.exception.DownstreamBusyException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+@Service
+@Log4j2
+public class ChatStreamService {
+
+    private final ChatService chatService;
+    private final ChatLLMService chatLLMService;
+    private final Executor chatStreamExecutor;
+
+    public ChatStreamService(ChatService chatService,
+                             ChatLLMService chatLLMService,
+                             @Qualifier("chat-stream-executor") Executor chatStreamExecutor) {
+        this.chatService = chatService;
+        this.chatLLMService = chatLLMService;
+        this.chatStreamExecutor = chatStreamExecutor;
+    }
+
+    /**
+     * Validates and prepares the turn on the calling thread, then streams the LLM response to the handler
+     * from the chat stream executor so the request thread is released immediately. If the executor is full,
+     * the turn is abandoned and a {@link DownstreamBusyException} is thrown.
+     */
+    public void streamMessage(String sessionId, String message, UUID userId, ChatStreamHandler handler) {
+        ChatService.PreparedTurn turn = chatService.prepareTurn(sessionId, message, userId);
+
+        try {
+            chatStreamExecutor.execute(() -> stream(sessionId, turn, handler));
+        } catch (RejectedExecutionException e) {
+            chatService.abandonTurn(turn);
+            log.warn("Chat stream executor is full, rejecting message for session: {}", sessionId);
+            throw new DownstreamBusyException("Chat is busy, please try again later");
+        }
+    }
+
+    private void stream(String sessionId, ChatService.PreparedTurn turn, ChatStreamHandler handler) {
+        try {
+            String rawResponse = chatLLMService.streamMessage(
+                    turn.systemPrompt(),
+                    turn.conversation(),
+                    new ChatMessageStreamExtractor(handler::onMessageDelta)
+            );
+
+            ChatResponse response = chatService.completeTurn(turn, rawResponse);
+            response.getRecommendedItems().forEach(handler::onRecommendedItem);
+            handler.onComplete(response);
+        } catch (Exception e) {
+            log.error("Chat stream failed for session: {}", sessionId, e);
+            // No-op once the reply has been stored
+            chatService.abandonTurn(turn);
+            handler.onError(e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.fitted.service.ai.chat;
+
+/**
+ * The system prompt for a chat turn, sent as two blocks with a single cache breakpoint after the closet.
+ * <p>
+ * {@code instructions} is identical for every user and turn but too short to be cached on its own;
+ * {@code closet} only changes when the user's closet does. Anything that varies per turn, such as the items
+ * retrieved for a large closet, belongs in the messages instead. Both must be rebuilt byte-for-byte identically
+ * between turns or the prompt cache misses.
+ *
+ * @param instructions the static stylist rules and response format
+ * @param closet the formatted closet listing for the current user
+ */
+public record ChatSystemPrompt(String instructions, String closet) {
+}
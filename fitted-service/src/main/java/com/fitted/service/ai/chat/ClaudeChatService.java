@@ -1,17 +1,26 @@
 package com.fitted.service.ai.chat;
 
 import com.anthropic.client.AnthropicClient;
+import com.anthropic.core.http.StreamResponse;
+import com.anthropic.helpers.MessageAccumulator;
+import com.anthropic.models.messages.CacheControlEphemeral;
 import com.anthropic.models.messages.Message;
 import com.anthropic.models.messages.MessageCreateParams;
+import com.anthropic.models.messages.RawMessageStreamEvent;
 import com.anthropic.models.messages.TextBlock;
+import com.anthropic.models.messages.TextBlockParam;
+import com.anthropic.models.messages.Usage;
 import com.fitted.service.ai.chat.model.ChatMessage;
 import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.concurrency.Downstream;
+import com.fitted.service.concurrency.DownstreamLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static com.fitted.service.ai.chat.model.ChatMessage.USER_ROLE;
 
@@ -20,17 +29,61 @@ import static com.fitted.service.ai.chat.model.ChatMessage.USER_ROLE;
 @Log4j2
 public class ClaudeChatService implements ChatLLMService {
 
+    private static final long MAX_TOKENS = 1024;
+    private static final String TOKENS_METRIC = "ai.chat.tokens";
+
     private final AnthropicClient anthropicClient;
     private final AIProperties aiProperties;
+    private final MeterRegistry meterRegistry;
+    private final DownstreamLimiter downstreamLimiter;
 
     @Override
-    public String sendMessage(String systemPrompt, List<ChatMessage> conversationHistory) {
+    public String sendMessage(ChatSystemPrompt systemPrompt, List<ChatMessage> conversationHistory) {
         log.info("Sending chat message to Claude (history size: {})", conversationHistory.size());
 
+        MessageCreateParams params = buildParams(systemPrompt, conversationHistory);
+        Message response = downstreamLimiter.call(Downstream.ANTHROPIC, () -> anthropicClient.messages().create(params));
+        recordUsage(response.usage());
+
+        String responseText = extractText(response);
+        log.info("Chat response received ({} chars)", responseText.length());
+        return responseText;
+    }
+
+    @Override
+    public String streamMessage(ChatSystemPrompt systemPrompt, List<ChatMessage> conversationHistory, Consumer<String> onTextDelta) {
+        log.info("Streaming chat message from Claude (history size: {})", conversationHistory.size());
+
+        MessageCreateParams params = buildParams(systemPrompt, conversationHistory);
+        MessageAccumulator accumulator = MessageAccumulator.create();
+        // The slot is held for the whole stream, since the connection stays open until the last event
+        downstreamLimiter.run(Downstream.ANTHROPIC, () -> {
+            try (StreamResponse<RawMessageStreamEvent> stream = anthropicClient.messages().createStreaming(params)) {
+                stream.stream()
+                        .peek(accumulator::accumulate)
+                        .flatMap(event -> event.contentBlockDelta().stream())
+                        .flatMap(event -> event.delta().text().stream())
+                        .forEach(textDelta -> onTextDelta.accept(textDelta.text()));
+            }
+        });
+
+        Message response = accumulator.message();
+        recordUsage(response.usage());
+
+        String responseText = extractText(response);
+        log.info("Chat stream completed ({} chars)", responseText.length());
+        return responseText;
+    }
+
+    private MessageCreateParams buildParams(ChatSystemPrompt systemPrompt, List<ChatMessage> conversationHistory) {
+        // Single cache breakpoint after the closet: the instructions alone are below the minimum
+        // cacheable prompt length, so a breakpoint on them would never be written
         MessageCreateParams.Builder paramsBuilder = MessageCreateParams.builder()
                 .model(aiProperties.getAnthropic().getChatModel())
-                .maxTokens(1024)
-                .system(systemPrompt);
+                .maxTokens(MAX_TOKENS)
+                .systemOfTextBlockParams(List.of(
+                        TextBlockParam.builder().text(systemPrompt.instructions()).build(),
+                        cacheableBlock(systemPrompt.closet())));
 
         for (ChatMessage message : conversationHistory) {
             if (USER_ROLE.equals(message.getRole())) {
@@ -40,15 +93,34 @@ public class ClaudeChatService implements ChatLLMService {
             }
         }
 
-        Message response = anthropicClient.messages().create(paramsBuilder.build());
+        return paramsBuilder.build();
+    }
+
+    private TextBlockParam cacheableBlock(String text) {
+        return TextBlockParam.builder()
+                .text(text)
+                .cacheControl(CacheControlEphemeral.builder().build())
+                .build();
+    }
+
+    private void recordUsage(Usage usage) {
+        long cacheReadTokens = usage.cacheReadInputTokens().orElse(0L);
+        long cacheWriteTokens = usage.cacheCreationInputTokens().orElse(0L);
 
-        String responseText = response.content().stream()
+        log.info("Chat token usage - input: {}, output: {}, cache read: {}, cache write: {}",
+                usage.inputTokens(), usage.outputTokens(), cacheReadTokens, cacheWriteTokens);
+
+        meterRegistry.counter(TOKENS_METRIC, "type", "input").increment(usage.inputTokens());
+        meterRegistry.counter(TOKENS_METRIC, "type", "output").increment(usage.outputTokens());
+        meterRegistry.counter(TOKENS_METRIC, "type", "cache_read").increment(cacheReadTokens);
+        meterRegistry.counter(TOKENS_METRIC, "type", "cache_write").increment(cacheWriteTokens);
+    }
+
+    private String extractText(Message response) {
+        return response.content().stream()
                 .flatMap(block -> block.text().stream())
                 .map(TextBlock::text)
                 .findFirst()
                 .orElse("");
-
-        log.info("Chat response received ({} chars)", responseText.length());
-        return responseText;
     }
 }
@@ -4,12 +4,18 @@ import com.fitted.service.model.ClothingItem;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
 
+import java.util.Comparator;
 import java.util.List;
 
 @Service
 @Log4j2
 public class ClosetContextBuilder {
 
+    // Repository order is not guaranteed, and the closet block is a prompt cache prefix, so fix the order here
+    private static final Comparator<ClothingItem> CONTEXT_ORDER = Comparator
+            .comparing(ClothingItem::getCreatedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(ClothingItem::getId);
+
     public String buildContext(List<ClothingItem> items) {
         log.info("Building closet context with {} items", items.size());
 
@@ -20,7 +26,7 @@ public class ClosetContextBuilder {
         StringBuilder context = new StringBuilder();
         context.append("The user has ").append(items.size()).append(" items in their closet:\n\n");
 
-        for (ClothingItem item : items) {
+        for (ClothingItem item : items.stream().sorted(CONTEXT_ORDER).toList()) {
             context.append(formatItem(item)).append("\n\n");
         }
 
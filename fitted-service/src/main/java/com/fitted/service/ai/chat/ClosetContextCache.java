@@ -0,0 +1,124 @@
+package com.fitted.service.ai.chat;
+
+import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.model.ClothingItem;
+import com.fitted.service.repository.ClothingItemRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Caches each user's formatted closet context and item lookup between chat turns, so a warm turn
+ * makes no database calls for closet data.
+ * <p>
+ * Every user has a version that is bumped on invalidation. A snapshot is only stored if the version
+ * it was loaded under is still current, so a load that races with a closet change never overwrites
+ * the invalidation with stale data. Invalidations requested inside a transaction are applied after
+ * commit, once the change is visible to other readers.
+ * <p>
+ * Invalidation only reaches this instance, while enrichment can complete on any of them. Snapshots are
+ * therefore also dropped {@code closetCacheMaxAgeSeconds} after loading, however busy the session is.
+ */
+@Component
+@Log4j2
+public class ClosetContextCache {
+
+    private static final String CACHE_NAME = "closetContext";
+
+    private final ClothingItemRepository clothingItemRepository;
+    private final ClosetContextBuilder closetContextBuilder;
+    private final Cache<UUID, ClosetSnapshot> snapshots;
+    private final Cache<UUID, AtomicLong> versions;
+
+    @Autowired
+    public ClosetContextCache(ClothingItemRepository clothingItemRepository,
+                              ClosetContextBuilder closetContextBuilder,
+                              AIProperties aiProperties,
+                              MeterRegistry meterRegistry) {
+        this(clothingItemRepository, closetContextBuilder, aiProperties, meterRegistry, Ticker.systemTicker());
+    }
+
+    ClosetContextCache(ClothingItemRepository clothingItemRepository,
+                       ClosetContextBuilder closetContextBuilder,
+                       AIProperties aiProperties,
+                       MeterRegistry meterRegistry,
+                       Ticker ticker) {
+        this.clothingItemRepository = clothingItemRepository;
+        this.closetContextBuilder = closetContextBuilder;
+
+        AIProperties.Chat chat = aiProperties.getChat();
+        Duration idleTimeout = Duration.ofMinutes(chat.getSessionTimeoutMinutes());
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(chat.getClosetCacheMaxUsers())
+                .expireAfterAccess(idleTimeout)
+                .expireAfterWrite(Duration.ofSeconds(chat.getClosetCacheMaxAgeSeconds()))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        this.versions = Caffeine.newBuilder()
+                .expireAfterAccess(idleTimeout)
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, snapshots, CACHE_NAME);
+    }
+
+    public ClosetSnapshot get(UUID userId) {
+        ClosetSnapshot cached = snapshots.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long version = currentVersion(userId);
+        List<ClothingItem> userItems = clothingItemRepository.findByUserId(userId);
+        Map<UUID, ClothingItem> itemMap = userItems.stream()
+                .collect(Collectors.toUnmodifiableMap(ClothingItem::getId, Function.identity()));
+        ClosetSnapshot loaded = new ClosetSnapshot(version, closetContextBuilder.buildContext(userItems), itemMap);
+
+        snapshots.asMap().compute(userId, (id, existing) -> currentVersion(userId) == version ? loaded : existing);
+        log.debug("Loaded closet context for user: {} (version: {}, items: {})", userId, version, itemMap.size());
+        return loaded;
+    }
+
+    /**
+     * Discards the cached closet for a user. When called inside a transaction, the eviction happens after commit.
+     */
+    public void invalidate(UUID userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(userId);
+            }
+        });
+    }
+
+    private void evict(UUID userId) {
+        versions.get(userId, id -> new AtomicLong()).incrementAndGet();
+        snapshots.invalidate(userId);
+        log.debug("Invalidated closet context for user: {}", userId);
+    }
+
+    private long currentVersion(UUID userId) {
+        return versions.get(userId, id -> new AtomicLong()).get();
+    }
+
+    public record ClosetSnapshot(long version, String context, Map<UUID, ClothingItem> itemMap) {}
+}
@@ -0,0 +1,99 @@
+package com.fitted.service.ai.chat;
+
+import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.ai.embedding.ClosetVectorIndex;
+import com.fitted.service.ai.embedding.EmbeddingService;
+import com.fitted.service.model.ClothingItem;
+import com.fitted.service.model.ClothingType;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository.Neighbour;
+import com.fitted.service.utils.VectorUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Narrows a large closet down to the items most relevant to a chat message, so the prompt stays small.
+ * <p>
+ * The message is embedded as text with the same CLIP model used for item images, and the user's items are ranked
+ * by similarity, keeping the top items of each clothing type so an outfit can still be composed. Closets held by
+ * {@link ClosetVectorIndex} are ranked in memory, others by pgvector.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class ClosetRetriever {
+
+    private final EmbeddingService embeddingService;
+    private final ClothingItemEmbeddingRepository clothingItemEmbeddingRepository;
+    private final ClosetVectorIndex closetVectorIndex;
+    private final AIProperties aiProperties;
+
+    /**
+     * Returns the closet items most similar to the message, or empty if retrieval is not configured
+     * or fails, in which case the caller should fall back to the full closet.
+     */
+    public Optional<List<ClothingItem>> findRelevantItems(UUID userId, String message, Map<UUID, ClothingItem> closet) {
+        String textEndpoint = aiProperties.getEmbedding().getTextEndpoint();
+        if (textEndpoint == null || textEndpoint.isBlank()) {
+            return Optional.empty();
+        }
+
+        try {
+            float[] queryEmbedding = embeddingService.generateTextEmbedding(message);
+            int itemsPerType = aiProperties.getChat().getRetrievalItemsPerType();
+            List<ClothingItem> relevantItems = closetVectorIndex.findNearest(userId, queryEmbedding, Integer.MAX_VALUE)
+                    .map(nearest -> mostSimilarPerType(nearest, closet, itemsPerType))
+                    .orElseGet(() -> clothingItemEmbeddingRepository.findMostSimilarItemIdsPerType(userId,
+                                    VectorUtils.toVectorLiteral(queryEmbedding), itemsPerType).stream()
+                            .map(closet::get)
+                            .filter(Objects::nonNull)
+                            .toList());
+            log.info("Retrieved {} of {} closet items for user: {}", relevantItems.size(), closet.size(), userId);
+            return Optional.of(relevantItems);
+        } catch (Exception e) {
+            log.warn("Closet retrieval failed for user: {}, using full closet", userId, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Selects the same items as {@link ClothingItemEmbeddingRepository#findMostSimilarItemIdsPerType} from the
+     * whole closet ranked by distance: the nearest itemsPerType of each type, topped up with items that have no
+     * embedding yet, newest first.
+     */
+    private static List<ClothingItem> mostSimilarPerType(List<Neighbour> nearest, Map<UUID, ClothingItem> closet, int itemsPerType) {
+        Map<ClothingType, Integer> selectedPerType = new HashMap<>();
+        List<ClothingItem> selected = new ArrayList<>();
+        Set<UUID> embedded = new HashSet<>();
+        for (Neighbour neighbour : nearest) {
+            embedded.add(neighbour.getClothingItemId());
+            ClothingItem clothingItem = closet.get(neighbour.getClothingItemId());
+            if (clothingItem != null && selectedPerType.merge(clothingItem.getType(), 1, Integer::sum) <= itemsPerType) {
+                selected.add(clothingItem);
+            }
+        }
+
+        List<ClothingItem> withoutEmbedding = closet.values().stream()
+                .filter(clothingItem -> !embedded.contains(clothingItem.getId()))
+                .sorted(Comparator.comparing(ClothingItem::getCreatedAt, Comparator.nullsFirst(Comparator.reverseOrder())))
+                .toList();
+        for (ClothingItem clothingItem : withoutEmbedding) {
+            if (selectedPerType.merge(clothingItem.getType(), 1, Integer::sum) <= itemsPerType) {
+                selected.add(clothingItem);
+            }
+        }
+        return selected;
+    }
+}
@@ -29,6 +29,17 @@ public class ChatSession {
         lastActivityAt = Instant.now();
     }
 
+    /**
+     * Removes the message if it is still the latest one, undoing an addMessage whose turn never ran.
+     */
+    public boolean removeLastMessage(ChatMessage message) {
+        if (conversationHistory.isEmpty() || conversationHistory.getLast() != message) {
+            return false;
+        }
+        conversationHistory.removeLast();
+        return true;
+    }
+
     public List<ChatMessage> getConversationHistory() {
         return Collections.unmodifiableList(conversationHistory);
     }
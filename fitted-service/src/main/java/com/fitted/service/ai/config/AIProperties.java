@@ -15,6 +15,7 @@ public class AIProperties {
     private Embedding embedding = new Embedding();
     private Enrichment enrichment = new Enrichment();
     private Chat chat = new Chat();
+    private Similarity similarity = new Similarity();
 
     @Getter
     @Setter
@@ -28,6 +29,12 @@ public class AIProperties {
     @Setter
     public static class Embedding {
         private String endpoint;
+        private String textEndpoint;
+        private String batchEndpoint;
+        // Concurrent enrichment requests are grouped into one batch call, up to this many images
+        // or until the first request in the window has waited this long
+        private int batchMaxSize = 16;
+        private long batchWindowMillis = 50;
         private String modelName = "clip-vit-base-patch32";
         private int dimensions = 512;
     }
@@ -36,6 +43,22 @@ public class AIProperties {
     @Setter
     public static class Enrichment {
         private boolean enabled = true;
+        private int maxConcurrentJobs = 4;
+        private int maxAttempts = 5;
+        private long retryBaseDelaySeconds = 30;
+        private long retryMaxDelaySeconds = 1800;
+        // A claimed job becomes claimable again if its worker has not finished it within this time
+        private long visibilityTimeoutSeconds = 300;
+        private long visionTimeoutSeconds = 60;
+        private long embeddingTimeoutSeconds = 30;
+        // Freshly uploaded images are kept in memory for their enrichment job, up to this many bytes in total
+        private long handoffMaxBytes = 64 * 1024 * 1024;
+        private long handoffTtlSeconds = 300;
+        // Images are downscaled before the model calls: the vision JPEG to this longer side and quality,
+        // the embedding PNG to the CLIP input size on its shorter side
+        private int visionImageMaxSize = 1024;
+        private float visionImageQuality = 0.85f;
+        private int embeddingImageSize = 224;
     }
 
     @Getter
@@ -44,5 +67,28 @@ public class AIProperties {
         private int maxMessagesPerSession = 20;
         private int sessionTimeoutMinutes = 30;
         private int maxMessageLength = 1000;
+        private int closetCacheMaxUsers = 1000;
+        // Closet changes made on another instance are only invalidated locally there, so cached closets are
+        // reloaded at least this often
+        private long closetCacheMaxAgeSeconds = 60;
+        // Closets larger than this are narrowed to the items most similar to the message before prompting
+        private int retrievalMinClosetSize = 60;
+        private int retrievalItemsPerType = 8;
+    }
+
+    @Getter
+    @Setter
+    public static class Similarity {
+        // Candidates the HNSW index keeps per query; higher raises recall at the cost of latency
+        private int efSearch = 100;
+        // Keeps scanning the index until enough of the user's items are found, instead of returning fewer
+        // than asked when other users' items fill the candidate list. Blank leaves the server setting
+        private String iterativeScan = "relaxed_order";
+        private int defaultLimit = 12;
+        private int maxLimit = 50;
+        // Searched closets are kept in memory and ranked in process, exactly, instead of by pgvector
+        private boolean inMemoryIndexEnabled = true;
+        private long inMemoryIndexMaxBytes = 256L * 1024 * 1024;
+        private long inMemoryIndexIdleMinutes = 30;
     }
 }
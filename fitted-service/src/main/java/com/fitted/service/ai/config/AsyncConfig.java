@@ -1,12 +1,17 @@
 package com.fitted.service.ai.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Configuration
 @EnableAsync
@@ -14,6 +19,7 @@ import java.util.concurrent.Executor;
 public class AsyncConfig {
 
     @Bean(name = "enrichment-executor")
+    @ConditionalOnThreading(Threading.PLATFORM)
     public Executor enrichmentExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(2);
@@ -23,4 +29,68 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    // With spring.threads.virtual.enabled, concurrency is bounded by EnrichmentJobWorker's slots and the
+    // downstream limiters rather than by pool size
+    @Bean(name = "enrichment-executor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Executor virtualEnrichmentExecutor() {
+        return virtualThreadExecutor("clothing-item-enrichment-");
+    }
+
+    // Runs the blocking remote calls of one enrichment concurrently; each call gets its own virtual thread
+    @Bean(name = "enrichment-call-executor")
+    public ExecutorService enrichmentCallExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("enrichment-call-", 0).factory());
+    }
+
+    @Bean(name = "embedding-batch-executor")
+    public Executor embeddingBatchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("embedding-batch-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Image resizing is CPU bound, so it gets a small platform pool rather than virtual threads. Work that
+    // does not fit in the queue is dropped; clients fall back to the full-size image
+    @Bean(name = "image-derivative-executor")
+    public Executor imageDerivativeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(20);
+        executor.setThreadNamePrefix("image-derivative-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "chat-stream-executor")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public Executor chatStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // Each stream holds its thread for the length of the LLM response, so size the core pool for the
+        // expected number of concurrent streams rather than relying on the queue
+        executor.setCorePoolSize(16);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(64);
+        executor.setThreadNamePrefix("chat-stream-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "chat-stream-executor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Executor virtualChatStreamExecutor() {
+        return virtualThreadExecutor("chat-stream-");
+    }
+
+    private static SimpleAsyncTaskExecutor virtualThreadExecutor(String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        return executor;
+    }
 }
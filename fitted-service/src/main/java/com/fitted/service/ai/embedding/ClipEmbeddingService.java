@@ -3,6 +3,8 @@ package com.fitted.service.ai.embedding;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.concurrency.Downstream;
+import com.fitted.service.concurrency.DownstreamLimiter;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpEntity;
@@ -14,6 +16,10 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 @Service
 @Log4j2
 public class ClipEmbeddingService implements EmbeddingService {
@@ -21,9 +27,15 @@ public class ClipEmbeddingService implements EmbeddingService {
     private final RestTemplate restTemplate = new RestTemplate();
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final String embeddingEndpoint;
+    private final String textEmbeddingEndpoint;
+    private final String batchEmbeddingEndpoint;
+    private final DownstreamLimiter downstreamLimiter;
 
-    public ClipEmbeddingService(AIProperties aiProperties) {
+    public ClipEmbeddingService(AIProperties aiProperties, DownstreamLimiter downstreamLimiter) {
+        this.downstreamLimiter = downstreamLimiter;
         this.embeddingEndpoint = aiProperties.getEmbedding().getEndpoint();
+        this.batchEmbeddingEndpoint = aiProperties.getEmbedding().getBatchEndpoint();
+        this.textEmbeddingEndpoint = aiProperties.getEmbedding().getTextEndpoint();
     }
 
     @Override
@@ -45,16 +57,9 @@ public class ClipEmbeddingService implements EmbeddingService {
             headers.setContentType(MediaType.MULTIPART_FORM_DATA);
 
             HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-            ResponseEntity<String> response = restTemplate.postForEntity(embeddingEndpoint, requestEntity, String.class);
-
-            JsonNode root = objectMapper.readTree(response.getBody());
-            JsonNode embeddingNode = root.get("embedding");
-
-            float[] embedding = new float[embeddingNode.size()];
-            for (int i = 0; i < embeddingNode.size(); i++) {
-                embedding[i] = (float) embeddingNode.get(i).asDouble();
-            }
+            ResponseEntity<String> response = post(embeddingEndpoint, requestEntity);
 
+            float[] embedding = parseEmbedding(response.getBody());
             log.info("Embedding generated successfully ({} dimensions)", embedding.length);
             return embedding;
 
@@ -63,4 +68,91 @@ public class ClipEmbeddingService implements EmbeddingService {
             throw new RuntimeException("Failed to generate embedding", e);
         }
     }
+
+    @Override
+    public List<float[]> generateEmbeddings(List<byte[]> images) {
+        if (images.isEmpty()) {
+            return List.of();
+        }
+        if (images.size() == 1 || batchEmbeddingEndpoint == null || batchEmbeddingEndpoint.isBlank()) {
+            return images.stream().map(this::generateEmbedding).toList();
+        }
+
+        log.info("Generating {} embeddings via CLIP batch endpoint: {}", images.size(), batchEmbeddingEndpoint);
+
+        try {
+            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+            for (int i = 0; i < images.size(); i++) {
+                String filename = "image-" + i + ".png";
+                body.add("files", new ByteArrayResource(images.get(i)) {
+                    @Override
+                    public String getFilename() {
+                        return filename;
+                    }
+                });
+            }
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+            ResponseEntity<String> response = post(batchEmbeddingEndpoint, requestEntity);
+
+            JsonNode embeddingsNode = objectMapper.readTree(response.getBody()).get("embeddings");
+            if (embeddingsNode == null || embeddingsNode.size() != images.size()) {
+                throw new IllegalStateException("Expected " + images.size() + " embeddings but received "
+                        + (embeddingsNode == null ? 0 : embeddingsNode.size()));
+            }
+
+            List<float[]> embeddings = new ArrayList<>(images.size());
+            for (JsonNode embeddingNode : embeddingsNode) {
+                embeddings.add(toFloatArray(embeddingNode));
+            }
+
+            log.info("Batch of {} embeddings generated successfully", embeddings.size());
+            return embeddings;
+
+        } catch (Exception e) {
+            log.error("Failed to generate batch embeddings", e);
+            throw new RuntimeException("Failed to generate batch embeddings", e);
+        }
+    }
+
+    @Override
+    public float[] generateTextEmbedding(String text) {
+        log.info("Generating text embedding via CLIP endpoint: {}", textEmbeddingEndpoint);
+
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+
+            HttpEntity<Map<String, String>> requestEntity = new HttpEntity<>(Map.of("text", text), headers);
+            ResponseEntity<String> response = post(textEmbeddingEndpoint, requestEntity);
+
+            float[] embedding = parseEmbedding(response.getBody());
+            log.info("Text embedding generated successfully ({} dimensions)", embedding.length);
+            return embedding;
+
+        } catch (Exception e) {
+            log.error("Failed to generate text embedding", e);
+            throw new RuntimeException("Failed to generate text embedding", e);
+        }
+    }
+
+    private ResponseEntity<String> post(String endpoint, HttpEntity<?> requestEntity) {
+        return downstreamLimiter.call(Downstream.EMBEDDING,
+                () -> restTemplate.postForEntity(endpoint, requestEntity, String.class));
+    }
+
+    private float[] parseEmbedding(String responseBody) throws Exception {
+        return toFloatArray(objectMapper.readTree(responseBody).get("embedding"));
+    }
+
+    private float[] toFloatArray(JsonNode embeddingNode) {
+        float[] embedding = new float[embeddingNode.size()];
+        for (int i = 0; i < embeddingNode.size(); i++) {
+            embedding[i] = (float) embeddingNode.get(i).asDouble();
+        }
+        return embedding;
+    }
 }
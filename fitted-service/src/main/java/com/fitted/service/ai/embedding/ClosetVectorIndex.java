@@ -0,0 +1,146 @@
+package com.fitted.service.ai.embedding;
+
+import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.model.ClothingItemEmbedding;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository.ClosetVersion;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository.Neighbour;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Keeps the clothing item embeddings of recently searched closets in memory, so similarity searches for
+ * active users are ranked in process instead of by a pgvector query.
+ * <p>
+ * A user's embeddings are loaded on their first search and searched exhaustively with SIMD dot products,
+ * ranking like an exact database search up to float rounding. The cache evicts closets to stay within
+ * {@code ai.similarity.in-memory-index-max-bytes}, and drops closets that sit idle.
+ * <p>
+ * Every search first reads the closet's version from the database, a count and checksum of the user's
+ * embedding rows, which is cheap next to loading them. A closet held here is only served while its version is
+ * current, so changes committed through any instance are seen by the next search, and closets over the budget
+ * are left to the database without loading them. The version is read before the rows, so a load that races
+ * with a change stores a version that is already stale and is reloaded by the next search.
+ */
+@Component
+@Log4j2
+public class ClosetVectorIndex {
+
+    private static final String CACHE_NAME = "closetVectorIndex";
+
+    private final ClothingItemEmbeddingRepository clothingItemEmbeddingRepository;
+    private final boolean enabled;
+    private final int dimensions;
+    private final long maxBytes;
+    private final Cache<UUID, LoadedCloset> indexes;
+
+    public ClosetVectorIndex(ClothingItemEmbeddingRepository clothingItemEmbeddingRepository,
+                             AIProperties aiProperties,
+                             MeterRegistry meterRegistry) {
+        this.clothingItemEmbeddingRepository = clothingItemEmbeddingRepository;
+
+        AIProperties.Similarity similarity = aiProperties.getSimilarity();
+        this.enabled = similarity.isInMemoryIndexEnabled();
+        this.dimensions = aiProperties.getEmbedding().getDimensions();
+        this.maxBytes = similarity.getInMemoryIndexMaxBytes();
+        this.indexes = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((UUID userId, LoadedCloset closet) ->
+                        (int) Math.min(Integer.MAX_VALUE, closet.index().estimatedBytes()))
+                .expireAfterAccess(Duration.ofMinutes(similarity.getInMemoryIndexIdleMinutes()))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, indexes, CACHE_NAME);
+        log.info("In-memory vector index {}, SIMD {}", enabled ? "enabled" : "disabled",
+                VectorMath.SIMD_ENABLED ? "enabled" : "unavailable (start with --add-modules jdk.incubator.vector)");
+    }
+
+    /**
+     * The user's {@code limit} items nearest to the query embedding by cosine distance, nearest first, or
+     * empty if the index is disabled, the closet does not fit in its budget or the query does not match the
+     * embedding dimensions, in which case the caller should query the database.
+     */
+    public Optional<List<Neighbour>> findNearest(UUID userId, float[] queryEmbedding, int limit) {
+        if (!enabled || queryEmbedding.length != dimensions) {
+            return Optional.empty();
+        }
+        return get(userId).map(index -> Collections.unmodifiableList(index.findNearest(queryEmbedding, limit)));
+    }
+
+    /**
+     * Whether a closet of {@code itemCount} items fits in the memory budget. Closets that fit are ranked exactly
+     * here, so database searches of them should be exact too, or results would change with which instance
+     * serves the search or whether the closet is loaded.
+     */
+    public boolean fitsInBudget(long itemCount) {
+        return UserVectorIndex.estimatedBytes(dimensions, itemCount) <= maxBytes;
+    }
+
+    /**
+     * Drops the user's loaded closet once its embeddings have changed, freeing the memory now rather than on
+     * the next search. When called inside a transaction, the closet is dropped after commit.
+     */
+    public void invalidate(UUID userId) {
+        afterCommit(() -> indexes.invalidate(userId));
+    }
+
+    private Optional<UserVectorIndex> get(UUID userId) {
+        ClosetVersion version = clothingItemEmbeddingRepository.findClosetVersion(userId);
+        if (!fitsInBudget(version.getItemCount())) {
+            log.debug("Vector index for user: {} ({} items) exceeds the memory budget, searching in the database",
+                    userId, version.getItemCount());
+            return Optional.empty();
+        }
+        LoadedCloset cached = indexes.getIfPresent(userId);
+        if (cached != null && cached.isAt(version)) {
+            return Optional.of(cached.index());
+        }
+
+        List<ClothingItemEmbedding> embeddings = clothingItemEmbeddingRepository.findByUserId(userId);
+        UserVectorIndex loaded = new UserVectorIndex(dimensions, embeddings.size());
+        for (ClothingItemEmbedding embedding : embeddings) {
+            if (embedding.getEmbedding().length == dimensions) {
+                loaded.put(embedding.getClothingItemId(), embedding.getEmbedding());
+            }
+        }
+        // The closet may have grown past the budget since its version was read
+        if (loaded.estimatedBytes() <= maxBytes) {
+            indexes.put(userId, new LoadedCloset(version.getItemCount(), version.getChecksum(), loaded));
+        }
+        log.debug("Loaded vector index for user: {} (items: {})", userId, loaded.size());
+        return Optional.of(loaded);
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    private record LoadedCloset(long itemCount, long checksum, UserVectorIndex index) {
+
+        boolean isAt(ClosetVersion version) {
+            return itemCount == version.getItemCount() && checksum == version.getChecksum();
+        }
+    }
+}
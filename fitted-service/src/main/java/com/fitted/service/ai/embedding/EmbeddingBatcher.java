@@ -0,0 +1,152 @@
+package com.fitted.service.ai.embedding;
+
+import com.fitted.service.ai.config.AIProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups image embedding requests that arrive close together into a single batch call to the
+ * embedding endpoint.
+ * <p>
+ * A window opens with the first pending request and is flushed when it reaches the configured
+ * batch size or when the window time elapses, whichever comes first. Batch calls run on the
+ * embedding batch executor so neither callers nor the window timer block on the HTTP request.
+ * If a batch call fails, each image in it is retried on its own so one bad image only fails its
+ * own request.
+ */
+@Component
+@Log4j2
+public class EmbeddingBatcher {
+
+    private final EmbeddingService embeddingService;
+    private final Executor batchExecutor;
+    private final int maxBatchSize;
+    private final long windowMillis;
+    private final ScheduledExecutorService windowTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "embedding-batch-window");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object lock = new Object();
+    private List<PendingEmbedding> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    public EmbeddingBatcher(EmbeddingService embeddingService,
+                            @Qualifier("embedding-batch-executor") Executor batchExecutor,
+                            AIProperties aiProperties) {
+        this.embeddingService = embeddingService;
+        this.batchExecutor = batchExecutor;
+        this.maxBatchSize = aiProperties.getEmbedding().getBatchMaxSize();
+        this.windowMillis = aiProperties.getEmbedding().getBatchWindowMillis();
+    }
+
+    /**
+     * Queues an image for the next batch.
+     *
+     * @param imageBytes the background-removed clothing item image as bytes
+     * @return a future completed with the image's embedding, or exceptionally if its batch fails
+     */
+    public CompletableFuture<float[]> submit(byte[] imageBytes) {
+        PendingEmbedding request = new PendingEmbedding(imageBytes, new CompletableFuture<>());
+
+        List<PendingEmbedding> fullBatch = null;
+        synchronized (lock) {
+            pending.add(request);
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = drain();
+            } else if (pending.size() == 1) {
+                scheduledFlush = windowTimer.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (fullBatch != null) {
+            dispatch(fullBatch);
+        }
+        return request.result();
+    }
+
+    private void flush() {
+        List<PendingEmbedding> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = drain();
+        }
+        dispatch(batch);
+    }
+
+    // Must be called while holding the lock
+    private List<PendingEmbedding> drain() {
+        List<PendingEmbedding> batch = pending;
+        pending = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(List<PendingEmbedding> batch) {
+        try {
+            batchExecutor.execute(() -> embed(batch));
+        } catch (RejectedExecutionException e) {
+            log.error("Embedding batch of {} images rejected", batch.size(), e);
+            batch.forEach(request -> request.result().completeExceptionally(e));
+        }
+    }
+
+    private void embed(List<PendingEmbedding> batch) {
+        log.info("Embedding batch of {} images", batch.size());
+        try {
+            List<float[]> embeddings = embeddingService.generateEmbeddings(
+                    batch.stream().map(PendingEmbedding::imageBytes).toList());
+            if (embeddings.size() != batch.size()) {
+                throw new IllegalStateException("Expected " + batch.size() + " embeddings but received " + embeddings.size());
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(embeddings.get(i));
+            }
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                batch.getFirst().result().completeExceptionally(e);
+                return;
+            }
+            log.warn("Embedding batch of {} images failed, retrying each image individually", batch.size(), e);
+            batch.forEach(this::embedIndividually);
+        }
+    }
+
+    private void embedIndividually(PendingEmbedding request) {
+        try {
+            request.result().complete(embeddingService.generateEmbedding(request.imageBytes()));
+        } catch (Exception e) {
+            request.result().completeExceptionally(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        windowTimer.shutdownNow();
+        synchronized (lock) {
+            drain().forEach(request -> request.result()
+                    .completeExceptionally(new IllegalStateException("Embedding batcher shut down")));
+        }
+    }
+
+    private record PendingEmbedding(byte[] imageBytes, CompletableFuture<float[]> result) {}
+}
@@ -1,5 +1,7 @@
 package com.fitted.service.ai.embedding;
 
+import java.util.List;
+
 public interface EmbeddingService {
 
     /**
@@ -9,4 +11,20 @@ public interface EmbeddingService {
      * @return a float array representing the embedding vector
      */
     float[] generateEmbedding(byte[] imageBytes);
+
+    /**
+     * Generates vector embeddings for several clothing item images in one request.
+     *
+     * @param images the background-removed clothing item images as bytes
+     * @return one embedding per image, in the same order as the input
+     */
+    List<float[]> generateEmbeddings(List<byte[]> images);
+
+    /**
+     * Generates a vector embedding of a piece of text in the same space as the image embeddings.
+     *
+     * @param text the text to embed, such as a chat message
+     * @return a float array representing the embedding vector
+     */
+    float[] generateTextEmbedding(String text);
 }
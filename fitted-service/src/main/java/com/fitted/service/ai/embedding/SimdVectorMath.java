@@ -0,0 +1,40 @@
+package com.fitted.service.ai.embedding;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Only loaded through {@link VectorMath} once it has checked that the Vector API module is present.
+ * <p>
+ * Floats are widened to doubles before multiplying, so every product is exact and only the additions round,
+ * like in {@link VectorMath#scalarDot}. The two differ only in the order they add the products, which moves
+ * the result by far less than a float's precision.
+ */
+final class SimdVectorMath {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    // As many floats as there are double lanes, so each load widens to one double vector
+    private static final VectorSpecies<Float> FLOATS =
+            VectorSpecies.of(float.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+    private SimdVectorMath() {
+    }
+
+    static double dot(float[] a, int offset, float[] b, int length) {
+        DoubleVector sums = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (int bound = FLOATS.loopBound(length); i < bound; i += FLOATS.length()) {
+            DoubleVector x = (DoubleVector) FloatVector.fromArray(FLOATS, a, offset + i).castShape(DOUBLES, 0);
+            DoubleVector y = (DoubleVector) FloatVector.fromArray(FLOATS, b, i).castShape(DOUBLES, 0);
+            sums = x.fma(y, sums);
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += (double) a[offset + i] * b[i];
+        }
+        return sum;
+    }
+}
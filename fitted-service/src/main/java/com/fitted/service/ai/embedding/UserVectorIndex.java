@@ -0,0 +1,197 @@
+package com.fitted.service.ai.embedding;
+
+import com.fitted.service.repository.ClothingItemEmbeddingRepository.Neighbour;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One user's clothing item embeddings, stored row after row in a single float array, searched exhaustively.
+ * <p>
+ * Distances use pgvector's {@code <=>} formula, {@code 1 - dot / sqrt(norm_a * norm_b)} clamped to [0, 2], with a
+ * zero vector giving NaN, which sorts last. The sums are accumulated in double where pgvector accumulates floats,
+ * so a distance can differ from the database's by float rounding, around 1e-6, and items that near-tie can swap
+ * places. Otherwise, searching every row ranks like an exact database search; ties are broken by item id.
+ */
+final class UserVectorIndex {
+
+    private static final int MIN_CAPACITY = 16;
+    // Per row beyond the vector itself: the id, its slot in the id array and norms, and the position map entry
+    private static final int ROW_OVERHEAD_BYTES = 128;
+
+    static final Comparator<Match> NEAREST_FIRST = Comparator.comparingDouble(Match::distance)
+            .thenComparing(Match::clothingItemId, UserVectorIndex::compareUnsigned);
+
+    private final int dimensions;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Integer> positions = new HashMap<>();
+    private UUID[] ids;
+    private float[] vectors;
+    private double[] norms;
+    private int size;
+
+    UserVectorIndex(int dimensions, int expectedSize) {
+        this.dimensions = dimensions;
+        int capacity = Math.max(MIN_CAPACITY, expectedSize);
+        this.ids = new UUID[capacity];
+        this.vectors = new float[capacity * dimensions];
+        this.norms = new double[capacity];
+    }
+
+    /**
+     * Adds or replaces the embedding of a clothing item.
+     */
+    void put(UUID clothingItemId, float[] embedding) {
+        if (embedding.length != dimensions) {
+            throw new IllegalArgumentException(String.format("Expected %d dimensions but embedding has %d",
+                    dimensions, embedding.length));
+        }
+        lock.writeLock().lock();
+        try {
+            Integer position = positions.get(clothingItemId);
+            if (position == null) {
+                if (size == ids.length) {
+                    grow();
+                }
+                position = size++;
+                positions.put(clothingItemId, position);
+                ids[position] = clothingItemId;
+            }
+            System.arraycopy(embedding, 0, vectors, position * dimensions, dimensions);
+            norms[position] = VectorMath.dot(embedding, 0, embedding, dimensions);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(UUID clothingItemId) {
+        lock.writeLock().lock();
+        try {
+            Integer position = positions.remove(clothingItemId);
+            if (position == null) {
+                return;
+            }
+            // Move the last row into the gap to keep the rows contiguous
+            int last = --size;
+            if (position != last) {
+                ids[position] = ids[last];
+                norms[position] = norms[last];
+                System.arraycopy(vectors, last * dimensions, vectors, position * dimensions, dimensions);
+                positions.put(ids[position], position);
+            }
+            ids[last] = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The {@code k} items nearest to the query by cosine distance, nearest first.
+     */
+    List<Match> findNearest(float[] queryEmbedding, int k) {
+        if (queryEmbedding.length != dimensions) {
+            throw new IllegalArgumentException(String.format("Expected %d dimensions but query has %d",
+                    dimensions, queryEmbedding.length));
+        }
+        double queryNorm = VectorMath.dot(queryEmbedding, 0, queryEmbedding, dimensions);
+
+        lock.readLock().lock();
+        try {
+            int limit = Math.min(k, size);
+            if (limit <= 0) {
+                return List.of();
+            }
+            // Farthest of the current best at the head, so it is the one replaced
+            PriorityQueue<Match> nearest = new PriorityQueue<>(limit + 1, NEAREST_FIRST.reversed());
+            for (int row = 0; row < size; row++) {
+                double dot = VectorMath.dot(vectors, row * dimensions, queryEmbedding, dimensions);
+                Match match = new Match(ids[row], cosineDistance(dot, norms[row], queryNorm));
+                if (nearest.size() < limit) {
+                    nearest.add(match);
+                } else if (NEAREST_FIRST.compare(match, nearest.peek()) < 0) {
+                    nearest.poll();
+                    nearest.add(match);
+                }
+            }
+
+            List<Match> matches = new ArrayList<>(nearest);
+            matches.sort(NEAREST_FIRST);
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate heap footprint in bytes, counting allocated but unused rows.
+     */
+    long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return estimatedBytes(dimensions, ids.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate heap footprint in bytes of an index with {@code rows} rows.
+     */
+    static long estimatedBytes(int dimensions, long rows) {
+        return rows * (dimensions * Float.BYTES + ROW_OVERHEAD_BYTES);
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        vectors = Arrays.copyOf(vectors, capacity * dimensions);
+        norms = Arrays.copyOf(norms, capacity);
+    }
+
+    static double cosineDistance(double dot, double norm, double queryNorm) {
+        double similarity = dot / Math.sqrt(norm * queryNorm);
+        if (similarity > 1) {
+            similarity = 1;
+        } else if (similarity < -1) {
+            similarity = -1;
+        }
+        return 1 - similarity;
+    }
+
+    // Postgres orders uuids by their bytes, unsigned
+    private static int compareUnsigned(UUID a, UUID b) {
+        int mostSignificant = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return mostSignificant != 0
+                ? mostSignificant
+                : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    record Match(UUID clothingItemId, double distance) implements Neighbour {
+        @Override
+        public UUID getClothingItemId() {
+            return clothingItemId;
+        }
+
+        @Override
+        public double getDistance() {
+            return distance;
+        }
+    }
+}
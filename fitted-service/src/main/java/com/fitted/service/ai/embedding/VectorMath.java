@@ -0,0 +1,30 @@
+package com.fitted.service.ai.embedding;
+
+/**
+ * Dot products for the in-memory vector index. Uses the Vector API when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}, and a scalar loop otherwise, so the module stays optional.
+ */
+final class VectorMath {
+
+    static final boolean SIMD_ENABLED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private VectorMath() {
+    }
+
+    /**
+     * Dot product of {@code length} floats of {@code a}, starting at {@code offset}, with the start of {@code b},
+     * summed in double. The SIMD and scalar paths add the products in a different order, so their results can
+     * differ in the last bits of the double, far below a float's precision.
+     */
+    static double dot(float[] a, int offset, float[] b, int length) {
+        return SIMD_ENABLED ? SimdVectorMath.dot(a, offset, b, length) : scalarDot(a, offset, b, length);
+    }
+
+    static double scalarDot(float[] a, int offset, float[] b, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += (double) a[offset + i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,216 @@
+package com.fitted.service.ai.enrichment;
+
+import com.fitted.service.ai.chat.ClosetContextCache;
+import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.ai.embedding.ClosetVectorIndex;
+import com.fitted.service.ai.embedding.EmbeddingBatcher;
+import com.fitted.service.ai.vision.VisionAIService;
+import com.fitted.service.model.ClothingItemEmbedding;
+import com.fitted.service.model.EnrichmentJob;
+import com.fitted.service.model.EnrichmentStatus;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository;
+import com.fitted.service.repository.ClothingItemRepository;
+import com.fitted.service.service.CloudFrontUrlService;
+import com.fitted.service.service.S3FileUploadService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes enrichment jobs claimed by {@link EnrichmentJobWorker}, enriching one clothing item per job.
+ * <p>
+ * The image is decoded once and downscaled for each model by {@link ImagePreprocessor}. The vision and
+ * embedding calls run concurrently, each with its own timeout, and outside any transaction
+ * so a slow model call never holds a database connection. Whatever succeeded is written in a short
+ * transaction against a freshly loaded item; if only one call succeeded the item is marked
+ * {@link EnrichmentStatus#PARTIAL} and the job is retried for the missing part only.
+ */
+@Component
+@Log4j2
+public class EnrichmentJobProcessor {
+
+    private final VisionAIService visionAIService;
+    private final EmbeddingBatcher embeddingBatcher;
+    private final ClothingItemRepository clothingItemRepository;
+    private final ClothingItemEmbeddingRepository clothingItemEmbeddingRepository;
+    private final ClosetContextCache closetContextCache;
+    private final ClosetVectorIndex closetVectorIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor enrichmentCallExecutor;
+    private final AIProperties aiProperties;
+    private final ImageHandoffStore imageHandoffStore;
+    private final S3FileUploadService s3FileUploadService;
+    private final CloudFrontUrlService cloudFrontUrlService;
+    private final ImagePreprocessor imagePreprocessor;
+
+    public EnrichmentJobProcessor(VisionAIService visionAIService,
+                                  EmbeddingBatcher embeddingBatcher,
+                                  ClothingItemRepository clothingItemRepository,
+                                  ClothingItemEmbeddingRepository clothingItemEmbeddingRepository,
+                                  ClosetContextCache closetContextCache,
+                                  ClosetVectorIndex closetVectorIndex,
+                                  TransactionTemplate transactionTemplate,
+                                  @Qualifier("enrichment-call-executor") Executor enrichmentCallExecutor,
+                                  AIProperties aiProperties,
+                                  ImageHandoffStore imageHandoffStore,
+                                  S3FileUploadService s3FileUploadService,
+                                  CloudFrontUrlService cloudFrontUrlService,
+                                  ImagePreprocessor imagePreprocessor) {
+        this.visionAIService = visionAIService;
+        this.embeddingBatcher = embeddingBatcher;
+        this.clothingItemRepository = clothingItemRepository;
+        this.clothingItemEmbeddingRepository = clothingItemEmbeddingRepository;
+        this.closetContextCache = closetContextCache;
+        this.closetVectorIndex = closetVectorIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.enrichmentCallExecutor = enrichmentCallExecutor;
+        this.aiProperties = aiProperties;
+        this.imageHandoffStore = imageHandoffStore;
+        this.s3FileUploadService = s3FileUploadService;
+        this.cloudFrontUrlService = cloudFrontUrlService;
+        this.imagePreprocessor = imagePreprocessor;
+    }
+
+    /**
+     * Runs enrichment for a claimed job. Throws if the job should be retried.
+     */
+    public void process(EnrichmentJob job) {
+        UUID clothingItemId = job.getClothingItemId();
+        log.info("Starting enrichment for clothing item: {} (attempt {})", clothingItemId, job.getAttempts());
+
+        Optional<RemainingWork> remaining = startEnrichment(clothingItemId);
+        if (remaining.isEmpty()) {
+            log.warn("Clothing item not found for enrichment: {}", clothingItemId);
+            imageHandoffStore.remove(clothingItemId);
+            return;
+        }
+
+        ImagePreprocessor.PreparedImages images = imagePreprocessor.prepare(loadImage(job));
+
+        AIProperties.Enrichment enrichment = aiProperties.getEnrichment();
+        CompletableFuture<String> descriptionFuture = remaining.get().description()
+                ? CompletableFuture.supplyAsync(() -> visionAIService.generateDescription(images.visionImage()), enrichmentCallExecutor)
+                        .orTimeout(enrichment.getVisionTimeoutSeconds(), TimeUnit.SECONDS)
+                : CompletableFuture.completedFuture(null);
+        CompletableFuture<float[]> embeddingFuture = remaining.get().embedding()
+                ? embeddingBatcher.submit(images.embeddingImage())
+                        .orTimeout(enrichment.getEmbeddingTimeoutSeconds(), TimeUnit.SECONDS)
+                : CompletableFuture.completedFuture(null);
+
+        // Wait for both, whether or not either fails
+        CompletableFuture.allOf(descriptionFuture, embeddingFuture).handle((ignored, error) -> null).join();
+
+        boolean descriptionFailed = descriptionFuture.isCompletedExceptionally();
+        boolean embeddingFailed = embeddingFuture.isCompletedExceptionally();
+        String description = descriptionFailed ? null : descriptionFuture.join();
+        float[] embedding = embeddingFailed ? null : embeddingFuture.join();
+
+        if (remaining.get().description() && !descriptionFailed) {
+            if (description != null) {
+                log.info("AI description generated for clothing item: {}", clothingItemId);
+            } else {
+                log.warn("Image not recognized as clothing item: {}", clothingItemId);
+            }
+        }
+
+        EnrichmentStatus enrichmentStatus = descriptionFailed && embeddingFailed
+                ? EnrichmentStatus.PENDING
+                : descriptionFailed || embeddingFailed ? EnrichmentStatus.PARTIAL : EnrichmentStatus.COMPLETED;
+
+        transactionTemplate.executeWithoutResult(status -> clothingItemRepository.findById(clothingItemId)
+                .ifPresent(clothingItem -> {
+                    if (embedding != null) {
+                        ClothingItemEmbedding clothingItemEmbedding = clothingItemEmbeddingRepository
+                                .findByClothingItemId(clothingItemId)
+                                .orElseGet(() -> ClothingItemEmbedding.builder()
+                                        .clothingItemId(clothingItemId)
+                                        .userId(job.getUserId())
+                                        .build());
+                        clothingItemEmbedding.setEmbedding(embedding);
+                        clothingItemEmbeddingRepository.save(clothingItemEmbedding);
+                        closetVectorIndex.invalidate(job.getUserId());
+                        log.info("Embedding saved for clothing item: {}", clothingItemId);
+                    }
+
+                    if (description != null) {
+                        clothingItem.setAiDescription(description);
+                    }
+                    // A previous attempt may already have stored the other half
+                    clothingItem.setEnrichmentStatus(enrichmentStatus == EnrichmentStatus.PENDING
+                            && clothingItem.getEnrichmentStatus() == EnrichmentStatus.PARTIAL
+                            ? EnrichmentStatus.PARTIAL : enrichmentStatus);
+                }));
+
+        closetContextCache.invalidate(job.getUserId());
+
+        if (descriptionFailed || embeddingFailed) {
+            throw new IllegalStateException(String.format("Enrichment incomplete for clothing item: %s (description %s, embedding %s)",
+                    clothingItemId, descriptionFailed ? "failed" : "ok", embeddingFailed ? "failed" : "ok"),
+                    failureCause(descriptionFailed ? descriptionFuture : embeddingFuture));
+        }
+        imageHandoffStore.remove(clothingItemId);
+        log.info("Enrichment completed for clothing item: {}", clothingItemId);
+    }
+
+    /**
+     * Marks the item as failed once its job has been dead-lettered. Items that were partially enriched keep
+     * their partial status, since what was stored is still usable.
+     */
+    public void markFailed(EnrichmentJob job) {
+        imageHandoffStore.remove(job.getClothingItemId());
+        transactionTemplate.executeWithoutResult(status -> clothingItemRepository.findById(job.getClothingItemId())
+                .filter(clothingItem -> clothingItem.getEnrichmentStatus() != EnrichmentStatus.PARTIAL)
+                .ifPresent(clothingItem -> clothingItem.setEnrichmentStatus(EnrichmentStatus.FAILED)));
+        closetContextCache.invalidate(job.getUserId());
+    }
+
+    /**
+     * Marks the item as in progress and works out which parts still need to be generated, so a retry
+     * after a partial success only repeats the call that failed.
+     */
+    private Optional<RemainingWork> startEnrichment(UUID clothingItemId) {
+        return transactionTemplate.execute(status -> clothingItemRepository.findById(clothingItemId)
+                .map(clothingItem -> {
+                    if (clothingItem.getEnrichmentStatus() != EnrichmentStatus.PARTIAL) {
+                        clothingItem.setEnrichmentStatus(EnrichmentStatus.PENDING);
+                    }
+                    return new RemainingWork(clothingItem.getAiDescription() == null,
+                            clothingItemEmbeddingRepository.findByClothingItemId(clothingItemId).isEmpty());
+                }));
+    }
+
+    private Throwable failureCause(CompletableFuture<?> future) {
+        try {
+            future.join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause();
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    /**
+     * Uses the bytes handed off at upload time when this instance still holds them, otherwise reads the
+     * image straight from S3 rather than through CloudFront.
+     */
+    private byte[] loadImage(EnrichmentJob job) {
+        Optional<byte[]> handedOff = imageHandoffStore.get(job.getClothingItemId());
+        if (handedOff.isPresent()) {
+            log.info("Using handed-off image for clothing item: {} ({} bytes)", job.getClothingItemId(), handedOff.get().length);
+            return handedOff.get();
+        }
+
+        return s3FileUploadService.downloadFile(cloudFrontUrlService.convertCloudFrontToS3Url(job.getModifiedImageUrl()));
+    }
+
+    private record RemainingWork(boolean description, boolean embedding) {}
+}
@@ -0,0 +1,142 @@
+package com.fitted.service.ai.enrichment;
+
+import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.model.EnrichmentJob;
+import com.fitted.service.model.EnrichmentJobStatus;
+import com.fitted.service.repository.EnrichmentJobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Postgres-backed queue of enrichment jobs.
+ * <p>
+ * Claiming a job takes a lease for the visibility timeout; if the worker dies, the lease expires and
+ * another worker picks the job up. Each claim increments the job's attempt count, which doubles as a
+ * fencing token so a worker that lost its lease cannot complete or release the job. Failed jobs are
+ * retried with exponential backoff and dead-lettered after the configured number of attempts, as are
+ * jobs whose lease expired on their last attempt. All times come from the database clock.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class EnrichmentJobQueue {
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final EnrichmentJobRepository enrichmentJobRepository;
+    private final AIProperties aiProperties;
+
+    /**
+     * Adds a job in the caller's transaction, so it only becomes claimable once the clothing item commits.
+     */
+    @Transactional
+    public void enqueue(UUID clothingItemId, UUID userId, String modifiedImageUrl) {
+        EnrichmentJob job = EnrichmentJob.builder()
+                .clothingItemId(clothingItemId)
+                .userId(userId)
+                .modifiedImageUrl(modifiedImageUrl)
+                .build();
+        enrichmentJobRepository.save(job);
+        log.info("Enqueued enrichment job: {} for clothing item: {}", job.getId(), clothingItemId);
+    }
+
+    /**
+     * Leases due jobs to the worker. A job whose lease expired after its final attempt is dead-lettered
+     * instead of being handed out again, so a job that keeps killing its worker is not retried forever.
+     */
+    @Transactional
+    public ClaimedJobs claim(String workerId, int limit) {
+        LocalDateTime now = enrichmentJobRepository.currentTimestamp();
+        LocalDateTime lockedUntil = now.plusSeconds(aiProperties.getEnrichment().getVisibilityTimeoutSeconds());
+        int maxAttempts = aiProperties.getEnrichment().getMaxAttempts();
+
+        List<EnrichmentJob> claimed = new ArrayList<>();
+        List<EnrichmentJob> deadLettered = new ArrayList<>();
+        for (EnrichmentJob job : enrichmentJobRepository.findClaimable(now, limit)) {
+            if (job.getStatus() == EnrichmentJobStatus.RUNNING && job.getAttempts() >= maxAttempts) {
+                log.error("Enrichment job {} dead-lettered after its lease expired on attempt {}",
+                        job.getId(), job.getAttempts());
+                job.setStatus(EnrichmentJobStatus.DEAD);
+                job.setLastError("Lease expired after " + job.getAttempts() + " attempts");
+                job.setLockedBy(null);
+                job.setLockedUntil(null);
+                deadLettered.add(job);
+                continue;
+            }
+
+            job.setStatus(EnrichmentJobStatus.RUNNING);
+            job.setAttempts(job.getAttempts() + 1);
+            job.setLockedBy(workerId);
+            job.setLockedUntil(lockedUntil);
+            claimed.add(job);
+        }
+
+        if (!claimed.isEmpty()) {
+            log.info("Worker {} claimed {} enrichment jobs", workerId, claimed.size());
+        }
+        return new ClaimedJobs(claimed, deadLettered);
+    }
+
+    @Transactional
+    public void complete(EnrichmentJob job) {
+        int deleted = enrichmentJobRepository.deleteClaimed(job.getId(), job.getLockedBy(), job.getAttempts());
+        if (deleted == 0) {
+            log.warn("Enrichment job {} was reclaimed before it completed", job.getId());
+        }
+    }
+
+    /**
+     * Schedules a retry for a failed job, or dead-letters it once it has used all of its attempts.
+     *
+     * @return true if the job was dead-lettered
+     */
+    @Transactional
+    public boolean fail(EnrichmentJob job, Exception error) {
+        LocalDateTime now = enrichmentJobRepository.currentTimestamp();
+        boolean exhausted = job.getAttempts() >= aiProperties.getEnrichment().getMaxAttempts();
+        EnrichmentJobStatus status = exhausted ? EnrichmentJobStatus.DEAD : EnrichmentJobStatus.QUEUED;
+        LocalDateTime availableAt = exhausted ? now : now.plus(retryDelay(job.getAttempts()));
+
+        int updated = enrichmentJobRepository.releaseClaimed(job.getId(), job.getLockedBy(), job.getAttempts(),
+                status, availableAt, truncate(String.valueOf(error)), now);
+        if (updated == 0) {
+            log.warn("Enrichment job {} was reclaimed before it could be released", job.getId());
+            return false;
+        }
+
+        if (exhausted) {
+            log.error("Enrichment job {} dead-lettered after {} attempts", job.getId(), job.getAttempts());
+        } else {
+            log.warn("Enrichment job {} failed (attempt {}), retrying at {}", job.getId(), job.getAttempts(), availableAt);
+        }
+        return exhausted;
+    }
+
+    Duration retryDelay(int attempts) {
+        AIProperties.Enrichment enrichment = aiProperties.getEnrichment();
+        long baseSeconds = enrichment.getRetryBaseDelaySeconds();
+        long delaySeconds = Math.min(enrichment.getRetryMaxDelaySeconds(), baseSeconds << Math.min(attempts - 1, 20));
+        // Jitter so a burst of jobs that failed together does not retry together
+        long jitterSeconds = ThreadLocalRandom.current().nextLong(delaySeconds / 5 + 1);
+        return Duration.ofSeconds(delaySeconds + jitterSeconds);
+    }
+
+    private String truncate(String message) {
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    /**
+     * @param claimed jobs now leased to the worker
+     * @param deadLettered jobs whose lease expired on their final attempt and were dead-lettered instead
+     */
+    public record ClaimedJobs(List<EnrichmentJob> claimed, List<EnrichmentJob> deadLettered) {}
+}
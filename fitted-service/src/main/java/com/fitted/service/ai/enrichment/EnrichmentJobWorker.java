@@ -0,0 +1,110 @@
+package com.fitted.service.ai.enrichment;
+
+import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.model.EnrichmentJob;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Polls the enrichment job queue and runs claimed jobs on the enrichment executor.
+ * <p>
+ * Only as many jobs are claimed as this instance has free slots, so jobs are never held by an
+ * instance that cannot start them. Any number of instances can poll the same queue.
+ */
+@Component
+@Log4j2
+public class EnrichmentJobWorker {
+
+    private final EnrichmentJobQueue enrichmentJobQueue;
+    private final EnrichmentJobProcessor enrichmentJobProcessor;
+    private final Executor enrichmentExecutor;
+    private final AIProperties aiProperties;
+    private final Semaphore slots;
+    private final String workerId;
+
+    public EnrichmentJobWorker(EnrichmentJobQueue enrichmentJobQueue,
+                               EnrichmentJobProcessor enrichmentJobProcessor,
+                               @Qualifier("enrichment-executor") Executor enrichmentExecutor,
+                               AIProperties aiProperties) {
+        this.enrichmentJobQueue = enrichmentJobQueue;
+        this.enrichmentJobProcessor = enrichmentJobProcessor;
+        this.enrichmentExecutor = enrichmentExecutor;
+        this.aiProperties = aiProperties;
+        this.slots = new Semaphore(aiProperties.getEnrichment().getMaxConcurrentJobs());
+        this.workerId = resolveHostName() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @Scheduled(fixedDelayString = "${ai.enrichment.poll-interval-millis:2000}",
+            initialDelayString = "${ai.enrichment.poll-initial-delay-millis:10000}")
+    public void poll() {
+        if (!aiProperties.getEnrichment().isEnabled()) {
+            return;
+        }
+
+        int freeSlots = slots.availablePermits();
+        if (freeSlots == 0) {
+            return;
+        }
+
+        EnrichmentJobQueue.ClaimedJobs jobs;
+        try {
+            jobs = enrichmentJobQueue.claim(workerId, freeSlots);
+        } catch (Exception e) {
+            log.warn("Failed to claim enrichment jobs", e);
+            return;
+        }
+
+        for (EnrichmentJob job : jobs.deadLettered()) {
+            try {
+                enrichmentJobProcessor.markFailed(job);
+            } catch (Exception e) {
+                log.error("Failed to mark clothing item {} as failed", job.getClothingItemId(), e);
+            }
+        }
+
+        for (EnrichmentJob job : jobs.claimed()) {
+            slots.acquireUninterruptibly();
+            try {
+                enrichmentExecutor.execute(() -> run(job));
+            } catch (RejectedExecutionException e) {
+                slots.release();
+                log.warn("Enrichment job {} rejected by executor, it will be retried when its lease expires", job.getId(), e);
+            }
+        }
+    }
+
+    private void run(EnrichmentJob job) {
+        try {
+            enrichmentJobProcessor.process(job);
+            enrichmentJobQueue.complete(job);
+        } catch (Exception e) {
+            log.error("Enrichment failed for clothing item: {}", job.getClothingItemId(), e);
+            try {
+                if (enrichmentJobQueue.fail(job, e)) {
+                    enrichmentJobProcessor.markFailed(job);
+                }
+            } catch (Exception releaseError) {
+                log.error("Failed to release enrichment job {}, it will be retried when its lease expires",
+                        job.getId(), releaseError);
+            }
+        } finally {
+            slots.release();
+        }
+    }
+
+    private static String resolveHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown-host";
+        }
+    }
+}
@@ -3,9 +3,10 @@ package com.fitted.service.ai.enrichment;
 import com.fitted.service.ai.config.AIProperties;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.UUID;
 
 @Service
@@ -13,18 +14,27 @@ import java.util.UUID;
 @Log4j2
 public class EnrichmentPublisher {
 
-    private final ApplicationEventPublisher eventPublisher;
+    private final EnrichmentJobQueue enrichmentJobQueue;
+    private final ImageHandoffStore imageHandoffStore;
     private final AIProperties aiProperties;
 
-    public void publishClothingItemCreated(UUID clothingItemId, String modifiedImageUrl) {
+    public void publishClothingItemCreated(UUID clothingItemId, UUID userId, String modifiedImageUrl,
+                                           MultipartFile modifiedImageFile) {
         if (!aiProperties.getEnrichment().isEnabled()) {
-            log.info("Enrichment is disabled, skipping event for clothing item: {}", clothingItemId);
+            log.info("Enrichment is disabled, skipping enrichment for clothing item: {}", clothingItemId);
             return;
         }
 
-        log.info("Publishing enrichment event for clothing item: {}", clothingItemId);
-        eventPublisher.publishEvent(
-                new ClothingItemCreatedEvent(this, clothingItemId, modifiedImageUrl)
-        );
+        // Null when the client uploaded straight to S3; the worker then reads the image from S3
+        if (modifiedImageFile != null) {
+            try {
+                imageHandoffStore.put(clothingItemId, modifiedImageFile.getBytes());
+            } catch (IOException e) {
+                log.warn("Could not hand off modified image for clothing item: {}", clothingItemId, e);
+            }
+        }
+
+        log.info("Publishing enrichment job for clothing item: {}", clothingItemId);
+        enrichmentJobQueue.enqueue(clothingItemId, userId, modifiedImageUrl);
     }
 }
@@ -0,0 +1,59 @@
+package com.fitted.service.ai.enrichment;
+
+import com.fitted.service.ai.config.AIProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Hands the bytes of a freshly uploaded modified image to its enrichment job, so the worker does not
+ * fetch back the image this instance has just written to S3.
+ * <p>
+ * Images are held as heap arrays, bounded by total size and by a short time to live. Direct buffers would
+ * only be freed once the garbage collector got to them, so the size bound would not hold for native
+ * memory. An entry that has been evicted, expired or was stored on another instance is simply a miss and
+ * the worker falls back to S3. The job removes its entry once it reaches a final outcome.
+ */
+@Component
+@Log4j2
+public class ImageHandoffStore {
+
+    private static final String CACHE_NAME = "imageHandoff";
+
+    private final Cache<UUID, byte[]> images;
+
+    public ImageHandoffStore(AIProperties aiProperties, MeterRegistry meterRegistry) {
+        AIProperties.Enrichment enrichment = aiProperties.getEnrichment();
+        this.images = Caffeine.newBuilder()
+                .maximumWeight(enrichment.getHandoffMaxBytes())
+                .weigher((UUID id, byte[] image) -> image.length)
+                .expireAfterWrite(Duration.ofSeconds(enrichment.getHandoffTtlSeconds()))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, images, CACHE_NAME);
+    }
+
+    public void put(UUID clothingItemId, byte[] imageBytes) {
+        images.put(clothingItemId, imageBytes.clone());
+        log.debug("Stored {} bytes for enrichment of clothing item: {}", imageBytes.length, clothingItemId);
+    }
+
+    /**
+     * Returns the stored image itself rather than a copy, so callers must not modify it.
+     */
+    public Optional<byte[]> get(UUID clothingItemId) {
+        return Optional.ofNullable(images.getIfPresent(clothingItemId));
+    }
+
+    public void remove(UUID clothingItemId) {
+        images.invalidate(clothingItemId);
+    }
+}
@@ -0,0 +1,56 @@
+package com.fitted.service.ai.enrichment;
+
+import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.utils.ImageUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Decodes an uploaded image once and derives the payload each model call needs.
+ * <p>
+ * The vision model gets a JPEG whose longer side is capped, since Claude bills image tokens by pixel count
+ * and gains nothing from full resolution for a description. The embedding model resizes to 224px on the
+ * shorter side itself, so it gets a PNG scaled down to exactly that; PNG keeps the transparency of
+ * background-removed images so the embedding matches one computed from the original upload. If the image
+ * cannot be decoded, or a derivative would be larger than the original, the original bytes are used.
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class ImagePreprocessor {
+
+    private final AIProperties aiProperties;
+
+    public PreparedImages prepare(byte[] imageBytes) {
+        AIProperties.Enrichment enrichment = aiProperties.getEnrichment();
+        try {
+            BufferedImage image = ImageUtils.decode(imageBytes, enrichment.getEmbeddingImageSize(),
+                    enrichment.getVisionImageMaxSize());
+            if (image == null) {
+                log.warn("No decoder for image ({} bytes), sending original to AI services", imageBytes.length);
+                return new PreparedImages(imageBytes, imageBytes);
+            }
+
+            byte[] visionImage = smallerOf(imageBytes, ImageUtils.toJpeg(
+                    ImageUtils.fitLongSide(image, enrichment.getVisionImageMaxSize()), enrichment.getVisionImageQuality()));
+            byte[] embeddingImage = smallerOf(imageBytes, ImageUtils.toPng(
+                    ImageUtils.fitShortSide(image, enrichment.getEmbeddingImageSize())));
+
+            log.info("Prepared images for enrichment: original {} bytes, vision {} bytes, embedding {} bytes",
+                    imageBytes.length, visionImage.length, embeddingImage.length);
+            return new PreparedImages(visionImage, embeddingImage);
+        } catch (Exception e) {
+            log.warn("Image preprocessing failed, sending original to AI services", e);
+            return new PreparedImages(imageBytes, imageBytes);
+        }
+    }
+
+    private byte[] smallerOf(byte[] original, byte[] derivative) {
+        return derivative.length < original.length ? derivative : original;
+    }
+
+    public record PreparedImages(byte[] visionImage, byte[] embeddingImage) {}
+}
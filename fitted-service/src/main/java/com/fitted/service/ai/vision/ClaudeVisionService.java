@@ -9,6 +9,8 @@ import com.anthropic.models.messages.MessageCreateParams;
 import com.anthropic.models.messages.TextBlock;
 import com.anthropic.models.messages.TextBlockParam;
 import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.concurrency.Downstream;
+import com.fitted.service.concurrency.DownstreamLimiter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
@@ -23,6 +25,7 @@ public class ClaudeVisionService implements VisionAIService {
 
     private final AnthropicClient anthropicClient;
     private final AIProperties aiProperties;
+    private final DownstreamLimiter downstreamLimiter;
 
     static final String NOT_A_CLOTHING_ITEM = "NOT_A_CLOTHING_ITEM";
 
@@ -77,7 +80,7 @@ public class ClaudeVisionService implements VisionAIService {
                 .addUserMessageOfBlockParams(content)
                 .build();
 
-        Message response = anthropicClient.messages().create(params);
+        Message response = downstreamLimiter.call(Downstream.ANTHROPIC, () -> anthropicClient.messages().create(params));
 
         String description = response.content().stream()
                 .flatMap(block -> block.text().stream())
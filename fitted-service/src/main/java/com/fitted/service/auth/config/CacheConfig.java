@@ -1,5 +1,6 @@
 package com.fitted.service.auth.config;
 
+import com.fitted.service.auth.security.VerifiedTokenCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
@@ -13,10 +14,14 @@ import java.util.concurrent.TimeUnit;
 @EnableCaching
 public class CacheConfig {
 
+    public static final String VERIFIED_TOKENS_CACHE = "verifiedTokens";
+
     @Bean
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(VerifiedTokenCache verifiedTokenCache) {
         CaffeineCacheManager cacheManager = new CaffeineCacheManager("users", "userDetails");
         cacheManager.setCaffeine(caffeineCacheBuilder());
+        // Registered so that its hit/miss statistics are published with the other cache metrics
+        cacheManager.registerCustomCache(VERIFIED_TOKENS_CACHE, verifiedTokenCache.getNativeCache());
         return cacheManager;
     }
 
@@ -21,7 +21,6 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
 
 @Component
 @Log4j2
@@ -32,6 +31,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtTokenProvider jwtTokenProvider;
     @Autowired
     private FittedUserDetailsService userDetailsService;
+    private final VerifiedTokenCache verifiedTokenCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -40,10 +40,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && jwtTokenProvider.validateToken(jwt)) {
-                UUID userId = jwtTokenProvider.getUserIdFromToken(jwt);
+            Optional<UserDetails> authenticatedUser = StringUtils.hasText(jwt)
+                    ? authenticate(jwt)
+                    : Optional.empty();
 
-                UserDetails userDetails = userDetailsService.loadUserById(userId);
+            if (authenticatedUser.isPresent()) {
+                UserDetails userDetails = authenticatedUser.get();
 
                 UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(
@@ -64,6 +66,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private Optional<UserDetails> authenticate(String jwt) {
+        VerifiedTokenCache.AuthenticatedToken cached = verifiedTokenCache.get(jwt);
+        if (cached != null) {
+            return Optional.of(cached.userDetails());
+        }
+
+        Optional<VerifiedAccessToken> verifiedToken = jwtTokenProvider.verifyAccessToken(jwt);
+        if (verifiedToken.isEmpty()) {
+            return Optional.empty();
+        }
+
+        UserDetails userDetails = userDetailsService.loadUserById(verifiedToken.get().userId());
+        verifiedTokenCache.put(jwt, verifiedToken.get(), userDetails);
+        return Optional.of(userDetails);
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerHeaderToken = extractTokenFromHeader(request.getHeader("Authorization"));
 
@@ -3,11 +3,14 @@ package com.fitted.service.auth.security;
 import com.fitted.service.auth.properties.JwtProperties;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Component;
@@ -16,6 +19,7 @@ import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Function;
 
@@ -26,6 +30,11 @@ public class JwtTokenProvider {
 
     private final JwtProperties jwtProperties;
 
+    // The secret never changes at runtime, so the decoded key and the parser are built once and shared.
+    // JwtParser instances are immutable and thread-safe.
+    private volatile SecretKey signingKey;
+    private volatile JwtParser jwtParser;
+
     public String generateAccessToken(UUID userId, String email) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtProperties.getAccessTokenExpiration());
@@ -57,14 +66,26 @@ public class JwtTokenProvider {
         return extractClaim(token, (claims) -> claims.get("email", String.class));
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Parses and verifies an access token exactly once, returning its claims if the signature is valid
+     * and the token has not expired.
+     *
+     * @param token the compact JWT string
+     * @return the verified claims, or empty if the token is invalid for any reason
+     */
+    public Optional<VerifiedAccessToken> verifyAccessToken(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (SecurityException ex) {
+            Claims claims = getClaims(token);
+            if (claims.getExpiration() == null) {
+                log.error("JWT token has no expiration");
+                return Optional.empty();
+            }
+            return Optional.of(new VerifiedAccessToken(
+                    UUID.fromString(claims.getSubject()),
+                    claims.get("email", String.class),
+                    claims.getExpiration().toInstant()
+            ));
+        } catch (SignatureException ex) {
             log.error("Invalid JWT signature");
         } catch (MalformedJwtException ex) {
             log.error("Invalid JWT token");
@@ -72,10 +93,16 @@ public class JwtTokenProvider {
             log.error("Expired JWT token");
         } catch (UnsupportedJwtException ex) {
             log.error("Unsupported JWT token");
+        } catch (JwtException ex) {
+            log.error("JWT verification failed: {}", ex.getMessage());
         } catch (IllegalArgumentException ex) {
-            log.error("JWT claims string is empty");
+            log.error("JWT claims string is empty or subject is not a valid user id");
         }
-        return false;
+        return Optional.empty();
+    }
+
+    public boolean validateToken(String token) {
+        return verifyAccessToken(token).isPresent();
     }
 
     public boolean isTokenExpired(String token) {
@@ -88,9 +115,7 @@ public class JwtTokenProvider {
     }
 
     private Claims getClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getKey())
-                .build()
+        return getParser()
                 .parseSignedClaims(token)
                 .getPayload();
     }
@@ -101,8 +126,34 @@ public class JwtTokenProvider {
     }
 
     private SecretKey getKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtProperties.getSecret());
-        return Keys.hmacShaKeyFor(keyBytes);
+        SecretKey key = signingKey;
+        if (key == null) {
+            synchronized (this) {
+                key = signingKey;
+                if (key == null) {
+                    byte[] keyBytes = Decoders.BASE64.decode(jwtProperties.getSecret());
+                    key = Keys.hmacShaKeyFor(keyBytes);
+                    signingKey = key;
+                }
+            }
+        }
+        return key;
+    }
+
+    private JwtParser getParser() {
+        JwtParser parser = jwtParser;
+        if (parser == null) {
+            synchronized (this) {
+                parser = jwtParser;
+                if (parser == null) {
+                    parser = Jwts.parser()
+                            .verifyWith(getKey())
+                            .build();
+                    jwtParser = parser;
+                }
+            }
+        }
+        return parser;
     }
 
     public Long getAccessTokenExpiration() {
@@ -0,0 +1,10 @@
+package com.fitted.service.auth.security;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * The claims of an access token whose signature and expiry have already been verified.
+ */
+public record VerifiedAccessToken(UUID userId, String email, Instant expiresAt) {
+}
@@ -0,0 +1,75 @@
+package com.fitted.service.auth.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Holds access tokens that have already been verified, together with the principal they resolved to,
+ * so repeated requests with the same token skip signature verification and the user lookup.
+ * <p>
+ * Entries are keyed by a SHA-256 digest of the token (the raw token is never retained) and expire
+ * exactly when the token itself expires.
+ */
+@Component
+@Log4j2
+public class VerifiedTokenCache {
+
+    private static final int MAXIMUM_SIZE = 10_000;
+
+    private final Cache<String, AuthenticatedToken> cache = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfter(Expiry.creating((String digest, AuthenticatedToken value) -> {
+                Duration remaining = Duration.between(Instant.now(), value.token().expiresAt());
+                return remaining.isNegative() ? Duration.ZERO : remaining;
+            }))
+            .recordStats()
+            .build();
+
+    public AuthenticatedToken get(String token) {
+        return cache.getIfPresent(digest(token));
+    }
+
+    public void put(String token, VerifiedAccessToken verifiedToken, UserDetails userDetails) {
+        cache.put(digest(token), new AuthenticatedToken(verifiedToken, userDetails));
+    }
+
+    public void evictUser(UUID userId) {
+        cache.asMap().values().removeIf(entry -> entry.token().userId().equals(userId));
+        log.debug("Evicted verified tokens for user ID: {}", userId);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Exposes the underlying cache so it can be registered with the cache manager for metrics.
+     */
+    @SuppressWarnings("unchecked")
+    public Cache<Object, Object> getNativeCache() {
+        return (Cache<Object, Object>) (Cache<?, ?>) cache;
+    }
+
+    private String digest(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Error hashing token", e);
+        }
+    }
+
+    public record AuthenticatedToken(VerifiedAccessToken token, UserDetails userDetails) {}
+}
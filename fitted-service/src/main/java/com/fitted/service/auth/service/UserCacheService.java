@@ -1,5 +1,6 @@
 package com.fitted.service.auth.service;
 
+import com.fitted.service.auth.security.VerifiedTokenCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.cache.annotation.CacheEvict;
@@ -8,22 +9,28 @@ import org.springframework.stereotype.Service;
 
 import java.util.UUID;
 
+import static com.fitted.service.auth.config.CacheConfig.VERIFIED_TOKENS_CACHE;
+
 @Service
 @RequiredArgsConstructor
 @Log4j2
 public class UserCacheService {
 
+    private final VerifiedTokenCache verifiedTokenCache;
+
     @Caching(evict = {
             @CacheEvict(value = "users", key = "#userId.toString()"),
             @CacheEvict(value = "userDetails", key = "#email"),
     })
     public void evictUserCache(UUID userId, String email) {
         log.debug("Evicting cache for user ID: {} and email: {}", userId, email);
+        verifiedTokenCache.evictUser(userId);
     }
 
     @Caching(evict = {
             @CacheEvict(value = "users", allEntries = true),
-            @CacheEvict(value = "userDetails", allEntries = true)
+            @CacheEvict(value = "userDetails", allEntries = true),
+            @CacheEvict(value = VERIFIED_TOKENS_CACHE, allEntries = true)
     })
     public void evictAllUserCaches() {
         log.info("Evicting all user caches");
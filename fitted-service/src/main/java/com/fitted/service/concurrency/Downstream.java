@@ -0,0 +1,10 @@
+package com.fitted.service.concurrency;
+
+/**
+ * Remote dependencies whose concurrent calls are capped by {@link DownstreamLimiter}.
+ */
+public enum Downstream {
+    ANTHROPIC,
+    EMBEDDING,
+    S3
+}
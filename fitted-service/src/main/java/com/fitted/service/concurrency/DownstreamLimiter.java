@@ -0,0 +1,93 @@
+package com.fitted.service.concurrency;
+
+import com.fitted.service.exception.DownstreamBusyException;
+import com.fitted.service.properties.DownstreamProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of concurrent calls to each downstream dependency.
+ * <p>
+ * Request handling and background work run on virtual threads, so thread pool sizes no longer bound how
+ * many calls reach Anthropic, the embedding Lambda or S3 at once. Every call to those services goes through
+ * here instead; callers wait for a free slot and fail with {@link DownstreamBusyException} if none frees up
+ * within the acquire timeout.
+ */
+@Component
+@Log4j2
+public class DownstreamLimiter {
+
+    private final Map<Downstream, Semaphore> permits = new EnumMap<>(Downstream.class);
+    private final long acquireTimeoutMillis;
+
+    public DownstreamLimiter(DownstreamProperties downstreamProperties, MeterRegistry meterRegistry) {
+        this.acquireTimeoutMillis = downstreamProperties.getAcquireTimeoutMillis();
+        register(Downstream.ANTHROPIC, downstreamProperties.getAnthropicMaxConcurrency(), meterRegistry);
+        register(Downstream.EMBEDDING, downstreamProperties.getEmbeddingMaxConcurrency(), meterRegistry);
+        register(Downstream.S3, downstreamProperties.getS3MaxConcurrency(), meterRegistry);
+    }
+
+    public <T> T call(Downstream downstream, Supplier<T> call) {
+        Semaphore semaphore = permits.get(downstream);
+        acquire(downstream, semaphore);
+        try {
+            return call.get();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    public void run(Downstream downstream, Runnable call) {
+        call(downstream, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Like {@link #call}, for calls that return a future; the slot is held until the future completes.
+     */
+    public <T> CompletableFuture<T> callAsync(Downstream downstream, Supplier<CompletableFuture<T>> call) {
+        Semaphore semaphore = permits.get(downstream);
+        acquire(downstream, semaphore);
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            semaphore.release();
+            throw e;
+        }
+        return future.whenComplete((result, error) -> semaphore.release());
+    }
+
+    private void acquire(Downstream downstream, Semaphore semaphore) {
+        boolean acquired;
+        try {
+            acquired = semaphore.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DownstreamBusyException("Interrupted while waiting for " + downstream);
+        }
+        if (!acquired) {
+            log.warn("No free {} slot after {} ms", downstream, acquireTimeoutMillis);
+            throw new DownstreamBusyException(downstream + " is busy, please try again later");
+        }
+    }
+
+    private void register(Downstream downstream, int maxConcurrency, MeterRegistry meterRegistry) {
+        Semaphore semaphore = new Semaphore(maxConcurrency, true);
+        permits.put(downstream, semaphore);
+        Gauge.builder("downstream.in.flight", semaphore, s -> maxConcurrency - s.availablePermits())
+                .tag("downstream", downstream.name().toLowerCase())
+                .register(meterRegistry);
+    }
+}
@@ -7,7 +7,12 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Configuration
 @ConfigurationProperties
@@ -21,4 +26,26 @@ public class AWSConfig {
                 .credentialsProvider(DefaultCredentialsProvider.builder().asyncCredentialUpdateEnabled(true).build())
                 .build();
     }
+
+    @Bean
+    public S3AsyncClient s3AsyncClient(AWSProperties awsProperties) {
+        return S3AsyncClient.builder()
+                .region(Region.of(awsProperties.getRegion()))
+                .credentialsProvider(DefaultCredentialsProvider.builder().asyncCredentialUpdateEnabled(true).build())
+                .build();
+    }
+
+    @Bean
+    public S3Presigner s3Presigner(AWSProperties awsProperties) {
+        return S3Presigner.builder()
+                .region(Region.of(awsProperties.getRegion()))
+                .credentialsProvider(DefaultCredentialsProvider.builder().asyncCredentialUpdateEnabled(true).build())
+                .build();
+    }
+
+    // Feeds upload request bodies from multipart file streams to the async client without blocking its event loop
+    @Bean(name = "s3-upload-executor")
+    public ExecutorService s3UploadExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("s3-upload-", 0).factory());
+    }
 }
@@ -1,14 +1,18 @@
 package com.fitted.service.controller;
 
 import com.fitted.service.ai.chat.ChatService;
+import com.fitted.service.ai.chat.ChatStreamHandler;
+import com.fitted.service.ai.chat.ChatStreamService;
 import com.fitted.service.ai.chat.model.ChatSession;
 import com.fitted.service.auth.model.UserPrincipal;
 import com.fitted.service.dto.chat.ChatMessageRequest;
 import com.fitted.service.dto.chat.ChatResponse;
 import com.fitted.service.dto.chat.NewSessionResponse;
+import com.fitted.service.dto.chat.RecommendedItemDTO;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -17,6 +21,10 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/chat")
@@ -24,7 +32,10 @@ import org.springframework.web.bind.annotation.RestController;
 @Log4j2
 public class ChatController {
 
+    private static final long STREAM_TIMEOUT_MS = 120_000;
+
     private final ChatService chatService;
+    private final ChatStreamService chatStreamService;
 
     @PostMapping("/new")
     public ResponseEntity<NewSessionResponse> createSession(@AuthenticationPrincipal UserPrincipal userPrincipal) {
@@ -46,6 +57,21 @@ public class ChatController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping(value = "/message/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessage(
+            @Valid @RequestBody ChatMessageRequest request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        log.info("Streaming chat message received for session: {}", request.getSessionId());
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        chatStreamService.streamMessage(
+                request.getSessionId(),
+                request.getMessage(),
+                userPrincipal.user().getId(),
+                new SseChatStreamHandler(emitter)
+        );
+        return emitter;
+    }
+
     @DeleteMapping("/session/{sessionId}")
     public ResponseEntity<Void> endSession(
             @PathVariable String sessionId,
@@ -54,4 +80,41 @@ public class ChatController {
         chatService.endSession(sessionId, userPrincipal.user().getId());
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Writes chat stream events to the client as SSE events named "message", "item", "done" and "error".
+     */
+    private record SseChatStreamHandler(SseEmitter emitter) implements ChatStreamHandler {
+
+        @Override
+        public void onMessageDelta(String text) {
+            send("message", Map.of("text", text));
+        }
+
+        @Override
+        public void onRecommendedItem(RecommendedItemDTO item) {
+            send("item", item);
+        }
+
+        @Override
+        public void onComplete(ChatResponse response) {
+            send("done", response);
+            emitter.complete();
+        }
+
+        @Override
+        public void onError(Exception e) {
+            send("error", Map.of("message", "Failed to generate a response"));
+            emitter.complete();
+        }
+
+        // A disconnected client must not abort the turn, otherwise the response would never reach the session history
+        private void send(String eventName, Object data) {
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(data));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping chat stream event '{}', client is no longer connected", eventName);
+            }
+        }
+    }
 }
@@ -5,8 +5,14 @@ import com.fitted.service.dto.ClothingItemResponse;
 import com.fitted.service.dto.CreateClothingItemRequest;
 import com.fitted.service.dto.SearchClothingItemRequest;
 import com.fitted.service.dto.SearchClothingItemResponse;
+import com.fitted.service.dto.SimilarClothingItemsResponse;
+import com.fitted.service.dto.upload.ClothingItemUploadRequest;
+import com.fitted.service.dto.upload.ClothingItemUploadResponse;
+import com.fitted.service.dto.upload.FinalizeClothingItemRequest;
 import com.fitted.service.model.ClothingType;
 import com.fitted.service.service.ClothingItemService;
+import com.fitted.service.service.ClothingItemSimilarityService;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.extern.log4j.Log4j2;
@@ -34,6 +40,9 @@ public class ClothingItemController {
     @Autowired
     private ClothingItemService clothingItemService;
 
+    @Autowired
+    private ClothingItemSimilarityService clothingItemSimilarityService;
+
     @PostMapping(value = "/clothing-items", consumes = "multipart/form-data")
     public ResponseEntity<ClothingItemResponse> saveClothingItem(
             @RequestParam("name") @NotBlank(message = "Name is required") String name,
@@ -62,6 +71,37 @@ public class ClothingItemController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping(value = "/clothing-items/uploads")
+    public ResponseEntity<ClothingItemUploadResponse> createClothingItemUpload(
+            @Valid @RequestBody ClothingItemUploadRequest request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal
+    ) {
+        log.info("Received CreateClothingItemUpload request: originalImageFileSize={}, modifiedImageFileSize={}",
+                request.getOriginalImage().getContentLength(), request.getModifiedImage().getContentLength());
+
+        ClothingItemUploadResponse response = clothingItemService.createClothingItemUpload(request, userPrincipal.user().getId());
+
+        log.info("Successfully created clothing item upload with id: {}", response.getClothingItemId());
+
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping(value = "/clothing-items/finalize")
+    public ResponseEntity<ClothingItemResponse> finalizeClothingItem(
+            @Valid @RequestBody FinalizeClothingItemRequest request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal
+    ) {
+        log.info("Received FinalizeClothingItem request: clothingItemId={}, name={}, type={}",
+                request.getClothingItemId(), request.getName(), request.getType());
+
+        request.setUser(userPrincipal.user());
+        ClothingItemResponse response = clothingItemService.finalizeClothingItem(request);
+
+        log.info("Successfully saved clothing item with name: {}, id: {}", response.getName(), response.getId());
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
     @PostMapping(value = "/clothing-items/search")
     public ResponseEntity<SearchClothingItemResponse> searchClothingItems(@RequestBody SearchClothingItemRequest request,
                                                                           @AuthenticationPrincipal UserPrincipal userPrincipal) {
@@ -69,7 +109,39 @@ public class ClothingItemController {
 
         SearchClothingItemResponse response = clothingItemService.searchClothingItems(request, userPrincipal.user().getId());
 
-        log.info("Successfully searched clothing items. Total items matched: {}", response.getTotalCount());
+        log.info("Successfully searched clothing items. Items returned: {}", response.getItems().size());
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping(value = "/clothing-items/similar")
+    public ResponseEntity<SimilarClothingItemsResponse> findSimilarClothingItems(
+            @RequestParam(name = "clothingItemId") String clothingItemId,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @AuthenticationPrincipal UserPrincipal userPrincipal
+    ) {
+        log.info("Received FindSimilarClothingItems request: clothingItemId={}, limit={}", clothingItemId, limit);
+
+        SimilarClothingItemsResponse response = clothingItemSimilarityService.findSimilarItems(clothingItemId, limit,
+                userPrincipal.user().getId());
+
+        log.info("Successfully found similar clothing items. Items returned: {}", response.getItems().size());
+
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping(value = "/clothing-items/search-by-photo", consumes = "multipart/form-data")
+    public ResponseEntity<SimilarClothingItemsResponse> searchClothingItemsByPhoto(
+            @RequestParam("imageFile") @NotNull(message = "Image file is required") MultipartFile imageFile,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @AuthenticationPrincipal UserPrincipal userPrincipal
+    ) {
+        log.info("Received SearchClothingItemsByPhoto request: imageFileSize={}, limit={}", imageFile.getSize(), limit);
+
+        SimilarClothingItemsResponse response = clothingItemSimilarityService.searchByPhoto(imageFile, limit,
+                userPrincipal.user().getId());
+
+        log.info("Successfully searched clothing items by photo. Items returned: {}", response.getItems().size());
 
         return ResponseEntity.ok(response);
     }
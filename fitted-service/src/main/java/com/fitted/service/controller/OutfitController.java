@@ -10,8 +10,12 @@ import com.fitted.service.dto.SearchOutfitsRequest;
 import com.fitted.service.dto.SearchOutfitsResponse;
 import com.fitted.service.dto.UpdateOutfitRequest;
 import com.fitted.service.dto.outfit.OutfitClothingItemDTO;
+import com.fitted.service.dto.upload.FinalizeOutfitRequest;
+import com.fitted.service.dto.upload.OutfitUploadRequest;
+import com.fitted.service.dto.upload.OutfitUploadResponse;
 import com.fitted.service.exception.InternalServerException;
 import com.fitted.service.service.OutfitService;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -78,6 +82,36 @@ public class OutfitController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping(value = "/outfits/uploads")
+    public ResponseEntity<OutfitUploadResponse> createOutfitUpload(
+            @Valid @RequestBody OutfitUploadRequest request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal
+    ) {
+        log.info("Received CreateOutfitUpload request: outfitImageFileSize={}", request.getOutfitImage().getContentLength());
+
+        OutfitUploadResponse response = outfitService.createOutfitUpload(request, userPrincipal.user().getId());
+
+        log.info("Successfully created outfit upload with id: {}", response.getOutfitId());
+
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping(value = "/outfits/finalize")
+    public ResponseEntity<OutfitResponse> finalizeOutfit(
+            @Valid @RequestBody FinalizeOutfitRequest request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal
+    ) {
+        log.info("Received FinalizeOutfit request: outfitId={}, clothing items in outfit={}",
+                request.getOutfitId(), request.getClothingItems().size());
+
+        request.setUser(userPrincipal.user());
+        OutfitResponse response = outfitService.finalizeOutfit(request);
+
+        log.info("Successfully saved outfit with id: {}", response.getId());
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
     @GetMapping(value = "/outfits")
     public ResponseEntity<OutfitResponse> getOutfit(
             @RequestParam(name = "outfitId") String outfitId,
@@ -99,7 +133,7 @@ public class OutfitController {
 
         SearchOutfitsResponse response = outfitService.searchOutfits(request, userPrincipal.user().getId());
 
-        log.info("Successfully searched outfits. Total items matched: {}", response.getTotalCount());
+        log.info("Successfully searched outfits. Items returned: {}", response.getItems().size());
 
         return ResponseEntity.ok(response);
     }
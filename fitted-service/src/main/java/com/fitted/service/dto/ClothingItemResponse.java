@@ -8,6 +8,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 @Data
@@ -22,6 +23,8 @@ public class ClothingItemResponse {
     private String originalImageUrl;
     @JsonProperty("modified_image_url")
     private String modifiedImageUrl;
+    @JsonProperty("modified_image_variants")
+    private Map<Integer, String> modifiedImageVariants;
     private String color;
     @JsonProperty("ai_description")
     private String aiDescription;
@@ -9,6 +9,7 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Data
@@ -19,6 +20,8 @@ public class OutfitResponse {
     private UUID id;
     @JsonProperty("outfit_image_url")
     private String outfitImageUrl;
+    @JsonProperty("outfit_image_variants")
+    private Map<Integer, String> outfitImageVariants;
     private List<OutfitClothingItemDTO> clothingItems;
     private LocalDateTime createdAt;
     private List<String> tags;
@@ -27,5 +27,11 @@ public class SearchClothingItemRequest {
     @Max(100)
     @Builder.Default
     private int maxSize = 50;
+
+    // nextCursor of the previous response; when set, page is ignored and the results continue after it
+    private String cursor;
+
+    // Counting every match costs a second query, so cursor requests skip it unless asked
+    private boolean includeTotalCount;
 }
 
@@ -13,6 +13,9 @@ import java.util.List;
 @Builder
 public class SearchOutfitsResponse {
     private List<OutfitResponse> items;
-    private long totalCount;
+    // Null for cursor requests that did not ask for it
+    private Long totalCount;
     private boolean hasNext;
+    // Pass as cursor to fetch the next results; only set when sorting by createdAt and more results exist
+    private String nextCursor;
 }
@@ -0,0 +1,16 @@
+package com.fitted.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SimilarClothingItemResponse {
+    private ClothingItemResponse item;
+    // Cosine similarity of the item's embedding to the query, from -1 to 1
+    private double similarity;
+}
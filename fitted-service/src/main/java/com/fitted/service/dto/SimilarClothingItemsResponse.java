@@ -0,0 +1,17 @@
+package com.fitted.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SimilarClothingItemsResponse {
+    // Most similar first; items that have not been analyzed yet have no embedding and are never included
+    private List<SimilarClothingItemResponse> items;
+}
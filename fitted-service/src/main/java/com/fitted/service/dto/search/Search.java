@@ -13,5 +13,7 @@ import java.util.List;
 @Builder
 public class Search {
     private String searchText;
+    // Attributes to search; omitted searches all of them. Clothing items are searched full-text and ranked
+    // when this is omitted or names color, type or aiDescription, and by substring match on name otherwise.
     private List<String> searchIn;
 }
@@ -0,0 +1,11 @@
+package com.fitted.service.dto.search;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Position of the last item returned by a search sorted by createdAt. Ties on createdAt are broken by id, so
+ * the next page starts exactly after this item however many items share its timestamp.
+ */
+public record SearchCursor(LocalDateTime createdAt, UUID id) {
+}
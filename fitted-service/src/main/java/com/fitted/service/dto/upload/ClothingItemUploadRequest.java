@@ -0,0 +1,21 @@
+package com.fitted.service.dto.upload;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ClothingItemUploadRequest {
+    @Valid
+    @NotNull(message = "Original image is required.")
+    private UploadFileRequest originalImage;
+    @Valid
+    @NotNull(message = "Modified image is required.")
+    private UploadFileRequest modifiedImage;
+}
@@ -0,0 +1,18 @@
+package com.fitted.service.dto.upload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ClothingItemUploadResponse {
+    private UUID clothingItemId;
+    private PresignedUpload originalImage;
+    private PresignedUpload modifiedImage;
+}
@@ -0,0 +1,33 @@
+package com.fitted.service.dto.upload;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fitted.service.auth.model.Users;
+import com.fitted.service.model.ClothingType;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FinalizeClothingItemRequest {
+    @NotNull(message = "Clothing item id is required.")
+    private UUID clothingItemId;
+    @NotBlank(message = "Name is required.")
+    private String name;
+    @NotNull(message = "Type is required")
+    private ClothingType type;
+    private String color;
+    @NotBlank(message = "Original image key is required.")
+    private String originalImageKey;
+    @NotBlank(message = "Modified image key is required.")
+    private String modifiedImageKey;
+    @JsonIgnore
+    private Users user;
+}
@@ -0,0 +1,30 @@
+package com.fitted.service.dto.upload;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fitted.service.auth.model.Users;
+import com.fitted.service.dto.outfit.OutfitClothingItemDTO;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FinalizeOutfitRequest {
+    @NotNull(message = "Outfit id is required.")
+    private UUID outfitId;
+    @NotBlank(message = "Outfit image key is required.")
+    private String outfitImageKey;
+    @NotNull(message = "At least one clothing item is required in outfit.")
+    private List<OutfitClothingItemDTO> clothingItems;
+    private List<String> tags;
+    @JsonIgnore
+    private Users user;
+}
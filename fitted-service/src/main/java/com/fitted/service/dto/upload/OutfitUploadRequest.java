@@ -0,0 +1,18 @@
+package com.fitted.service.dto.upload;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutfitUploadRequest {
+    @Valid
+    @NotNull(message = "Outfit image is required.")
+    private UploadFileRequest outfitImage;
+}
@@ -0,0 +1,17 @@
+package com.fitted.service.dto.upload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutfitUploadResponse {
+    private UUID outfitId;
+    private PresignedUpload outfitImage;
+}
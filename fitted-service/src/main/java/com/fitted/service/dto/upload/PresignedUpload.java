@@ -0,0 +1,25 @@
+package com.fitted.service.dto.upload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A presigned S3 PUT for one image. The client must send exactly the given headers, which are part of the
+ * signature, and pass the key back when finalizing.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PresignedUpload {
+    private String key;
+    private String url;
+    private String method;
+    private Map<String, String> headers;
+    private Instant expiresAt;
+}
@@ -0,0 +1,19 @@
+package com.fitted.service.dto.upload;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadFileRequest {
+    @NotBlank(message = "Content type is required.")
+    private String contentType;
+    @Positive(message = "Content length must be positive.")
+    private long contentLength;
+}
@@ -0,0 +1,7 @@
+package com.fitted.service.exception;
+
+public class DownstreamBusyException extends RuntimeException {
+    public DownstreamBusyException(String message) {
+        super(message);
+    }
+}
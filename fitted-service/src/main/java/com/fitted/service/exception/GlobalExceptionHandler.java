@@ -41,7 +41,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(MaxUploadSizeExceededException.class)
     public ResponseEntity<String> handleMaxUploadSizeExceeded(MaxUploadSizeExceededException ex) {
-        return new ResponseEntity<>("Uploaded image breached the size limit of 5 GB", HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>("Uploaded image breached the size limit of 10 MB", HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler(Exception.class)
@@ -68,4 +68,9 @@ public class GlobalExceptionHandler {
     public ResponseEntity<String> handleInternalServer(InternalServerException ex) {
         return new ResponseEntity<>("Internal server error", HttpStatus.INTERNAL_SERVER_ERROR);
     }
+
+    @ExceptionHandler(DownstreamBusyException.class)
+    public ResponseEntity<String> handleDownstreamBusy(DownstreamBusyException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
 }
@@ -18,8 +18,11 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 @Entity
@@ -43,6 +46,10 @@ public class ClothingItem {
     private String originalImageUrl;
     @Column(name="modified_image_url")
     private String modifiedImageUrl;
+    // Downscaled copies of the modified image keyed by longest side in px; null until generated
+    @Column(name = "modified_image_variants", columnDefinition = "jsonb")
+    @JdbcTypeCode(SqlTypes.JSON)
+    private Map<Integer, String> modifiedImageVariants;
     private String color;
     @Column(name = "ai_description", columnDefinition = "TEXT")
     private String aiDescription;
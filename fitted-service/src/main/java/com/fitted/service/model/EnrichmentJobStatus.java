@@ -0,0 +1,7 @@
+package com.fitted.service.model;
+
+public enum EnrichmentJobStatus {
+    QUEUED,
+    RUNNING,
+    DEAD
+}
@@ -4,5 +4,6 @@ public enum EnrichmentStatus {
     NONE,
     PENDING,
     COMPLETED,
+    PARTIAL,
     FAILED
 }
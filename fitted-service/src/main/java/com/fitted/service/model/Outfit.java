@@ -19,6 +19,7 @@ import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Entity
@@ -35,6 +36,11 @@ public class Outfit {
     @Column(name="outfit_image_url", nullable = false)
     private String outfitImageUrl;
 
+    // Downscaled copies of the outfit image keyed by longest side in px; null until generated
+    @Column(name = "outfit_image_variants", columnDefinition = "jsonb")
+    @JdbcTypeCode(SqlTypes.JSON)
+    private Map<Integer, String> outfitImageVariants;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -0,0 +1,40 @@
+package com.fitted.service.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reference count for a content-addressed S3 object. Clothing items and outfits with identical images share
+ * one object, which is deleted only once the last of them lets go of it. Rows are written through
+ * {@link com.fitted.service.repository.StoredImageRepository}'s atomic queries rather than saved as entities.
+ */
+@Entity
+@Table(name = "stored_images")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StoredImage {
+    @Id
+    @Column(name = "s3_key")
+    private String s3Key;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
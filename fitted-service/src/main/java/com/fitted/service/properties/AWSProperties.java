@@ -12,5 +12,28 @@ public class AWSProperties {
     @Data
     public static class S3Properties {
         private String bucketName;
+        // Upload the original and modified images of a clothing item concurrently; false uploads them one after the other
+        private boolean parallelUploads = true;
+        // How long a presigned direct upload URL stays valid
+        private long presignedUploadExpirationSeconds = 900;
+        // Files larger than this are uploaded in parts instead of a single PUT
+        private long multipartThresholdBytes = 8L * 1024 * 1024;
+        // Upper bound on a part; also the size of each pooled part buffer
+        private long multipartMaxPartSizeBytes = 8L * 1024 * 1024;
+        // Parts of a single upload that may be in flight at once
+        private int multipartMaxInFlightParts = 4;
+        // Part buffers shared by all uploads
+        private int multipartBufferPoolSize = 8;
+        // Keys the deletion worker sends per DeleteObjects call, at most 1000
+        private int deletionBatchSize = 1000;
+        // How long a claimed batch of deletions is hidden from other workers
+        private long deletionLeaseSeconds = 120;
+        private int deletionMaxAttempts = 8;
+        private long deletionRetryBaseDelaySeconds = 30;
+        private long deletionRetryMaxDelaySeconds = 3600;
+        // Periodically delete objects no clothing item or outfit references
+        private boolean orphanCollectionEnabled = true;
+        // Unreferenced objects younger than this are left alone; must exceed the presigned upload expiration
+        private long orphanGracePeriodHours = 24;
     }
 }
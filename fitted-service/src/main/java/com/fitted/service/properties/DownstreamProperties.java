@@ -0,0 +1,18 @@
+package com.fitted.service.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "downstream")
+@Getter
+@Setter
+public class DownstreamProperties {
+    private int anthropicMaxConcurrency = 16;
+    private int embeddingMaxConcurrency = 8;
+    private int s3MaxConcurrency = 64;
+    // How long a caller waits for a free slot before the call is rejected
+    private long acquireTimeoutMillis = 10000;
+}
@@ -2,10 +2,109 @@ package com.fitted.service.repository;
 
 import com.fitted.service.model.ClothingItemEmbedding;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface ClothingItemEmbeddingRepository extends JpaRepository<ClothingItemEmbedding, UUID> {
+
+    /**
+     * The user's {@code limit} embeddings closest to the query embedding by cosine distance, nearest first.
+     * The inner query can use the HNSW index; with {@code hnsw.iterative_scan = relaxed_order} it may return
+     * the neighbours slightly out of order, so the outer query sorts them again. Ties are broken by item ID,
+     * like {@code UserVectorIndex} does.
+     */
+    String NEAREST_NEIGHBOURS_QUERY = """
+            WITH nearest AS MATERIALIZED (
+                SELECT e.clothing_item_id, e.embedding <=> CAST(:queryEmbedding AS vector) AS distance
+                FROM clothing_item_embeddings e
+                WHERE e.user_id = :userId
+                ORDER BY distance, e.clothing_item_id
+                LIMIT :limit
+            )
+            SELECT clothing_item_id AS "clothingItemId", distance AS "distance"
+            FROM nearest
+            ORDER BY distance, clothing_item_id
+            """;
+
     Optional<ClothingItemEmbedding> findByClothingItemId(UUID clothingItemId);
+
+    List<ClothingItemEmbedding> findByUserId(UUID userId);
+
+    long countByUserId(UUID userId);
+
+    /**
+     * How many embeddings the user has, with a checksum of their IDs and update times. Any insert, update or
+     * delete of the user's embeddings changes it, whichever instance made the change and whatever its clock says,
+     * so it tells whether a copy of the closet held in memory is still current.
+     */
+    @Query(value = """
+            SELECT count(*) AS "itemCount", coalesce(sum(hashtext(id::text || updated_at::text)), 0) AS "checksum"
+            FROM clothing_item_embeddings
+            WHERE user_id = :userId
+            """, nativeQuery = true)
+    ClosetVersion findClosetVersion(@Param("userId") UUID userId);
+
+    /**
+     * @param queryEmbedding the query vector as a pgvector literal, e.g. {@code [0.1,0.2,...]}
+     * @see #NEAREST_NEIGHBOURS_QUERY
+     */
+    @Query(value = NEAREST_NEIGHBOURS_QUERY, nativeQuery = true)
+    List<Neighbour> findNearestNeighbours(@Param("userId") UUID userId,
+                                          @Param("queryEmbedding") String queryEmbedding,
+                                          @Param("limit") int limit);
+
+    /**
+     * Like {@link #findNearestNeighbours}, but with index scans turned off for the rest of the transaction, so
+     * the user's rows are read through a bitmap scan and ranked exactly instead of through the approximate HNSW
+     * index. Must run in a transaction.
+     */
+    default List<Neighbour> findNearestNeighboursExact(UUID userId, String queryEmbedding, int limit) {
+        setLocalConfig("enable_indexscan", "off");
+        return findNearestNeighbours(userId, queryEmbedding, limit);
+    }
+
+    /**
+     * Sets a server setting, such as {@code hnsw.ef_search}, until the end of the current transaction.
+     */
+    @Query(value = "SELECT set_config(:name, :value, true)", nativeQuery = true)
+    String setLocalConfig(@Param("name") String name, @Param("value") String value);
+
+    /**
+     * Ranks a user's clothing items by cosine distance to the query embedding and returns the closest
+     * {@code itemsPerType} item IDs of each clothing type. Items without an embedding rank last, newest first.
+     *
+     * @param queryEmbedding the query vector as a pgvector literal, e.g. {@code [0.1,0.2,...]}
+     */
+    @Query(value = """
+            SELECT ranked.id FROM (
+                SELECT c.id,
+                       ROW_NUMBER() OVER (
+                           PARTITION BY c.type
+                           ORDER BY e.embedding <=> CAST(:queryEmbedding AS vector) NULLS LAST, c.created_at DESC
+                       ) AS type_rank
+                FROM clothing_items c
+                LEFT JOIN clothing_item_embeddings e ON e.clothing_item_id = c.id
+                WHERE c.user_id = :userId
+            ) ranked
+            WHERE ranked.type_rank <= :itemsPerType
+            """, nativeQuery = true)
+    List<UUID> findMostSimilarItemIdsPerType(@Param("userId") UUID userId,
+                                             @Param("queryEmbedding") String queryEmbedding,
+                                             @Param("itemsPerType") int itemsPerType);
+
+    interface Neighbour {
+        UUID getClothingItemId();
+
+        double getDistance();
+    }
+
+    interface ClosetVersion {
+        long getItemCount();
+
+        long getChecksum();
+    }
 }
@@ -0,0 +1,61 @@
+package com.fitted.service.repository;
+
+import com.fitted.service.model.EnrichmentJob;
+import com.fitted.service.model.EnrichmentJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface EnrichmentJobRepository extends JpaRepository<EnrichmentJob, UUID> {
+
+    /**
+     * Reads the database clock, so leases and retry times do not depend on which instance set them.
+     */
+    @Query(value = "SELECT LOCALTIMESTAMP", nativeQuery = true)
+    LocalDateTime currentTimestamp();
+
+    /**
+     * Locks up to {@code limit} jobs that are due, or whose worker's lease has expired, skipping rows
+     * already locked by another worker so concurrent pollers never claim the same job.
+     */
+    @Query(value = """
+            SELECT * FROM enrichment_jobs
+            WHERE (status = 'QUEUED' AND available_at <= :now)
+               OR (status = 'RUNNING' AND locked_until < :now)
+            ORDER BY available_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<EnrichmentJob> findClaimable(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Deletes a job only if it is still held by the given claim; returns 0 if the lease was lost.
+     */
+    @Modifying
+    @Query("DELETE FROM EnrichmentJob j WHERE j.id = :id AND j.lockedBy = :lockedBy AND j.attempts = :attempts")
+    int deleteClaimed(@Param("id") UUID id, @Param("lockedBy") String lockedBy, @Param("attempts") int attempts);
+
+    /**
+     * Releases a claimed job back to the queue or to the dead-letter state, only if it is still held
+     * by the given claim; returns 0 if the lease was lost.
+     */
+    @Modifying
+    @Query("""
+            UPDATE EnrichmentJob j
+            SET j.status = :status, j.availableAt = :availableAt, j.lastError = :lastError,
+                j.lockedUntil = null, j.lockedBy = null, j.updatedAt = :now
+            WHERE j.id = :id AND j.lockedBy = :lockedBy AND j.attempts = :attempts
+            """)
+    int releaseClaimed(@Param("id") UUID id,
+                       @Param("lockedBy") String lockedBy,
+                       @Param("attempts") int attempts,
+                       @Param("status") EnrichmentJobStatus status,
+                       @Param("availableAt") LocalDateTime availableAt,
+                       @Param("lastError") String lastError,
+                       @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,45 @@
+package com.fitted.service.repository;
+
+import com.fitted.service.model.S3Deletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface S3DeletionRepository extends JpaRepository<S3Deletion, UUID> {
+
+    /**
+     * Reads the database clock, so leases and retry times do not depend on which instance set them.
+     */
+    @Query(value = "SELECT LOCALTIMESTAMP", nativeQuery = true)
+    LocalDateTime currentTimestamp();
+
+    /**
+     * Locks up to {@code limit} deletions that are due and have attempts left, skipping rows already locked
+     * by another worker.
+     */
+    @Query(value = """
+            SELECT * FROM s3_deletions
+            WHERE available_at <= :now AND attempts < :maxAttempts
+            ORDER BY available_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<S3Deletion> findClaimable(@Param("now") LocalDateTime now,
+                                   @Param("maxAttempts") int maxAttempts,
+                                   @Param("limit") int limit);
+
+    /**
+     * Locks every pending deletion of the key, waiting for a worker that is claiming one to commit first.
+     */
+    @Query(value = "SELECT * FROM s3_deletions WHERE s3_key = :s3Key FOR UPDATE", nativeQuery = true)
+    List<S3Deletion> lockByS3Key(@Param("s3Key") String s3Key);
+
+    /**
+     * Reads the pending deletions of the key without locking them.
+     */
+    List<S3Deletion> findByS3Key(String s3Key);
+}
@@ -0,0 +1,80 @@
+package com.fitted.service.repository;
+
+import com.fitted.service.model.StoredImage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface StoredImageRepository extends JpaRepository<StoredImage, String> {
+
+    /**
+     * Adds a reference to the object, creating its row on first use.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO stored_images (s3_key, ref_count, created_at, updated_at)
+            VALUES (:s3Key, 1, NOW(), NOW())
+            ON CONFLICT (s3_key) DO UPDATE SET ref_count = stored_images.ref_count + 1, updated_at = NOW()
+            """, nativeQuery = true)
+    void retain(@Param("s3Key") String s3Key);
+
+    /**
+     * Drops a reference to the object; returns 0 if the object is not reference counted.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE stored_images SET ref_count = ref_count - 1, updated_at = NOW()
+            WHERE s3_key = :s3Key AND ref_count > 0
+            """, nativeQuery = true)
+    int release(@Param("s3Key") String s3Key);
+
+    /**
+     * Removes the row once nothing references the object; returns 0 if it was retained again in the meantime.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM stored_images WHERE s3_key = :s3Key AND ref_count = 0", nativeQuery = true)
+    int deleteIfUnreferenced(@Param("s3Key") String s3Key);
+
+    /**
+     * Lists the keys after {@code after} that a user's clothing items and outfits point at, plus the reference
+     * counted and pending deletion keys matching keyPattern, in code point order. Used to page through
+     * everything that must not be collected as orphaned.
+     */
+    @Query(value = """
+            SELECT DISTINCT s3_key COLLATE "C" FROM (
+                SELECT regexp_replace(original_image_url, '^[a-z0-9]+://[^/]+/', '') AS s3_key
+                FROM clothing_items WHERE user_id = :userId
+                UNION ALL
+                SELECT regexp_replace(modified_image_url, '^[a-z0-9]+://[^/]+/', '')
+                FROM clothing_items WHERE user_id = :userId
+                UNION ALL
+                SELECT regexp_replace(variant.value, '^[a-z0-9]+://[^/]+/', '')
+                FROM clothing_items, jsonb_each_text(modified_image_variants) AS variant WHERE user_id = :userId
+                UNION ALL
+                SELECT regexp_replace(outfit_image_url, '^[a-z0-9]+://[^/]+/', '')
+                FROM outfits WHERE user_id = :userId
+                UNION ALL
+                SELECT regexp_replace(variant.value, '^[a-z0-9]+://[^/]+/', '')
+                FROM outfits, jsonb_each_text(outfit_image_variants) AS variant WHERE user_id = :userId
+                UNION ALL
+                SELECT s3_key FROM stored_images WHERE s3_key LIKE :keyPattern
+                UNION ALL
+                SELECT s3_key FROM s3_deletions WHERE s3_key LIKE :keyPattern
+            ) AS refs
+            WHERE s3_key IS NOT NULL AND s3_key COLLATE "C" > :after
+            ORDER BY 1
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<String> findReferencedKeys(@Param("userId") UUID userId,
+                                    @Param("keyPattern") String keyPattern,
+                                    @Param("after") String after,
+                                    @Param("limit") int limit);
+}
@@ -4,7 +4,14 @@ import com.fitted.service.dto.ClothingItemResponse;
 import com.fitted.service.dto.CreateClothingItemRequest;
 import com.fitted.service.dto.SearchClothingItemRequest;
 import com.fitted.service.dto.SearchClothingItemResponse;
+import com.fitted.service.dto.search.SearchCursor;
 import com.fitted.service.dto.search.SortOrder;
+import com.fitted.service.dto.upload.ClothingItemUploadRequest;
+import com.fitted.service.dto.upload.ClothingItemUploadResponse;
+import com.fitted.service.dto.upload.FinalizeClothingItemRequest;
+import com.fitted.service.dto.upload.UploadFileRequest;
+import com.fitted.service.ai.chat.ClosetContextCache;
+import com.fitted.service.ai.embedding.ClosetVectorIndex;
 import com.fitted.service.ai.enrichment.EnrichmentPublisher;
 import com.fitted.service.exception.InternalServerException;
 import com.fitted.service.exception.ResourceNotFoundException;
@@ -12,23 +19,28 @@ import com.fitted.service.exception.ValidationException;
 import com.fitted.service.exception.s3.S3FileUploadServerException;
 import com.fitted.service.exception.s3.S3FileUploadValidationException;
 import com.fitted.service.model.ClothingItem;
+import com.fitted.service.properties.AWSProperties;
 import com.fitted.service.repository.ClothingItemRepository;
 import com.fitted.service.specifications.ClothingItemSpecification;
 import com.fitted.service.utils.FileUtils;
+import com.fitted.service.utils.SniffedMultipartFile;
 import com.fitted.service.utils.SearchUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -39,82 +51,232 @@ public class ClothingItemService {
     private final S3FileUploadService s3FileUploadService;
     private final CloudFrontUrlService cloudFrontUrlService;
     private final EnrichmentPublisher enrichmentPublisher;
+    private final ClosetContextCache closetContextCache;
+    private final ClosetVectorIndex closetVectorIndex;
+    private final AWSProperties awsProperties;
+    private final ImageDerivativeService imageDerivativeService;
+    private final TransactionTemplate transactionTemplate;
 
     private final static String ORIGINAL_IMAGE_TYPE = "original";
     private final static String MODIFIED_IMAGE_TYPE = "modified";
 
-    @Transactional
+    /**
+     * Stores both images in S3, then saves the clothing item in a transaction that only adds the image
+     * references and writes to the database. If the save fails, the images are scheduled for deletion after
+     * the rollback.
+     */
     public ClothingItemResponse saveClothingItem(CreateClothingItemRequest request) {
         log.info("Started save clothing item request: name={}, user={}", request.getName(), request.getUser().getId());
-        String originalItemS3Url = null;
-        String modifiedItemS3Url = null;
-        try {
-            MultipartFile originalImageFile = FileUtils.validateFile(request.getOriginalImageFile());
-            MultipartFile modifiedImageFile = FileUtils.validateFile(request.getModifiedImageFile());
+        S3FileUploadService.UploadedImage originalImage = null;
+        S3FileUploadService.UploadedImage modifiedImage = null;
+        try (SniffedMultipartFile originalImageFile = FileUtils.validateFile(request.getOriginalImageFile());
+             SniffedMultipartFile modifiedImageFile = FileUtils.validateFile(request.getModifiedImageFile())) {
 
             UUID clothingItemId = UUID.randomUUID();
             String userId = request.getUser().getId().toString();
 
-            String originalCloudFrontUrl;
-            String modifiedCloudFrontUrl;
-            try {
+            if (awsProperties.getS3().isParallelUploads()) {
+                log.info("Attempting to save original and modified images to S3 concurrently: {}, {}",
+                        originalImageFile.getOriginalFilename(), modifiedImageFile.getOriginalFilename());
+                UploadedImages uploadedImages = uploadImagesConcurrently(originalImageFile, modifiedImageFile, userId);
+                originalImage = uploadedImages.original();
+                modifiedImage = uploadedImages.modified();
+                log.info("Saved original and modified images to S3: {}, {}", originalImage.s3Url(), modifiedImage.s3Url());
+            } else {
                 log.info("Attempting to save original image to S3: {}", originalImageFile.getOriginalFilename());
-                String originalItemKey = FileUtils.getClothingItemFileKey(userId, clothingItemId.toString(), ORIGINAL_IMAGE_TYPE,
-                        FileUtils.getFileExtension(originalImageFile.getOriginalFilename()));
-                originalItemS3Url = s3FileUploadService.uploadImageFileSimple(originalImageFile, originalItemKey);
-                log.info("Saved original image to S3: {}", originalItemS3Url);
+                originalImage = s3FileUploadService.uploadImageFileDeduplicated(originalImageFile, userId);
+                log.info("Saved original image to S3: {}", originalImage.s3Url());
 
                 log.info("Attempting to save modified image to S3: {}", modifiedImageFile.getOriginalFilename());
-                String modifiedItemKey = FileUtils.getClothingItemFileKey(userId, clothingItemId.toString(), MODIFIED_IMAGE_TYPE,
-                        FileUtils.getFileExtension(modifiedImageFile.getOriginalFilename()));
-                modifiedItemS3Url = s3FileUploadService.uploadImageFileSimple(modifiedImageFile, modifiedItemKey);
-                log.info("Saved modified image to S3: {}", modifiedItemS3Url);
-
-                originalCloudFrontUrl = cloudFrontUrlService.convertS3ToCloudFrontUrl(originalItemS3Url);
-                modifiedCloudFrontUrl = cloudFrontUrlService.convertS3ToCloudFrontUrl(modifiedItemS3Url);
-            } catch (Exception e) {
-                s3FileUploadService.cleanupS3(originalItemS3Url, modifiedItemS3Url);
-                throw e;
+                modifiedImage = s3FileUploadService.uploadImageFileDeduplicated(modifiedImageFile, userId);
+                log.info("Saved modified image to S3: {}", modifiedImage.s3Url());
             }
 
-            log.info("Attempting to save clothing item to database: name={}", request.getName());
             ClothingItem clothingItem = ClothingItem.builder()
                     .id(clothingItemId)
                     .name(request.getName())
                     .type(request.getType())
-                    .originalImageUrl(originalCloudFrontUrl)
-                    .modifiedImageUrl(modifiedCloudFrontUrl)
+                    .originalImageUrl(cloudFrontUrlService.convertS3ToCloudFrontUrl(originalImage.s3Url()))
+                    .modifiedImageUrl(cloudFrontUrlService.convertS3ToCloudFrontUrl(modifiedImage.s3Url()))
                     .color(request.getColor())
                     .user(request.getUser())
                     .build();
-            ClothingItem saved = clothingItemRepository.save(clothingItem);
-            log.info("Save clothing item was successful");
-
-            enrichmentPublisher.publishClothingItemCreated(saved.getId(), saved.getModifiedImageUrl());
-
-            return ClothingItemResponse.builder()
-                    .id(saved.getId())
-                    .name(saved.getName())
-                    .type(saved.getType())
-                    .originalImageUrl(saved.getOriginalImageUrl())
-                    .modifiedImageUrl(saved.getModifiedImageUrl())
-                    .color(saved.getColor())
-                    .aiDescription(saved.getAiDescription())
-                    .enrichmentStatus(saved.getEnrichmentStatus().name())
-                    .userId(saved.getUser().getId().toString())
-                    .createdAt(saved.getCreatedAt())
-                    .build();
+            S3FileUploadService.UploadedImage storedOriginalImage = originalImage;
+            S3FileUploadService.UploadedImage storedModifiedImage = modifiedImage;
+            return transactionTemplate.execute(status -> {
+                s3FileUploadService.retainUploadedImage(storedOriginalImage);
+                s3FileUploadService.retainUploadedImage(storedModifiedImage);
+                return persistClothingItem(clothingItem, storedModifiedImage.s3Url(), modifiedImageFile);
+            });
         } catch (S3FileUploadValidationException e) {
+            s3FileUploadService.deleteUploadedImages(originalImage, modifiedImage);
             throw new ValidationException(e.getMessage(), e);
         } catch (S3FileUploadServerException e) {
+            s3FileUploadService.deleteUploadedImages(originalImage, modifiedImage);
             throw new InternalServerException("Internal server error while uploading image to S3", e);
         } catch (Exception e) {
             log.error("Unexpected error during clothing item save", e);
-            s3FileUploadService.cleanupS3(originalItemS3Url, modifiedItemS3Url);
+            s3FileUploadService.deleteUploadedImages(originalImage, modifiedImage);
             throw new InternalServerException("Failed to save clothing item", e);
         }
     }
 
+    /**
+     * First step of a direct upload: reserves a clothing item id and presigns S3 PUTs for both images, so
+     * the image bytes go from the client to S3 without passing through this service.
+     */
+    public ClothingItemUploadResponse createClothingItemUpload(ClothingItemUploadRequest request, UUID userId) {
+        log.info("Started create clothing item upload request: user={}", userId);
+        UploadFileRequest originalImage = request.getOriginalImage();
+        UploadFileRequest modifiedImage = request.getModifiedImage();
+        FileUtils.validateDirectUpload(originalImage.getContentType(), originalImage.getContentLength());
+        FileUtils.validateDirectUpload(modifiedImage.getContentType(), modifiedImage.getContentLength());
+
+        UUID clothingItemId = UUID.randomUUID();
+        String originalItemKey = FileUtils.getClothingItemFileKey(userId.toString(), clothingItemId.toString(), ORIGINAL_IMAGE_TYPE,
+                FileUtils.getFileExtensionForContentType(originalImage.getContentType()));
+        String modifiedItemKey = FileUtils.getClothingItemFileKey(userId.toString(), clothingItemId.toString(), MODIFIED_IMAGE_TYPE,
+                FileUtils.getFileExtensionForContentType(modifiedImage.getContentType()));
+
+        try {
+            return ClothingItemUploadResponse.builder()
+                    .clothingItemId(clothingItemId)
+                    .originalImage(s3FileUploadService.presignUpload(originalItemKey, originalImage.getContentType(),
+                            originalImage.getContentLength()))
+                    .modifiedImage(s3FileUploadService.presignUpload(modifiedItemKey, modifiedImage.getContentType(),
+                            modifiedImage.getContentLength()))
+                    .build();
+        } catch (S3FileUploadServerException e) {
+            throw new InternalServerException("Internal server error while presigning S3 upload", e);
+        }
+    }
+
+    /**
+     * Second step of a direct upload: verifies the images the client uploaded and saves the clothing item.
+     * Images that fail verification are deleted, and the client has to start a new upload.
+     */
+    @Transactional
+    public ClothingItemResponse finalizeClothingItem(FinalizeClothingItemRequest request) {
+        log.info("Started finalize clothing item request: clothingItemId={}, user={}", request.getClothingItemId(),
+                request.getUser().getId());
+        String userId = request.getUser().getId().toString();
+        String clothingItemId = request.getClothingItemId().toString();
+        if (!FileUtils.isClothingItemFileKey(request.getOriginalImageKey(), userId, clothingItemId, ORIGINAL_IMAGE_TYPE)
+                || !FileUtils.isClothingItemFileKey(request.getModifiedImageKey(), userId, clothingItemId, MODIFIED_IMAGE_TYPE)) {
+            throw new ValidationException("Image keys do not belong to this clothing item upload.");
+        }
+        if (clothingItemRepository.existsById(request.getClothingItemId())) {
+            throw new ValidationException(String.format("Clothing item with id: %s already exists.", clothingItemId));
+        }
+
+        try {
+            String originalItemS3Url;
+            String modifiedItemS3Url;
+            try {
+                originalItemS3Url = s3FileUploadService.verifyDirectUpload(request.getOriginalImageKey());
+                modifiedItemS3Url = s3FileUploadService.verifyDirectUpload(request.getModifiedImageKey());
+            } catch (S3FileUploadValidationException e) {
+                String bucketName = awsProperties.getS3().getBucketName();
+                s3FileUploadService.cleanupS3(String.format("s3://%s/%s", bucketName, request.getOriginalImageKey()),
+                        String.format("s3://%s/%s", bucketName, request.getModifiedImageKey()));
+                throw e;
+            }
+
+            ClothingItem clothingItem = ClothingItem.builder()
+                    .id(request.getClothingItemId())
+                    .name(request.getName())
+                    .type(request.getType())
+                    .originalImageUrl(cloudFrontUrlService.convertS3ToCloudFrontUrl(originalItemS3Url))
+                    .modifiedImageUrl(cloudFrontUrlService.convertS3ToCloudFrontUrl(modifiedItemS3Url))
+                    .color(request.getColor())
+                    .user(request.getUser())
+                    .build();
+            return persistClothingItem(clothingItem, modifiedItemS3Url, null);
+        } catch (S3FileUploadValidationException e) {
+            throw new ValidationException(e.getMessage(), e);
+        } catch (S3FileUploadServerException e) {
+            throw new InternalServerException("Internal server error while verifying uploaded images", e);
+        } catch (Exception e) {
+            // The uploads are left in place so the client can retry finalizing
+            log.error("Unexpected error during clothing item finalize", e);
+            throw new InternalServerException("Failed to save clothing item", e);
+        }
+    }
+
+    /**
+     * Saves a clothing item whose images are already in S3 and starts its background work. modifiedImageFile
+     * is null for direct uploads, in which case that work reads the image from S3.
+     */
+    private ClothingItemResponse persistClothingItem(ClothingItem clothingItem, String modifiedItemS3Url,
+                                                     MultipartFile modifiedImageFile) {
+        log.info("Attempting to save clothing item to database: name={}", clothingItem.getName());
+        ClothingItem saved = clothingItemRepository.save(clothingItem);
+        log.info("Save clothing item was successful");
+
+        closetContextCache.invalidate(saved.getUser().getId());
+        enrichmentPublisher.publishClothingItemCreated(saved.getId(), saved.getUser().getId(), saved.getModifiedImageUrl(),
+                modifiedImageFile);
+        imageDerivativeService.generateAfterCommit(modifiedImageFile, modifiedItemS3Url,
+                variants -> attachModifiedImageVariants(saved.getId(), saved.getModifiedImageUrl(), variants));
+
+        return ClothingItemResponse.builder()
+                .id(saved.getId())
+                .name(saved.getName())
+                .type(saved.getType())
+                .originalImageUrl(saved.getOriginalImageUrl())
+                .modifiedImageUrl(saved.getModifiedImageUrl())
+                .color(saved.getColor())
+                .aiDescription(saved.getAiDescription())
+                .enrichmentStatus(saved.getEnrichmentStatus().name())
+                .userId(saved.getUser().getId().toString())
+                .createdAt(saved.getCreatedAt())
+                .build();
+    }
+
+    private boolean attachModifiedImageVariants(UUID clothingItemId, String modifiedImageUrl, Map<Integer, String> variants) {
+        return clothingItemRepository.findById(clothingItemId)
+                .filter(clothingItem -> modifiedImageUrl.equals(clothingItem.getModifiedImageUrl()))
+                .map(clothingItem -> {
+                    clothingItem.setModifiedImageVariants(variants);
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    /**
+     * Uploads both images at once. Waits for both uploads to settle even when one fails early, so an upload
+     * that finishes late is still scheduled for deletion instead of being left behind in the bucket.
+     */
+    private UploadedImages uploadImagesConcurrently(MultipartFile originalImageFile, MultipartFile modifiedImageFile,
+                                                    String userId) {
+        CompletableFuture<S3FileUploadService.UploadedImage> originalUpload =
+                s3FileUploadService.uploadImageFileDeduplicatedAsync(originalImageFile, userId);
+        CompletableFuture<S3FileUploadService.UploadedImage> modifiedUpload;
+        try {
+            modifiedUpload = s3FileUploadService.uploadImageFileDeduplicatedAsync(modifiedImageFile, userId);
+        } catch (RuntimeException e) {
+            s3FileUploadService.deleteUploadedImages(uploadedImage(originalUpload));
+            throw e;
+        }
+
+        CompletableFuture.allOf(originalUpload, modifiedUpload).exceptionally(error -> null).join();
+        if (originalUpload.isCompletedExceptionally() || modifiedUpload.isCompletedExceptionally()) {
+            s3FileUploadService.deleteUploadedImages(uploadedImage(originalUpload), uploadedImage(modifiedUpload));
+            Throwable failure = originalUpload.isCompletedExceptionally()
+                    ? originalUpload.exceptionNow()
+                    : modifiedUpload.exceptionNow();
+            throw failure instanceof RuntimeException runtimeException
+                    ? runtimeException
+                    : new S3FileUploadServerException(failure.getMessage(), failure);
+        }
+        return new UploadedImages(originalUpload.join(), modifiedUpload.join());
+    }
+
+    private static S3FileUploadService.UploadedImage uploadedImage(
+            CompletableFuture<S3FileUploadService.UploadedImage> upload) {
+        return upload.exceptionally(error -> null).join();
+    }
+
     public ClothingItemResponse getClothingItem(String clothingItemId, UUID userId) {
         log.info("Started get clothing item request: clothingItemId={}", clothingItemId);
         ClothingItem clothingItem = clothingItemRepository.findByIdAndUserId(UUID.fromString(clothingItemId), userId).orElseThrow(
@@ -127,6 +289,7 @@ public class ClothingItemService {
                 .type(clothingItem.getType())
                 .originalImageUrl(clothingItem.getOriginalImageUrl())
                 .modifiedImageUrl(clothingItem.getModifiedImageUrl())
+                .modifiedImageVariants(clothingItem.getModifiedImageVariants())
                 .color(clothingItem.getColor())
                 .aiDescription(clothingItem.getAiDescription())
                 .enrichmentStatus(clothingItem.getEnrichmentStatus().name())
@@ -144,23 +307,55 @@ public class ClothingItemService {
                     .build();
         }
 
-        Sort sort = SearchUtils.getSortOrderFromSearchRequest(request.getSort()).equals(SortOrder.ASCENDING) ?
-                Sort.by(SearchUtils.getSortByFromSearchRequest(request.getSort())).ascending() :
-                Sort.by(SearchUtils.getSortByFromSearchRequest(request.getSort())).descending();
-        Pageable pageable = PageRequest.of(request.getPage(), request.getMaxSize(), sort);
+        String sortBy = SearchUtils.getSortByFromSearchRequest(request.getSort());
+        boolean ascending = SearchUtils.getSortOrderFromSearchRequest(request.getSort()).equals(SortOrder.ASCENDING);
+        Sort sort = SearchUtils.getSort(sortBy, ascending);
+        SearchCursor cursor = request.getCursor() != null ? SearchUtils.decodeCursor(request.getCursor(), sortBy) : null;
+        boolean fullTextSearch = ClothingItemSpecification.isFullTextSearch(request.getSearch());
+        if (fullTextSearch && cursor != null) {
+            throw new ValidationException("Cursor pagination is not supported for ranked full-text search");
+        }
         Specification<ClothingItem> spec = ClothingItemSpecification.buildClothingItemSpec(request.getFilter(),
                 request.getSearch(), userId);
         try {
-            Page<ClothingItem> clothingItemPage = clothingItemRepository.findAll(spec, pageable);
-            log.info("Search clothing items was successful. Total items returned: {}", clothingItemPage.getTotalElements());
+            Slice<ClothingItem> clothingItemSlice;
+            Long totalCount;
+            if (cursor != null) {
+                // Keyset pagination: seek past the cursor on the (createdAt, id) order instead of skipping rows
+                int maxSize = request.getMaxSize();
+                clothingItemSlice = SearchUtils.toSlice(clothingItemRepository.findBy(
+                        spec.and(ClothingItemSpecification.buildClothingItemAfterCursorSpec(cursor, ascending)),
+                        query -> query.sortBy(sort).limit(maxSize + 1).all()), maxSize, sort);
+                totalCount = request.isIncludeTotalCount() ? clothingItemRepository.count(spec) : null;
+            } else if (fullTextSearch) {
+                // Best matches first; the requested sort only breaks ties between equally ranked items
+                Page<ClothingItem> clothingItemPage = clothingItemRepository.findAll(
+                        spec.and(ClothingItemSpecification.buildClothingItemRankedOrderSpec(request.getSearch(), sort)),
+                        PageRequest.of(request.getPage(), request.getMaxSize()));
+                clothingItemSlice = clothingItemPage;
+                totalCount = clothingItemPage.getTotalElements();
+            } else {
+                Page<ClothingItem> clothingItemPage = clothingItemRepository.findAll(spec,
+                        PageRequest.of(request.getPage(), request.getMaxSize(), sort));
+                clothingItemSlice = clothingItemPage;
+                totalCount = clothingItemPage.getTotalElements();
+            }
+            log.info("Search clothing items was successful. Items returned: {}", clothingItemSlice.getNumberOfElements());
+
+            String nextCursor = null;
+            if (clothingItemSlice.hasNext() && SearchUtils.CURSOR_SORT_BY.equals(sortBy) && !fullTextSearch) {
+                ClothingItem last = clothingItemSlice.getContent().getLast();
+                nextCursor = SearchUtils.encodeCursor(last.getCreatedAt(), last.getId());
+            }
             return SearchClothingItemResponse.builder()
-                    .items(clothingItemPage.getContent().stream().map(clothingItem ->
+                    .items(clothingItemSlice.getContent().stream().map(clothingItem ->
                                     ClothingItemResponse.builder()
                                             .id(clothingItem.getId())
                                             .name(clothingItem.getName())
                                             .type(clothingItem.getType())
                                             .originalImageUrl(clothingItem.getOriginalImageUrl())
                                             .modifiedImageUrl(clothingItem.getModifiedImageUrl())
+                                            .modifiedImageVariants(clothingItem.getModifiedImageVariants())
                                             .color(clothingItem.getColor())
                                             .aiDescription(clothingItem.getAiDescription())
                                             .enrichmentStatus(clothingItem.getEnrichmentStatus().name())
@@ -168,8 +363,9 @@ public class ClothingItemService {
                                             .userId(clothingItem.getUser().getId().toString())
                                             .build())
                             .toList())
-                    .totalCount(clothingItemPage.getTotalElements())
-                    .hasNext(clothingItemPage.hasNext())
+                    .totalCount(totalCount)
+                    .hasNext(clothingItemSlice.hasNext())
+                    .nextCursor(nextCursor)
                     .build();
         } catch (DataAccessException e) {
             log.error("Database error during clothing items search for user: {}", userId, e);
@@ -189,6 +385,8 @@ public class ClothingItemService {
                         String.format("Clothing item with id: %s not found.", clothingItemId)));
 
         clothingItemRepository.deleteById(UUID.fromString(clothingItemId));
+        closetContextCache.invalidate(userId);
+        closetVectorIndex.invalidate(userId);
 
         String originalS3Url = cloudFrontUrlService.convertCloudFrontToS3Url(
                 clothingItem.getOriginalImageUrl()
@@ -197,8 +395,12 @@ public class ClothingItemService {
                 clothingItem.getModifiedImageUrl()
         );
 
-        s3FileUploadService.cleanupS3(originalS3Url, modifiedS3Url);
+        s3FileUploadService.scheduleDelete(originalS3Url, modifiedS3Url);
+        imageDerivativeService.deleteDerivatives(clothingItem.getModifiedImageVariants());
 
         log.info("Completed delete clothing item: clothingItemId={}", clothingItem);
     }
+
+    private record UploadedImages(S3FileUploadService.UploadedImage original,
+                                  S3FileUploadService.UploadedImage modified) {}
 }
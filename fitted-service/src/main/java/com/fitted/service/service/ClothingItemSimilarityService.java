@@ -0,0 +1,165 @@
+package com.fitted.service.service;
+
+import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.ai.embedding.ClosetVectorIndex;
+import com.fitted.service.ai.embedding.EmbeddingService;
+import com.fitted.service.ai.enrichment.ImagePreprocessor;
+import com.fitted.service.dto.ClothingItemResponse;
+import com.fitted.service.dto.SimilarClothingItemResponse;
+import com.fitted.service.dto.SimilarClothingItemsResponse;
+import com.fitted.service.exception.DownstreamBusyException;
+import com.fitted.service.exception.InternalServerException;
+import com.fitted.service.exception.ResourceNotFoundException;
+import com.fitted.service.exception.ValidationException;
+import com.fitted.service.model.ClothingItem;
+import com.fitted.service.model.ClothingItemEmbedding;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository.Neighbour;
+import com.fitted.service.repository.ClothingItemRepository;
+import com.fitted.service.utils.FileUtils;
+import com.fitted.service.utils.VectorUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the clothing items in a user's closet that look most like a given item or an uploaded photo, by
+ * nearest-neighbour search over the CLIP image embeddings written during enrichment.
+ * <p>
+ * Closets held by {@link ClosetVectorIndex} are ranked in memory. Closets small enough to be held there are
+ * otherwise ranked exactly in the database, so both give the same results. Larger closets use the HNSW index,
+ * with {@code hnsw.ef_search} and {@code hnsw.iterative_scan} set for the search's own transaction to trade
+ * recall against latency as configured under {@code ai.similarity}. The photo is embedded before that
+ * transaction starts, so no connection is held during the model call.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class ClothingItemSimilarityService {
+
+    private final ClothingItemRepository clothingItemRepository;
+    private final ClothingItemEmbeddingRepository clothingItemEmbeddingRepository;
+    private final EmbeddingService embeddingService;
+    private final ImagePreprocessor imagePreprocessor;
+    private final ClosetVectorIndex closetVectorIndex;
+    private final AIProperties aiProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    public SimilarClothingItemsResponse findSimilarItems(String clothingItemId, Integer limit, UUID userId) {
+        log.info("Started find similar clothing items request: clothingItemId={}", clothingItemId);
+        int resultLimit = validateLimit(limit);
+        UUID id = UUID.fromString(clothingItemId);
+
+        return transactionTemplate.execute(status -> {
+            clothingItemRepository.findByIdAndUserId(id, userId).orElseThrow(
+                    () -> new ResourceNotFoundException(String.format("Clothing item with id: %s not found.", clothingItemId))
+            );
+            ClothingItemEmbedding embedding = clothingItemEmbeddingRepository.findByClothingItemId(id).orElseThrow(
+                    () -> new ValidationException(String.format("Clothing item with id: %s has not been analyzed yet.", clothingItemId))
+            );
+
+            // One extra, since the item is its own nearest neighbour
+            List<Neighbour> neighbours = findNearestNeighbours(userId, embedding.getEmbedding(), resultLimit + 1).stream()
+                    .filter(neighbour -> !id.equals(neighbour.getClothingItemId()))
+                    .limit(resultLimit)
+                    .toList();
+            return toResponse(neighbours, userId);
+        });
+    }
+
+    public SimilarClothingItemsResponse searchByPhoto(MultipartFile imageFile, Integer limit, UUID userId) {
+        log.info("Started search clothing items by photo request: user={}", userId);
+        int resultLimit = validateLimit(limit);
+        MultipartFile validatedImageFile = FileUtils.validateFile(imageFile);
+
+        float[] queryEmbedding;
+        try {
+            byte[] embeddingImage = imagePreprocessor.prepare(validatedImageFile.getBytes()).embeddingImage();
+            queryEmbedding = embeddingService.generateEmbedding(embeddingImage);
+        } catch (DownstreamBusyException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to generate embedding for photo search", e);
+            throw new InternalServerException("Failed to analyze photo: " + e.getMessage(), e);
+        }
+
+        return transactionTemplate.execute(status ->
+                toResponse(findNearestNeighbours(userId, queryEmbedding, resultLimit), userId));
+    }
+
+    private int validateLimit(Integer limit) {
+        AIProperties.Similarity similarity = aiProperties.getSimilarity();
+        if (limit == null) {
+            return similarity.getDefaultLimit();
+        }
+        if (limit < 1 || limit > similarity.getMaxLimit()) {
+            throw new ValidationException(String.format("Limit must be between 1 and %d", similarity.getMaxLimit()));
+        }
+        return limit;
+    }
+
+    /**
+     * Must run in a transaction, which scopes the planner and HNSW settings to this query.
+     */
+    private List<Neighbour> findNearestNeighbours(UUID userId, float[] queryEmbedding, int limit) {
+        Optional<List<Neighbour>> inMemory = closetVectorIndex.findNearest(userId, queryEmbedding, limit);
+        if (inMemory.isPresent()) {
+            return inMemory.get();
+        }
+
+        if (closetVectorIndex.fitsInBudget(clothingItemEmbeddingRepository.countByUserId(userId))) {
+            return clothingItemEmbeddingRepository.findNearestNeighboursExact(userId,
+                    VectorUtils.toVectorLiteral(queryEmbedding), limit);
+        }
+
+        AIProperties.Similarity similarity = aiProperties.getSimilarity();
+        clothingItemEmbeddingRepository.setLocalConfig("hnsw.ef_search", String.valueOf(similarity.getEfSearch()));
+        if (similarity.getIterativeScan() != null && !similarity.getIterativeScan().isBlank()) {
+            clothingItemEmbeddingRepository.setLocalConfig("hnsw.iterative_scan", similarity.getIterativeScan());
+        }
+        return clothingItemEmbeddingRepository.findNearestNeighbours(userId, VectorUtils.toVectorLiteral(queryEmbedding), limit);
+    }
+
+    private SimilarClothingItemsResponse toResponse(List<Neighbour> neighbours, UUID userId) {
+        Map<UUID, ClothingItem> clothingItems = clothingItemRepository.findByIdInAndUserId(
+                        neighbours.stream().map(Neighbour::getClothingItemId).toList(), userId).stream()
+                .collect(Collectors.toMap(ClothingItem::getId, Function.identity()));
+
+        List<SimilarClothingItemResponse> items = neighbours.stream()
+                .filter(neighbour -> clothingItems.containsKey(neighbour.getClothingItemId()))
+                .map(neighbour -> SimilarClothingItemResponse.builder()
+                        .item(toClothingItemResponse(clothingItems.get(neighbour.getClothingItemId()), userId))
+                        .similarity(1 - neighbour.getDistance())
+                        .build())
+                .toList();
+        log.info("Found {} similar clothing items for user: {}", items.size(), userId);
+        return SimilarClothingItemsResponse.builder()
+                .items(items)
+                .build();
+    }
+
+    private ClothingItemResponse toClothingItemResponse(ClothingItem clothingItem, UUID userId) {
+        return ClothingItemResponse.builder()
+                .id(clothingItem.getId())
+                .name(clothingItem.getName())
+                .type(clothingItem.getType())
+                .originalImageUrl(clothingItem.getOriginalImageUrl())
+                .modifiedImageUrl(clothingItem.getModifiedImageUrl())
+                .modifiedImageVariants(clothingItem.getModifiedImageVariants())
+                .color(clothingItem.getColor())
+                .aiDescription(clothingItem.getAiDescription())
+                .enrichmentStatus(clothingItem.getEnrichmentStatus().name())
+                .userId(userId.toString())
+                .createdAt(clothingItem.getCreatedAt())
+                .build();
+    }
+}
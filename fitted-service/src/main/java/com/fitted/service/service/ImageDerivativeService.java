@@ -0,0 +1,153 @@
+package com.fitted.service.service;
+
+import com.fitted.service.utils.FileUtils;
+import com.fitted.service.utils.ImageUtils;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+
+/**
+ * Writes downscaled copies of uploaded images next to the originals in S3, so list views can load
+ * small tiles instead of full-size images.
+ * <p>
+ * Derivatives are generated on a background executor once the upload's transaction commits and are
+ * then attached to the owning entity. Images with transparency are written as PNG to keep it, others as
+ * JPEG. Until the derivatives exist, or if generating them fails, clients use the full-size image.
+ * <p>
+ * Derivative keys follow the source key, so entities sharing a deduplicated image share its derivatives too.
+ * Each attached entity holds a reference to them, and deleting them only removes them with the last one.
+ */
+@Service
+@Log4j2
+public class ImageDerivativeService {
+
+    // Largest first, so each derivative is scaled from the previous one
+    static final List<Integer> DERIVATIVE_SIZES = List.of(1024, 384, 128);
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final S3FileUploadService s3FileUploadService;
+    private final CloudFrontUrlService cloudFrontUrlService;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor imageDerivativeExecutor;
+
+    public ImageDerivativeService(S3FileUploadService s3FileUploadService,
+                                  CloudFrontUrlService cloudFrontUrlService,
+                                  TransactionTemplate transactionTemplate,
+                                  @Qualifier("image-derivative-executor") Executor imageDerivativeExecutor) {
+        this.s3FileUploadService = s3FileUploadService;
+        this.cloudFrontUrlService = cloudFrontUrlService;
+        this.transactionTemplate = transactionTemplate;
+        this.imageDerivativeExecutor = imageDerivativeExecutor;
+    }
+
+    /**
+     * Generates derivatives of an image uploaded to sourceS3Url after the current transaction commits.
+     * imageFile is the uploaded file if the upload went through this service, or null if the client uploaded
+     * directly to S3, in which case the image is read back from S3.
+     * <p>
+     * attach is called in a new transaction with the derivative URLs keyed by size. It returns false if
+     * the owning entity no longer uses the source image, in which case the derivatives are deleted again.
+     */
+    public void generateAfterCommit(MultipartFile imageFile, String sourceS3Url, Predicate<Map<Integer, String>> attach) {
+        Runnable submit = () -> {
+            byte[] uploadedBytes;
+            try {
+                // Read on the request thread; the multipart file is deleted once the request completes
+                uploadedBytes = imageFile != null ? imageFile.getBytes() : null;
+            } catch (IOException e) {
+                log.warn("Could not read image for derivatives: {}", sourceS3Url, e);
+                return;
+            }
+
+            try {
+                imageDerivativeExecutor.execute(() -> {
+                    byte[] imageBytes;
+                    try {
+                        imageBytes = uploadedBytes != null ? uploadedBytes : s3FileUploadService.downloadFile(sourceS3Url);
+                    } catch (Exception e) {
+                        log.warn("Could not read image for derivatives: {}", sourceS3Url, e);
+                        return;
+                    }
+                    generate(imageBytes, sourceS3Url, attach);
+                });
+            } catch (RejectedExecutionException e) {
+                log.warn("Image derivative queue is full, skipping derivatives for: {}", sourceS3Url);
+            }
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit.run();
+                }
+            });
+        } else {
+            submit.run();
+        }
+    }
+
+    public void deleteDerivatives(Map<Integer, String> variants) {
+        if (variants == null || variants.isEmpty()) {
+            return;
+        }
+        s3FileUploadService.scheduleDelete(variants.values().stream()
+                .map(cloudFrontUrlService::convertCloudFrontToS3Url)
+                .toArray(String[]::new));
+    }
+
+    void generate(byte[] imageBytes, String sourceS3Url, Predicate<Map<Integer, String>> attach) {
+        List<String> uploadedS3Urls = new ArrayList<>();
+        try {
+            String sourceKey = s3FileUploadService.extractKeyFromS3Url(sourceS3Url);
+            BufferedImage image = ImageUtils.decode(imageBytes, 1, DERIVATIVE_SIZES.getFirst());
+            if (sourceKey == null || image == null) {
+                log.warn("Cannot generate derivatives for: {}", sourceS3Url);
+                return;
+            }
+
+            boolean transparent = image.getColorModel().hasAlpha();
+            Map<Integer, String> variants = new TreeMap<>();
+            for (int size : DERIVATIVE_SIZES) {
+                image = ImageUtils.fitLongSide(image, size);
+                byte[] derivative = transparent ? ImageUtils.toPng(image) : ImageUtils.toJpeg(image, JPEG_QUALITY);
+                String derivativeKey = FileUtils.getDerivativeFileKey(sourceKey, size, transparent ? ".png" : ".jpg");
+                String s3Url = s3FileUploadService.uploadBytes(derivative, derivativeKey, transparent ? "image/png" : "image/jpeg");
+                uploadedS3Urls.add(s3Url);
+                variants.put(size, cloudFrontUrlService.convertS3ToCloudFrontUrl(s3Url));
+            }
+
+            Boolean attached = transactionTemplate.execute(status -> {
+                if (!attach.test(variants)) {
+                    return false;
+                }
+                s3FileUploadService.retainReferences(uploadedS3Urls.toArray(String[]::new));
+                return true;
+            });
+            if (Objects.equals(attached, Boolean.TRUE)) {
+                log.info("Generated {} image derivatives for: {}", variants.size(), sourceS3Url);
+            } else {
+                log.info("Image was replaced or deleted before its derivatives were ready, removing them: {}", sourceS3Url);
+                s3FileUploadService.deleteUnreferenced(uploadedS3Urls.toArray(String[]::new));
+            }
+        } catch (Exception e) {
+            log.error("Failed to generate image derivatives for: {}", sourceS3Url, e);
+            s3FileUploadService.deleteUnreferenced(uploadedS3Urls.toArray(String[]::new));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.fitted.service.service;
+
+import com.fitted.service.properties.AWSProperties;
+import com.fitted.service.repository.StoredImageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Finds objects in the bucket that nothing references anymore, such as uploads left behind when cleanup after
+ * a failed save did not go through, and hands them to {@link S3DeletionQueue}.
+ * <p>
+ * Each user prefix is listed page by page and merged against the keys the database references under it, both
+ * sorted by code point, so memory use does not grow with the bucket or the closet. Only objects older than the
+ * grace period are collected, which leaves uploads that are still on their way to being referenced alone.
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class OrphanedObjectCollector {
+
+    private static final String DELIMITER = "/";
+
+    private final S3FileUploadService s3FileUploadService;
+    private final StoredImageRepository storedImageRepository;
+    private final S3DeletionQueue s3DeletionQueue;
+    private final AWSProperties awsProperties;
+
+    @Scheduled(cron = "${aws.s3.orphan-collection-cron:0 30 3 * * *}")
+    public void collect() {
+        AWSProperties.S3Properties s3Properties = awsProperties.getS3();
+        if (!s3Properties.isOrphanCollectionEnabled()) {
+            return;
+        }
+
+        Instant cutoff = Instant.now().minus(Duration.ofHours(s3Properties.getOrphanGracePeriodHours()));
+        long started = System.currentTimeMillis();
+        int prefixes = 0;
+        long collected = 0;
+        try {
+            Iterator<String> userPrefixes = new Pages<>(token -> {
+                ListObjectsV2Response page = s3FileUploadService.listObjects("", DELIMITER, token, pageSize());
+                return new Page<>(page.commonPrefixes().stream().map(CommonPrefix::prefix).toList(),
+                        page.nextContinuationToken());
+            });
+            while (userPrefixes.hasNext()) {
+                String prefix = userPrefixes.next();
+                try {
+                    collected += collectPrefix(prefix, cutoff);
+                    prefixes++;
+                } catch (Exception e) {
+                    log.warn("Orphaned object collection failed for prefix {}", prefix, e);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Orphaned object collection stopped after {} prefixes", prefixes, e);
+        }
+        log.info("Orphaned object collection scheduled {} objects for deletion across {} prefixes in {}ms",
+                collected, prefixes, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Schedules the objects under one user prefix that are older than cutoff and not referenced for deletion.
+     *
+     * @return the number of objects scheduled
+     */
+    long collectPrefix(String prefix, Instant cutoff) {
+        UUID userId;
+        try {
+            userId = UUID.fromString(prefix.substring(0, prefix.length() - DELIMITER.length()));
+        } catch (IllegalArgumentException e) {
+            log.debug("Skipping prefix that does not belong to a user: {}", prefix);
+            return 0;
+        }
+
+        int pageSize = pageSize();
+        Iterator<S3Object> objects = new Pages<>(token -> {
+            ListObjectsV2Response page = s3FileUploadService.listObjects(prefix, null, token, pageSize);
+            return new Page<>(page.contents(), page.nextContinuationToken());
+        });
+        Iterator<String> referencedKeys = new Pages<String>(after -> {
+            List<String> keys = storedImageRepository.findReferencedKeys(userId, prefix + "%", after == null ? "" : after,
+                    pageSize);
+            return new Page<>(keys, keys.size() < pageSize ? null : keys.getLast());
+        });
+
+        long collected = 0;
+        List<String> batch = new ArrayList<>(pageSize);
+        String referencedKey = referencedKeys.hasNext() ? referencedKeys.next() : null;
+        while (objects.hasNext()) {
+            S3Object object = objects.next();
+            while (referencedKey != null && compareCodePoints(referencedKey, object.key()) < 0) {
+                referencedKey = referencedKeys.hasNext() ? referencedKeys.next() : null;
+            }
+            if (object.key().equals(referencedKey) || !object.lastModified().isBefore(cutoff)) {
+                continue;
+            }
+
+            batch.add(object.key());
+            if (batch.size() == pageSize) {
+                collected += enqueue(batch);
+            }
+        }
+        collected += enqueue(batch);
+        return collected;
+    }
+
+    private int enqueue(List<String> batch) {
+        int size = batch.size();
+        if (size > 0) {
+            s3DeletionQueue.enqueue(List.copyOf(batch));
+            batch.clear();
+        }
+        return size;
+    }
+
+    private int pageSize() {
+        return Math.min(awsProperties.getS3().getDeletionBatchSize(), S3DeletionWorker.MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Orders keys the way S3 lists them and Postgres sorts them under the C collation: by UTF-8 bytes, which is
+     * code point order. String.compareTo compares UTF-16 units and disagrees for characters above U+FFFF.
+     */
+    static int compareCodePoints(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int codePointA = a.codePointAt(i);
+            int codePointB = b.codePointAt(j);
+            if (codePointA != codePointB) {
+                return Integer.compare(codePointA, codePointB);
+            }
+            i += Character.charCount(codePointA);
+            j += Character.charCount(codePointB);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    private record Page<T>(List<T> items, String next) {
+    }
+
+    /**
+     * Iterates a paged listing, fetching the next page only once the current one is used up. The fetch is given
+     * the cursor returned with the previous page, or null for the first.
+     */
+    private static class Pages<T> implements Iterator<T> {
+
+        private final Function<String, Page<T>> fetch;
+        private Iterator<T> current = Collections.emptyIterator();
+        private String cursor;
+        private boolean exhausted;
+
+        Pages(Function<String, Page<T>> fetch) {
+            this.fetch = fetch;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && !exhausted) {
+                Page<T> page = fetch.apply(cursor);
+                current = page.items().iterator();
+                cursor = page.next();
+                exhausted = cursor == null;
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+}
@@ -7,7 +7,12 @@ import com.fitted.service.dto.SearchOutfitsRequest;
 import com.fitted.service.dto.SearchOutfitsResponse;
 import com.fitted.service.dto.UpdateOutfitRequest;
 import com.fitted.service.dto.outfit.OutfitClothingItemDTO;
+import com.fitted.service.dto.search.SearchCursor;
 import com.fitted.service.dto.search.SortOrder;
+import com.fitted.service.dto.upload.FinalizeOutfitRequest;
+import com.fitted.service.dto.upload.OutfitUploadRequest;
+import com.fitted.service.dto.upload.OutfitUploadResponse;
+import com.fitted.service.dto.upload.UploadFileRequest;
 import com.fitted.service.exception.InternalServerException;
 import com.fitted.service.exception.ResourceNotFoundException;
 import com.fitted.service.exception.ValidationException;
@@ -16,24 +21,26 @@ import com.fitted.service.exception.s3.S3FileUploadValidationException;
 import com.fitted.service.model.ClothingItem;
 import com.fitted.service.model.Outfit;
 import com.fitted.service.model.OutfitClothingItem;
+import com.fitted.service.properties.AWSProperties;
 import com.fitted.service.repository.ClothingItemRepository;
 import com.fitted.service.repository.OutfitClothingItemRepository;
 import com.fitted.service.repository.OutfitRepository;
 import com.fitted.service.specifications.OutfitSpecification;
 import com.fitted.service.utils.FileUtils;
+import com.fitted.service.utils.SniffedMultipartFile;
 import com.fitted.service.utils.SearchUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
-import software.amazon.awssdk.utils.Pair;
 
 import java.util.List;
 import java.util.UUID;
@@ -49,33 +56,115 @@ public class OutfitService {
     private final OutfitClothingItemRepository outfitClothingItemRepository;
     private final S3FileUploadService s3FileUploadService;
     private final CloudFrontUrlService cloudFrontUrlService;
-
-    @Transactional
+    private final ImageDerivativeService imageDerivativeService;
+    private final AWSProperties awsProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Stores the outfit image in S3, then saves the outfit in a transaction that only adds the image reference
+     * and writes to the database. If the save fails, the image is scheduled for deletion after the rollback.
+     */
     public OutfitResponse saveOutfit(CreateOutfitRequest request) {
         log.info("Started save outfit request: num clothing items in outfit={}, user={}",
                 request.getClothingItems().size(), request.getUser().getId());
 
         validateOutfitClothingItems(request.getClothingItems(), request.getUser());
 
-        String outfitImageS3Url = null;
+        S3FileUploadService.UploadedImage outfitImage = null;
 
         UUID outfitId = UUID.randomUUID();
         String userId = request.getUser().getId().toString();
 
         try {
-            Pair<String, String> outfitImageUrls = uploadImageFileToS3(request.getOutfitImageFile(), outfitId, userId);
-            outfitImageS3Url = outfitImageUrls.left();
-            String outfitCloudFrontUrl = outfitImageUrls.right();
-
-            return saveOutfitAndOutfitClothingItems(outfitId, request.getUser(),
-                    request.getClothingItems(), outfitCloudFrontUrl, request.getTags());
+            outfitImage = uploadImageFileToS3(request.getOutfitImageFile(), userId);
+            String outfitImageS3Url = outfitImage.s3Url();
+            String outfitCloudFrontUrl = cloudFrontUrlService.convertS3ToCloudFrontUrl(outfitImageS3Url);
+
+            S3FileUploadService.UploadedImage storedOutfitImage = outfitImage;
+            return transactionTemplate.execute(status -> {
+                s3FileUploadService.retainUploadedImage(storedOutfitImage);
+                OutfitResponse response = saveOutfitAndOutfitClothingItems(outfitId, request.getUser(),
+                        request.getClothingItems(), outfitCloudFrontUrl, request.getTags());
+                generateOutfitImageVariants(request.getOutfitImageFile(), outfitImageS3Url, outfitId,
+                        outfitCloudFrontUrl);
+                return response;
+            });
         } catch (S3FileUploadValidationException e) {
+            s3FileUploadService.deleteUploadedImages(outfitImage);
             throw new ValidationException(e.getMessage(), e);
         } catch (S3FileUploadServerException e) {
+            s3FileUploadService.deleteUploadedImages(outfitImage);
             throw new InternalServerException("Internal server error while uploading image to S3", e);
         } catch (Exception e) {
             log.error("Unexpected error during outfit save", e);
-            s3FileUploadService.cleanupS3(outfitImageS3Url);
+            s3FileUploadService.deleteUploadedImages(outfitImage);
+            throw new InternalServerException("Failed to save outfit", e);
+        }
+    }
+
+    /**
+     * First step of a direct upload: reserves an outfit id and presigns an S3 PUT for the outfit image.
+     */
+    public OutfitUploadResponse createOutfitUpload(OutfitUploadRequest request, UUID userId) {
+        log.info("Started create outfit upload request: user={}", userId);
+        UploadFileRequest outfitImage = request.getOutfitImage();
+        FileUtils.validateDirectUpload(outfitImage.getContentType(), outfitImage.getContentLength());
+
+        UUID outfitId = UUID.randomUUID();
+        String outfitItemKey = FileUtils.getOutfitItemFileKey(userId.toString(), outfitId.toString(),
+                FileUtils.getFileExtensionForContentType(outfitImage.getContentType()));
+
+        try {
+            return OutfitUploadResponse.builder()
+                    .outfitId(outfitId)
+                    .outfitImage(s3FileUploadService.presignUpload(outfitItemKey, outfitImage.getContentType(),
+                            outfitImage.getContentLength()))
+                    .build();
+        } catch (S3FileUploadServerException e) {
+            throw new InternalServerException("Internal server error while presigning S3 upload", e);
+        }
+    }
+
+    /**
+     * Second step of a direct upload: verifies the uploaded outfit image and saves the outfit. An image that
+     * fails verification is deleted, and the client has to start a new upload.
+     */
+    @Transactional
+    public OutfitResponse finalizeOutfit(FinalizeOutfitRequest request) {
+        log.info("Started finalize outfit request: outfitId={}, num clothing items in outfit={}, user={}",
+                request.getOutfitId(), request.getClothingItems().size(), request.getUser().getId());
+
+        validateOutfitClothingItems(request.getClothingItems(), request.getUser());
+        if (!FileUtils.isOutfitFileKey(request.getOutfitImageKey(), request.getUser().getId().toString(),
+                request.getOutfitId().toString())) {
+            throw new ValidationException("Image key does not belong to this outfit upload.");
+        }
+        if (outfitRepository.existsById(request.getOutfitId())) {
+            throw new ValidationException(String.format("Outfit with id: %s already exists.", request.getOutfitId()));
+        }
+
+        try {
+            String outfitImageS3Url;
+            try {
+                outfitImageS3Url = s3FileUploadService.verifyDirectUpload(request.getOutfitImageKey());
+            } catch (S3FileUploadValidationException e) {
+                s3FileUploadService.cleanupS3(String.format("s3://%s/%s", awsProperties.getS3().getBucketName(),
+                        request.getOutfitImageKey()));
+                throw e;
+            }
+            String outfitCloudFrontUrl = cloudFrontUrlService.convertS3ToCloudFrontUrl(outfitImageS3Url);
+
+            OutfitResponse response = saveOutfitAndOutfitClothingItems(request.getOutfitId(), request.getUser(),
+                    request.getClothingItems(), outfitCloudFrontUrl, request.getTags());
+            generateOutfitImageVariants(null, outfitImageS3Url, request.getOutfitId(), outfitCloudFrontUrl);
+            return response;
+        } catch (S3FileUploadValidationException e) {
+            throw new ValidationException(e.getMessage(), e);
+        } catch (S3FileUploadServerException e) {
+            throw new InternalServerException("Internal server error while verifying uploaded image", e);
+        } catch (Exception e) {
+            // The upload is left in place so the client can retry finalizing
+            log.error("Unexpected error during outfit finalize", e);
             throw new InternalServerException("Failed to save outfit", e);
         }
     }
@@ -91,6 +180,7 @@ public class OutfitService {
         return OutfitResponse.builder()
                 .id(outfit.getId())
                 .outfitImageUrl(outfit.getOutfitImageUrl())
+                .outfitImageVariants(outfit.getOutfitImageVariants())
                 .clothingItems(outfitClothingItems.stream().map(outfitClothingItem ->
                         OutfitClothingItemDTO.builder()
                                 .clothingItemId(outfitClothingItem.getClothingItemId())
@@ -118,27 +208,49 @@ public class OutfitService {
                     .build();
         }
 
-        Sort sort = SearchUtils.getSortOrderFromSearchRequest(request.getSort()).equals(SortOrder.ASCENDING) ?
-                Sort.by(SearchUtils.getSortByFromSearchRequest(request.getSort())).ascending() :
-                Sort.by(SearchUtils.getSortByFromSearchRequest(request.getSort())).descending();
-        Pageable pageable = PageRequest.of(request.getPage(), request.getMaxSize(), sort);
+        String sortBy = SearchUtils.getSortByFromSearchRequest(request.getSort());
+        boolean ascending = SearchUtils.getSortOrderFromSearchRequest(request.getSort()).equals(SortOrder.ASCENDING);
+        Sort sort = SearchUtils.getSort(sortBy, ascending);
+        SearchCursor cursor = request.getCursor() != null ? SearchUtils.decodeCursor(request.getCursor(), sortBy) : null;
         Specification<Outfit> spec = OutfitSpecification.buildOutfitSpec(request.getFilter(),
                 request.getSearch(), userId);
         try {
-            Page<Outfit> outfitPage = outfitRepository.findAll(spec, pageable);
-            log.info("Search outfits was successful. Total items returned: {}", outfitPage.getTotalElements());
+            Slice<Outfit> outfitSlice;
+            Long totalCount;
+            if (cursor != null) {
+                // Keyset pagination: seek past the cursor on the (createdAt, id) order instead of skipping rows
+                int maxSize = request.getMaxSize();
+                outfitSlice = SearchUtils.toSlice(outfitRepository.findBy(
+                        spec.and(OutfitSpecification.buildOutfitAfterCursorSpec(cursor, ascending)),
+                        query -> query.sortBy(sort).limit(maxSize + 1).all()), maxSize, sort);
+                totalCount = request.isIncludeTotalCount() ? outfitRepository.count(spec) : null;
+            } else {
+                Page<Outfit> outfitPage = outfitRepository.findAll(spec,
+                        PageRequest.of(request.getPage(), request.getMaxSize(), sort));
+                outfitSlice = outfitPage;
+                totalCount = outfitPage.getTotalElements();
+            }
+            log.info("Search outfits was successful. Items returned: {}", outfitSlice.getNumberOfElements());
+
+            String nextCursor = null;
+            if (outfitSlice.hasNext() && SearchUtils.CURSOR_SORT_BY.equals(sortBy)) {
+                Outfit last = outfitSlice.getContent().getLast();
+                nextCursor = SearchUtils.encodeCursor(last.getCreatedAt(), last.getId());
+            }
             return SearchOutfitsResponse.builder()
-                    .items(outfitPage.getContent().stream().map(outfit ->
+                    .items(outfitSlice.getContent().stream().map(outfit ->
                             OutfitResponse.builder()
                                     .id(outfit.getId())
                                     .outfitImageUrl(outfit.getOutfitImageUrl())
+                                    .outfitImageVariants(outfit.getOutfitImageVariants())
                                     .createdAt(outfit.getCreatedAt())
                                     .userId(outfit.getUser().getId().toString())
                                     .tags(outfit.getTags())
                                     .build())
                             .toList())
-                    .totalCount(outfitPage.getTotalElements())
-                    .hasNext(outfitPage.hasNext())
+                    .totalCount(totalCount)
+                    .hasNext(outfitSlice.hasNext())
+                    .nextCursor(nextCursor)
                     .build();
         } catch (DataAccessException e) {
             log.error("Database error during outfits search for user: {}", userId, e);
@@ -163,18 +275,23 @@ public class OutfitService {
                 outfit.getOutfitImageUrl()
         );
 
-        s3FileUploadService.cleanupS3(outfitS3Url);
+        s3FileUploadService.scheduleDelete(outfitS3Url);
+        imageDerivativeService.deleteDerivatives(outfit.getOutfitImageVariants());
 
         log.info("Completed delete outfit: outfitId={}", outfitId);
     }
 
-    @Transactional
+    /**
+     * Stores the new outfit image in S3, then updates the outfit in a transaction that only adds the image
+     * reference, schedules the old image for deletion and writes to the database. If the update fails, the new
+     * image is scheduled for deletion after the rollback.
+     */
     public OutfitResponse updateOutfit(UpdateOutfitRequest request) {
         log.info("Started update outfit request: outfitId={}, num clothing items in outfit={}, user={}",
                 request.getOutfitId(), request.getClothingItems().size(), request.getUser().getId());
 
         validateOutfitClothingItems(request.getClothingItems(), request.getUser());
-        String outfitImageS3Url = null;
+        S3FileUploadService.UploadedImage outfitImage = null;
 
         UUID outfitId = UUID.fromString(request.getOutfitId());
         String userId = request.getUser().getId().toString();
@@ -182,27 +299,40 @@ public class OutfitService {
         OutfitResponse existingOutfit = getOutfit(outfitId.toString(), UUID.fromString(userId));
 
         try {
-            Pair<String, String> outfitImageUrls = uploadImageFileToS3(request.getOutfitImageFile(), outfitId, userId);
-            outfitImageS3Url = outfitImageUrls.left();
-            String outfitCloudFrontUrl = outfitImageUrls.right();
-
-            // delete old S3 object
-            s3FileUploadService.deleteFile(cloudFrontUrlService.convertCloudFrontToS3Url(existingOutfit.getOutfitImageUrl()));
-
-            // delete all existing outfit clothing items
-            List<UUID> existingClothingItemsInExistingOutfit = existingOutfit.getClothingItems().stream()
-                    .map(OutfitClothingItemDTO::getClothingItemId).toList();
-            outfitClothingItemRepository.deleteByOutfitIdAndClothingItemIdIn(outfitId, existingClothingItemsInExistingOutfit);
-
-            return saveOutfitAndOutfitClothingItems(outfitId, request.getUser(),
-                    request.getClothingItems(), outfitCloudFrontUrl, request.getTags());
+            outfitImage = uploadImageFileToS3(request.getOutfitImageFile(), userId);
+            String outfitImageS3Url = outfitImage.s3Url();
+            String outfitCloudFrontUrl = cloudFrontUrlService.convertS3ToCloudFrontUrl(outfitImageS3Url);
+
+            S3FileUploadService.UploadedImage storedOutfitImage = outfitImage;
+            return transactionTemplate.execute(status -> {
+                s3FileUploadService.retainUploadedImage(storedOutfitImage);
+
+                // delete old S3 object
+                s3FileUploadService.scheduleDelete(
+                        cloudFrontUrlService.convertCloudFrontToS3Url(existingOutfit.getOutfitImageUrl()));
+                imageDerivativeService.deleteDerivatives(existingOutfit.getOutfitImageVariants());
+
+                // delete all existing outfit clothing items
+                List<UUID> existingClothingItemsInExistingOutfit = existingOutfit.getClothingItems().stream()
+                        .map(OutfitClothingItemDTO::getClothingItemId).toList();
+                outfitClothingItemRepository.deleteByOutfitIdAndClothingItemIdIn(outfitId,
+                        existingClothingItemsInExistingOutfit);
+
+                OutfitResponse response = saveOutfitAndOutfitClothingItems(outfitId, request.getUser(),
+                        request.getClothingItems(), outfitCloudFrontUrl, request.getTags());
+                generateOutfitImageVariants(request.getOutfitImageFile(), outfitImageS3Url, outfitId,
+                        outfitCloudFrontUrl);
+                return response;
+            });
         } catch (S3FileUploadValidationException e) {
+            s3FileUploadService.deleteUploadedImages(outfitImage);
             throw new ValidationException(e.getMessage(), e);
         } catch (S3FileUploadServerException e) {
+            s3FileUploadService.deleteUploadedImages(outfitImage);
             throw new InternalServerException("Internal server error while uploading image to S3", e);
         } catch (Exception e) {
             log.error("Unexpected error during outfit save", e);
-            s3FileUploadService.cleanupS3(outfitImageS3Url);
+            s3FileUploadService.deleteUploadedImages(outfitImage);
             throw new InternalServerException("Failed to save outfit", e);
         }
     }
@@ -222,24 +352,26 @@ public class OutfitService {
         }
     }
 
-    private Pair<String, String> uploadImageFileToS3(MultipartFile imageFile, UUID objectId, String userId) {
-        MultipartFile outfitImageFile = FileUtils.validateFile(imageFile);
-
-        String outfitCloudFrontUrl;
-        String outfitImageS3Url = null;
-        try {
+    private S3FileUploadService.UploadedImage uploadImageFileToS3(MultipartFile imageFile, String userId) {
+        try (SniffedMultipartFile outfitImageFile = FileUtils.validateFile(imageFile)) {
             log.info("Attempting to save outfit image to S3: {}", outfitImageFile.getOriginalFilename());
-            String outfitItemKey = FileUtils.getOutfitItemFileKey(userId, objectId.toString(),
-                    FileUtils.getFileExtension(outfitImageFile.getOriginalFilename()));
-            outfitImageS3Url = s3FileUploadService.uploadImageFileSimple(outfitImageFile, outfitItemKey);
-            log.info("Saved outfit image to S3: {}", outfitImageS3Url);
-
-            outfitCloudFrontUrl = cloudFrontUrlService.convertS3ToCloudFrontUrl(outfitImageS3Url);
-        } catch (Exception e) {
-            s3FileUploadService.cleanupS3(outfitImageS3Url);
-            throw e;
+            S3FileUploadService.UploadedImage outfitImage =
+                    s3FileUploadService.uploadImageFileDeduplicated(outfitImageFile, userId);
+            log.info("Saved outfit image to S3: {}", outfitImage.s3Url());
+            return outfitImage;
         }
-        return Pair.of(outfitImageS3Url, outfitCloudFrontUrl);
+    }
+
+    private void generateOutfitImageVariants(MultipartFile outfitImageFile, String outfitImageS3Url, UUID outfitId,
+                                             String outfitCloudFrontUrl) {
+        imageDerivativeService.generateAfterCommit(outfitImageFile, outfitImageS3Url, variants ->
+                outfitRepository.findById(outfitId)
+                        .filter(outfit -> outfitCloudFrontUrl.equals(outfit.getOutfitImageUrl()))
+                        .map(outfit -> {
+                            outfit.setOutfitImageVariants(variants);
+                            return true;
+                        })
+                        .orElse(false));
     }
 
     private OutfitResponse saveOutfitAndOutfitClothingItems(UUID outfitId, Users user, List<OutfitClothingItemDTO> clothingItems,
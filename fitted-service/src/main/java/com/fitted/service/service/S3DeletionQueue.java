@@ -0,0 +1,167 @@
+package com.fitted.service.service;
+
+import com.fitted.service.model.S3Deletion;
+import com.fitted.service.model.StoredImage;
+import com.fitted.service.properties.AWSProperties;
+import com.fitted.service.repository.S3DeletionRepository;
+import com.fitted.service.repository.StoredImageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Postgres-backed outbox of S3 objects to delete.
+ * <p>
+ * Deletions are enqueued in the caller's transaction, so a rollback also drops them and an object is only
+ * deleted once the change that released it has committed. Claiming a batch leases it to one worker for the
+ * lease period; S3 deletes are idempotent, so a batch whose lease expired mid-flight is simply sent again.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class S3DeletionQueue {
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final S3DeletionRepository s3DeletionRepository;
+    private final StoredImageRepository storedImageRepository;
+    private final AWSProperties awsProperties;
+
+    @Transactional
+    public void enqueue(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = s3DeletionRepository.currentTimestamp();
+        s3DeletionRepository.saveAll(keys.stream()
+                .map(key -> S3Deletion.builder().s3Key(key).availableAt(now).build())
+                .toList());
+        log.info("Enqueued {} S3 deletions", keys.size());
+    }
+
+    /**
+     * Drops the pending deletions of a key that is about to be referenced again. Call within the transaction
+     * that retains the key: the rows stay locked until it commits, so no worker can claim them in between.
+     *
+     * @return false if a worker has already claimed a deletion of the key and may still send it to S3
+     */
+    @Transactional
+    public boolean cancelPending(String key) {
+        LocalDateTime now = s3DeletionRepository.currentTimestamp();
+        List<S3Deletion> pending = s3DeletionRepository.lockByS3Key(key);
+        if (pending.stream().anyMatch(deletion -> isClaimed(deletion, now))) {
+            return false;
+        }
+
+        if (!pending.isEmpty()) {
+            s3DeletionRepository.deleteAllInBatch(pending);
+            log.info("Cancelled {} pending S3 deletions of {}", pending.size(), key);
+        }
+        return true;
+    }
+
+    /**
+     * Whether a worker has already claimed a deletion of the key and may still send it to S3. Takes no locks,
+     * so a deletion can still be claimed right after this returns false; {@link #cancelPending} is the check
+     * that holds.
+     */
+    @Transactional(readOnly = true)
+    public boolean isDeletionInFlight(String key) {
+        LocalDateTime now = s3DeletionRepository.currentTimestamp();
+        return s3DeletionRepository.findByS3Key(key).stream().anyMatch(deletion -> isClaimed(deletion, now));
+    }
+
+    /**
+     * Leases up to {@code limit} due deletions. Keys that were referenced again since they were enqueued are
+     * dropped here instead of being returned.
+     */
+    @Transactional
+    public List<S3Deletion> claim(int limit) {
+        AWSProperties.S3Properties s3Properties = awsProperties.getS3();
+        LocalDateTime now = s3DeletionRepository.currentTimestamp();
+        List<S3Deletion> deletions = s3DeletionRepository.findClaimable(now, s3Properties.getDeletionMaxAttempts(), limit);
+        if (deletions.isEmpty()) {
+            return deletions;
+        }
+
+        Set<String> referenced = storedImageRepository.findAllById(deletions.stream().map(S3Deletion::getS3Key).toList())
+                .stream()
+                .map(StoredImage::getS3Key)
+                .collect(Collectors.toSet());
+        List<S3Deletion> claimed = new ArrayList<>();
+        List<S3Deletion> skipped = new ArrayList<>();
+        for (S3Deletion deletion : deletions) {
+            if (referenced.contains(deletion.getS3Key())) {
+                skipped.add(deletion);
+                continue;
+            }
+            deletion.setAttempts(deletion.getAttempts() + 1);
+            deletion.setAvailableAt(now.plusSeconds(s3Properties.getDeletionLeaseSeconds()));
+            claimed.add(deletion);
+        }
+
+        if (!skipped.isEmpty()) {
+            s3DeletionRepository.deleteAllInBatch(skipped);
+            log.info("Skipped {} S3 deletions for objects that are referenced again", skipped.size());
+        }
+        return claimed;
+    }
+
+    @Transactional
+    public void complete(List<S3Deletion> deletions) {
+        s3DeletionRepository.deleteAllByIdInBatch(deletions.stream().map(S3Deletion::getId).toList());
+    }
+
+    /**
+     * Schedules a retry for each failed deletion, or leaves it behind once it has used all of its attempts.
+     *
+     * @param errors the error for each failed deletion, keyed by S3 key
+     */
+    @Transactional
+    public void fail(List<S3Deletion> deletions, Map<String, String> errors) {
+        LocalDateTime now = s3DeletionRepository.currentTimestamp();
+        int maxAttempts = awsProperties.getS3().getDeletionMaxAttempts();
+        List<S3Deletion> failed = s3DeletionRepository.findAllById(deletions.stream().map(S3Deletion::getId).toList());
+        for (S3Deletion deletion : failed) {
+            deletion.setLastError(truncate(errors.getOrDefault(deletion.getS3Key(), "unknown error")));
+            if (deletion.getAttempts() >= maxAttempts) {
+                log.error("S3 deletion of {} abandoned after {} attempts: {}", deletion.getS3Key(), deletion.getAttempts(),
+                        deletion.getLastError());
+            } else {
+                deletion.setAvailableAt(now.plus(retryDelay(deletion.getAttempts())));
+            }
+        }
+        log.warn("{} S3 deletions failed and will be retried", failed.size());
+    }
+
+    Duration retryDelay(int attempts) {
+        AWSProperties.S3Properties s3Properties = awsProperties.getS3();
+        long baseSeconds = s3Properties.getDeletionRetryBaseDelaySeconds();
+        long delaySeconds = Math.min(s3Properties.getDeletionRetryMaxDelaySeconds(), baseSeconds << Math.min(attempts - 1, 20));
+        // Jitter so a batch that failed together does not retry together
+        long jitterSeconds = ThreadLocalRandom.current().nextLong(delaySeconds / 5 + 1);
+        return Duration.ofSeconds(delaySeconds + jitterSeconds);
+    }
+
+    private boolean isClaimed(S3Deletion deletion, LocalDateTime now) {
+        // Rows that used up their attempts are never claimed again once their last lease has expired
+        return deletion.getAttempts() > 0
+                && (deletion.getAttempts() < awsProperties.getS3().getDeletionMaxAttempts()
+                || deletion.getAvailableAt().isAfter(now));
+    }
+
+    private String truncate(String message) {
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
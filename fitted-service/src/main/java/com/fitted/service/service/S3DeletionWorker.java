@@ -0,0 +1,73 @@
+package com.fitted.service.service;
+
+import com.fitted.service.model.S3Deletion;
+import com.fitted.service.properties.AWSProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the S3 deletion outbox with DeleteObjects calls of up to 1000 keys, so request handlers never wait
+ * on S3 to delete anything. Keys S3 reports as failed are retried with backoff by {@link S3DeletionQueue}.
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class S3DeletionWorker {
+
+    // DeleteObjects accepts at most this many keys per call
+    static final int MAX_BATCH_SIZE = 1000;
+
+    private final S3DeletionQueue s3DeletionQueue;
+    private final S3FileUploadService s3FileUploadService;
+    private final AWSProperties awsProperties;
+
+    @Scheduled(fixedDelayString = "${aws.s3.deletion-poll-interval-millis:5000}",
+            initialDelayString = "${aws.s3.deletion-poll-initial-delay-millis:15000}")
+    public void poll() {
+        int batchSize = Math.min(awsProperties.getS3().getDeletionBatchSize(), MAX_BATCH_SIZE);
+        List<S3Deletion> batch;
+        do {
+            try {
+                batch = s3DeletionQueue.claim(batchSize);
+            } catch (Exception e) {
+                log.warn("Failed to claim S3 deletions", e);
+                return;
+            }
+            if (!batch.isEmpty()) {
+                drain(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    void drain(List<S3Deletion> batch) {
+        Map<String, String> errors;
+        try {
+            errors = s3FileUploadService.deleteObjects(batch.stream().map(S3Deletion::getS3Key).toList());
+        } catch (Exception e) {
+            log.error("DeleteObjects failed for a batch of {} keys", batch.size(), e);
+            errors = batch.stream().collect(Collectors.toMap(S3Deletion::getS3Key, deletion -> String.valueOf(e),
+                    (first, second) -> first));
+        }
+
+        Map<String, String> failedKeys = errors;
+        Map<Boolean, List<S3Deletion>> byFailure = batch.stream()
+                .collect(Collectors.partitioningBy(deletion -> failedKeys.containsKey(deletion.getS3Key())));
+        try {
+            if (!byFailure.get(false).isEmpty()) {
+                s3DeletionQueue.complete(byFailure.get(false));
+                log.info("Deleted {} objects from S3", byFailure.get(false).size());
+            }
+            if (!byFailure.get(true).isEmpty()) {
+                s3DeletionQueue.fail(byFailure.get(true), failedKeys);
+            }
+        } catch (Exception e) {
+            log.error("Failed to record S3 deletion results, the batch will be retried when its lease expires", e);
+        }
+    }
+}
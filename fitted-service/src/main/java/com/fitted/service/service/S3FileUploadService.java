@@ -1,13 +1,20 @@
 package com.fitted.service.service;
 
+import com.fitted.service.concurrency.Downstream;
+import com.fitted.service.concurrency.DownstreamLimiter;
+import com.fitted.service.dto.upload.PresignedUpload;
 import com.fitted.service.exception.s3.S3FileUploadServerException;
 import com.fitted.service.exception.s3.S3FileUploadValidationException;
 import com.fitted.service.properties.AWSProperties;
-import lombok.RequiredArgsConstructor;
+import com.fitted.service.repository.StoredImageRepository;
+import com.fitted.service.utils.FileUtils;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
@@ -16,31 +23,82 @@ import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
 import software.amazon.awssdk.services.s3.model.CompletedPart;
 import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.Delete;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.UploadPartRequest;
-import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 
 @Log4j2
 @Service
-@RequiredArgsConstructor
 public class S3FileUploadService {
     private final static long MAX_FILE_SIZE = (long) (2 * Math.pow(1024, 3));
 
     private final S3Client s3Client;
+    private final S3AsyncClient s3AsyncClient;
+    private final S3Presigner s3Presigner;
+    private final ExecutorService s3UploadExecutor;
     private final AWSProperties awsProperties;
+    private final DownstreamLimiter downstreamLimiter;
+    private final S3PartBufferPool s3PartBufferPool;
+    private final StoredImageRepository storedImageRepository;
+    private final S3DeletionQueue s3DeletionQueue;
+
+    public S3FileUploadService(S3Client s3Client,
+                               S3AsyncClient s3AsyncClient,
+                               S3Presigner s3Presigner,
+                               @Qualifier("s3-upload-executor") ExecutorService s3UploadExecutor,
+                               AWSProperties awsProperties,
+                               DownstreamLimiter downstreamLimiter,
+                               S3PartBufferPool s3PartBufferPool,
+                               StoredImageRepository storedImageRepository,
+                               S3DeletionQueue s3DeletionQueue) {
+        this.s3Client = s3Client;
+        this.s3AsyncClient = s3AsyncClient;
+        this.s3Presigner = s3Presigner;
+        this.s3UploadExecutor = s3UploadExecutor;
+        this.awsProperties = awsProperties;
+        this.downstreamLimiter = downstreamLimiter;
+        this.s3PartBufferPool = s3PartBufferPool;
+        this.storedImageRepository = storedImageRepository;
+        this.s3DeletionQueue = s3DeletionQueue;
+    }
 
     public String uploadImageFileSimple(MultipartFile imageFile, String keyFileName) {
         validateImageFileSize(imageFile);
 
-        try {
+        try (InputStream stream = imageFile.getInputStream()) {
             String bucketName = awsProperties.getS3().getBucketName();
 
             PutObjectRequest request = PutObjectRequest.builder()
@@ -48,8 +106,8 @@ public class S3FileUploadService {
                     .key(keyFileName)
                     .contentType(imageFile.getContentType())
                     .build();
-            s3Client.putObject(request,
-                    RequestBody.fromInputStream(imageFile.getInputStream(), imageFile.getSize()));
+            RequestBody requestBody = RequestBody.fromInputStream(stream, imageFile.getSize());
+            downstreamLimiter.call(Downstream.S3, () -> s3Client.putObject(request, requestBody));
 
             return String.format("s3://%s/%s", bucketName, keyFileName);
         } catch (Exception e) {
@@ -58,11 +116,58 @@ public class S3FileUploadService {
         }
     }
 
+    /**
+     * Non-blocking counterpart of {@link #uploadImageFileSimple} on the async client. Validation errors are
+     * thrown immediately; upload failures complete the future exceptionally with an
+     * {@link S3FileUploadServerException}. The file's stream is closed once the upload settles, since the
+     * SDK leaves that to the caller.
+     */
+    public CompletableFuture<String> uploadImageFileAsync(MultipartFile imageFile, String keyFileName) {
+        validateImageFileSize(imageFile);
+
+        String bucketName = awsProperties.getS3().getBucketName();
+        InputStream stream = null;
+        try {
+            PutObjectRequest request = PutObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(keyFileName)
+                    .contentType(imageFile.getContentType())
+                    .build();
+            stream = imageFile.getInputStream();
+            InputStream uploadStream = stream;
+            AsyncRequestBody requestBody = AsyncRequestBody.fromInputStream(uploadStream, imageFile.getSize(), s3UploadExecutor);
+
+            return downstreamLimiter.callAsync(Downstream.S3, () -> s3AsyncClient.putObject(request, requestBody))
+                    .whenComplete((response, error) -> closeQuietly(uploadStream))
+                    .handle((response, error) -> {
+                        if (error != null) {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                            log.error("S3 async put object failed", cause);
+                            throw new S3FileUploadServerException(cause.getMessage(), cause);
+                        }
+                        return String.format("s3://%s/%s", bucketName, keyFileName);
+                    });
+        } catch (S3FileUploadServerException e) {
+            closeQuietly(stream);
+            throw e;
+        } catch (Exception e) {
+            // Thrown before the upload started, for example when the S3 limiter is full
+            closeQuietly(stream);
+            log.error("S3 async put object failed", e);
+            throw new S3FileUploadServerException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Streams the file to S3 in parts read into pooled direct buffers, with up to
+     * {@code multipartMaxInFlightParts} parts uploading at once. Heap use does not depend on the file size.
+     */
     public String uploadImageFileMultipart(MultipartFile imageFile, String keyFileName) {
         validateImageFileSize(imageFile);
 
         String bucketName = awsProperties.getS3().getBucketName();
         String uploadId = null;
+        List<CompletableFuture<CompletedPart>> partUploads = new ArrayList<>();
 
         try {
             log.info("Creating multi part upload to S3.");
@@ -72,54 +177,389 @@ public class S3FileUploadService {
                     .contentType(imageFile.getContentType())
                     .build();
 
-            CreateMultipartUploadResponse createMultipartUploadResponse = s3Client.createMultipartUpload(createMultipartUploadRequest);
+            CreateMultipartUploadResponse createMultipartUploadResponse = downstreamLimiter.call(Downstream.S3,
+                    () -> s3Client.createMultipartUpload(createMultipartUploadRequest));
             uploadId = createMultipartUploadResponse.uploadId();
-            try (InputStream inputStream = imageFile.getInputStream()) {
-                int BUFFER_SIZE = (50 * 1024 * 1024), partId = 1, bytesRead;
-                byte[] buffer = new byte[BUFFER_SIZE];
-                List<CompletedPart> completedParts = new ArrayList<>();
-
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    byte[] partData = Arrays.copyOf(buffer, bytesRead);
-                    UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
-                            .bucket(bucketName)
-                            .key(keyFileName)
-                            .uploadId(uploadId)
-                            .partNumber(partId)
-                            .build();
-                    UploadPartResponse uploadPartResponse = s3Client.uploadPart(uploadPartRequest,
-                            RequestBody.fromBytes(partData));
-                    completedParts.add(CompletedPart.builder()
-                            .partNumber(partId)
-                            .eTag(uploadPartResponse.eTag())
-                            .build());
-                    partId++;
-                }
 
-                log.info("Completing multi part upload to S3.");
-                CompleteMultipartUploadRequest completeMultipartUploadRequest = CompleteMultipartUploadRequest.builder()
-                        .bucket(bucketName)
-                        .key(keyFileName)
-                        .uploadId(uploadId)
-                        .multipartUpload(CompletedMultipartUpload.builder()
-                                .parts(completedParts)
-                                .build())
-                        .build();
-                CompleteMultipartUploadResponse completeMultipartUploadResponse = s3Client.completeMultipartUpload(completeMultipartUploadRequest);
-                return String.format("s3://%s/%s", completeMultipartUploadResponse.bucket(), completeMultipartUploadResponse.key());
-            } catch (IOException e) {
-                log.error("IOException while performing multi part upload to S3", e);
-                abortMultiPartUpload(bucketName, keyFileName, uploadId);
-                throw new S3FileUploadServerException("IOException while performing multi part upload to S3", e);
+            int partSize = Math.toIntExact(s3PartBufferPool.partSizeFor(imageFile.getSize()));
+            Semaphore inFlightParts = new Semaphore(awsProperties.getS3().getMultipartMaxInFlightParts());
+            try (ReadableByteChannel channel = Channels.newChannel(imageFile.getInputStream())) {
+                int partId = 1;
+                boolean endOfFile = false;
+                while (!endOfFile) {
+                    inFlightParts.acquire();
+                    ByteBuffer buffer = s3PartBufferPool.acquire();
+                    boolean submitted = false;
+                    try {
+                        buffer.limit(partSize);
+                        endOfFile = readFully(channel, buffer);
+                        buffer.flip();
+                        if (buffer.hasRemaining()) {
+                            partUploads.add(uploadPart(bucketName, keyFileName, uploadId, partId++, buffer, inFlightParts));
+                            submitted = true;
+                        }
+                    } finally {
+                        if (!submitted) {
+                            s3PartBufferPool.release(buffer);
+                            inFlightParts.release();
+                        }
+                    }
+                    // Stop reading as soon as a part fails rather than after the whole file has been read
+                    partUploads.stream()
+                            .filter(CompletableFuture::isCompletedExceptionally)
+                            .findFirst()
+                            .ifPresent(CompletableFuture::join);
+                }
             }
+
+            List<CompletedPart> completedParts = partUploads.stream()
+                    .map(CompletableFuture::join)
+                    .toList();
+
+            log.info("Completing multi part upload to S3 with {} parts.", completedParts.size());
+            CompleteMultipartUploadRequest completeMultipartUploadRequest = CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(keyFileName)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder()
+                            .parts(completedParts)
+                            .build())
+                    .build();
+            CompleteMultipartUploadResponse completeMultipartUploadResponse = downstreamLimiter.call(Downstream.S3,
+                    () -> s3Client.completeMultipartUpload(completeMultipartUploadRequest));
+            return String.format("s3://%s/%s", completeMultipartUploadResponse.bucket(), completeMultipartUploadResponse.key());
         } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("Multi part upload to S3 failed", cause);
             if (Objects.nonNull(uploadId)) {
+                // Let parts still in flight settle so none of them lands after the abort
+                CompletableFuture.allOf(partUploads.toArray(CompletableFuture[]::new))
+                        .exceptionally(error -> null)
+                        .join();
                 abortMultiPartUpload(bucketName, keyFileName, uploadId);
             }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new S3FileUploadServerException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Uploads with a single PUT, or in parts once the file is larger than {@code multipartThresholdBytes}.
+     */
+    public String uploadImageFile(MultipartFile imageFile, String keyFileName) {
+        if (imageFile != null && imageFile.getSize() > awsProperties.getS3().getMultipartThresholdBytes()) {
+            return uploadImageFileMultipart(imageFile, keyFileName);
+        }
+        return uploadImageFileSimple(imageFile, keyFileName);
+    }
+
+    /**
+     * Stores the image under a key derived from its SHA-256 digest. The image is read once, into memory, and
+     * hashed before anything is sent, so an image the user already has in S3 costs one HEAD and no PUT. A
+     * miss is written with {@code If-None-Match: *}, so a racing upload of the same bytes is not written
+     * twice. If a deletion of that key has already been claimed, the object may be deleted at any moment, so
+     * the image is uploaded under a key of its own instead.
+     * <p>
+     * Call before opening the transaction that saves the referencing entity, and pass the result to
+     * {@link #retainUploadedImage} within it. If that transaction rolls back, hand the URL to
+     * {@link #deleteUnreferenced}.
+     */
+    public UploadedImage uploadImageFileDeduplicated(MultipartFile imageFile, String userId) {
+        validateImageFileSize(imageFile);
+        if (imageFile.getSize() > FileUtils.MAX_IMAGE_FILE_SIZE) {
+            throw new S3FileUploadValidationException("File size exceeds maximum allowed size of 10MB");
+        }
+
+        byte[] bytes = readImageFile(imageFile);
+        String contentType = imageFile.getContentType();
+        String extension = FileUtils.getFileExtensionForContentType(contentType);
+        String keyFileName = FileUtils.getContentAddressedFileKey(userId, sha256Hex(bytes), extension);
+        if (s3DeletionQueue.isDeletionInFlight(keyFileName)) {
+            String uploadKey = FileUtils.getImageUploadFileKey(userId, extension);
+            log.info("Stored image {} is being deleted, uploading under: {}", keyFileName, uploadKey);
+            return new UploadedImage(uploadBytes(bytes, uploadKey, contentType), false);
+        }
+
+        if (objectExists(keyFileName)) {
+            log.info("Image already stored, skipping upload: {}", keyFileName);
+        } else {
+            uploadBytesIfAbsent(bytes, keyFileName, contentType);
+        }
+        return new UploadedImage(String.format("s3://%s/%s", awsProperties.getS3().getBucketName(), keyFileName), true);
+    }
+
+    /**
+     * {@link #uploadImageFileDeduplicated} on the upload executor, so several images can be stored at once.
+     */
+    public CompletableFuture<UploadedImage> uploadImageFileDeduplicatedAsync(MultipartFile imageFile, String userId) {
+        return CompletableFuture.supplyAsync(() -> uploadImageFileDeduplicated(imageFile, userId), s3UploadExecutor);
+    }
+
+    /**
+     * Adds a reference to an image stored by {@link #uploadImageFileDeduplicated}. Call within the transaction
+     * that saves the referencing entity, so the reference rolls back with it. Nothing is sent to S3 here.
+     *
+     * @throws S3FileUploadServerException if a deletion of the image was claimed after it was uploaded
+     */
+    public void retainUploadedImage(UploadedImage uploadedImage) {
+        if (!uploadedImage.referenceCounted()) {
+            return;
+        }
+        String keyFileName = extractKeyFromS3Url(uploadedImage.s3Url());
+        if (!s3DeletionQueue.cancelPending(keyFileName)) {
+            throw new S3FileUploadServerException("Stored image is being deleted: " + keyFileName);
+        }
+        storedImageRepository.retain(keyFileName);
+    }
+
+    /**
+     * Adds a reference to each object, so {@link #deleteFile} keeps it until every reference is released.
+     */
+    public void retainReferences(String... s3Urls) {
+        Arrays.stream(s3Urls)
+                .map(this::extractKeyFromS3Url)
+                .filter(Objects::nonNull)
+                .forEach(storedImageRepository::retain);
+    }
+
+    /**
+     * Schedules the objects for deletion unless something holds a reference to them, leaving shared ones in
+     * place. For cleaning up objects that were written but never referenced.
+     */
+    public void deleteUnreferenced(String... s3Urls) {
+        s3DeletionQueue.enqueue(Arrays.stream(s3Urls)
+                .map(this::extractKeyFromS3Url)
+                .filter(Objects::nonNull)
+                .toList());
+    }
+
+    /**
+     * Cleans up after a save that failed once its images were stored by {@link #uploadImageFileDeduplicated}:
+     * schedules each of them for deletion unless something else references it. Call after the failed
+     * transaction has rolled back. Errors are logged, not thrown, so the caller reports the original failure.
+     */
+    public void deleteUploadedImages(UploadedImage... uploadedImages) {
+        try {
+            deleteUnreferenced(Arrays.stream(uploadedImages)
+                    .filter(Objects::nonNull)
+                    .map(UploadedImage::s3Url)
+                    .toArray(String[]::new));
+        } catch (Exception e) {
+            log.error("Failed to schedule uploaded images for deletion", e);
+        }
+    }
+
+    /**
+     * Releases a reference to each object and schedules the ones nothing references anymore for deletion by
+     * {@link S3DeletionWorker}. Call within the transaction that stops using the objects: nothing is sent to
+     * S3 here, and a rollback keeps both the references and the objects.
+     */
+    public void scheduleDelete(String... s3Urls) {
+        s3DeletionQueue.enqueue(Arrays.stream(s3Urls)
+                .map(this::extractKeyFromS3Url)
+                .filter(Objects::nonNull)
+                .filter(this::releaseReference)
+                .toList());
+    }
+
+    /**
+     * Lists one page of the bucket under prefix. With a delimiter, keys below it are rolled up into common
+     * prefixes; continuationToken is null for the first page.
+     */
+    public ListObjectsV2Response listObjects(String prefix, String delimiter, String continuationToken, int maxKeys) {
+        ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
+                .bucket(awsProperties.getS3().getBucketName())
+                .prefix(prefix)
+                .delimiter(delimiter)
+                .continuationToken(continuationToken)
+                .maxKeys(maxKeys)
+                .build();
+        return downstreamLimiter.call(Downstream.S3, () -> s3Client.listObjectsV2(listRequest));
+    }
+
+    /**
+     * Deletes the keys with a single DeleteObjects call.
+     *
+     * @return the error message for each key S3 failed to delete
+     */
+    public Map<String, String> deleteObjects(List<String> keys) {
+        DeleteObjectsRequest deleteRequest = DeleteObjectsRequest.builder()
+                .bucket(awsProperties.getS3().getBucketName())
+                .delete(Delete.builder()
+                        .objects(keys.stream().map(key -> ObjectIdentifier.builder().key(key).build()).toList())
+                        .quiet(true)
+                        .build())
+                .build();
+        DeleteObjectsResponse response = downstreamLimiter.call(Downstream.S3, () -> s3Client.deleteObjects(deleteRequest));
+
+        Map<String, String> errors = new HashMap<>();
+        response.errors().forEach(error -> errors.put(error.key(), error.code() + ": " + error.message()));
+        return errors;
+    }
+
+    /**
+     * Writes the bytes unless an object already exists under the key, in which case S3 answers 412 and the
+     * existing object is kept.
+     */
+    private void uploadBytesIfAbsent(byte[] bytes, String keyFileName, String contentType) {
+        PutObjectRequest request = PutObjectRequest.builder()
+                .bucket(awsProperties.getS3().getBucketName())
+                .key(keyFileName)
+                .contentType(contentType)
+                .ifNoneMatch("*")
+                .build();
+        try {
+            downstreamLimiter.call(Downstream.S3, () -> s3Client.putObject(request, RequestBody.fromBytes(bytes)));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 412) {
+                log.info("Image was stored by another upload: {}", keyFileName);
+                return;
+            }
+            log.error("S3 put object failed for key: {}", keyFileName, e);
+            throw new S3FileUploadServerException("Failed to store image", e);
+        } catch (Exception e) {
+            log.error("S3 put object failed for key: {}", keyFileName, e);
+            throw new S3FileUploadServerException("Failed to store image", e);
+        }
+    }
+
+    public String uploadBytes(byte[] bytes, String keyFileName, String contentType) {
+        try {
+            String bucketName = awsProperties.getS3().getBucketName();
+
+            PutObjectRequest request = PutObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(keyFileName)
+                    .contentType(contentType)
+                    .build();
+            downstreamLimiter.call(Downstream.S3, () -> s3Client.putObject(request, RequestBody.fromBytes(bytes)));
+
+            return String.format("s3://%s/%s", bucketName, keyFileName);
+        } catch (Exception e) {
+            log.error("S3 put object failed", e);
             throw new S3FileUploadServerException(e.getMessage(), e);
         }
     }
 
+    /**
+     * Presigns a PUT so the client can upload an image straight to S3. Content type and length are signed,
+     * so S3 rejects an upload that differs from what was declared here.
+     */
+    public PresignedUpload presignUpload(String keyFileName, String contentType, long contentLength) {
+        try {
+            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                    .bucket(awsProperties.getS3().getBucketName())
+                    .key(keyFileName)
+                    .contentType(contentType)
+                    .contentLength(contentLength)
+                    .build();
+            PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                    .signatureDuration(Duration.ofSeconds(awsProperties.getS3().getPresignedUploadExpirationSeconds()))
+                    .putObjectRequest(putObjectRequest)
+                    .build());
+
+            Map<String, String> headers = new HashMap<>();
+            presigned.signedHeaders().forEach((name, values) -> {
+                // Set by the HTTP client from the URL
+                if (!name.equalsIgnoreCase("host")) {
+                    headers.put(name, String.join(",", values));
+                }
+            });
+
+            return PresignedUpload.builder()
+                    .key(keyFileName)
+                    .url(presigned.url().toString())
+                    .method(presigned.httpRequest().method().name())
+                    .headers(headers)
+                    .expiresAt(presigned.expiration())
+                    .build();
+        } catch (Exception e) {
+            log.error("Failed to presign S3 upload for key: {}", keyFileName, e);
+            throw new S3FileUploadServerException("Failed to presign S3 upload", e);
+        }
+    }
+
+    /**
+     * Checks an image the client uploaded directly: the object must exist, be within the size limit, have an
+     * allowed content type, and start with the magic bytes of an allowed image type.
+     *
+     * @return the S3 URL of the verified object
+     */
+    public String verifyDirectUpload(String keyFileName) {
+        String bucketName = awsProperties.getS3().getBucketName();
+
+        HeadObjectResponse head;
+        try {
+            HeadObjectRequest headRequest = HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(keyFileName)
+                    .build();
+            head = downstreamLimiter.call(Downstream.S3, () -> s3Client.headObject(headRequest));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                throw new S3FileUploadValidationException("Uploaded image was not found: " + keyFileName);
+            }
+            log.error("S3 head object failed for key: {}", keyFileName, e);
+            throw new S3FileUploadServerException("Failed to verify uploaded image", e);
+        }
+
+        if (head.contentLength() == null || head.contentLength() <= 0) {
+            throw new S3FileUploadValidationException("Uploaded image is empty.");
+        }
+        if (head.contentLength() > FileUtils.MAX_IMAGE_FILE_SIZE) {
+            throw new S3FileUploadValidationException("File size exceeds maximum allowed size of 10MB");
+        }
+        if (!FileUtils.isAllowedImageContentType(head.contentType())) {
+            throw new S3FileUploadValidationException(String.format("Invalid file type: %s. Allowed types are: JPEG, PNG, WebP",
+                    head.contentType()));
+        }
+
+        byte[] header;
+        try {
+            GetObjectRequest rangeRequest = GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(keyFileName)
+                    .range("bytes=0-" + (FileUtils.MAGIC_BYTES_LENGTH - 1))
+                    .build();
+            header = downstreamLimiter.call(Downstream.S3, () -> s3Client.getObjectAsBytes(rangeRequest)).asByteArray();
+        } catch (Exception e) {
+            log.error("S3 ranged get object failed for key: {}", keyFileName, e);
+            throw new S3FileUploadServerException("Failed to verify uploaded image", e);
+        }
+        if (!FileUtils.isAllowedImageContent(header)) {
+            throw new S3FileUploadValidationException("Uploaded file is not a supported image.");
+        }
+
+        return String.format("s3://%s/%s", bucketName, keyFileName);
+    }
+
+    public byte[] downloadFile(String s3Url) {
+        String key = extractKeyFromS3Url(s3Url);
+        if (key == null) {
+            throw new S3FileUploadServerException("Invalid S3 URL format, cannot download: " + s3Url);
+        }
+
+        try {
+            GetObjectRequest getRequest = GetObjectRequest.builder()
+                    .bucket(awsProperties.getS3().getBucketName())
+                    .key(key)
+                    .build();
+
+            byte[] bytes = downstreamLimiter.call(Downstream.S3, () -> s3Client.getObjectAsBytes(getRequest)).asByteArray();
+            log.info("Downloaded file from S3: {} ({} bytes)", key, bytes.length);
+            return bytes;
+        } catch (Exception e) {
+            log.error("Failed to download file from S3: {}", s3Url, e);
+            throw new S3FileUploadServerException("Failed to download file from S3", e);
+        }
+    }
+
+    /**
+     * Releases a reference to the object and deletes it right away once none are left. Objects that are not
+     * reference counted are deleted right away. Prefer {@link #scheduleDelete} outside of error cleanup.
+     */
     public void deleteFile(String s3Url) {
         try {
             String bucketName = awsProperties.getS3().getBucketName();
@@ -129,13 +569,17 @@ public class S3FileUploadService {
                 log.warn("Invalid S3 URL format, cannot delete: {}", s3Url);
                 return;
             }
+            if (!releaseReference(key)) {
+                log.info("File is still referenced, keeping it in S3: {}", key);
+                return;
+            }
 
             DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
                     .bucket(bucketName)
                     .key(key)
                     .build();
 
-            s3Client.deleteObject(deleteRequest);
+            downstreamLimiter.call(Downstream.S3, () -> s3Client.deleteObject(deleteRequest));
             log.info("Successfully deleted file from S3: {}", key);
         } catch (Exception e) {
             log.error("Failed to delete file from S3: {}", s3Url, e);
@@ -155,7 +599,7 @@ public class S3FileUploadService {
         });
     }
 
-    private String extractKeyFromS3Url(String s3Url) {
+    String extractKeyFromS3Url(String s3Url) {
         if (s3Url == null || !s3Url.startsWith("s3://")) {
             return null;
         }
@@ -169,6 +613,56 @@ public class S3FileUploadService {
         return withoutProtocol.substring(firstSlash + 1);
     }
 
+    /**
+     * Reads the whole image. For a file returned by {@link FileUtils#validateFile}, this takes over the stream
+     * its content type was sniffed from, so the file is still read only once.
+     */
+    private byte[] readImageFile(MultipartFile imageFile) {
+        try {
+            return imageFile.getBytes();
+        } catch (IOException e) {
+            log.error("Failed to read image file", e);
+            throw new S3FileUploadServerException("Failed to read image file", e);
+        }
+    }
+
+    private static String sha256Hex(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private boolean objectExists(String keyFileName) {
+        try {
+            HeadObjectRequest headRequest = HeadObjectRequest.builder()
+                    .bucket(awsProperties.getS3().getBucketName())
+                    .key(keyFileName)
+                    .build();
+            downstreamLimiter.call(Downstream.S3, () -> s3Client.headObject(headRequest));
+            return true;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            log.error("S3 head object failed for key: {}", keyFileName, e);
+            throw new S3FileUploadServerException("Failed to look up stored image", e);
+        }
+    }
+
+    /**
+     * Drops a reference to the object.
+     *
+     * @return true if nothing references the object anymore, or it was never reference counted
+     */
+    private boolean releaseReference(String key) {
+        if (storedImageRepository.release(key) == 0) {
+            return true;
+        }
+        return storedImageRepository.deleteIfUnreferenced(key) == 1;
+    }
+
     private void abortMultiPartUpload(String bucketName, String key, String uploadId) {
         try {
             log.warn("Starting to abort multi part upload with id: {}", uploadId);
@@ -177,7 +671,7 @@ public class S3FileUploadService {
                     .key(key)
                     .uploadId(uploadId)
                     .build();
-            s3Client.abortMultipartUpload(abortMultipartUploadRequest);
+            downstreamLimiter.call(Downstream.S3, () -> s3Client.abortMultipartUpload(abortMultipartUploadRequest));
             log.warn("Aborting multi part upload completed for upload id: {}", uploadId);
         } catch (Exception e) {
             log.error("Aborting multi part S3 upload", e);
@@ -185,6 +679,56 @@ public class S3FileUploadService {
         }
     }
 
+    /**
+     * Uploads one part from a pooled buffer. The buffer and the in-flight slot are released once the part
+     * completes, successfully or not.
+     */
+    private CompletableFuture<CompletedPart> uploadPart(String bucketName, String key, String uploadId, int partId,
+                                                        ByteBuffer buffer, Semaphore inFlightParts) {
+        UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .partNumber(partId)
+                .contentLength((long) buffer.remaining())
+                .build();
+        return downstreamLimiter.callAsync(Downstream.S3,
+                        () -> s3AsyncClient.uploadPart(uploadPartRequest, AsyncRequestBody.fromRemainingByteBufferUnsafe(buffer)))
+                .thenApply(uploadPartResponse -> CompletedPart.builder()
+                        .partNumber(partId)
+                        .eTag(uploadPartResponse.eTag())
+                        .build())
+                .whenComplete((part, error) -> {
+                    s3PartBufferPool.release(buffer);
+                    inFlightParts.release();
+                });
+    }
+
+    /**
+     * Reads until the buffer is full or the channel is exhausted.
+     *
+     * @return true if the end of the channel was reached
+     */
+    private static boolean readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        if (stream == null) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (IOException e) {
+            log.warn("Failed to close upload stream", e);
+        }
+    }
+
     private void validateImageFileSize(MultipartFile imageFile) {
         if (imageFile == null || imageFile.isEmpty()) {
             throw new S3FileUploadValidationException("Input image file is missing but required.");
@@ -194,4 +738,12 @@ public class S3FileUploadService {
             throw new S3FileUploadValidationException("Input image size is larger than supported size of 2 GB.");
         }
     }
+
+    /**
+     * An image stored by {@link #uploadImageFileDeduplicated}, waiting for {@link #retainUploadedImage}.
+     *
+     * @param s3Url the object to reference
+     * @param referenceCounted false if the image was stored under a key of its own rather than its digest
+     */
+    public record UploadedImage(String s3Url, boolean referenceCounted) {}
 }
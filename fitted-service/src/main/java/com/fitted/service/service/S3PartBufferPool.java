@@ -0,0 +1,67 @@
+package com.fitted.service.service;
+
+import com.fitted.service.exception.s3.S3FileUploadServerException;
+import com.fitted.service.properties.AWSProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Direct buffers that multipart uploads read parts into before handing them to the async S3 client.
+ * <p>
+ * Buffers are allocated lazily up to the pool size and reused afterwards, so the memory held by uploads is
+ * bounded by pool size times part size no matter how many uploads run or how large the files are. Callers
+ * wait for a free buffer when the pool is exhausted.
+ */
+@Component
+public class S3PartBufferPool {
+    // S3 rejects parts other than the last that are smaller than this
+    static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 30;
+
+    private final int maxPartSize;
+    private final Semaphore permits;
+    private final Queue<ByteBuffer> available = new ConcurrentLinkedQueue<>();
+
+    public S3PartBufferPool(AWSProperties awsProperties) {
+        AWSProperties.S3Properties s3Properties = awsProperties.getS3();
+        if (s3Properties.getMultipartMaxPartSizeBytes() < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("aws.s3.multipart-max-part-size-bytes must be at least 5MB");
+        }
+        this.maxPartSize = Math.toIntExact(s3Properties.getMultipartMaxPartSizeBytes());
+        this.permits = new Semaphore(s3Properties.getMultipartBufferPoolSize());
+    }
+
+    /**
+     * Splits the content into the fewest parts of at most the maximum part size, evened out so the parts
+     * upload in roughly the same time; every part is at least the S3 minimum.
+     */
+    public long partSizeFor(long contentLength) {
+        long parts = Math.max(1, Math.ceilDiv(contentLength, maxPartSize));
+        return Math.max(MIN_PART_SIZE, Math.ceilDiv(contentLength, parts));
+    }
+
+    public ByteBuffer acquire() {
+        try {
+            if (!permits.tryAcquire(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new S3FileUploadServerException("Timed out waiting for an S3 upload buffer");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new S3FileUploadServerException("Interrupted while waiting for an S3 upload buffer", e);
+        }
+
+        ByteBuffer buffer = available.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(maxPartSize);
+    }
+
+    public void release(ByteBuffer buffer) {
+        buffer.clear();
+        available.offer(buffer);
+        permits.release();
+    }
+}
@@ -2,7 +2,9 @@ package com.fitted.service.specifications;
 
 import com.fitted.service.dto.search.Filter;
 import com.fitted.service.dto.search.Search;
+import com.fitted.service.dto.search.SearchCursor;
 import com.fitted.service.model.ClothingItem;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.List;
@@ -12,11 +14,25 @@ public class ClothingItemSpecification {
 
     private static final List<String> SEARCHABLE_ATTRIBUTES = List.of("name");
     private static final List<String> SEARCHABLE_ARRAY_ATTRIBUTES = List.of();
+    // Weighted in this order by clothing_item_search_vector, see V6__add_clothing_item_full_text_search.sql
+    private static final List<String> FULL_TEXT_ATTRIBUTES = List.of("name", "color", "type", "aiDescription");
     private static final SpecificationBuilder<ClothingItem> CLOTHING_SPEC_BUILDER = new SpecificationBuilder<>(
-            SEARCHABLE_ATTRIBUTES, SEARCHABLE_ARRAY_ATTRIBUTES
+            SEARCHABLE_ATTRIBUTES, SEARCHABLE_ARRAY_ATTRIBUTES, "clothing_item_search_vector", FULL_TEXT_ATTRIBUTES
     );
 
     public static Specification<ClothingItem> buildClothingItemSpec(Filter filter, Search search, UUID userId) {
         return CLOTHING_SPEC_BUILDER.build(filter, search, userId);
     }
+
+    public static boolean isFullTextSearch(Search search) {
+        return CLOTHING_SPEC_BUILDER.isFullTextSearch(search);
+    }
+
+    public static Specification<ClothingItem> buildClothingItemRankedOrderSpec(Search search, Sort sort) {
+        return CLOTHING_SPEC_BUILDER.buildRankedOrder(search, sort);
+    }
+
+    public static Specification<ClothingItem> buildClothingItemAfterCursorSpec(SearchCursor cursor, boolean ascending) {
+        return CLOTHING_SPEC_BUILDER.buildAfterCursor(cursor, ascending);
+    }
 }
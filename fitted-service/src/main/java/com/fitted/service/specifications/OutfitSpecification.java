@@ -2,6 +2,7 @@ package com.fitted.service.specifications;
 
 import com.fitted.service.dto.search.Filter;
 import com.fitted.service.dto.search.Search;
+import com.fitted.service.dto.search.SearchCursor;
 import com.fitted.service.model.Outfit;
 import org.springframework.data.jpa.domain.Specification;
 
@@ -19,4 +20,8 @@ public class OutfitSpecification {
     public static Specification<Outfit> buildOutfitSpec(Filter filter, Search search, UUID userId) {
         return OUTFIT_SPEC_BUILDER.build(filter, search, userId);
     }
+
+    public static Specification<Outfit> buildOutfitAfterCursorSpec(SearchCursor cursor, boolean ascending) {
+        return OUTFIT_SPEC_BUILDER.buildAfterCursor(cursor, ascending);
+    }
 }
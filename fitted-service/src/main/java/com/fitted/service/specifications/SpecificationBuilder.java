@@ -2,13 +2,20 @@ package com.fitted.service.specifications;
 
 import com.fitted.service.dto.search.Filter;
 import com.fitted.service.dto.search.Search;
+import com.fitted.service.dto.search.SearchCursor;
+import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
 import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import lombok.NonNull;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
 import org.springframework.util.CollectionUtils;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -18,11 +25,54 @@ public class SpecificationBuilder<T> {
 
     private final List<String> searchableAttributes;
     private final List<String> searchableTextArrayAttributes;
+    private final String fullTextVectorFunction;
+    private final List<String> fullTextAttributes;
 
     public SpecificationBuilder(@NonNull List<String> searchableAttributes,
                                 @NonNull List<String> searchableTextArrayAttributes) {
+        this(searchableAttributes, searchableTextArrayAttributes, null, List.of());
+    }
+
+    /**
+     * @param fullTextVectorFunction database function building the tsvector of an entity from fullTextAttributes,
+     *                               in that order; a GIN index on the same call makes full-text search fast
+     */
+    public SpecificationBuilder(@NonNull List<String> searchableAttributes,
+                                @NonNull List<String> searchableTextArrayAttributes,
+                                String fullTextVectorFunction,
+                                @NonNull List<String> fullTextAttributes) {
         this.searchableAttributes = searchableAttributes;
         this.searchableTextArrayAttributes = searchableTextArrayAttributes;
+        this.fullTextVectorFunction = fullTextVectorFunction;
+        this.fullTextAttributes = fullTextAttributes;
+    }
+
+    /**
+     * Searches go full-text when they reach beyond the attributes matched with LIKE: searchIn is omitted, or
+     * names an attribute only the full-text vector covers.
+     */
+    public boolean isFullTextSearch(Search search) {
+        if (fullTextVectorFunction == null || Objects.isNull(search) || Objects.isNull(search.getSearchText())
+                || search.getSearchText().isBlank()) {
+            return false;
+        }
+        return Objects.isNull(search.getSearchIn()) || search.getSearchIn().stream()
+                .anyMatch(attribute -> fullTextAttributes.contains(attribute) && !searchableAttributes.contains(attribute));
+    }
+
+    /**
+     * Orders full-text matches by ts_rank, best first, then by sort. Adds no predicate; combine it with the
+     * search spec and page without a Sort of its own.
+     */
+    public Specification<T> buildRankedOrder(@NonNull Search search, Sort sort) {
+        return (root, query, cb) -> {
+            List<Order> orders = new ArrayList<>();
+            orders.add(cb.desc(cb.function("search_rank", Float.class, getFullTextVector(root, cb),
+                    cb.literal(search.getSearchText()))));
+            orders.addAll(QueryUtils.toOrders(sort, root, cb));
+            query.orderBy(orders);
+            return null;
+        };
     }
 
     public Specification<T> build(Filter filter, Search search, UUID userId) {
@@ -47,6 +97,22 @@ public class SpecificationBuilder<T> {
         return Specification.allOf(specs);
     }
 
+    /**
+     * Matches the items after the cursor in createdAt, id order. The redundant bound on createdAt alone lets
+     * the (user_id, created_at, id) index seek to the cursor instead of filtering every earlier row.
+     */
+    public Specification<T> buildAfterCursor(SearchCursor cursor, boolean ascending) {
+        return (root, query, cb) -> {
+            Path<LocalDateTime> createdAt = root.get("createdAt");
+            Path<UUID> id = root.get("id");
+            return ascending
+                    ? cb.and(cb.greaterThanOrEqualTo(createdAt, cursor.createdAt()),
+                    cb.or(cb.greaterThan(createdAt, cursor.createdAt()), cb.greaterThan(id, cursor.id())))
+                    : cb.and(cb.lessThanOrEqualTo(createdAt, cursor.createdAt()),
+                    cb.or(cb.lessThan(createdAt, cursor.createdAt()), cb.lessThan(id, cursor.id())));
+        };
+    }
+
     private Specification<T> getUserFilterSpec(UUID userId) {
         return (root, query, cb) -> cb.equal(root.get("user").get("id"), userId);
     }
@@ -111,11 +177,21 @@ public class SpecificationBuilder<T> {
             List<Predicate> allPredicates = new ArrayList<>();
             allPredicates.addAll(searchPredicates);
             allPredicates.addAll(searchArrayPredicates);
+            if (isFullTextSearch(search)) {
+                // LIKE on the searchable attributes still catches partial words that full-text stemming misses
+                allPredicates.add(cb.isTrue(cb.function("search_vector_matches", Boolean.class,
+                        getFullTextVector(root, cb), cb.literal(search.getSearchText()))));
+            }
 
             return cb.or(allPredicates.toArray(new Predicate[0]));
         };
     }
 
+    private Expression<Object> getFullTextVector(Root<T> root, CriteriaBuilder cb) {
+        return cb.function(fullTextVectorFunction, Object.class,
+                fullTextAttributes.stream().map(root::get).toArray(Expression[]::new));
+    }
+
     private static String likePattern(String value) {
         return "%" + value + "%";
     }
@@ -6,7 +6,9 @@ import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.tika.Tika;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -14,6 +16,13 @@ import java.util.Objects;
 @Log4j2
 public class FileUtils {
 
+    public static final long MAX_IMAGE_FILE_SIZE = 10 * 1024 * 1024; // 10MB
+    // Enough of the file for content type detection of every allowed image type
+    public static final int MAGIC_BYTES_LENGTH = 8192;
+
+    // The Tika facade is thread-safe, and building one loads the full default config
+    private static final Tika TIKA = new Tika();
+
     private static final List<String> ALLOWED_IMAGE_TYPES = Arrays.asList(
             "image/jpeg",
             "image/jpg",
@@ -25,24 +34,57 @@ public class FileUtils {
             "image/avif"
     );
 
-    public static MultipartFile validateFile(MultipartFile file) {
+    /**
+     * Validates an uploaded image and returns the file to upload in its place. Content type detection reads
+     * only the magic bytes, and the returned file hands the same stream to the upload, so the file is read
+     * only once. Close the returned file when done with it.
+     */
+    public static SniffedMultipartFile validateFile(MultipartFile file) {
         if (Objects.isNull(file) || file.isEmpty()) {
             throw new ValidationException("File input is missing or empty.");
         }
 
+        if (file.getSize() > MAX_IMAGE_FILE_SIZE) {
+            throw new ValidationException("File size exceeds maximum allowed size of 10MB");
+        }
+
         String contentType = file.getContentType();
-        if (Objects.isNull(contentType) || !isValidFileType(file)) {
+        InputStream sniffedStream = Objects.isNull(contentType) ? null : sniffImageContent(file);
+        if (Objects.isNull(sniffedStream)) {
             throw new ValidationException(
                     String.format("Invalid file type: %s. Allowed types are: JPEG, PNG, WebP", contentType)
             );
         }
 
-        long maxSize = 10 * 1024 * 1024; // 10MB
-        if (file.getSize() > maxSize) {
+        return new SniffedMultipartFile(file, sniffedStream);
+    }
+
+    /**
+     * Validates the declared type and size of an image the client is about to upload directly to S3.
+     */
+    public static void validateDirectUpload(String contentType, long contentLength) {
+        if (Objects.isNull(contentType) || !ALLOWED_IMAGE_TYPES.contains(contentType)) {
+            throw new ValidationException(
+                    String.format("Invalid file type: %s. Allowed types are: JPEG, PNG, WebP", contentType)
+            );
+        }
+        if (contentLength <= 0) {
+            throw new ValidationException("File input is missing or empty.");
+        }
+        if (contentLength > MAX_IMAGE_FILE_SIZE) {
             throw new ValidationException("File size exceeds maximum allowed size of 10MB");
         }
+    }
+
+    public static boolean isAllowedImageContentType(String contentType) {
+        return Objects.nonNull(contentType) && ALLOWED_IMAGE_TYPES.contains(contentType);
+    }
 
-        return file;
+    /**
+     * Checks the magic bytes at the start of a file against the allowed image types.
+     */
+    public static boolean isAllowedImageContent(byte[] header) {
+        return ALLOWED_IMAGE_TYPES.contains(TIKA.detect(header));
     }
 
     public static String getClothingItemFileKey(String userId, String id, String imageType, String extension) {
@@ -57,6 +99,43 @@ public class FileUtils {
                 extension);
     }
 
+    public static String getContentAddressedFileKey(String userId, String sha256Hex, String extension) {
+        // userid/images/{sha-256 of the image}.png
+        return String.format("%s/images/%s%s", userId, sha256Hex, extension);
+    }
+
+    public static String getImageUploadFileKey(String userId, String extension) {
+        // userid/images/uploads/{UUID}.png
+        return String.format("%s/images/uploads/%s%s", userId, RandomStringUtils.secure().nextAlphanumeric(10), extension);
+    }
+
+    public static String getDerivativeFileKey(String sourceKey, int size, String extension) {
+        // userid/clothing-items/id/{UUID}_modified.png -> userid/clothing-items/id/{UUID}_modified_384.png
+        int extensionStart = sourceKey.lastIndexOf('.');
+        String baseKey = extensionStart > sourceKey.lastIndexOf('/') ? sourceKey.substring(0, extensionStart) : sourceKey;
+        return String.format("%s_%d%s", baseKey, size, extension);
+    }
+
+    public static boolean isClothingItemFileKey(String key, String userId, String id, String imageType) {
+        return isFileKey(key, String.format("%s/clothing-items/%s/", userId, id), imageType);
+    }
+
+    public static boolean isOutfitFileKey(String key, String userId, String id) {
+        return isFileKey(key, String.format("%s/outfits/%s/", userId, id), "outfit");
+    }
+
+    public static String getFileExtensionForContentType(String contentType) {
+        return switch (contentType) {
+            case "image/png" -> ".png";
+            case "image/webp" -> ".webp";
+            case "image/bmp" -> ".bmp";
+            case "image/gif" -> ".gif";
+            case "image/tiff" -> ".tiff";
+            case "image/avif" -> ".avif";
+            default -> ".jpg";
+        };
+    }
+
     public static String getFileExtension(String fileName) {
         if (fileName == null || !fileName.contains(".")) {
             return ".jpg";
@@ -64,14 +143,32 @@ public class FileUtils {
         return fileName.substring(fileName.lastIndexOf("."));
     }
 
-    private static boolean isValidFileType(MultipartFile file) {
+    // Matches only keys generated by the key methods above for that owner: {prefix}{random}_{imageType}.{ext}
+    private static boolean isFileKey(String key, String prefix, String imageType) {
+        return key != null
+                && key.startsWith(prefix)
+                && key.substring(prefix.length()).matches("[A-Za-z0-9]+_" + imageType + "\\.[A-Za-z0-9]+");
+    }
+
+    /**
+     * Detects the file type from its magic bytes and rewinds the stream to the start.
+     *
+     * @return the rewound stream if the file is an allowed image type, otherwise null, with the stream closed
+     */
+    private static InputStream sniffImageContent(MultipartFile file) {
+        InputStream stream = null;
         try {
-            Tika tika = new Tika();
-            String detectedType = tika.detect(file.getInputStream());
-            return ALLOWED_IMAGE_TYPES.contains(detectedType);
+            stream = new BufferedInputStream(file.getInputStream(), MAGIC_BYTES_LENGTH);
+            stream.mark(MAGIC_BYTES_LENGTH);
+            byte[] header = stream.readNBytes(MAGIC_BYTES_LENGTH);
+            stream.reset();
+            if (isAllowedImageContent(header)) {
+                return stream;
+            }
         } catch (IOException e) {
             log.error("Failed to detect file type", e);
-            return false;
         }
+        new SniffedMultipartFile(file, stream).close();
+        return null;
     }
 }
@@ -0,0 +1,132 @@
+package com.fitted.service.utils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+public class ImageUtils {
+
+    /**
+     * Decodes an image, skipping source pixels while decoding when the image is much larger than needed so
+     * a full-resolution raster is never materialized. The result keeps at least twice the requested short
+     * and long sides, leaving headroom for a good quality downscale afterwards.
+     *
+     * @return the decoded image, or null if no installed reader supports the format
+     */
+    public static BufferedImage decode(byte[] imageBytes, int minShortSide, int minLongSide) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(imageBytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int subsampling = Math.max(1, Math.min(
+                        Math.min(width, height) / (2 * minShortSide),
+                        Math.max(width, height) / (2 * minLongSide)));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales the image down so its longer side is at most maxLongSide. Images that already fit are returned as-is.
+     */
+    public static BufferedImage fitLongSide(BufferedImage image, int maxLongSide) {
+        int longSide = Math.max(image.getWidth(), image.getHeight());
+        return longSide <= maxLongSide ? image : scale(image, (double) maxLongSide / longSide);
+    }
+
+    /**
+     * Scales the image down so its shorter side is exactly minShortSide. Images that are already smaller are
+     * returned as-is.
+     */
+    public static BufferedImage fitShortSide(BufferedImage image, int minShortSide) {
+        int shortSide = Math.min(image.getWidth(), image.getHeight());
+        return shortSide <= minShortSide ? image : scale(image, (double) minShortSide / shortSide);
+    }
+
+    /**
+     * Encodes as JPEG, flattening any transparency onto a white background.
+     */
+    public static byte[] toJpeg(BufferedImage image, float quality) throws IOException {
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(imageOutput);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    public static byte[] toPng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    // Halves the image repeatedly before the final bilinear step; a single large bilinear step skips most
+    // source pixels and produces aliasing
+    private static BufferedImage scale(BufferedImage image, double factor) {
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * factor));
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+}
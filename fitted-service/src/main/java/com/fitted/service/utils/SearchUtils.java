@@ -1,11 +1,25 @@
 package com.fitted.service.utils;
 
+import com.fitted.service.dto.search.SearchCursor;
 import com.fitted.service.dto.search.SortOrder;
+import com.fitted.service.exception.ValidationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
 import java.util.Objects;
+import java.util.UUID;
 
 public class SearchUtils {
 
+    public static final String CURSOR_SORT_BY = "createdAt";
+    private static final String CURSOR_SEPARATOR = "|";
+
     public static String getSortByFromSearchRequest(com.fitted.service.dto.search.Sort sortRequest) {
         return Objects.nonNull(sortRequest) ?
                 Objects.nonNull(sortRequest.getSortBy()) ?
@@ -21,4 +35,39 @@ public class SearchUtils {
                         SortOrder.DESCENDING :
                 SortOrder.DESCENDING;
     }
+
+    /**
+     * Sorts by the requested attribute, breaking createdAt ties by id so cursors point at a single item.
+     */
+    public static Sort getSort(String sortBy, boolean ascending) {
+        Sort sort = Sort.by(ascending ? Sort.Direction.ASC : Sort.Direction.DESC, sortBy);
+        return CURSOR_SORT_BY.equals(sortBy) ? sort.and(Sort.by(sort.getOrderFor(sortBy).getDirection(), "id")) : sort;
+    }
+
+    public static String encodeCursor(LocalDateTime createdAt, UUID id) {
+        String cursor = createdAt + CURSOR_SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decodeCursor(String cursor, String sortBy) {
+        if (!CURSOR_SORT_BY.equals(sortBy)) {
+            throw new ValidationException("Cursor pagination is only supported when sorting by " + CURSOR_SORT_BY);
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(CURSOR_SEPARATOR);
+            return new SearchCursor(LocalDateTime.parse(decoded.substring(0, separator)),
+                    UUID.fromString(decoded.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Turns up to maxSize + 1 fetched rows into a slice of maxSize; the extra row only signals a next page.
+     */
+    public static <T> Slice<T> toSlice(List<T> fetched, int maxSize, Sort sort) {
+        boolean hasNext = fetched.size() > maxSize;
+        return new SliceImpl<>(hasNext ? fetched.subList(0, maxSize) : fetched, PageRequest.of(0, maxSize, sort), hasNext);
+    }
 }
@@ -0,0 +1,95 @@
+package com.fitted.service.utils;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A multipart file whose content type has already been sniffed from the stream returned here.
+ * <p>
+ * The first {@link #getInputStream()} or {@link #getBytes()} call hands over that stream, which was reset to
+ * the start after sniffing, so validating and uploading an image reads it from disk only once. Whoever takes
+ * the stream owns it and must close it. Later calls fall back to the underlying file.
+ * <p>
+ * Close this file once the request is done with it, so the stream is not left open when nothing took it, for
+ * example because a later step failed before the upload.
+ */
+@Log4j2
+public final class SniffedMultipartFile implements MultipartFile, Closeable {
+
+    private final MultipartFile delegate;
+    private final AtomicReference<InputStream> sniffedStream;
+
+    SniffedMultipartFile(MultipartFile delegate, InputStream sniffedStream) {
+        this.delegate = delegate;
+        this.sniffedStream = new AtomicReference<>(sniffedStream);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        InputStream stream = sniffedStream.getAndSet(null);
+        return stream != null ? stream : delegate.getInputStream();
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        InputStream stream = sniffedStream.getAndSet(null);
+        if (stream == null) {
+            return delegate.getBytes();
+        }
+        try (stream) {
+            return stream.readAllBytes();
+        }
+    }
+
+    /**
+     * Closes the sniffed stream if nobody has taken it. Does nothing once it has been handed over.
+     */
+    @Override
+    public void close() {
+        InputStream stream = sniffedStream.getAndSet(null);
+        if (stream == null) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (IOException e) {
+            log.warn("Failed to close file stream", e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return delegate.getOriginalFilename();
+    }
+
+    @Override
+    public String getContentType() {
+        return delegate.getContentType();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+
+    @Override
+    public long getSize() {
+        return delegate.getSize();
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException, IllegalStateException {
+        delegate.transferTo(dest);
+    }
+}
@@ -0,0 +1,19 @@
+package com.fitted.service.utils;
+
+public class VectorUtils {
+
+    /**
+     * Formats an embedding as a pgvector literal, e.g. {@code [0.1,0.2,...]}, for binding as
+     * {@code CAST(:parameter AS vector)} in native queries.
+     */
+    public static String toVectorLiteral(float[] embedding) {
+        StringBuilder literal = new StringBuilder("[");
+        for (int i = 0; i < embedding.length; i++) {
+            if (i > 0) {
+                literal.append(',');
+            }
+            literal.append(embedding[i]);
+        }
+        return literal.append(']').toString();
+    }
+}
@@ -0,0 +1,21 @@
+-- Durable queue for clothing item enrichment, claimed by EnrichmentJobWorker with FOR UPDATE SKIP LOCKED.
+-- Applied manually to the database; the service does not run migrations on startup.
+
+CREATE TABLE enrichment_jobs (
+    id                 UUID PRIMARY KEY,
+    clothing_item_id   UUID        NOT NULL REFERENCES clothing_items (id) ON DELETE CASCADE,
+    user_id            UUID        NOT NULL,
+    modified_image_url TEXT        NOT NULL,
+    status             VARCHAR(20) NOT NULL,
+    attempts           INTEGER     NOT NULL DEFAULT 0,
+    available_at       TIMESTAMP   NOT NULL,
+    locked_until       TIMESTAMP,
+    locked_by          VARCHAR(255),
+    last_error         TEXT,
+    created_at         TIMESTAMP   NOT NULL,
+    updated_at         TIMESTAMP   NOT NULL
+);
+
+-- Claimable jobs: queued and due, or running with an expired lease. Dead-lettered jobs are excluded.
+CREATE INDEX idx_enrichment_jobs_queued ON enrichment_jobs (available_at) WHERE status = 'QUEUED';
+CREATE INDEX idx_enrichment_jobs_running ON enrichment_jobs (locked_until) WHERE status = 'RUNNING';
@@ -0,0 +1,6 @@
+-- Downscaled image copies written by ImageDerivativeService after upload, as {"<longest side px>": "<url>"}.
+-- Null until the derivatives have been generated; clients fall back to the full-size image.
+-- Applied manually to the database; the service does not run migrations on startup.
+
+ALTER TABLE clothing_items ADD COLUMN modified_image_variants JSONB;
+ALTER TABLE outfits ADD COLUMN outfit_image_variants JSONB;
@@ -0,0 +1,10 @@
+-- Reference counts for content-addressed images under {user id}/images/{sha-256}, shared by every clothing item
+-- and outfit that uploaded the same bytes. Objects without a row (older random keys) are owned by a single entity.
+-- Applied manually to the database; the service does not run migrations on startup.
+
+CREATE TABLE stored_images (
+    s3_key     VARCHAR(512) PRIMARY KEY,
+    ref_count  INTEGER      NOT NULL CHECK (ref_count >= 0),
+    created_at TIMESTAMP    NOT NULL,
+    updated_at TIMESTAMP    NOT NULL
+);
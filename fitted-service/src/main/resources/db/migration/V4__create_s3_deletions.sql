@@ -0,0 +1,14 @@
+-- Outbox of S3 objects to delete, written in the transaction that stopped referencing them and drained in
+-- DeleteObjects batches by S3DeletionWorker. Rows that used up their attempts stay behind with last_error.
+-- Applied manually to the database; the service does not run migrations on startup.
+
+CREATE TABLE s3_deletions (
+    id           UUID PRIMARY KEY,
+    s3_key       VARCHAR(1024) NOT NULL,
+    attempts     INTEGER       NOT NULL DEFAULT 0,
+    available_at TIMESTAMP     NOT NULL,
+    last_error   TEXT,
+    created_at   TIMESTAMP     NOT NULL
+);
+
+CREATE INDEX idx_s3_deletions_available ON s3_deletions (available_at);
@@ -0,0 +1,37 @@
+-- Indexes behind SpecificationBuilder's search queries, which always filter on user_id and sort on
+-- (created_at, id) by default. SearchQueryPlanTest fails if any search falls back to a sequential scan.
+-- Run each CREATE INDEX CONCURRENTLY on its own, outside a transaction, which keeps the tables writable.
+-- Everything else may run in a transaction, and the function swap below must, so no query sees it missing.
+-- Applied manually to the database; the service does not run migrations on startup.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Per-user listing in created_at order, including cursor pages; id breaks ties in the same direction
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clothing_items_user_created
+    ON clothing_items (user_id, created_at DESC, id DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_outfits_user_created
+    ON outfits (user_id, created_at DESC, id DESC);
+
+-- Substring search on name: lower(name) LIKE '%text%'
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clothing_items_name_trgm
+    ON clothing_items USING gin (lower(name) gin_trgm_ops);
+
+-- Case-insensitive filters: upper(attribute) = 'VALUE'
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clothing_items_user_color
+    ON clothing_items (user_id, upper(color));
+
+-- Case-insensitive tag search. array_contains_exact_ci is redefined as a plain SQL expression so the planner
+-- inlines it into lower_text_array(tags) @> ARRAY[lower(value)], which the GIN index below can answer.
+CREATE OR REPLACE FUNCTION lower_text_array(values_ text[]) RETURNS text[]
+    LANGUAGE sql IMMUTABLE STRICT PARALLEL SAFE
+    AS $$ SELECT array_agg(lower(value_)) FROM unnest(values_) AS value_ $$;
+
+BEGIN;
+DROP FUNCTION IF EXISTS array_contains_exact_ci(text[], text);
+CREATE FUNCTION array_contains_exact_ci(values_ text[], value_ text) RETURNS boolean
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE
+    AS $$ SELECT lower_text_array(values_) @> ARRAY[lower(value_)] $$;
+COMMIT;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_outfits_tags_lower
+    ON outfits USING gin (lower_text_array(tags));
@@ -0,0 +1,25 @@
+-- Full-text search over a clothing item's name, color, type and AI description, used by ClothingItemSpecification
+-- when a search reaches beyond name. The vector is an index expression rather than a stored column, so entity
+-- loads do not carry it; Postgres updates the index on every write, including when enrichment adds the description.
+-- Run each statement on its own, outside a transaction: CREATE INDEX CONCURRENTLY keeps the table writable.
+-- Applied manually to the database; the service does not run migrations on startup.
+
+-- Name ranks above color and type, which rank above the description
+CREATE OR REPLACE FUNCTION clothing_item_search_vector(item_name text, item_color text, item_type text,
+                                                       item_description text) RETURNS tsvector
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE
+    AS $$ SELECT setweight(to_tsvector('english', coalesce(item_name, '')), 'A')
+        || setweight(to_tsvector('english', coalesce(item_color, '') || ' ' || coalesce(item_type, '')), 'B')
+        || setweight(to_tsvector('english', coalesce(item_description, '')), 'C') $$;
+
+-- Plain SQL expressions, inlined by the planner so the match can use the GIN index below
+CREATE OR REPLACE FUNCTION search_vector_matches(vector tsvector, search_text text) RETURNS boolean
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE
+    AS $$ SELECT vector @@ websearch_to_tsquery('english', search_text) $$;
+
+CREATE OR REPLACE FUNCTION search_rank(vector tsvector, search_text text) RETURNS real
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE
+    AS $$ SELECT ts_rank(vector, websearch_to_tsquery('english', search_text)) $$;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clothing_items_search
+    ON clothing_items USING gin (clothing_item_search_vector(name, color, type, ai_description));
@@ -0,0 +1,13 @@
+-- Indexes behind ClothingItemSimilarityService's nearest-neighbour queries, which rank one user's embeddings by
+-- cosine distance. Large closets are served by the HNSW index, with hnsw.ef_search and hnsw.iterative_scan set per
+-- query from ai.similarity; closets small enough for ClosetVectorIndex are searched with index scans disabled, so
+-- the planner reads the user's rows through a bitmap scan of the user_id index and sorts them exactly. ClothingItemSimilarityBenchmark measures recall and latency of both against exact search.
+-- Requires pgvector 0.8 or later for hnsw.iterative_scan, or set ai.similarity.iterative-scan to blank.
+-- Run each statement on its own, outside a transaction: CREATE INDEX CONCURRENTLY keeps the table writable.
+-- Applied manually to the database; the service does not run migrations on startup.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clothing_item_embeddings_embedding_hnsw
+    ON clothing_item_embeddings USING hnsw (embedding vector_cosine_ops) WITH (m = 16, ef_construction = 64);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clothing_item_embeddings_user_id
+    ON clothing_item_embeddings (user_id);
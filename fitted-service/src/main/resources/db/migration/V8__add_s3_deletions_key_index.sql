@@ -0,0 +1,6 @@
+-- Lets S3DeletionQueue.cancelPending find and lock a key's pending deletions on every deduplicated upload
+-- without scanning the outbox, including the rows that used up their attempts and stay behind.
+-- Run on its own, outside a transaction: CREATE INDEX CONCURRENTLY keeps the table writable.
+-- Applied manually to the database; the service does not run migrations on startup.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_s3_deletions_s3_key ON s3_deletions (s3_key);
@@ -0,0 +1,51 @@
+package com.fitted.service.ai.chat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatMessageStreamExtractorTest {
+
+    private final List<String> deltas = new ArrayList<>();
+    private final ChatMessageStreamExtractor extractor = new ChatMessageStreamExtractor(deltas::add);
+
+    @Test
+    void accept_JsonSplitAcrossChunks_EmitsOnlyMessageText() {
+        feed("{\n  \"mess", "age\": \"Here's a ", "great outfit!\",\n  \"recommendedItems\": [",
+                "{\"clothingItemId\": \"abc\", \"reason\": \"x\"}]}");
+
+        assertEquals("Here's a great outfit!", String.join("", deltas));
+        assertTrue(deltas.size() >= 2, "message should be streamed in more than one delta");
+    }
+
+    @Test
+    void accept_EscapeSequencesSplitAcrossChunks_DecodesThem() {
+        feed("{\"message\": \"Line one\\", "nLine \\\"two\\\" caf\\u00", "e9\"}");
+
+        assertEquals("Line one\nLine \"two\" café", String.join("", deltas));
+    }
+
+    @Test
+    void accept_CodeFencedJson_EmitsOnlyMessageText() {
+        feed("```json\n{\"message\": \"Try the navy blazer\", ", "\"recommendedItems\": []}\n```");
+
+        assertEquals("Try the navy blazer", String.join("", deltas));
+    }
+
+    @Test
+    void accept_PlainText_PassesThrough() {
+        feed("Sorry, ", "I can only help with outfits.");
+
+        assertEquals("Sorry, I can only help with outfits.", String.join("", deltas));
+    }
+
+    private void feed(String... chunks) {
+        for (String chunk : chunks) {
+            extractor.accept(chunk);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.fitted.service.ai.chat;
+
+import com.fitted.service.ai.chat.model.ChatMessage;
+import com.fitted.service.ai.chat.model.ChatSession;
+import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.model.ClothingItem;
+import com.fitted.service.model.ClothingType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChatServiceTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    @Mock
+    private ClosetContextCache closetContextCache;
+
+    @Mock
+    private ClosetRetriever closetRetriever;
+
+    @Mock
+    private ChatLLMService chatLLMService;
+
+    @Mock
+    private ChatResponseParser chatResponseParser;
+
+    private final AIProperties aiProperties = new AIProperties();
+    private final ClosetContextBuilder closetContextBuilder = new ClosetContextBuilder();
+    private ChatSessionManager chatSessionManager;
+    private ChatService chatService;
+
+    @BeforeEach
+    void setUp() {
+        aiProperties.getChat().setRetrievalMinClosetSize(2);
+        chatSessionManager = new ChatSessionManager(aiProperties);
+        chatService = new ChatService(chatSessionManager, closetContextCache, closetContextBuilder, closetRetriever,
+                aiProperties, chatLLMService, chatResponseParser);
+    }
+
+    @Test
+    void prepareTurn_SmallCloset_SendsFullClosetInSystemPrompt() {
+        when(closetContextCache.get(USER_ID)).thenReturn(snapshot(List.of(item("Blue Shirt"), item("Black Pants"))));
+        ChatSession session = chatSessionManager.createSession(USER_ID);
+
+        ChatService.PreparedTurn turn = chatService.prepareTurn(session.getSessionId(), "Something casual", USER_ID);
+
+        assertTrue(turn.systemPrompt().closet().contains("\"Blue Shirt\""));
+        assertEquals("Something casual", turn.conversation().getLast().getContent());
+        verifyNoInteractions(closetRetriever);
+    }
+
+    @Test
+    void prepareTurn_LargeCloset_KeepsSystemPromptAndSendsItemsWithMessage() {
+        List<ClothingItem> items = List.of(item("Blue Shirt"), item("Black Pants"), item("Rain Jacket"));
+        ClosetContextCache.ClosetSnapshot closet = snapshot(items);
+        when(closetContextCache.get(USER_ID)).thenReturn(closet);
+        when(closetRetriever.findRelevantItems(eq(USER_ID), eq("Something casual"), any()))
+                .thenReturn(Optional.of(List.of(items.get(0))));
+        when(closetRetriever.findRelevantItems(eq(USER_ID), eq("Now for a rainy day"), any()))
+                .thenReturn(Optional.of(List.of(items.get(2))));
+        ChatSession session = chatSessionManager.createSession(USER_ID);
+
+        ChatService.PreparedTurn first = chatService.prepareTurn(session.getSessionId(), "Something casual", USER_ID);
+        chatSessionManager.addMessage(session.getSessionId(), ChatMessage.assistant("{}"));
+        ChatService.PreparedTurn second = chatService.prepareTurn(session.getSessionId(), "Now for a rainy day", USER_ID);
+
+        assertEquals(first.systemPrompt(), second.systemPrompt());
+        assertFalse(second.systemPrompt().closet().contains("\"Rain Jacket\""));
+        String sentMessage = second.conversation().getLast().getContent();
+        assertTrue(sentMessage.contains("\"Rain Jacket\""));
+        assertTrue(sentMessage.endsWith("Now for a rainy day"));
+        // Earlier turns are sent, and the session keeps every message, as the user wrote it
+        assertEquals("Something casual", second.conversation().getFirst().getContent());
+        assertEquals("Now for a rainy day", session.getConversationHistory().getLast().getContent());
+        assertEquals(closet.itemMap(), second.itemMap());
+    }
+
+    private ClosetContextCache.ClosetSnapshot snapshot(List<ClothingItem> items) {
+        Map<UUID, ClothingItem> itemMap = items.stream()
+                .collect(Collectors.toUnmodifiableMap(ClothingItem::getId, Function.identity()));
+        return new ClosetContextCache.ClosetSnapshot(0, closetContextBuilder.buildContext(items), itemMap);
+    }
+
+    private ClothingItem item(String name) {
+        return ClothingItem.builder()
+                .id(UUID.randomUUID())
+                .name(name)
+                .type(ClothingType.TOP)
+                .build();
+    }
+}
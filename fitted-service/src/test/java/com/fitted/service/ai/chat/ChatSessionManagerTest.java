@@ -87,6 +87,24 @@ class ChatSessionManagerTest {
         assertEquals("assistant", retrieved.getConversationHistory().get(1).getRole());
     }
 
+    @Test
+    void removeLastMessage_OnlyRemovesMessageIfStillLatest() {
+        UUID userId = UUID.randomUUID();
+        ChatSession session = sessionManager.createSession(userId);
+        ChatMessage answered = ChatMessage.user("Hello");
+        ChatMessage unanswered = ChatMessage.user("Anything for rain?");
+
+        sessionManager.addMessage(session.getSessionId(), answered);
+        sessionManager.addMessage(session.getSessionId(), ChatMessage.assistant("Hi there!"));
+        sessionManager.removeLastMessage(session.getSessionId(), answered);
+        sessionManager.addMessage(session.getSessionId(), unanswered);
+        sessionManager.removeLastMessage(session.getSessionId(), unanswered);
+
+        ChatSession retrieved = sessionManager.getSession(session.getSessionId(), userId).orElseThrow();
+        assertEquals(2, retrieved.getConversationHistory().size());
+        assertEquals("assistant", retrieved.getConversationHistory().get(1).getRole());
+    }
+
     @Test
     void hasReachedMessageLimit_BelowLimit_ReturnsFalse() {
         UUID userId = UUID.randomUUID();
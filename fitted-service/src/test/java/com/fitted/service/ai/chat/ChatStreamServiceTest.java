@@ -0,0 +1,72 @@
+package com.fitted.service.ai.chat;
+
+import com.fitted.service.ai.chat.model.ChatMessage;
+import com.fitted.service.ai.chat.model.ChatSession;
+import com.fitted.service.exception.DownstreamBusyException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChatStreamServiceTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+    private static final String SESSION_ID = "session";
+    private static final String MESSAGE = "Something for a rainy day";
+
+    @Mock
+    private ChatService chatService;
+
+    @Mock
+    private ChatLLMService chatLLMService;
+
+    @Mock
+    private ChatStreamHandler handler;
+
+    private ChatService.PreparedTurn turn;
+
+    @BeforeEach
+    void setUp() {
+        turn = new ChatService.PreparedTurn(new ChatSession(USER_ID), ChatMessage.user(MESSAGE),
+                new ChatSystemPrompt("instructions", "closet"), List.of(ChatMessage.user(MESSAGE)), Map.of());
+        when(chatService.prepareTurn(SESSION_ID, MESSAGE, USER_ID)).thenReturn(turn);
+    }
+
+    @Test
+    void streamMessage_ExecutorFull_AbandonsTurnAndThrowsBusy() {
+        ChatStreamService chatStreamService = new ChatStreamService(chatService, chatLLMService, task -> {
+            throw new RejectedExecutionException("full");
+        });
+
+        assertThrows(DownstreamBusyException.class,
+                () -> chatStreamService.streamMessage(SESSION_ID, MESSAGE, USER_ID, handler));
+
+        verify(chatService).abandonTurn(turn);
+        verifyNoInteractions(chatLLMService, handler);
+    }
+
+    @Test
+    void streamMessage_LLMFails_AbandonsTurnAndReportsError() {
+        RuntimeException failure = new RuntimeException("Anthropic unavailable");
+        when(chatLLMService.streamMessage(any(), any(), any())).thenThrow(failure);
+        ChatStreamService chatStreamService = new ChatStreamService(chatService, chatLLMService, Runnable::run);
+
+        chatStreamService.streamMessage(SESSION_ID, MESSAGE, USER_ID, handler);
+
+        verify(chatService).abandonTurn(turn);
+        verify(handler).onError(failure);
+    }
+}
@@ -5,6 +5,7 @@ import com.fitted.service.model.ClothingType;
 import com.fitted.service.model.EnrichmentStatus;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -84,4 +85,26 @@ class ClosetContextBuilderTest {
         assertTrue(context.contains("\"Blue Shirt\""));
         assertTrue(context.contains("\"Black Pants\""));
     }
+
+    @Test
+    void buildContext_DifferentInputOrder_ProducesIdenticalContext() {
+        ClothingItem older = ClothingItem.builder()
+                .id(UUID.randomUUID())
+                .name("Grey Hoodie")
+                .type(ClothingType.TOP)
+                .createdAt(LocalDateTime.of(2025, 1, 1, 9, 0))
+                .build();
+        ClothingItem newer = ClothingItem.builder()
+                .id(UUID.randomUUID())
+                .name("Khaki Chinos")
+                .type(ClothingType.BOTTOM)
+                .createdAt(LocalDateTime.of(2025, 2, 1, 9, 0))
+                .build();
+
+        String first = closetContextBuilder.buildContext(List.of(newer, older));
+        String second = closetContextBuilder.buildContext(List.of(older, newer));
+
+        assertEquals(first, second);
+        assertTrue(first.indexOf("\"Grey Hoodie\"") < first.indexOf("\"Khaki Chinos\""));
+    }
 }
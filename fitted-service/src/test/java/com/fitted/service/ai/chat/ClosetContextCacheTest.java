@@ -0,0 +1,114 @@
+package com.fitted.service.ai.chat;
+
+import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.model.ClothingItem;
+import com.fitted.service.model.ClothingType;
+import com.fitted.service.repository.ClothingItemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ClosetContextCacheTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    @Mock
+    private ClothingItemRepository clothingItemRepository;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private ClosetContextCache closetContextCache;
+
+    @BeforeEach
+    void setUp() {
+        closetContextCache = new ClosetContextCache(clothingItemRepository, new ClosetContextBuilder(),
+                new AIProperties(), new SimpleMeterRegistry(), nanos::get);
+    }
+
+    @Test
+    void get_WarmCache_DoesNotQueryRepository() {
+        ClothingItem item = item("Blue Shirt");
+        when(clothingItemRepository.findByUserId(USER_ID)).thenReturn(List.of(item));
+
+        ClosetContextCache.ClosetSnapshot first = closetContextCache.get(USER_ID);
+        ClosetContextCache.ClosetSnapshot second = closetContextCache.get(USER_ID);
+
+        assertSame(first, second);
+        assertTrue(first.context().contains("\"Blue Shirt\""));
+        assertEquals(item, first.itemMap().get(item.getId()));
+        verify(clothingItemRepository, times(1)).findByUserId(USER_ID);
+    }
+
+    @Test
+    void get_AfterInvalidate_ReloadsCloset() {
+        when(clothingItemRepository.findByUserId(USER_ID))
+                .thenReturn(List.of(item("Blue Shirt")))
+                .thenReturn(List.of(item("Blue Shirt"), item("Black Pants")));
+
+        ClosetContextCache.ClosetSnapshot before = closetContextCache.get(USER_ID);
+        closetContextCache.invalidate(USER_ID);
+        ClosetContextCache.ClosetSnapshot after = closetContextCache.get(USER_ID);
+
+        assertEquals(1, before.itemMap().size());
+        assertEquals(2, after.itemMap().size());
+        assertTrue(after.version() > before.version());
+        verify(clothingItemRepository, times(2)).findByUserId(USER_ID);
+    }
+
+    @Test
+    void get_SnapshotOlderThanMaxAge_ReloadsClosetDespiteActiveSession() {
+        when(clothingItemRepository.findByUserId(USER_ID))
+                .thenReturn(List.of(item("Blue Shirt")))
+                .thenReturn(List.of(item("Blue Shirt"), item("Black Pants")));
+
+        closetContextCache.get(USER_ID);
+        // Turns keep the session active while another instance enriches a new item
+        for (int i = 0; i < 6; i++) {
+            nanos.addAndGet(TimeUnit.SECONDS.toNanos(11));
+            closetContextCache.get(USER_ID);
+        }
+
+        assertEquals(2, closetContextCache.get(USER_ID).itemMap().size());
+        verify(clothingItemRepository, times(2)).findByUserId(USER_ID);
+    }
+
+    @Test
+    void get_InvalidatedWhileLoading_DoesNotCacheStaleCloset() {
+        when(clothingItemRepository.findByUserId(USER_ID))
+                .thenAnswer(invocation -> {
+                    // A closet change commits while this load is still reading the old rows
+                    closetContextCache.invalidate(USER_ID);
+                    return List.of(item("Blue Shirt"));
+                })
+                .thenReturn(List.of(item("Blue Shirt"), item("Black Pants")));
+
+        closetContextCache.get(USER_ID);
+        ClosetContextCache.ClosetSnapshot reloaded = closetContextCache.get(USER_ID);
+
+        assertEquals(2, reloaded.itemMap().size());
+        verify(clothingItemRepository, times(2)).findByUserId(USER_ID);
+    }
+
+    private ClothingItem item(String name) {
+        return ClothingItem.builder()
+                .id(UUID.randomUUID())
+                .name(name)
+                .type(ClothingType.TOP)
+                .build();
+    }
+}
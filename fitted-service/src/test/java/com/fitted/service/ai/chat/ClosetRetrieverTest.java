@@ -0,0 +1,133 @@
+package com.fitted.service.ai.chat;
+
+import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.ai.embedding.ClosetVectorIndex;
+import com.fitted.service.ai.embedding.EmbeddingService;
+import com.fitted.service.model.ClothingItem;
+import com.fitted.service.model.ClothingType;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository.Neighbour;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ClosetRetrieverTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+    private static final String MESSAGE = "Something for a rainy day";
+
+    @Mock
+    private EmbeddingService embeddingService;
+
+    @Mock
+    private ClothingItemEmbeddingRepository clothingItemEmbeddingRepository;
+
+    @Mock
+    private ClosetVectorIndex closetVectorIndex;
+
+    private AIProperties aiProperties;
+    private ClosetRetriever closetRetriever;
+
+    @BeforeEach
+    void setUp() {
+        aiProperties = new AIProperties();
+        aiProperties.getEmbedding().setTextEndpoint("http://localhost/api/embed-text");
+        closetRetriever = new ClosetRetriever(embeddingService, clothingItemEmbeddingRepository, closetVectorIndex, aiProperties);
+    }
+
+    @Test
+    void findRelevantItems_ReturnsRankedItemsFromCloset() {
+        ClothingItem raincoat = item("Raincoat", ClothingType.OUTERWEAR);
+        ClothingItem sandals = item("Sandals", ClothingType.SHOES);
+        UUID deletedItemId = UUID.randomUUID();
+        when(embeddingService.generateTextEmbedding(MESSAGE)).thenReturn(new float[]{0.5f, -0.25f});
+        when(clothingItemEmbeddingRepository.findMostSimilarItemIdsPerType(USER_ID, "[0.5,-0.25]", 8))
+                .thenReturn(List.of(raincoat.getId(), deletedItemId));
+
+        Optional<List<ClothingItem>> relevant = closetRetriever.findRelevantItems(USER_ID, MESSAGE,
+                Map.of(raincoat.getId(), raincoat, sandals.getId(), sandals));
+
+        assertTrue(relevant.isPresent());
+        assertEquals(List.of(raincoat), relevant.get());
+    }
+
+    @Test
+    void findRelevantItems_ClosetInMemory_KeepsNearestOfEachTypeThenNewestWithoutEmbedding() {
+        aiProperties.getChat().setRetrievalItemsPerType(1);
+        ClothingItem nearShirt = item("Rain shirt", ClothingType.TOP);
+        ClothingItem farShirt = item("Linen shirt", ClothingType.TOP);
+        ClothingItem newBoots = item("Rain boots", ClothingType.SHOES);
+        newBoots.setCreatedAt(LocalDateTime.now());
+        ClothingItem oldSandals = item("Sandals", ClothingType.SHOES);
+        oldSandals.setCreatedAt(LocalDateTime.now().minusDays(1));
+        float[] queryEmbedding = {0.5f, -0.25f};
+        when(embeddingService.generateTextEmbedding(MESSAGE)).thenReturn(queryEmbedding);
+        when(closetVectorIndex.findNearest(USER_ID, queryEmbedding, Integer.MAX_VALUE))
+                .thenReturn(Optional.of(List.of(neighbour(nearShirt, 0.1), neighbour(farShirt, 0.2))));
+
+        Optional<List<ClothingItem>> relevant = closetRetriever.findRelevantItems(USER_ID, MESSAGE, Map.of(
+                nearShirt.getId(), nearShirt, farShirt.getId(), farShirt,
+                newBoots.getId(), newBoots, oldSandals.getId(), oldSandals));
+
+        assertTrue(relevant.isPresent());
+        assertEquals(List.of(nearShirt, newBoots), relevant.get());
+        verifyNoInteractions(clothingItemEmbeddingRepository);
+    }
+
+    @Test
+    void findRelevantItems_NoTextEndpoint_ReturnsEmpty() {
+        aiProperties.getEmbedding().setTextEndpoint(null);
+
+        Optional<List<ClothingItem>> relevant = closetRetriever.findRelevantItems(USER_ID, MESSAGE, Map.of());
+
+        assertTrue(relevant.isEmpty());
+        verifyNoInteractions(embeddingService, clothingItemEmbeddingRepository);
+    }
+
+    @Test
+    void findRelevantItems_EmbeddingFails_ReturnsEmpty() {
+        when(embeddingService.generateTextEmbedding(anyString())).thenThrow(new RuntimeException("Lambda unavailable"));
+
+        Optional<List<ClothingItem>> relevant = closetRetriever.findRelevantItems(USER_ID, MESSAGE, Map.of());
+
+        assertTrue(relevant.isEmpty());
+        verifyNoInteractions(clothingItemEmbeddingRepository);
+    }
+
+    private ClothingItem item(String name, ClothingType type) {
+        return ClothingItem.builder()
+                .id(UUID.randomUUID())
+                .name(name)
+                .type(type)
+                .build();
+    }
+
+    private Neighbour neighbour(ClothingItem clothingItem, double distance) {
+        return new Neighbour() {
+            @Override
+            public UUID getClothingItemId() {
+                return clothingItem.getId();
+            }
+
+            @Override
+            public double getDistance() {
+                return distance;
+            }
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package com.fitted.service.ai.embedding;
+
+import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.model.ClothingItemEmbedding;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository.Neighbour;
+import com.fitted.service.utils.VectorUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link ClosetVectorIndex} returns what the database returns for the same nearest-neighbour query.
+ * The table has the HNSW index from the migration, and the closet fits in the in-memory budget, so the database
+ * search is the exact one the service falls back to for such closets.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class ClosetVectorIndexQueryTest {
+
+    private static final int DIMENSIONS = 512;
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(
+            DockerImageName.parse("pgvector/pgvector:pg16").asCompatibleSubstituteFor("postgres"))
+            .withInitScript("db/query-plan-test-init.sql");
+
+    @Autowired
+    private ClothingItemEmbeddingRepository clothingItemEmbeddingRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void findNearest_MatchesDatabaseQuery() {
+        Random random = new Random(42);
+        UUID userId = UUID.randomUUID();
+        List<ClothingItemEmbedding> embeddings = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            embeddings.add(embedding(userId, randomVector(random)));
+        }
+        // Another user's items, which neither search may return
+        for (int i = 0; i < 200; i++) {
+            embeddings.add(embedding(UUID.randomUUID(), randomVector(random)));
+        }
+        clothingItemEmbeddingRepository.saveAll(embeddings);
+        new JdbcTemplate(dataSource).execute("""
+                CREATE INDEX idx_clothing_item_embeddings_embedding_hnsw ON clothing_item_embeddings
+                USING hnsw (embedding vector_cosine_ops) WITH (m = 16, ef_construction = 64)
+                """);
+        ClosetVectorIndex closetVectorIndex = new ClosetVectorIndex(clothingItemEmbeddingRepository, new AIProperties(),
+                new SimpleMeterRegistry());
+        assertTrue(closetVectorIndex.fitsInBudget(1000));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        for (int limit : new int[]{1, 12, 50}) {
+            float[] query = randomVector(random);
+
+            List<Neighbour> expected = transactionTemplate.execute(status -> clothingItemEmbeddingRepository
+                    .findNearestNeighboursExact(userId, VectorUtils.toVectorLiteral(query), limit));
+            List<Neighbour> actual = closetVectorIndex.findNearest(userId, query, limit).orElseThrow();
+
+            assertEquals(ids(expected), ids(actual));
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getDistance(), actual.get(i).getDistance(), 1e-6);
+            }
+        }
+    }
+
+    private static ClothingItemEmbedding embedding(UUID userId, float[] vector) {
+        return ClothingItemEmbedding.builder()
+                .clothingItemId(UUID.randomUUID())
+                .userId(userId)
+                .embedding(vector)
+                .build();
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static List<UUID> ids(List<Neighbour> neighbours) {
+        return neighbours.stream().map(Neighbour::getClothingItemId).toList();
+    }
+}
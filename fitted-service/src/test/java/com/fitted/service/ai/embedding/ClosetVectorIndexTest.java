@@ -0,0 +1,150 @@
+package com.fitted.service.ai.embedding;
+
+import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.model.ClothingItemEmbedding;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository.ClosetVersion;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository.Neighbour;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ClosetVectorIndexTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+    private static final float[] QUERY = {1, 0, 0};
+
+    @Mock
+    private ClothingItemEmbeddingRepository clothingItemEmbeddingRepository;
+
+    private AIProperties aiProperties;
+    private ClosetVectorIndex closetVectorIndex;
+
+    @BeforeEach
+    void setUp() {
+        aiProperties = new AIProperties();
+        aiProperties.getEmbedding().setDimensions(3);
+        closetVectorIndex = new ClosetVectorIndex(clothingItemEmbeddingRepository, aiProperties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void findNearest_WarmCloset_DoesNotReloadRows() {
+        ClothingItemEmbedding shirt = embedding(1, 0, 0);
+        ClothingItemEmbedding pants = embedding(0, 1, 0);
+        when(clothingItemEmbeddingRepository.findClosetVersion(USER_ID)).thenReturn(version(2, 7));
+        when(clothingItemEmbeddingRepository.findByUserId(USER_ID)).thenReturn(List.of(pants, shirt));
+
+        closetVectorIndex.findNearest(USER_ID, QUERY, 2);
+        Optional<List<Neighbour>> nearest = closetVectorIndex.findNearest(USER_ID, QUERY, 2);
+
+        assertTrue(nearest.isPresent());
+        assertEquals(List.of(shirt.getClothingItemId(), pants.getClothingItemId()), ids(nearest.get()));
+        verify(clothingItemEmbeddingRepository, times(1)).findByUserId(USER_ID);
+    }
+
+    @Test
+    void findNearest_ChangedOnAnotherInstance_ReloadsCloset() {
+        ClothingItemEmbedding pants = embedding(0, 1, 0);
+        ClothingItemEmbedding shirt = embedding(1, 0, 0);
+        when(clothingItemEmbeddingRepository.findClosetVersion(USER_ID)).thenReturn(version(1, 7), version(2, 9));
+        when(clothingItemEmbeddingRepository.findByUserId(USER_ID))
+                .thenReturn(List.of(pants))
+                .thenReturn(List.of(pants, shirt));
+
+        closetVectorIndex.findNearest(USER_ID, QUERY, 2);
+        List<Neighbour> nearest = closetVectorIndex.findNearest(USER_ID, QUERY, 2).orElseThrow();
+
+        assertEquals(List.of(shirt.getClothingItemId(), pants.getClothingItemId()), ids(nearest));
+        verify(clothingItemEmbeddingRepository, times(2)).findByUserId(USER_ID);
+    }
+
+    @Test
+    void findNearest_ChangedWhileLoading_ReloadsOnNextSearch() {
+        ClothingItemEmbedding pants = embedding(0, 1, 0);
+        ClothingItemEmbedding shirt = embedding(1, 0, 0);
+        // The version is read before the rows, so a change committed in between leaves the stored version stale
+        when(clothingItemEmbeddingRepository.findClosetVersion(USER_ID)).thenReturn(version(1, 7), version(2, 9));
+        when(clothingItemEmbeddingRepository.findByUserId(USER_ID)).thenReturn(List.of(pants, shirt));
+
+        closetVectorIndex.findNearest(USER_ID, QUERY, 2);
+        closetVectorIndex.findNearest(USER_ID, QUERY, 2);
+        closetVectorIndex.findNearest(USER_ID, QUERY, 2);
+
+        verify(clothingItemEmbeddingRepository, times(2)).findByUserId(USER_ID);
+    }
+
+    @Test
+    void invalidate_LoadedCloset_ReloadsOnNextSearch() {
+        when(clothingItemEmbeddingRepository.findClosetVersion(USER_ID)).thenReturn(version(1, 7));
+        when(clothingItemEmbeddingRepository.findByUserId(USER_ID)).thenReturn(List.of(embedding(1, 0, 0)));
+        closetVectorIndex.findNearest(USER_ID, QUERY, 1);
+
+        closetVectorIndex.invalidate(USER_ID);
+        closetVectorIndex.findNearest(USER_ID, QUERY, 1);
+
+        verify(clothingItemEmbeddingRepository, times(2)).findByUserId(USER_ID);
+    }
+
+    @Test
+    void findNearest_ClosetOverBudget_FallsBackToDatabaseWithoutLoading() {
+        aiProperties.getSimilarity().setInMemoryIndexMaxBytes(UserVectorIndex.estimatedBytes(3, 10));
+        closetVectorIndex = new ClosetVectorIndex(clothingItemEmbeddingRepository, aiProperties, new SimpleMeterRegistry());
+        when(clothingItemEmbeddingRepository.findClosetVersion(USER_ID)).thenReturn(version(11, 7));
+
+        Optional<List<Neighbour>> nearest = closetVectorIndex.findNearest(USER_ID, QUERY, 1);
+
+        assertTrue(nearest.isEmpty());
+        verify(clothingItemEmbeddingRepository, never()).findByUserId(USER_ID);
+    }
+
+    @Test
+    void findNearest_Disabled_ReturnsEmpty() {
+        aiProperties.getSimilarity().setInMemoryIndexEnabled(false);
+        closetVectorIndex = new ClosetVectorIndex(clothingItemEmbeddingRepository, aiProperties, new SimpleMeterRegistry());
+
+        assertTrue(closetVectorIndex.findNearest(USER_ID, QUERY, 1).isEmpty());
+        verifyNoInteractions(clothingItemEmbeddingRepository);
+    }
+
+    private ClothingItemEmbedding embedding(float... vector) {
+        return ClothingItemEmbedding.builder()
+                .clothingItemId(UUID.randomUUID())
+                .userId(USER_ID)
+                .embedding(vector)
+                .build();
+    }
+
+    private static ClosetVersion version(long itemCount, long checksum) {
+        return new ClosetVersion() {
+            @Override
+            public long getItemCount() {
+                return itemCount;
+            }
+
+            @Override
+            public long getChecksum() {
+                return checksum;
+            }
+        };
+    }
+
+    private static List<UUID> ids(List<Neighbour> neighbours) {
+        return neighbours.stream().map(Neighbour::getClothingItemId).toList();
+    }
+}
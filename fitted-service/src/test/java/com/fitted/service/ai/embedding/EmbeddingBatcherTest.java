@@ -0,0 +1,105 @@
+package com.fitted.service.ai.embedding;
+
+import com.fitted.service.ai.config.AIProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddingBatcherTest {
+
+    private static final byte[] FIRST_IMAGE = {1};
+    private static final byte[] SECOND_IMAGE = {2};
+
+    @Mock
+    private EmbeddingService embeddingService;
+
+    private EmbeddingBatcher embeddingBatcher;
+
+    @BeforeEach
+    void setUp() {
+        AIProperties aiProperties = new AIProperties();
+        aiProperties.getEmbedding().setBatchMaxSize(2);
+        aiProperties.getEmbedding().setBatchWindowMillis(20);
+        embeddingBatcher = new EmbeddingBatcher(embeddingService, Runnable::run, aiProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        embeddingBatcher.shutdown();
+    }
+
+    @Test
+    void submit_FullBatch_SendsOneBatchCallInOrder() {
+        when(embeddingService.generateEmbeddings(List.of(FIRST_IMAGE, SECOND_IMAGE)))
+                .thenReturn(List.of(new float[]{0.1f}, new float[]{0.2f}));
+
+        CompletableFuture<float[]> first = embeddingBatcher.submit(FIRST_IMAGE);
+        CompletableFuture<float[]> second = embeddingBatcher.submit(SECOND_IMAGE);
+
+        assertArrayEquals(new float[]{0.1f}, first.join());
+        assertArrayEquals(new float[]{0.2f}, second.join());
+        verify(embeddingService, times(1)).generateEmbeddings(anyList());
+    }
+
+    @Test
+    void submit_PartialBatch_FlushesWhenWindowElapses() throws Exception {
+        when(embeddingService.generateEmbeddings(List.of(FIRST_IMAGE))).thenReturn(List.of(new float[]{0.1f}));
+
+        CompletableFuture<float[]> result = embeddingBatcher.submit(FIRST_IMAGE);
+
+        assertArrayEquals(new float[]{0.1f}, result.get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_BatchCallFailsOnOneImage_RetriesIndividuallyAndFailsOnlyThatImage() {
+        when(embeddingService.generateEmbeddings(anyList())).thenThrow(new RuntimeException("Invalid image"));
+        when(embeddingService.generateEmbedding(FIRST_IMAGE)).thenThrow(new RuntimeException("Invalid image"));
+        when(embeddingService.generateEmbedding(SECOND_IMAGE)).thenReturn(new float[]{0.2f});
+
+        CompletableFuture<float[]> poisoned = embeddingBatcher.submit(FIRST_IMAGE);
+        CompletableFuture<float[]> good = embeddingBatcher.submit(SECOND_IMAGE);
+
+        assertThrows(CompletionException.class, poisoned::join);
+        assertArrayEquals(new float[]{0.2f}, good.join());
+    }
+
+    @Test
+    void submit_BatchCallFails_CompletesEveryRequestExceptionally() {
+        when(embeddingService.generateEmbeddings(anyList())).thenThrow(new RuntimeException("Lambda unavailable"));
+        when(embeddingService.generateEmbedding(any())).thenThrow(new RuntimeException("Lambda unavailable"));
+
+        CompletableFuture<float[]> first = embeddingBatcher.submit(FIRST_IMAGE);
+        CompletableFuture<float[]> second = embeddingBatcher.submit(SECOND_IMAGE);
+
+        assertThrows(CompletionException.class, first::join);
+        assertThrows(CompletionException.class, second::join);
+    }
+
+    @Test
+    void shutdown_FailsPendingRequests() {
+        CompletableFuture<float[]> result = embeddingBatcher.submit(FIRST_IMAGE);
+
+        embeddingBatcher.shutdown();
+
+        assertThrows(CompletionException.class, result::join);
+        assertFalse(result.isCancelled());
+    }
+}
@@ -0,0 +1,84 @@
+package com.fitted.service.ai.embedding;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures an in-memory similarity search over one closet of 512-dimension CLIP embeddings.
+ * <p>
+ * {@code findNearest} is the search ClosetVectorIndex runs, with SIMD dot products when the Vector API module is
+ * present, as it is in this fork. {@code scalarScan} computes the same dot products with a scalar loop, as the
+ * index does without the module.
+ * <p>
+ * Not run by surefire. Run with:
+ * <pre>
+ * ./mvnw test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main UserVectorIndexBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class UserVectorIndexBenchmark {
+
+    private static final int DIMENSIONS = 512;
+
+    @Param({"100", "1000", "10000"})
+    private int closetSize;
+
+    private UserVectorIndex index;
+    private float[] vectors;
+    private float[] query;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        index = new UserVectorIndex(DIMENSIONS, closetSize);
+        vectors = new float[closetSize * DIMENSIONS];
+        for (int row = 0; row < closetSize; row++) {
+            float[] vector = randomVector(random);
+            index.put(UUID.randomUUID(), vector);
+            System.arraycopy(vector, 0, vectors, row * DIMENSIONS, DIMENSIONS);
+        }
+        query = randomVector(random);
+    }
+
+    @Benchmark
+    public List<UserVectorIndex.Match> findNearest() {
+        return index.findNearest(query, 12);
+    }
+
+    @Benchmark
+    public double scalarScan() {
+        double best = Double.NEGATIVE_INFINITY;
+        for (int row = 0; row < closetSize; row++) {
+            best = Math.max(best, VectorMath.scalarDot(vectors, row * DIMENSIONS, query, DIMENSIONS));
+        }
+        return best;
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
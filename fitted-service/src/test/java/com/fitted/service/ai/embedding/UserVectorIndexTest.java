@@ -0,0 +1,144 @@
+package com.fitted.service.ai.embedding;
+
+import com.fitted.service.ai.embedding.UserVectorIndex.Match;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserVectorIndexTest {
+
+    private static final int DIMENSIONS = 512;
+
+    @Test
+    void findNearest_MatchesExhaustiveRanking() {
+        Random random = new Random(42);
+        UserVectorIndex index = new UserVectorIndex(DIMENSIONS, 0);
+        List<UUID> ids = new ArrayList<>();
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            UUID id = UUID.randomUUID();
+            float[] vector = randomVector(random);
+            index.put(id, vector);
+            ids.add(id);
+            vectors.add(vector);
+        }
+        float[] query = randomVector(random);
+
+        List<Match> nearest = index.findNearest(query, 12);
+
+        List<Match> expected = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            expected.add(new Match(ids.get(i), referenceDistance(vectors.get(i), query)));
+        }
+        expected.sort(Comparator.comparingDouble(Match::distance));
+        assertEquals(expected.subList(0, 12).stream().map(Match::clothingItemId).toList(),
+                nearest.stream().map(Match::clothingItemId).toList());
+        for (int i = 0; i < nearest.size(); i++) {
+            assertEquals(expected.get(i).distance(), nearest.get(i).distance(), 1e-6);
+        }
+    }
+
+    @Test
+    void findNearest_EqualDistances_OrdersByUnsignedId() {
+        UUID high = new UUID(0x8000000000000000L, 0);
+        UUID low = new UUID(0x7000000000000000L, 0);
+        UserVectorIndex index = new UserVectorIndex(3, 0);
+        index.put(high, new float[]{1, 0, 0});
+        index.put(low, new float[]{1, 0, 0});
+
+        List<Match> nearest = index.findNearest(new float[]{1, 0, 0}, 2);
+
+        assertEquals(List.of(low, high), nearest.stream().map(Match::clothingItemId).toList());
+        assertEquals(0.0, nearest.getFirst().distance());
+    }
+
+    @Test
+    void findNearest_ZeroVector_RanksLast() {
+        UUID zero = UUID.randomUUID();
+        UUID opposite = UUID.randomUUID();
+        UserVectorIndex index = new UserVectorIndex(3, 0);
+        index.put(zero, new float[]{0, 0, 0});
+        index.put(opposite, new float[]{-1, 0, 0});
+
+        List<Match> nearest = index.findNearest(new float[]{1, 0, 0}, 2);
+
+        assertEquals(List.of(opposite, zero), nearest.stream().map(Match::clothingItemId).toList());
+        assertEquals(2.0, nearest.getFirst().distance());
+        assertTrue(Double.isNaN(nearest.get(1).distance()));
+    }
+
+    @Test
+    void putAndRemove_KeepRowsContiguous() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        UserVectorIndex index = new UserVectorIndex(3, 0);
+        index.put(first, new float[]{1, 0, 0});
+        index.put(second, new float[]{0, 1, 0});
+        index.put(third, new float[]{0, 0, 1});
+
+        index.remove(first);
+        index.put(second, new float[]{1, 0, 0});
+        List<Match> nearest = index.findNearest(new float[]{1, 0, 0}, 10);
+
+        assertEquals(2, index.size());
+        assertEquals(List.of(second, third), nearest.stream().map(Match::clothingItemId).toList());
+    }
+
+    @Test
+    void put_WrongDimensions_Throws() {
+        UserVectorIndex index = new UserVectorIndex(3, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> index.put(UUID.randomUUID(), new float[]{1, 0}));
+    }
+
+    @Test
+    void simdDot_MatchesScalarDotWithinRounding() {
+        // Surefire adds the Vector API module; without it this test would not cover the SIMD path
+        assertTrue(VectorMath.SIMD_ENABLED);
+        Random random = new Random(7);
+        float[] a = randomVector(random);
+        float[] b = randomVector(random);
+
+        // Lengths that do and do not fill whole vectors, at an offset, so the scalar tail is covered too
+        for (int length : new int[]{1, 3, 17, 255, DIMENSIONS - 1}) {
+            double magnitude = 0;
+            for (int i = 0; i < length; i++) {
+                magnitude += Math.abs((double) a[1 + i] * b[i]);
+            }
+            double expected = VectorMath.scalarDot(a, 1, b, length);
+            double actual = SimdVectorMath.dot(a, 1, b, length);
+
+            assertEquals(expected, actual, magnitude * 1e-13);
+            assertEquals((float) expected, (float) actual, Math.ulp((float) expected));
+        }
+    }
+
+    private static double referenceDistance(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += (double) a[i] * b[i];
+            normA += (double) a[i] * a[i];
+            normB += (double) b[i] * b[i];
+        }
+        return 1 - dot / Math.sqrt(normA * normB);
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,155 @@
+package com.fitted.service.ai.enrichment;
+
+import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.model.EnrichmentJob;
+import com.fitted.service.model.EnrichmentJobStatus;
+import com.fitted.service.repository.EnrichmentJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EnrichmentJobQueueTest {
+
+    private static final String WORKER_ID = "worker-1";
+    private static final LocalDateTime DATABASE_NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Mock
+    private EnrichmentJobRepository enrichmentJobRepository;
+
+    private EnrichmentJobQueue enrichmentJobQueue;
+
+    @BeforeEach
+    void setUp() {
+        AIProperties aiProperties = new AIProperties();
+        aiProperties.getEnrichment().setMaxAttempts(3);
+        aiProperties.getEnrichment().setRetryBaseDelaySeconds(10);
+        aiProperties.getEnrichment().setRetryMaxDelaySeconds(60);
+        enrichmentJobQueue = new EnrichmentJobQueue(enrichmentJobRepository, aiProperties);
+    }
+
+    @Test
+    void claim_LeasesJobsToWorkerUsingDatabaseClock() {
+        EnrichmentJob job = job(0);
+        when(enrichmentJobRepository.currentTimestamp()).thenReturn(DATABASE_NOW);
+        when(enrichmentJobRepository.findClaimable(DATABASE_NOW, 2)).thenReturn(List.of(job));
+
+        EnrichmentJobQueue.ClaimedJobs jobs = enrichmentJobQueue.claim(WORKER_ID, 2);
+
+        assertEquals(List.of(job), jobs.claimed());
+        assertTrue(jobs.deadLettered().isEmpty());
+        assertEquals(EnrichmentJobStatus.RUNNING, job.getStatus());
+        assertEquals(1, job.getAttempts());
+        assertEquals(WORKER_ID, job.getLockedBy());
+        assertTrue(job.getLockedUntil().isAfter(DATABASE_NOW));
+    }
+
+    @Test
+    void claim_ExpiredLeaseOnFinalAttempt_DeadLettersInsteadOfClaiming() {
+        EnrichmentJob expired = claimedJob(3);
+        EnrichmentJob retryable = claimedJob(2);
+        when(enrichmentJobRepository.currentTimestamp()).thenReturn(DATABASE_NOW);
+        when(enrichmentJobRepository.findClaimable(DATABASE_NOW, 2)).thenReturn(List.of(expired, retryable));
+
+        EnrichmentJobQueue.ClaimedJobs jobs = enrichmentJobQueue.claim("worker-2", 2);
+
+        assertEquals(List.of(retryable), jobs.claimed());
+        assertEquals(List.of(expired), jobs.deadLettered());
+        assertEquals(EnrichmentJobStatus.DEAD, expired.getStatus());
+        assertEquals(3, expired.getAttempts());
+        assertNull(expired.getLockedBy());
+        assertEquals(3, retryable.getAttempts());
+        assertEquals("worker-2", retryable.getLockedBy());
+    }
+
+    @Test
+    void fail_AttemptsRemaining_RequeuesWithBackoff() {
+        EnrichmentJob job = claimedJob(1);
+        when(enrichmentJobRepository.currentTimestamp()).thenReturn(DATABASE_NOW);
+        when(enrichmentJobRepository.releaseClaimed(eq(job.getId()), eq(WORKER_ID), eq(1), eq(EnrichmentJobStatus.QUEUED),
+                any(LocalDateTime.class), anyString(), any(LocalDateTime.class))).thenReturn(1);
+
+        boolean deadLettered = enrichmentJobQueue.fail(job, new RuntimeException("Vision timeout"));
+
+        assertFalse(deadLettered);
+    }
+
+    @Test
+    void fail_AttemptsExhausted_DeadLettersJob() {
+        EnrichmentJob job = claimedJob(3);
+        when(enrichmentJobRepository.currentTimestamp()).thenReturn(DATABASE_NOW);
+        when(enrichmentJobRepository.releaseClaimed(eq(job.getId()), eq(WORKER_ID), eq(3), eq(EnrichmentJobStatus.DEAD),
+                any(LocalDateTime.class), anyString(), any(LocalDateTime.class))).thenReturn(1);
+
+        boolean deadLettered = enrichmentJobQueue.fail(job, new RuntimeException("Vision timeout"));
+
+        assertTrue(deadLettered);
+    }
+
+    @Test
+    void fail_LeaseLost_DoesNotDeadLetter() {
+        EnrichmentJob job = claimedJob(3);
+        when(enrichmentJobRepository.currentTimestamp()).thenReturn(DATABASE_NOW);
+        when(enrichmentJobRepository.releaseClaimed(any(), anyString(), anyInt(), any(), any(), anyString(), any()))
+                .thenReturn(0);
+
+        boolean deadLettered = enrichmentJobQueue.fail(job, new RuntimeException("Vision timeout"));
+
+        assertFalse(deadLettered);
+    }
+
+    @Test
+    void complete_DeletesClaimedJob() {
+        EnrichmentJob job = claimedJob(1);
+        when(enrichmentJobRepository.deleteClaimed(job.getId(), WORKER_ID, 1)).thenReturn(1);
+
+        enrichmentJobQueue.complete(job);
+
+        verify(enrichmentJobRepository).deleteClaimed(job.getId(), WORKER_ID, 1);
+    }
+
+    @Test
+    void retryDelay_GrowsExponentiallyUpToMaximum() {
+        Duration first = enrichmentJobQueue.retryDelay(1);
+        Duration second = enrichmentJobQueue.retryDelay(2);
+        Duration capped = enrichmentJobQueue.retryDelay(10);
+
+        assertTrue(first.toSeconds() >= 10 && first.toSeconds() <= 12);
+        assertTrue(second.toSeconds() >= 20 && second.toSeconds() <= 24);
+        assertTrue(capped.toSeconds() >= 60 && capped.toSeconds() <= 72);
+    }
+
+    private EnrichmentJob job(int attempts) {
+        return EnrichmentJob.builder()
+                .clothingItemId(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .modifiedImageUrl("https://cdn.example.com/modified.png")
+                .attempts(attempts)
+                .build();
+    }
+
+    private EnrichmentJob claimedJob(int attempts) {
+        EnrichmentJob job = job(attempts);
+        job.setStatus(EnrichmentJobStatus.RUNNING);
+        job.setLockedBy(WORKER_ID);
+        return job;
+    }
+}
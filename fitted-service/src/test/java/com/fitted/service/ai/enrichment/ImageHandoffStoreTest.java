@@ -0,0 +1,45 @@
+package com.fitted.service.ai.enrichment;
+
+import com.fitted.service.ai.config.AIProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageHandoffStoreTest {
+
+    private static final UUID CLOTHING_ITEM_ID = UUID.randomUUID();
+
+    private final ImageHandoffStore imageHandoffStore = new ImageHandoffStore(new AIProperties(), new SimpleMeterRegistry());
+
+    @Test
+    void get_AfterPut_ReturnsImageAsStored() {
+        byte[] image = {1, 2, 3, 4};
+        imageHandoffStore.put(CLOTHING_ITEM_ID, image);
+        image[0] = 9;
+
+        Optional<byte[]> first = imageHandoffStore.get(CLOTHING_ITEM_ID);
+        Optional<byte[]> second = imageHandoffStore.get(CLOTHING_ITEM_ID);
+
+        assertArrayEquals(new byte[] {1, 2, 3, 4}, first.orElseThrow());
+        assertArrayEquals(new byte[] {1, 2, 3, 4}, second.orElseThrow());
+    }
+
+    @Test
+    void get_UnknownItem_ReturnsEmpty() {
+        assertTrue(imageHandoffStore.get(UUID.randomUUID()).isEmpty());
+    }
+
+    @Test
+    void get_AfterRemove_ReturnsEmpty() {
+        imageHandoffStore.put(CLOTHING_ITEM_ID, new byte[] {1, 2, 3});
+
+        imageHandoffStore.remove(CLOTHING_ITEM_ID);
+
+        assertTrue(imageHandoffStore.get(CLOTHING_ITEM_ID).isEmpty());
+    }
+}
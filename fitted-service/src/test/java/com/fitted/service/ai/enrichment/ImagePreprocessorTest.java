@@ -0,0 +1,78 @@
+package com.fitted.service.ai.enrichment;
+
+import com.fitted.service.ai.config.AIProperties;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImagePreprocessorTest {
+
+    private final ImagePreprocessor imagePreprocessor = new ImagePreprocessor(new AIProperties());
+
+    @Test
+    void prepare_LargePng_DownscalesForEachModel() throws IOException {
+        byte[] original = png(3000, 2000);
+
+        ImagePreprocessor.PreparedImages images = imagePreprocessor.prepare(original);
+
+        BufferedImage vision = ImageIO.read(new ByteArrayInputStream(images.visionImage()));
+        assertEquals((byte) 0xFF, images.visionImage()[0]);
+        assertEquals((byte) 0xD8, images.visionImage()[1]);
+        assertEquals(1024, vision.getWidth());
+        assertEquals(683, vision.getHeight());
+
+        BufferedImage embedding = ImageIO.read(new ByteArrayInputStream(images.embeddingImage()));
+        assertEquals(224, embedding.getHeight());
+        assertEquals(336, embedding.getWidth());
+        assertTrue(embedding.getColorModel().hasAlpha());
+
+        assertTrue(images.visionImage().length < original.length);
+        assertTrue(images.embeddingImage().length < original.length);
+    }
+
+    @Test
+    void prepare_SmallImage_KeepsOriginalWhenDerivativeIsNotSmaller() throws IOException {
+        byte[] original = png(100, 100);
+
+        ImagePreprocessor.PreparedImages images = imagePreprocessor.prepare(original);
+
+        assertSame(original, images.embeddingImage());
+    }
+
+    @Test
+    void prepare_UndecodableBytes_ReturnsOriginal() {
+        byte[] original = "not an image".getBytes();
+
+        ImagePreprocessor.PreparedImages images = imagePreprocessor.prepare(original);
+
+        assertSame(original, images.visionImage());
+        assertSame(original, images.embeddingImage());
+    }
+
+    // A background-removed style image: transparent background with an opaque shape
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.BLUE);
+        graphics.fillOval(width / 4, height / 4, width / 2, height / 2);
+        for (int x = 0; x < width; x += 7) {
+            graphics.setColor(new Color(x % 256, (x * 3) % 256, 128));
+            graphics.drawLine(x, height / 4, x, 3 * height / 4);
+        }
+        graphics.dispose();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+}
@@ -26,7 +26,9 @@ class ClaudeVisionServiceManualTest {
                 .build();
 
         com.fitted.service.ai.config.AIProperties props = new com.fitted.service.ai.config.AIProperties();
-        ClaudeVisionService visionService = new ClaudeVisionService(client, props);
+        com.fitted.service.concurrency.DownstreamLimiter limiter = new com.fitted.service.concurrency.DownstreamLimiter(
+                new com.fitted.service.properties.DownstreamProperties(), new io.micrometer.core.instrument.simple.SimpleMeterRegistry());
+        ClaudeVisionService visionService = new ClaudeVisionService(client, props, limiter);
 
         Path path = Path.of("C:/Users/prane/Fitted/fitted-background-removal/inputs/KithShirt.jpg");
         assertTrue(Files.exists(path), "Test image not found");
@@ -12,6 +12,9 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import javax.crypto.SecretKey;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
 import java.util.UUID;
 
 import static com.fitted.service.auth.utils.AuthTestDataUtils.ACCESS_TOKEN_EXPIRATION;
@@ -107,4 +110,60 @@ class JwtTokenProviderTest {
         // Then
         assertThat(isValid).isFalse();
     }
+
+    @Test
+    void verifyAccessToken_ValidToken_ReturnsClaims() {
+        // Given
+        when(jwtProperties.getSecret()).thenReturn(TEST_JWT_SECRET);
+        when(jwtProperties.getAccessTokenExpiration()).thenReturn(ACCESS_TOKEN_EXPIRATION);
+        String token = jwtTokenProvider.generateAccessToken(TEST_USER_ID, TEST_EMAIL);
+
+        // When
+        Optional<VerifiedAccessToken> verified = jwtTokenProvider.verifyAccessToken(token);
+
+        // Then
+        assertThat(verified).isPresent();
+        assertThat(verified.get().userId()).isEqualTo(TEST_USER_ID);
+        assertThat(verified.get().email()).isEqualTo(TEST_EMAIL);
+        assertThat(verified.get().expiresAt()).isAfter(Instant.now());
+    }
+
+    @Test
+    void verifyAccessToken_ExpiredToken_ReturnsEmpty() {
+        // Given
+        when(jwtProperties.getSecret()).thenReturn(TEST_JWT_SECRET);
+        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(TEST_JWT_SECRET));
+        String expiredToken = Jwts.builder()
+                .subject(TEST_USER_ID.toString())
+                .claim("email", TEST_EMAIL)
+                .issuedAt(new Date(System.currentTimeMillis() - 2 * ACCESS_TOKEN_EXPIRATION))
+                .expiration(new Date(System.currentTimeMillis() - ACCESS_TOKEN_EXPIRATION))
+                .signWith(key)
+                .compact();
+
+        // When
+        Optional<VerifiedAccessToken> verified = jwtTokenProvider.verifyAccessToken(expiredToken);
+
+        // Then
+        assertThat(verified).isEmpty();
+    }
+
+    @Test
+    void verifyAccessToken_WrongSigningKey_ReturnsEmpty() {
+        // Given
+        when(jwtProperties.getSecret()).thenReturn(TEST_JWT_SECRET);
+        SecretKey otherKey = Jwts.SIG.HS512.key().build();
+        String forgedToken = Jwts.builder()
+                .subject(TEST_USER_ID.toString())
+                .claim("email", TEST_EMAIL)
+                .expiration(new Date(System.currentTimeMillis() + ACCESS_TOKEN_EXPIRATION))
+                .signWith(otherKey)
+                .compact();
+
+        // When
+        Optional<VerifiedAccessToken> verified = jwtTokenProvider.verifyAccessToken(forgedToken);
+
+        // Then
+        assertThat(verified).isEmpty();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package com.fitted.service.auth.security;
+
+import com.fitted.service.auth.properties.JwtProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.fitted.service.auth.utils.AuthTestDataUtils.ACCESS_TOKEN_EXPIRATION;
+import static com.fitted.service.auth.utils.AuthTestDataUtils.TEST_EMAIL;
+import static com.fitted.service.auth.utils.AuthTestDataUtils.TEST_JWT_SECRET;
+import static com.fitted.service.auth.utils.AuthTestDataUtils.TEST_USER_ID;
+
+/**
+ * Compares the per-request cost of authenticating an access token in JwtAuthenticationFilter.
+ * <p>
+ * {@code legacyValidateThenExtract} reproduces the previous path: validateToken followed by
+ * getUserIdFromToken, each decoding the secret, building a parser and verifying the signature.
+ * {@code verifyOnce} is the current path through {@link JwtTokenProvider#verifyAccessToken(String)}.
+ * <p>
+ * Not run by surefire. Run with:
+ * <pre>
+ * ./mvnw test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main JwtVerificationBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class JwtVerificationBenchmark {
+
+    private JwtTokenProvider jwtTokenProvider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        JwtProperties jwtProperties = new JwtProperties();
+        jwtProperties.setSecret(TEST_JWT_SECRET);
+        jwtProperties.setAccessTokenExpiration(ACCESS_TOKEN_EXPIRATION);
+
+        jwtTokenProvider = new JwtTokenProvider(jwtProperties);
+        token = jwtTokenProvider.generateAccessToken(TEST_USER_ID, TEST_EMAIL);
+    }
+
+    @Benchmark
+    public UUID legacyValidateThenExtract() {
+        legacyParse(token);
+        return UUID.fromString(legacyParse(token).getSubject());
+    }
+
+    @Benchmark
+    public VerifiedAccessToken verifyOnce() {
+        return jwtTokenProvider.verifyAccessToken(token).orElseThrow();
+    }
+
+    private static Claims legacyParse(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(TEST_JWT_SECRET));
+        return Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+}
@@ -0,0 +1,65 @@
+package com.fitted.service.auth.security;
+
+import com.fitted.service.auth.model.UserPrincipal;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static com.fitted.service.auth.utils.AuthTestDataUtils.TEST_ACCESS_TOKEN;
+import static com.fitted.service.auth.utils.AuthTestDataUtils.TEST_EMAIL;
+import static com.fitted.service.auth.utils.AuthTestDataUtils.TEST_USER_ID;
+import static com.fitted.service.auth.utils.AuthTestDataUtils.createTestUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTest {
+
+    private final VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache();
+
+    @Test
+    void get_AfterPut_ReturnsCachedPrincipal() {
+        // Given
+        UserPrincipal principal = new UserPrincipal(createTestUser());
+        verifiedTokenCache.put(TEST_ACCESS_TOKEN, verifiedToken(TEST_USER_ID, Instant.now().plus(15, ChronoUnit.MINUTES)), principal);
+
+        // When
+        VerifiedTokenCache.AuthenticatedToken cached = verifiedTokenCache.get(TEST_ACCESS_TOKEN);
+
+        // Then
+        assertThat(cached).isNotNull();
+        assertThat(cached.userDetails()).isEqualTo(principal);
+        assertThat(cached.token().userId()).isEqualTo(TEST_USER_ID);
+    }
+
+    @Test
+    void get_ExpiredToken_ReturnsNull() {
+        // Given
+        UserPrincipal principal = new UserPrincipal(createTestUser());
+        verifiedTokenCache.put(TEST_ACCESS_TOKEN, verifiedToken(TEST_USER_ID, Instant.now().minusSeconds(1)), principal);
+
+        // When / Then
+        assertThat(verifiedTokenCache.get(TEST_ACCESS_TOKEN)).isNull();
+    }
+
+    @Test
+    void evictUser_RemovesOnlyThatUsersTokens() {
+        // Given
+        UUID otherUserId = UUID.randomUUID();
+        Instant expiry = Instant.now().plus(15, ChronoUnit.MINUTES);
+        UserPrincipal principal = new UserPrincipal(createTestUser());
+        verifiedTokenCache.put(TEST_ACCESS_TOKEN, verifiedToken(TEST_USER_ID, expiry), principal);
+        verifiedTokenCache.put("other.jwt.token", verifiedToken(otherUserId, expiry), principal);
+
+        // When
+        verifiedTokenCache.evictUser(TEST_USER_ID);
+
+        // Then
+        assertThat(verifiedTokenCache.get(TEST_ACCESS_TOKEN)).isNull();
+        assertThat(verifiedTokenCache.get("other.jwt.token")).isNotNull();
+    }
+
+    private VerifiedAccessToken verifiedToken(UUID userId, Instant expiresAt) {
+        return new VerifiedAccessToken(userId, TEST_EMAIL, expiresAt);
+    }
+}
@@ -0,0 +1,75 @@
+package com.fitted.service.concurrency;
+
+import com.fitted.service.exception.DownstreamBusyException;
+import com.fitted.service.properties.DownstreamProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DownstreamLimiterTest {
+
+    @Test
+    void call_ReturnsResultAndReleasesSlot() {
+        DownstreamLimiter limiter = limiter(1, 100);
+
+        assertEquals("first", limiter.call(Downstream.S3, () -> "first"));
+        assertEquals("second", limiter.call(Downstream.S3, () -> "second"));
+    }
+
+    @Test
+    void call_NoFreeSlot_ThrowsDownstreamBusyException() throws Exception {
+        DownstreamLimiter limiter = limiter(1, 50);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            executor.submit(() -> limiter.run(Downstream.ANTHROPIC, () -> {
+                holding.countDown();
+                awaitQuietly(release);
+            }));
+            assertTrue(holding.await(1, TimeUnit.SECONDS));
+
+            assertThrows(DownstreamBusyException.class, () -> limiter.call(Downstream.ANTHROPIC, () -> "blocked"));
+            // Other downstreams have their own slots
+            assertEquals("ok", limiter.call(Downstream.EMBEDDING, () -> "ok"));
+
+            release.countDown();
+        }
+    }
+
+    @Test
+    void call_FailingCall_ReleasesSlot() {
+        DownstreamLimiter limiter = limiter(1, 50);
+
+        assertThrows(IllegalStateException.class, () -> limiter.call(Downstream.S3, () -> {
+            throw new IllegalStateException("S3 unavailable");
+        }));
+
+        assertEquals("ok", limiter.call(Downstream.S3, () -> "ok"));
+    }
+
+    private DownstreamLimiter limiter(int maxConcurrency, long acquireTimeoutMillis) {
+        DownstreamProperties properties = new DownstreamProperties();
+        properties.setAnthropicMaxConcurrency(maxConcurrency);
+        properties.setEmbeddingMaxConcurrency(maxConcurrency);
+        properties.setS3MaxConcurrency(maxConcurrency);
+        properties.setAcquireTimeoutMillis(acquireTimeoutMillis);
+        return new DownstreamLimiter(properties, new SimpleMeterRegistry());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
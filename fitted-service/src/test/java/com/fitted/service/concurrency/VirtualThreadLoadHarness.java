@@ -0,0 +1,146 @@
+package com.fitted.service.concurrency;
+
+import com.fitted.service.properties.DownstreamProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load-test harness comparing Tomcat on platform threads with Tomcat on virtual threads for a request
+ * that blocks on a slow downstream call, the shape of an S3 upload or an Anthropic call.
+ * <p>
+ * Each mode starts an embedded Tomcat configured the way Spring Boot configures it (200 worker threads,
+ * or a {@link VirtualThreadExecutor} when {@code spring.threads.virtual.enabled} is set), with the
+ * downstream call guarded by a {@link DownstreamLimiter}. It fires a burst of concurrent requests and
+ * reports peak in-flight requests, throughput and latency percentiles.
+ * <p>
+ * Not run by surefire. Run with:
+ * <pre>
+ * ./mvnw test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath com.fitted.service.concurrency.VirtualThreadLoadHarness [requests] [latencyMs] [downstreamLimit]"
+ * </pre>
+ */
+public class VirtualThreadLoadHarness {
+
+    private static final int PLATFORM_MAX_THREADS = 200;
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long latencyMillis = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        int downstreamLimit = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        System.out.printf("%d requests, %d ms downstream latency, downstream limit %d%n%n",
+                requests, latencyMillis, downstreamLimit);
+
+        Result platform = run(false, requests, latencyMillis, downstreamLimit);
+        Result virtual = run(true, requests, latencyMillis, downstreamLimit);
+
+        System.out.println(platform);
+        System.out.println(virtual);
+        System.out.printf("%nVirtual threads: %.1fx peak in-flight, %.1fx throughput%n",
+                (double) virtual.peakInFlight() / platform.peakInFlight(),
+                virtual.throughput() / platform.throughput());
+    }
+
+    private static Result run(boolean virtualThreads, int requests, long latencyMillis, int downstreamLimit) throws Exception {
+        DownstreamProperties downstreamProperties = new DownstreamProperties();
+        downstreamProperties.setS3MaxConcurrency(downstreamLimit);
+        downstreamProperties.setAcquireTimeoutMillis(60_000);
+        DownstreamLimiter limiter = new DownstreamLimiter(downstreamProperties, new SimpleMeterRegistry());
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("load-harness").toString());
+        tomcat.setPort(0);
+        Connector connector = tomcat.getConnector();
+        connector.setProperty("maxConnections", "10000");
+        connector.setProperty("acceptCount", "10000");
+        if (virtualThreads) {
+            ((AbstractProtocol<?>) connector.getProtocolHandler()).setExecutor(new VirtualThreadExecutor("tomcat-handler-"));
+        } else {
+            connector.setProperty("maxThreads", String.valueOf(PLATFORM_MAX_THREADS));
+        }
+
+        Context context = tomcat.addContext("", null);
+        Tomcat.addServlet(context, "downstream", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    limiter.run(Downstream.S3, () -> sleep(latencyMillis));
+                    response.getWriter().write("ok");
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        });
+        context.addServletMappingDecoded("/*", "downstream");
+        tomcat.start();
+
+        try (HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build()) {
+            URI uri = URI.create("http://localhost:" + tomcat.getConnector().getLocalPort() + "/");
+            List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+
+            long start = System.nanoTime();
+            List<CompletableFuture<?>> responses = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                long sent = System.nanoTime();
+                responses.add(client.sendAsync(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding())
+                        .thenRun(() -> latencies.add((System.nanoTime() - sent) / 1_000_000)));
+            }
+            CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).join();
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            return new Result(virtualThreads ? "virtual" : "platform", peakInFlight.get(), requests / elapsedSeconds,
+                    percentile(sorted, 50), percentile(sorted, 99));
+        } finally {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percentile / 100));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Result(String mode, int peakInFlight, double throughput, long p50Millis, long p99Millis) {
+        @Override
+        public String toString() {
+            return String.format("%-8s peak in-flight: %4d  throughput: %7.1f req/s  p50: %5d ms  p99: %5d ms",
+                    mode, peakInFlight, throughput, p50Millis, p99Millis);
+        }
+    }
+}
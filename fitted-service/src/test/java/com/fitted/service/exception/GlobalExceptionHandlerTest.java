@@ -52,7 +52,7 @@ class GlobalExceptionHandlerTest {
 
         // Assert
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
-        assertEquals("Uploaded image breached the size limit of 5 GB", response.getBody());
+        assertEquals("Uploaded image breached the size limit of 10 MB", response.getBody());
     }
 
     @Test
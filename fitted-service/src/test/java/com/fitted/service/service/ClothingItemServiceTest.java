@@ -2,23 +2,46 @@ package com.fitted.service.service;
 
 import com.fitted.service.dto.ClothingItemResponse;
 import com.fitted.service.dto.CreateClothingItemRequest;
+import com.fitted.service.dto.SearchClothingItemRequest;
+import com.fitted.service.dto.SearchClothingItemResponse;
+import com.fitted.service.dto.search.Search;
+import com.fitted.service.dto.search.SearchCursor;
+import com.fitted.service.dto.search.Sort;
+import com.fitted.service.dto.upload.FinalizeClothingItemRequest;
+import com.fitted.service.ai.chat.ClosetContextCache;
+import com.fitted.service.ai.embedding.ClosetVectorIndex;
 import com.fitted.service.ai.enrichment.EnrichmentPublisher;
 import com.fitted.service.exception.InternalServerException;
+import com.fitted.service.exception.ValidationException;
 import com.fitted.service.exception.s3.S3FileUploadServerException;
 import com.fitted.service.exception.s3.S3FileUploadValidationException;
 import com.fitted.service.model.ClothingItem;
 import com.fitted.service.model.ClothingType;
 import com.fitted.service.model.EnrichmentStatus;
+import com.fitted.service.properties.AWSProperties;
 import com.fitted.service.repository.ClothingItemRepository;
+import com.fitted.service.utils.SearchUtils;
 import com.fitted.service.utils.ServiceTestDataUtils;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static com.fitted.service.utils.ServiceTestDataUtils.TEST_CLOUDFRONT_URL_MODIFIED;
 import static com.fitted.service.utils.ServiceTestDataUtils.TEST_CLOUDFRONT_URL_ORIGINAL;
@@ -27,10 +50,15 @@ import static com.fitted.service.utils.ServiceTestDataUtils.TEST_S3_URL_ORIGINAL
 import static com.fitted.service.utils.ServiceTestDataUtils.USER;
 import static com.fitted.service.utils.ServiceTestDataUtils.USER_ID;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -39,6 +67,11 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class ClothingItemServiceTest {
 
+    private static final S3FileUploadService.UploadedImage ORIGINAL_IMAGE =
+            new S3FileUploadService.UploadedImage(TEST_S3_URL_ORIGINAL, true);
+    private static final S3FileUploadService.UploadedImage MODIFIED_IMAGE =
+            new S3FileUploadService.UploadedImage(TEST_S3_URL_MODIFIED, true);
+
     @Mock
     private ClothingItemRepository clothingItemRepository;
 
@@ -51,9 +84,30 @@ class ClothingItemServiceTest {
     @Mock
     private EnrichmentPublisher enrichmentPublisher;
 
+    @Mock
+    private ClosetContextCache closetContextCache;
+
+    @Mock
+    private ClosetVectorIndex closetVectorIndex;
+
+    @Spy
+    private AWSProperties awsProperties = new AWSProperties();
+
+    @Mock
+    private ImageDerivativeService imageDerivativeService;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private ClothingItemService clothingItemService;
 
+    @BeforeEach
+    void setUp() {
+        // Most tests cover the sequential upload path; the concurrent path is enabled per test
+        awsProperties.getS3().setParallelUploads(false);
+    }
+
     @Test
     void saveClothingItem_Success() {
         // Arrange
@@ -61,9 +115,9 @@ class ClothingItemServiceTest {
         UUID mockId = UUID.randomUUID();
         ClothingItem savedItem = ServiceTestDataUtils.createClothingItem(mockId);
 
-        when(s3FileUploadService.uploadImageFileSimple(any(MultipartFile.class), anyString()))
-                .thenReturn(TEST_S3_URL_ORIGINAL)
-                .thenReturn(TEST_S3_URL_MODIFIED);
+        when(s3FileUploadService.uploadImageFileDeduplicated(any(MultipartFile.class), anyString()))
+                .thenReturn(ORIGINAL_IMAGE)
+                .thenReturn(MODIFIED_IMAGE);
         when(cloudFrontUrlService.convertS3ToCloudFrontUrl(TEST_S3_URL_ORIGINAL))
                 .thenReturn(TEST_CLOUDFRONT_URL_ORIGINAL);
         when(cloudFrontUrlService.convertS3ToCloudFrontUrl(TEST_S3_URL_MODIFIED))
@@ -84,9 +138,62 @@ class ClothingItemServiceTest {
         assertEquals(EnrichmentStatus.NONE.name(), response.getEnrichmentStatus());
         assertEquals(USER_ID, response.getUserId());
 
-        verify(s3FileUploadService, times(2)).uploadImageFileSimple(any(MultipartFile.class), anyString());
+        verify(s3FileUploadService, times(2)).uploadImageFileDeduplicated(any(MultipartFile.class), anyString());
         verify(cloudFrontUrlService, times(2)).convertS3ToCloudFrontUrl(anyString());
         verify(clothingItemRepository, times(1)).save(any(ClothingItem.class));
+        verify(closetContextCache).invalidate(UUID.fromString(USER_ID));
+        verify(s3FileUploadService).retainUploadedImage(ORIGINAL_IMAGE);
+        verify(s3FileUploadService).retainUploadedImage(MODIFIED_IMAGE);
+        verify(s3FileUploadService, never()).deleteUploadedImages(any(S3FileUploadService.UploadedImage[].class));
+    }
+
+    @Test
+    void saveClothingItem_ParallelUploads_UploadsBothImagesAsync() {
+        // Arrange
+        awsProperties.getS3().setParallelUploads(true);
+        CreateClothingItemRequest request = ServiceTestDataUtils.createValidRequest();
+        UUID mockId = UUID.randomUUID();
+
+        when(s3FileUploadService.uploadImageFileDeduplicatedAsync(imageNamed("original.jpg"), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(ORIGINAL_IMAGE));
+        when(s3FileUploadService.uploadImageFileDeduplicatedAsync(imageNamed("modified.png"), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(MODIFIED_IMAGE));
+        when(cloudFrontUrlService.convertS3ToCloudFrontUrl(TEST_S3_URL_ORIGINAL))
+                .thenReturn(TEST_CLOUDFRONT_URL_ORIGINAL);
+        when(cloudFrontUrlService.convertS3ToCloudFrontUrl(TEST_S3_URL_MODIFIED))
+                .thenReturn(TEST_CLOUDFRONT_URL_MODIFIED);
+        when(clothingItemRepository.save(any(ClothingItem.class))).thenReturn(ServiceTestDataUtils.createClothingItem(mockId));
+
+        // Act
+        ClothingItemResponse response = clothingItemService.saveClothingItem(request);
+
+        // Assert
+        assertEquals(mockId, response.getId());
+        verify(s3FileUploadService, times(2)).uploadImageFileDeduplicatedAsync(any(MultipartFile.class), anyString());
+        verify(s3FileUploadService, never()).uploadImageFileDeduplicated(any(), anyString());
+        verify(s3FileUploadService).retainUploadedImage(ORIGINAL_IMAGE);
+        verify(s3FileUploadService).retainUploadedImage(MODIFIED_IMAGE);
+        verify(s3FileUploadService, never()).deleteUploadedImages(any(S3FileUploadService.UploadedImage[].class));
+    }
+
+    @Test
+    void saveClothingItem_ParallelUploadFails_CleansUpOtherUpload() {
+        // Arrange
+        awsProperties.getS3().setParallelUploads(true);
+        CreateClothingItemRequest request = ServiceTestDataUtils.createValidRequest();
+
+        when(s3FileUploadService.uploadImageFileDeduplicatedAsync(imageNamed("original.jpg"), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(ORIGINAL_IMAGE));
+        when(s3FileUploadService.uploadImageFileDeduplicatedAsync(imageNamed("modified.png"), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new S3FileUploadServerException("S3 connection failed")));
+
+        // Act & Assert
+        assertThrows(InternalServerException.class, () -> clothingItemService.saveClothingItem(request));
+
+        verify(s3FileUploadService).deleteUploadedImages(ORIGINAL_IMAGE, null);
+        verify(s3FileUploadService, never()).retainUploadedImage(any());
+        verify(clothingItemRepository, never()).save(any());
+        verify(transactionTemplate, never()).execute(any());
     }
 
     @Test
@@ -106,7 +213,7 @@ class ClothingItemServiceTest {
             clothingItemService.saveClothingItem(request);
         });
 
-        verify(s3FileUploadService, never()).uploadImageFileSimple(any(), anyString());
+        verify(s3FileUploadService, never()).uploadImageFileDeduplicated(any(), anyString());
         verify(clothingItemRepository, never()).save(any());
     }
 
@@ -132,7 +239,7 @@ class ClothingItemServiceTest {
         // Arrange
         CreateClothingItemRequest request = ServiceTestDataUtils.createValidRequest();
 
-        when(s3FileUploadService.uploadImageFileSimple(any(MultipartFile.class), anyString()))
+        when(s3FileUploadService.uploadImageFileDeduplicated(any(MultipartFile.class), anyString()))
                 .thenThrow(new S3FileUploadValidationException("File too large"));
 
         // Act & Assert
@@ -148,7 +255,7 @@ class ClothingItemServiceTest {
         // Arrange
         CreateClothingItemRequest request = ServiceTestDataUtils.createValidRequest();
 
-        when(s3FileUploadService.uploadImageFileSimple(any(MultipartFile.class), anyString()))
+        when(s3FileUploadService.uploadImageFileDeduplicated(any(MultipartFile.class), anyString()))
                 .thenThrow(new S3FileUploadServerException("S3 connection failed"));
 
         // Act & Assert
@@ -164,9 +271,9 @@ class ClothingItemServiceTest {
         // Arrange
         CreateClothingItemRequest request = ServiceTestDataUtils.createValidRequest();
 
-        when(s3FileUploadService.uploadImageFileSimple(any(MultipartFile.class), anyString()))
-                .thenReturn(TEST_S3_URL_ORIGINAL)
-                .thenReturn(TEST_S3_URL_MODIFIED);
+        when(s3FileUploadService.uploadImageFileDeduplicated(any(MultipartFile.class), anyString()))
+                .thenReturn(ORIGINAL_IMAGE)
+                .thenReturn(MODIFIED_IMAGE);
         when(cloudFrontUrlService.convertS3ToCloudFrontUrl(anyString()))
                 .thenReturn(TEST_CLOUDFRONT_URL_ORIGINAL);
         when(clothingItemRepository.save(any(ClothingItem.class)))
@@ -177,7 +284,212 @@ class ClothingItemServiceTest {
             clothingItemService.saveClothingItem(request);
         });
 
-        verify(s3FileUploadService, times(2)).uploadImageFileSimple(any(MultipartFile.class), anyString());
+        verify(s3FileUploadService, times(2)).uploadImageFileDeduplicated(any(MultipartFile.class), anyString());
         verify(clothingItemRepository, times(1)).save(any(ClothingItem.class));
+        verify(s3FileUploadService).deleteUploadedImages(ORIGINAL_IMAGE, MODIFIED_IMAGE);
+    }
+
+    @Test
+    void finalizeClothingItem_VerifiedUploads_SavesClothingItem() {
+        // Arrange
+        UUID clothingItemId = UUID.randomUUID();
+        FinalizeClothingItemRequest request = createFinalizeRequest(clothingItemId, USER_ID);
+        when(clothingItemRepository.existsById(clothingItemId)).thenReturn(false);
+        when(s3FileUploadService.verifyDirectUpload(request.getOriginalImageKey())).thenReturn(TEST_S3_URL_ORIGINAL);
+        when(s3FileUploadService.verifyDirectUpload(request.getModifiedImageKey())).thenReturn(TEST_S3_URL_MODIFIED);
+        when(cloudFrontUrlService.convertS3ToCloudFrontUrl(TEST_S3_URL_ORIGINAL)).thenReturn(TEST_CLOUDFRONT_URL_ORIGINAL);
+        when(cloudFrontUrlService.convertS3ToCloudFrontUrl(TEST_S3_URL_MODIFIED)).thenReturn(TEST_CLOUDFRONT_URL_MODIFIED);
+        when(clothingItemRepository.save(any(ClothingItem.class)))
+                .thenReturn(ServiceTestDataUtils.createClothingItem(clothingItemId));
+
+        // Act
+        ClothingItemResponse response = clothingItemService.finalizeClothingItem(request);
+
+        // Assert
+        assertEquals(clothingItemId, response.getId());
+        assertEquals(TEST_CLOUDFRONT_URL_MODIFIED, response.getModifiedImageUrl());
+        verify(enrichmentPublisher).publishClothingItemCreated(clothingItemId, UUID.fromString(USER_ID),
+                TEST_CLOUDFRONT_URL_MODIFIED, null);
+        verify(s3FileUploadService, never()).uploadImageFileDeduplicated(any(MultipartFile.class), anyString());
+    }
+
+    @Test
+    void finalizeClothingItem_KeysForAnotherUser_ThrowsValidationException() {
+        // Arrange
+        UUID clothingItemId = UUID.randomUUID();
+        FinalizeClothingItemRequest request = createFinalizeRequest(clothingItemId, UUID.randomUUID().toString());
+
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> clothingItemService.finalizeClothingItem(request));
+        verify(s3FileUploadService, never()).verifyDirectUpload(anyString());
+        verify(clothingItemRepository, never()).save(any(ClothingItem.class));
+    }
+
+    @Test
+    void finalizeClothingItem_VerificationFails_CleansUpUploads() {
+        // Arrange
+        awsProperties.getS3().setBucketName(ServiceTestDataUtils.TEST_BUCKET_NAME);
+        UUID clothingItemId = UUID.randomUUID();
+        FinalizeClothingItemRequest request = createFinalizeRequest(clothingItemId, USER_ID);
+        when(clothingItemRepository.existsById(clothingItemId)).thenReturn(false);
+        when(s3FileUploadService.verifyDirectUpload(request.getOriginalImageKey()))
+                .thenThrow(new S3FileUploadValidationException("Invalid file type"));
+
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> clothingItemService.finalizeClothingItem(request));
+        verify(s3FileUploadService).cleanupS3(
+                "s3://test-bucket/" + request.getOriginalImageKey(),
+                "s3://test-bucket/" + request.getModifiedImageKey());
+        verify(clothingItemRepository, never()).save(any(ClothingItem.class));
+    }
+
+    @Test
+    void searchClothingItems_FirstPage_ReturnsCountAndCursorAfterLastItem() {
+        // Arrange
+        List<ClothingItem> items = List.of(ServiceTestDataUtils.createClothingItem(UUID.randomUUID()),
+                ServiceTestDataUtils.createClothingItem(UUID.randomUUID()));
+        when(clothingItemRepository.findAll(anySpecification(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(items, PageRequest.of(0, 2), 5));
+
+        // Act
+        SearchClothingItemResponse response = clothingItemService.searchClothingItems(
+                SearchClothingItemRequest.builder().maxSize(2).build(), UUID.fromString(USER_ID));
+
+        // Assert
+        assertEquals(5L, response.getTotalCount());
+        assertTrue(response.isHasNext());
+        ClothingItem last = items.getLast();
+        assertEquals(new SearchCursor(last.getCreatedAt(), last.getId()),
+                SearchUtils.decodeCursor(response.getNextCursor(), SearchUtils.CURSOR_SORT_BY));
+    }
+
+    @Test
+    void searchClothingItems_WithCursor_FetchesSliceWithoutCounting() {
+        // Arrange
+        List<ClothingItem> fetched = List.of(ServiceTestDataUtils.createClothingItem(UUID.randomUUID()),
+                ServiceTestDataUtils.createClothingItem(UUID.randomUUID()),
+                ServiceTestDataUtils.createClothingItem(UUID.randomUUID()));
+        when(clothingItemRepository.findBy(anySpecification(), any())).thenReturn(fetched);
+        String cursor = SearchUtils.encodeCursor(LocalDateTime.now(), UUID.randomUUID());
+
+        // Act
+        SearchClothingItemResponse response = clothingItemService.searchClothingItems(
+                SearchClothingItemRequest.builder().maxSize(2).cursor(cursor).build(), UUID.fromString(USER_ID));
+
+        // Assert
+        assertEquals(2, response.getItems().size());
+        assertNull(response.getTotalCount());
+        assertTrue(response.isHasNext());
+        assertEquals(SearchUtils.encodeCursor(fetched.get(1).getCreatedAt(), fetched.get(1).getId()),
+                response.getNextCursor());
+        verify(clothingItemRepository, never()).count(anySpecification());
+        verify(clothingItemRepository, never()).findAll(anySpecification(), any(Pageable.class));
+    }
+
+    @Test
+    void searchClothingItems_LastSlice_HasNoNextCursor() {
+        // Arrange
+        when(clothingItemRepository.findBy(anySpecification(), any()))
+                .thenReturn(List.of(ServiceTestDataUtils.createClothingItem(UUID.randomUUID())));
+        when(clothingItemRepository.count(anySpecification())).thenReturn(3L);
+        String cursor = SearchUtils.encodeCursor(LocalDateTime.now(), UUID.randomUUID());
+
+        // Act
+        SearchClothingItemResponse response = clothingItemService.searchClothingItems(
+                SearchClothingItemRequest.builder().maxSize(2).cursor(cursor).includeTotalCount(true).build(),
+                UUID.fromString(USER_ID));
+
+        // Assert
+        assertEquals(3L, response.getTotalCount());
+        assertFalse(response.isHasNext());
+        assertNull(response.getNextCursor());
+    }
+
+    @Test
+    void searchClothingItems_InvalidCursor_ThrowsValidationException() {
+        // Arrange
+        SearchClothingItemRequest request = SearchClothingItemRequest.builder().cursor("not-a-cursor").build();
+        SearchClothingItemRequest byName = SearchClothingItemRequest.builder()
+                .cursor(SearchUtils.encodeCursor(LocalDateTime.now(), UUID.randomUUID()))
+                .sort(Sort.builder().sortBy("name").build())
+                .build();
+
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> clothingItemService.searchClothingItems(request, UUID.fromString(USER_ID)));
+        assertThrows(ValidationException.class, () -> clothingItemService.searchClothingItems(byName, UUID.fromString(USER_ID)));
+    }
+
+    @Test
+    void searchClothingItems_FullTextSearch_OrdersByRankWithoutCursor() {
+        // Arrange
+        List<ClothingItem> items = List.of(ServiceTestDataUtils.createClothingItem(UUID.randomUUID()));
+        when(clothingItemRepository.findAll(anySpecification(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(items, PageRequest.of(0, 1), 3));
+        SearchClothingItemRequest request = SearchClothingItemRequest.builder()
+                .search(Search.builder().searchText("navy wool winter").build())
+                .maxSize(1)
+                .build();
+
+        // Act
+        SearchClothingItemResponse response = clothingItemService.searchClothingItems(request, UUID.fromString(USER_ID));
+
+        // Assert
+        assertTrue(response.isHasNext());
+        assertNull(response.getNextCursor());
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(clothingItemRepository).findAll(anySpecification(), pageable.capture());
+        assertTrue(pageable.getValue().getSort().isUnsorted());
+    }
+
+    @Test
+    void searchClothingItems_NameSearch_KeepsRequestedSort() {
+        // Arrange
+        when(clothingItemRepository.findAll(anySpecification(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of()));
+        SearchClothingItemRequest request = SearchClothingItemRequest.builder()
+                .search(Search.builder().searchText("jea").searchIn(List.of("name")).build())
+                .build();
+
+        // Act
+        clothingItemService.searchClothingItems(request, UUID.fromString(USER_ID));
+
+        // Assert
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(clothingItemRepository).findAll(anySpecification(), pageable.capture());
+        assertEquals(SearchUtils.getSort(SearchUtils.CURSOR_SORT_BY, false), pageable.getValue().getSort());
+    }
+
+    @Test
+    void searchClothingItems_FullTextSearchWithCursor_ThrowsValidationException() {
+        // Arrange
+        SearchClothingItemRequest request = SearchClothingItemRequest.builder()
+                .search(Search.builder().searchText("wool").searchIn(List.of("aiDescription")).build())
+                .cursor(SearchUtils.encodeCursor(LocalDateTime.now(), UUID.randomUUID()))
+                .build();
+
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> clothingItemService.searchClothingItems(request, UUID.fromString(USER_ID)));
+        verify(clothingItemRepository, never()).findBy(anySpecification(), any());
+    }
+
+    private FinalizeClothingItemRequest createFinalizeRequest(UUID clothingItemId, String keyOwnerId) {
+        return FinalizeClothingItemRequest.builder()
+                .clothingItemId(clothingItemId)
+                .name("Blue Jeans")
+                .type(ClothingType.BOTTOM)
+                .color("Blue")
+                .originalImageKey(String.format("%s/clothing-items/%s/abc_original.jpg", keyOwnerId, clothingItemId))
+                .modifiedImageKey(String.format("%s/clothing-items/%s/abc_modified.png", keyOwnerId, clothingItemId))
+                .user(USER)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Specification<ClothingItem> anySpecification() {
+        return any(Specification.class);
+    }
+
+    private static MultipartFile imageNamed(String originalFilename) {
+        return argThat(file -> file != null && originalFilename.equals(file.getOriginalFilename()));
     }
 }
@@ -0,0 +1,314 @@
+package com.fitted.service.service;
+
+import com.fitted.service.repository.ClothingItemEmbeddingRepository;
+import com.fitted.service.utils.VectorUtils;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures recall and latency of the nearest-neighbour query behind ClothingItemSimilarityService against exact
+ * search, for closets of increasing size.
+ * <p>
+ * Starts pgvector in a container, creates clothing_item_embeddings with the V7 indexes, and fills it with one
+ * closet of each size alongside a fixed population of other users' items, so the user_id filter matters as it
+ * does in production. Embeddings are drawn around a set of random centroids, since CLIP embeddings of clothing
+ * cluster by kind of garment rather than spreading uniformly. For every closet it runs the repository's query
+ * with a range of {@code hnsw.ef_search} values and compares the results with the same query planned without
+ * index scans, which ranks the user's items exactly. It reports recall@k, latency percentiles and the plan used.
+ * <p>
+ * Not run by surefire, and needs Docker. Run with:
+ * <pre>
+ * ./mvnw test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath com.fitted.service.service.ClothingItemSimilarityBenchmark [closetSizes] [k] [efSearchValues]"
+ * </pre>
+ */
+public class ClothingItemSimilarityBenchmark {
+
+    private static final int DIMENSIONS = 512;
+    private static final int CENTROIDS = 64;
+    private static final float SPREAD = 0.8f;
+    private static final int OTHER_USERS = 200;
+    private static final int ITEMS_PER_OTHER_USER = 100;
+    private static final int QUERIES = 100;
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final String MIGRATION = "db/migration/V7__add_clothing_item_embedding_indexes.sql";
+    private static final Pattern NAMED_PARAMETER = Pattern.compile(":(\\w+)");
+
+    public static void main(String[] args) throws Exception {
+        int[] closetSizes = parseInts(args.length > 0 ? args[0] : "100,1000,10000,100000");
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+        int[] efSearchValues = parseInts(args.length > 2 ? args[2] : "20,40,100,200");
+
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(
+                DockerImageName.parse("pgvector/pgvector:pg16").asCompatibleSubstituteFor("postgres"))) {
+            postgres.start();
+            try (Connection connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(),
+                    postgres.getPassword())) {
+                createSchema(connection);
+                Random random = new Random(42);
+                float[][] centroids = new float[CENTROIDS][];
+                for (int i = 0; i < CENTROIDS; i++) {
+                    centroids[i] = normalize(gaussian(random, 1));
+                }
+
+                System.out.printf("k=%d, %d queries per run, %d other users with %d items each%n%n",
+                        k, QUERIES, OTHER_USERS, ITEMS_PER_OTHER_USER);
+                System.out.printf("%8s  %-14s  %9s  %8s  %8s  %8s  %s%n",
+                        "closet", "search", "ef_search", "recall", "p50 ms", "p95 ms", "plan");
+                for (int closetSize : closetSizes) {
+                    runClosetSize(connection, random, centroids, closetSize, k, efSearchValues);
+                }
+            }
+        }
+    }
+
+    private static void runClosetSize(Connection connection, Random random, float[][] centroids, int closetSize, int k,
+                                      int[] efSearchValues) throws Exception {
+        UUID userId = UUID.randomUUID();
+        loadEmbeddings(connection, random, centroids, userId, closetSize);
+
+        List<String> queries = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            queries.add(VectorUtils.toVectorLiteral(sample(random, centroids)));
+        }
+
+        List<List<UUID>> exact = new ArrayList<>(QUERIES);
+        long[] exactLatencies = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            long start = System.nanoTime();
+            exact.add(search(connection, userId, queries.get(i), k, Map.of("enable_indexscan", "off")));
+            exactLatencies[i] = System.nanoTime() - start;
+        }
+        report(closetSize, "exact", "-", 1.0, exactLatencies,
+                plan(connection, userId, queries.getFirst(), k, Map.of("enable_indexscan", "off")));
+
+        for (int efSearch : efSearchValues) {
+            Map<String, String> settings = Map.of(
+                    "hnsw.ef_search", String.valueOf(efSearch),
+                    "hnsw.iterative_scan", "relaxed_order");
+            // Warm up the index pages visited at this ef_search before timing
+            for (String query : queries) {
+                search(connection, userId, query, k, settings);
+            }
+
+            double recall = 0;
+            long[] latencies = new long[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                long start = System.nanoTime();
+                List<UUID> approximate = search(connection, userId, queries.get(i), k, settings);
+                latencies[i] = System.nanoTime() - start;
+
+                Set<UUID> found = new HashSet<>(approximate);
+                found.retainAll(exact.get(i));
+                recall += exact.get(i).isEmpty() ? 1.0 : (double) found.size() / exact.get(i).size();
+            }
+            report(closetSize, "approximate", String.valueOf(efSearch), recall / QUERIES, latencies,
+                    plan(connection, userId, queries.getFirst(), k, settings));
+        }
+        System.out.println();
+    }
+
+    private static void createSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE EXTENSION IF NOT EXISTS vector");
+            statement.execute("""
+                    CREATE TABLE clothing_item_embeddings (
+                        id uuid PRIMARY KEY,
+                        clothing_item_id uuid NOT NULL,
+                        user_id uuid NOT NULL,
+                        embedding vector(512) NOT NULL,
+                        model_name varchar(255) NOT NULL,
+                        created_at timestamp NOT NULL DEFAULT now(),
+                        updated_at timestamp NOT NULL DEFAULT now()
+                    )
+                    """);
+        }
+    }
+
+    /**
+     * Replaces the table's contents with the other users' items and a closet of closetSize items for userId,
+     * then builds the indexes from scratch, as the migration would on an existing table.
+     */
+    private static void loadEmbeddings(Connection connection, Random random, float[][] centroids, UUID userId,
+                                       int closetSize) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP INDEX IF EXISTS idx_clothing_item_embeddings_embedding_hnsw");
+            statement.execute("DROP INDEX IF EXISTS idx_clothing_item_embeddings_user_id");
+            statement.execute("TRUNCATE clothing_item_embeddings");
+        }
+
+        try (PreparedStatement insert = connection.prepareStatement("""
+                INSERT INTO clothing_item_embeddings (id, clothing_item_id, user_id, embedding, model_name)
+                VALUES (?, ?, ?, CAST(? AS vector), 'clip-vit-base-patch32')
+                """)) {
+            int batched = 0;
+            for (int user = 0; user <= OTHER_USERS; user++) {
+                UUID owner = user == OTHER_USERS ? userId : UUID.randomUUID();
+                int items = user == OTHER_USERS ? closetSize : ITEMS_PER_OTHER_USER;
+                for (int i = 0; i < items; i++) {
+                    insert.setObject(1, UUID.randomUUID());
+                    insert.setObject(2, UUID.randomUUID());
+                    insert.setObject(3, owner);
+                    insert.setString(4, VectorUtils.toVectorLiteral(sample(random, centroids)));
+                    insert.addBatch();
+                    if (++batched % INSERT_BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                    }
+                }
+            }
+            insert.executeBatch();
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET maintenance_work_mem = '512MB'");
+        }
+        ScriptUtils.executeSqlScript(connection, new ClassPathResource(MIGRATION));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE clothing_item_embeddings");
+        }
+    }
+
+    /**
+     * Runs the repository's query in its own transaction with the given settings applied for that
+     * transaction only, as ClothingItemSimilarityService does.
+     */
+    private static List<UUID> search(Connection connection, UUID userId, String queryEmbedding, int k,
+                                     Map<String, String> settings) throws SQLException {
+        List<UUID> ids = new ArrayList<>(k);
+        inTransaction(connection, settings, () -> {
+            try (PreparedStatement query = prepare(connection, "", userId, queryEmbedding, k);
+                 ResultSet results = query.executeQuery()) {
+                while (results.next()) {
+                    ids.add(results.getObject("clothingItemId", UUID.class));
+                }
+            }
+        });
+        return ids;
+    }
+
+    private static String plan(Connection connection, UUID userId, String queryEmbedding, int k,
+                               Map<String, String> settings) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        inTransaction(connection, settings, () -> {
+            try (PreparedStatement explain = prepare(connection, "EXPLAIN ", userId, queryEmbedding, k);
+                 ResultSet results = explain.executeQuery()) {
+                while (results.next()) {
+                    String line = results.getString(1);
+                    if (line.contains("Scan") && plan.isEmpty()) {
+                        plan.append(line.replaceFirst("^[\\s>-]*", "").replaceFirst("\\s+\\(cost.*$", ""));
+                    }
+                }
+            }
+        });
+        return plan.toString();
+    }
+
+    private static PreparedStatement prepare(Connection connection, String prefix, UUID userId, String queryEmbedding,
+                                             int k) throws SQLException {
+        Map<String, Object> parameters = Map.of("userId", userId, "queryEmbedding", queryEmbedding, "limit", k);
+        List<Object> values = new ArrayList<>();
+        Matcher matcher = NAMED_PARAMETER.matcher(ClothingItemEmbeddingRepository.NEAREST_NEIGHBOURS_QUERY);
+        StringBuilder sql = new StringBuilder(prefix);
+        while (matcher.find()) {
+            values.add(parameters.get(matcher.group(1)));
+            matcher.appendReplacement(sql, "?");
+        }
+        matcher.appendTail(sql);
+
+        PreparedStatement statement = connection.prepareStatement(sql.toString());
+        for (int i = 0; i < values.size(); i++) {
+            statement.setObject(i + 1, values.get(i));
+        }
+        return statement;
+    }
+
+    private static void inTransaction(Connection connection, Map<String, String> settings, SqlWork work)
+            throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            try (PreparedStatement setConfig = connection.prepareStatement("SELECT set_config(?, ?, true)")) {
+                for (Map.Entry<String, String> setting : settings.entrySet()) {
+                    setConfig.setString(1, setting.getKey());
+                    setConfig.setString(2, setting.getValue());
+                    setConfig.execute();
+                }
+            }
+            work.run();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static float[] sample(Random random, float[][] centroids) {
+        float[] centroid = centroids[random.nextInt(centroids.length)];
+        float[] noise = gaussian(random, SPREAD / (float) Math.sqrt(DIMENSIONS));
+        for (int i = 0; i < DIMENSIONS; i++) {
+            noise[i] += centroid[i];
+        }
+        return normalize(noise);
+    }
+
+    private static float[] gaussian(Random random, float standardDeviation) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian() * standardDeviation;
+        }
+        return vector;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private static void report(int closetSize, String search, String efSearch, double recall, long[] latencies,
+                               String plan) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%8d  %-14s  %9s  %8.3f  %8.2f  %8.2f  %s%n", closetSize, search, efSearch, recall,
+                percentile(sorted, 50), percentile(sorted, 95), plan);
+    }
+
+    private static double percentile(long[] sorted, int percentile) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)] / 1e6;
+    }
+
+    private static int[] parseInts(String values) {
+        return Arrays.stream(values.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    @FunctionalInterface
+    private interface SqlWork {
+        void run() throws SQLException;
+    }
+}
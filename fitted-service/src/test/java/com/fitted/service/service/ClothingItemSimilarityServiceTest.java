@@ -0,0 +1,214 @@
+package com.fitted.service.service;
+
+import com.fitted.service.ai.config.AIProperties;
+import com.fitted.service.ai.embedding.ClosetVectorIndex;
+import com.fitted.service.ai.embedding.EmbeddingService;
+import com.fitted.service.ai.enrichment.ImagePreprocessor;
+import com.fitted.service.dto.SimilarClothingItemResponse;
+import com.fitted.service.dto.SimilarClothingItemsResponse;
+import com.fitted.service.exception.ValidationException;
+import com.fitted.service.model.ClothingItem;
+import com.fitted.service.model.ClothingItemEmbedding;
+import com.fitted.service.model.ClothingType;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository;
+import com.fitted.service.repository.ClothingItemEmbeddingRepository.Neighbour;
+import com.fitted.service.repository.ClothingItemRepository;
+import com.fitted.service.utils.ServiceTestDataUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ClothingItemSimilarityServiceTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    @Mock
+    private ClothingItemRepository clothingItemRepository;
+
+    @Mock
+    private ClothingItemEmbeddingRepository clothingItemEmbeddingRepository;
+
+    @Mock
+    private EmbeddingService embeddingService;
+
+    @Mock
+    private ImagePreprocessor imagePreprocessor;
+
+    @Mock
+    private ClosetVectorIndex closetVectorIndex;
+
+    private AIProperties aiProperties;
+    private ClothingItemSimilarityService clothingItemSimilarityService;
+
+    @BeforeEach
+    void setUp() {
+        aiProperties = new AIProperties();
+        clothingItemSimilarityService = new ClothingItemSimilarityService(clothingItemRepository,
+                clothingItemEmbeddingRepository, embeddingService, imagePreprocessor, closetVectorIndex, aiProperties,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    }
+
+    @Test
+    void findSimilarItems_ExcludesItemAndKeepsDistanceOrder() {
+        // Arrange
+        ClothingItem shirt = item("Blue shirt");
+        ClothingItem similarShirt = item("Navy shirt");
+        ClothingItem jacket = item("Denim jacket");
+        when(clothingItemRepository.findByIdAndUserId(shirt.getId(), USER_ID)).thenReturn(Optional.of(shirt));
+        when(clothingItemEmbeddingRepository.findByClothingItemId(shirt.getId())).thenReturn(Optional.of(
+                ClothingItemEmbedding.builder().clothingItemId(shirt.getId()).embedding(new float[]{0.5f, -0.25f}).build()));
+        when(clothingItemEmbeddingRepository.findNearestNeighbours(USER_ID, "[0.5,-0.25]", 3)).thenReturn(List.of(
+                neighbour(shirt, 0.0), neighbour(similarShirt, 0.1), neighbour(jacket, 0.4)));
+        when(clothingItemRepository.findByIdInAndUserId(List.of(similarShirt.getId(), jacket.getId()), USER_ID))
+                .thenReturn(List.of(jacket, similarShirt));
+
+        // Act
+        SimilarClothingItemsResponse response = clothingItemSimilarityService.findSimilarItems(
+                shirt.getId().toString(), 2, USER_ID);
+
+        // Assert
+        assertEquals(List.of(similarShirt.getId(), jacket.getId()),
+                response.getItems().stream().map(similar -> similar.getItem().getId()).toList());
+        assertEquals(List.of(0.9, 0.6),
+                response.getItems().stream().map(SimilarClothingItemResponse::getSimilarity).toList());
+        verify(clothingItemEmbeddingRepository).setLocalConfig("hnsw.ef_search", "100");
+        verify(clothingItemEmbeddingRepository).setLocalConfig("hnsw.iterative_scan", "relaxed_order");
+    }
+
+    @Test
+    void findSimilarItems_ItemNotAnalyzed_ThrowsValidationException() {
+        // Arrange
+        ClothingItem shirt = item("Blue shirt");
+        when(clothingItemRepository.findByIdAndUserId(shirt.getId(), USER_ID)).thenReturn(Optional.of(shirt));
+        when(clothingItemEmbeddingRepository.findByClothingItemId(shirt.getId())).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> clothingItemSimilarityService.findSimilarItems(shirt.getId().toString(), null, USER_ID));
+        verify(clothingItemEmbeddingRepository, never()).findNearestNeighbours(any(), anyString(), anyInt());
+    }
+
+    @Test
+    void searchByPhoto_EmbedsPreparedImageAndUsesDefaultLimit() {
+        // Arrange
+        aiProperties.getSimilarity().setIterativeScan("");
+        MockMultipartFile photo = ServiceTestDataUtils.createValidJpegFile("photo.jpg");
+        byte[] embeddingImage = {1, 2, 3};
+        ClothingItem jacket = item("Denim jacket");
+        when(imagePreprocessor.prepare(any(byte[].class)))
+                .thenReturn(new ImagePreprocessor.PreparedImages(new byte[0], embeddingImage));
+        when(embeddingService.generateEmbedding(embeddingImage)).thenReturn(new float[]{1.0f});
+        when(clothingItemEmbeddingRepository.findNearestNeighbours(USER_ID, "[1.0]", 12))
+                .thenReturn(List.of(neighbour(jacket, 0.25)));
+        when(clothingItemRepository.findByIdInAndUserId(List.of(jacket.getId()), USER_ID)).thenReturn(List.of(jacket));
+
+        // Act
+        SimilarClothingItemsResponse response = clothingItemSimilarityService.searchByPhoto(photo, null, USER_ID);
+
+        // Assert
+        assertEquals(1, response.getItems().size());
+        assertEquals(jacket.getId(), response.getItems().getFirst().getItem().getId());
+        assertEquals(0.75, response.getItems().getFirst().getSimilarity());
+        verify(clothingItemEmbeddingRepository).setLocalConfig("hnsw.ef_search", "100");
+        verify(clothingItemEmbeddingRepository, never()).setLocalConfig("hnsw.iterative_scan", "");
+    }
+
+    @Test
+    void searchByPhoto_ClosetInMemory_SkipsDatabaseSearch() {
+        // Arrange
+        MockMultipartFile photo = ServiceTestDataUtils.createValidJpegFile("photo.jpg");
+        float[] queryEmbedding = {1.0f};
+        ClothingItem jacket = item("Denim jacket");
+        when(imagePreprocessor.prepare(any(byte[].class)))
+                .thenReturn(new ImagePreprocessor.PreparedImages(new byte[0], new byte[0]));
+        when(embeddingService.generateEmbedding(any(byte[].class))).thenReturn(queryEmbedding);
+        when(closetVectorIndex.findNearest(USER_ID, queryEmbedding, 5)).thenReturn(Optional.of(List.of(neighbour(jacket, 0.5))));
+        when(clothingItemRepository.findByIdInAndUserId(List.of(jacket.getId()), USER_ID)).thenReturn(List.of(jacket));
+
+        // Act
+        SimilarClothingItemsResponse response = clothingItemSimilarityService.searchByPhoto(photo, 5, USER_ID);
+
+        // Assert
+        assertEquals(List.of(0.5), response.getItems().stream().map(SimilarClothingItemResponse::getSimilarity).toList());
+        verifyNoInteractions(clothingItemEmbeddingRepository);
+    }
+
+    @Test
+    void searchByPhoto_ClosetFitsInMemoryButNotLoaded_SearchesDatabaseExactly() {
+        // Arrange
+        MockMultipartFile photo = ServiceTestDataUtils.createValidJpegFile("photo.jpg");
+        ClothingItem jacket = item("Denim jacket");
+        when(imagePreprocessor.prepare(any(byte[].class)))
+                .thenReturn(new ImagePreprocessor.PreparedImages(new byte[0], new byte[0]));
+        when(embeddingService.generateEmbedding(any(byte[].class))).thenReturn(new float[]{1.0f});
+        when(closetVectorIndex.findNearest(any(), any(), anyInt())).thenReturn(Optional.empty());
+        when(clothingItemEmbeddingRepository.countByUserId(USER_ID)).thenReturn(40L);
+        when(closetVectorIndex.fitsInBudget(40L)).thenReturn(true);
+        when(clothingItemEmbeddingRepository.findNearestNeighboursExact(USER_ID, "[1.0]", 5))
+                .thenReturn(List.of(neighbour(jacket, 0.5)));
+        when(clothingItemRepository.findByIdInAndUserId(List.of(jacket.getId()), USER_ID)).thenReturn(List.of(jacket));
+
+        // Act
+        SimilarClothingItemsResponse response = clothingItemSimilarityService.searchByPhoto(photo, 5, USER_ID);
+
+        // Assert
+        assertEquals(List.of(0.5), response.getItems().stream().map(SimilarClothingItemResponse::getSimilarity).toList());
+        verify(clothingItemEmbeddingRepository, never()).findNearestNeighbours(any(), anyString(), anyInt());
+        verify(clothingItemEmbeddingRepository, never()).setLocalConfig(eq("hnsw.ef_search"), anyString());
+    }
+
+    @Test
+    void searchByPhoto_LimitAboveMaximum_ThrowsValidationException() {
+        // Arrange
+        MockMultipartFile photo = ServiceTestDataUtils.createValidJpegFile("photo.jpg");
+
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> clothingItemSimilarityService.searchByPhoto(photo, 51, USER_ID));
+        verifyNoInteractions(embeddingService, clothingItemEmbeddingRepository);
+    }
+
+    private ClothingItem item(String name) {
+        return ClothingItem.builder()
+                .id(UUID.randomUUID())
+                .name(name)
+                .type(ClothingType.TOP)
+                .build();
+    }
+
+    private Neighbour neighbour(ClothingItem clothingItem, double distance) {
+        return new Neighbour() {
+            @Override
+            public UUID getClothingItemId() {
+                return clothingItem.getId();
+            }
+
+            @Override
+            public double getDistance() {
+                return distance;
+            }
+        };
+    }
+}
@@ -0,0 +1,105 @@
+package com.fitted.service.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImageDerivativeServiceTest {
+
+    private static final String SOURCE_S3_URL = "s3://test-bucket/user/clothing-items/item/abc_modified.png";
+    private static final String SOURCE_KEY = "user/clothing-items/item/abc_modified.png";
+
+    @Mock
+    private S3FileUploadService s3FileUploadService;
+
+    @Mock
+    private CloudFrontUrlService cloudFrontUrlService;
+
+    private ImageDerivativeService imageDerivativeService;
+
+    @BeforeEach
+    void setUp() {
+        imageDerivativeService = new ImageDerivativeService(s3FileUploadService, cloudFrontUrlService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), Runnable::run);
+        when(s3FileUploadService.extractKeyFromS3Url(SOURCE_S3_URL)).thenReturn(SOURCE_KEY);
+        when(s3FileUploadService.uploadBytes(any(byte[].class), anyString(), anyString()))
+                .thenAnswer(invocation -> "s3://test-bucket/" + invocation.getArgument(1));
+        when(cloudFrontUrlService.convertS3ToCloudFrontUrl(anyString()))
+                .thenAnswer(invocation -> ((String) invocation.getArgument(0)).replace("s3://test-bucket/", "https://cdn/"));
+    }
+
+    @Test
+    void generate_TransparentImage_WritesPngDerivativesAndAttachesThem() throws IOException {
+        ArgumentCaptor<byte[]> derivatives = ArgumentCaptor.forClass(byte[].class);
+        AtomicReference<Map<Integer, String>> attached = new AtomicReference<>();
+
+        imageDerivativeService.generate(png(2000, 1000), SOURCE_S3_URL, variants -> {
+            attached.set(variants);
+            return true;
+        });
+
+        assertEquals(Map.of(
+                128, "https://cdn/user/clothing-items/item/abc_modified_128.png",
+                384, "https://cdn/user/clothing-items/item/abc_modified_384.png",
+                1024, "https://cdn/user/clothing-items/item/abc_modified_1024.png"), attached.get());
+        verify(s3FileUploadService, times(3))
+                .uploadBytes(derivatives.capture(), anyString(), eq("image/png"));
+        List<Integer> widths = derivatives.getAllValues().stream().map(ImageDerivativeServiceTest::width).toList();
+        assertEquals(List.of(1024, 384, 128), widths);
+        verify(s3FileUploadService).retainReferences(
+                "s3://test-bucket/user/clothing-items/item/abc_modified_1024.png",
+                "s3://test-bucket/user/clothing-items/item/abc_modified_384.png",
+                "s3://test-bucket/user/clothing-items/item/abc_modified_128.png");
+        verify(s3FileUploadService, never()).deleteUnreferenced(any(String[].class));
+    }
+
+    @Test
+    void generate_SourceNoLongerInUse_DeletesDerivatives() throws IOException {
+        imageDerivativeService.generate(png(800, 800), SOURCE_S3_URL, variants -> false);
+
+        verify(s3FileUploadService, never()).retainReferences(any(String[].class));
+        verify(s3FileUploadService).deleteUnreferenced(
+                "s3://test-bucket/user/clothing-items/item/abc_modified_1024.png",
+                "s3://test-bucket/user/clothing-items/item/abc_modified_384.png",
+                "s3://test-bucket/user/clothing-items/item/abc_modified_128.png");
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", output);
+        return output.toByteArray();
+    }
+
+    private static int width(byte[] image) {
+        try {
+            return ImageIO.read(new ByteArrayInputStream(image)).getWidth();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.fitted.service.service;
+
+import com.fitted.service.properties.AWSProperties;
+import com.fitted.service.repository.StoredImageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrphanedObjectCollectorTest {
+
+    private static final UUID USER_ID = UUID.fromString("7c9e6679-7425-40de-944b-e07fc1f90ae7");
+    private static final String PREFIX = USER_ID + "/";
+    private static final Instant CUTOFF = Instant.parse("2026-01-02T00:00:00Z");
+    private static final Instant OLD = CUTOFF.minus(Duration.ofDays(3));
+
+    @Mock
+    private S3FileUploadService s3FileUploadService;
+
+    @Mock
+    private StoredImageRepository storedImageRepository;
+
+    @Mock
+    private S3DeletionQueue s3DeletionQueue;
+
+    private AWSProperties awsProperties;
+
+    private OrphanedObjectCollector orphanedObjectCollector;
+
+    @BeforeEach
+    void setUp() {
+        awsProperties = new AWSProperties();
+        awsProperties.getS3().setDeletionBatchSize(2);
+        orphanedObjectCollector = new OrphanedObjectCollector(s3FileUploadService, storedImageRepository,
+                s3DeletionQueue, awsProperties);
+    }
+
+    @Test
+    void collectPrefix_MergesListingAgainstReferencedKeys() {
+        // Arrange
+        when(s3FileUploadService.listObjects(PREFIX, null, null, 2)).thenReturn(page("token-1",
+                object("a/orphan.png", OLD), object("b/kept.png", OLD)));
+        when(s3FileUploadService.listObjects(PREFIX, null, "token-1", 2)).thenReturn(page(null,
+                object("c/recent.png", CUTOFF.plusSeconds(60)), object("d/orphan.png", OLD)));
+        when(storedImageRepository.findReferencedKeys(USER_ID, PREFIX + "%", "", 2))
+                .thenReturn(List.of(PREFIX + "0/elsewhere.png", PREFIX + "b/kept.png"));
+        when(storedImageRepository.findReferencedKeys(USER_ID, PREFIX + "%", PREFIX + "b/kept.png", 2))
+                .thenReturn(List.of(PREFIX + "c/recent.png"));
+
+        // Act
+        long collected = orphanedObjectCollector.collectPrefix(PREFIX, CUTOFF);
+
+        // Assert
+        assertEquals(2, collected);
+        verify(s3DeletionQueue).enqueue(List.of(PREFIX + "a/orphan.png", PREFIX + "d/orphan.png"));
+    }
+
+    @Test
+    void collectPrefix_EnqueuesInBatches() {
+        // Arrange
+        when(s3FileUploadService.listObjects(PREFIX, null, null, 2)).thenReturn(page(null,
+                object("a.png", OLD), object("b.png", OLD), object("c.png", OLD)));
+        when(storedImageRepository.findReferencedKeys(USER_ID, PREFIX + "%", "", 2)).thenReturn(List.of());
+
+        // Act
+        long collected = orphanedObjectCollector.collectPrefix(PREFIX, CUTOFF);
+
+        // Assert
+        assertEquals(3, collected);
+        ArgumentCaptor<List<String>> batches = ArgumentCaptor.captor();
+        verify(s3DeletionQueue, times(2)).enqueue(batches.capture());
+        assertEquals(List.of(List.of(PREFIX + "a.png", PREFIX + "b.png"), List.of(PREFIX + "c.png")),
+                batches.getAllValues());
+    }
+
+    @Test
+    void collectPrefix_NotAUserPrefix_LeavesObjectsAlone() {
+        long collected = orphanedObjectCollector.collectPrefix("static/", CUTOFF);
+
+        assertEquals(0, collected);
+        verify(s3FileUploadService, never()).listObjects(anyString(), any(), any(), anyInt());
+    }
+
+    @Test
+    void collect_Disabled_DoesNotListBucket() {
+        awsProperties.getS3().setOrphanCollectionEnabled(false);
+
+        orphanedObjectCollector.collect();
+
+        verify(s3FileUploadService, never()).listObjects(anyString(), any(), any(), anyInt());
+        verify(s3DeletionQueue, never()).enqueue(anyCollection());
+    }
+
+    @Test
+    void collect_ListsUserPrefixesWithDelimiter() {
+        when(s3FileUploadService.listObjects(eq(""), eq("/"), isNull(), eq(2))).thenReturn(ListObjectsV2Response.builder()
+                .commonPrefixes(CommonPrefix.builder().prefix("static/").build())
+                .build());
+
+        orphanedObjectCollector.collect();
+
+        verify(s3FileUploadService, times(1)).listObjects(anyString(), any(), any(), anyInt());
+    }
+
+    @Test
+    void compareCodePoints_OrdersSupplementaryCharactersAfterBmp() {
+        String supplementary = new String(Character.toChars(0x1F455));
+
+        assertTrue(OrphanedObjectCollector.compareCodePoints("a\uFF01", "a" + supplementary) < 0);
+        assertTrue("a\uFF01".compareTo("a" + supplementary) > 0);
+        assertTrue(OrphanedObjectCollector.compareCodePoints("ab", "abc") < 0);
+        assertEquals(0, OrphanedObjectCollector.compareCodePoints("abc", "abc"));
+    }
+
+    private static ListObjectsV2Response page(String nextContinuationToken, S3Object... objects) {
+        return ListObjectsV2Response.builder()
+                .contents(objects)
+                .nextContinuationToken(nextContinuationToken)
+                .build();
+    }
+
+    private static S3Object object(String relativeKey, Instant lastModified) {
+        return S3Object.builder().key(PREFIX + relativeKey).lastModified(lastModified).build();
+    }
+}
@@ -0,0 +1,172 @@
+package com.fitted.service.service;
+
+import com.fitted.service.model.S3Deletion;
+import com.fitted.service.model.StoredImage;
+import com.fitted.service.properties.AWSProperties;
+import com.fitted.service.repository.S3DeletionRepository;
+import com.fitted.service.repository.StoredImageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class S3DeletionQueueTest {
+
+    private static final LocalDateTime DATABASE_NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Mock
+    private S3DeletionRepository s3DeletionRepository;
+
+    @Mock
+    private StoredImageRepository storedImageRepository;
+
+    private S3DeletionQueue s3DeletionQueue;
+
+    @BeforeEach
+    void setUp() {
+        AWSProperties awsProperties = new AWSProperties();
+        awsProperties.getS3().setDeletionMaxAttempts(3);
+        awsProperties.getS3().setDeletionRetryBaseDelaySeconds(10);
+        awsProperties.getS3().setDeletionRetryMaxDelaySeconds(60);
+        s3DeletionQueue = new S3DeletionQueue(s3DeletionRepository, storedImageRepository, awsProperties);
+    }
+
+    @Test
+    void enqueue_MakesDeletionsDueAtDatabaseTime() {
+        when(s3DeletionRepository.currentTimestamp()).thenReturn(DATABASE_NOW);
+
+        s3DeletionQueue.enqueue(List.of("user/images/abc.png"));
+
+        verify(s3DeletionRepository).saveAll(argThat((Iterable<S3Deletion> deletions) -> {
+            S3Deletion deletion = deletions.iterator().next();
+            return deletion.getS3Key().equals("user/images/abc.png") && deletion.getAvailableAt().equals(DATABASE_NOW);
+        }));
+    }
+
+    @Test
+    void claim_LeasesDueDeletions() {
+        S3Deletion deletion = deletion("user/images/abc.png", 0);
+        when(s3DeletionRepository.currentTimestamp()).thenReturn(DATABASE_NOW);
+        when(s3DeletionRepository.findClaimable(DATABASE_NOW, 3, 10)).thenReturn(List.of(deletion));
+        when(storedImageRepository.findAllById(List.of("user/images/abc.png"))).thenReturn(List.of());
+
+        List<S3Deletion> claimed = s3DeletionQueue.claim(10);
+
+        assertEquals(List.of(deletion), claimed);
+        assertEquals(1, deletion.getAttempts());
+        assertTrue(deletion.getAvailableAt().isAfter(DATABASE_NOW));
+        verify(s3DeletionRepository, never()).deleteAllInBatch(anyList());
+    }
+
+    @Test
+    void claim_KeyReferencedAgain_DropsDeletion() {
+        S3Deletion referenced = deletion("user/images/abc.png", 0);
+        S3Deletion unreferenced = deletion("user/images/def.png", 0);
+        when(s3DeletionRepository.currentTimestamp()).thenReturn(DATABASE_NOW);
+        when(s3DeletionRepository.findClaimable(DATABASE_NOW, 3, 10)).thenReturn(List.of(referenced, unreferenced));
+        when(storedImageRepository.findAllById(List.of("user/images/abc.png", "user/images/def.png")))
+                .thenReturn(List.of(StoredImage.builder().s3Key("user/images/abc.png").refCount(1).build()));
+
+        List<S3Deletion> claimed = s3DeletionQueue.claim(10);
+
+        assertEquals(List.of(unreferenced), claimed);
+        verify(s3DeletionRepository).deleteAllInBatch(List.of(referenced));
+    }
+
+    @Test
+    void cancelPending_UnclaimedDeletion_DeletesIt() {
+        S3Deletion pending = deletion("user/images/abc.png", 0);
+        when(s3DeletionRepository.currentTimestamp()).thenReturn(DATABASE_NOW);
+        when(s3DeletionRepository.lockByS3Key("user/images/abc.png")).thenReturn(List.of(pending));
+
+        boolean cancelled = s3DeletionQueue.cancelPending("user/images/abc.png");
+
+        assertTrue(cancelled);
+        verify(s3DeletionRepository).deleteAllInBatch(List.of(pending));
+    }
+
+    @Test
+    void cancelPending_ClaimedDeletion_LeavesItToTheWorker() {
+        S3Deletion claimed = deletion("user/images/abc.png", 1);
+        when(s3DeletionRepository.currentTimestamp()).thenReturn(DATABASE_NOW);
+        when(s3DeletionRepository.lockByS3Key("user/images/abc.png")).thenReturn(List.of(claimed));
+
+        boolean cancelled = s3DeletionQueue.cancelPending("user/images/abc.png");
+
+        assertFalse(cancelled);
+        verify(s3DeletionRepository, never()).deleteAllInBatch(anyList());
+    }
+
+    @Test
+    void cancelPending_AbandonedDeletion_DeletesIt() {
+        S3Deletion abandoned = deletion("user/images/abc.png", 3);
+        abandoned.setAvailableAt(DATABASE_NOW.minusMinutes(5));
+        when(s3DeletionRepository.currentTimestamp()).thenReturn(DATABASE_NOW);
+        when(s3DeletionRepository.lockByS3Key("user/images/abc.png")).thenReturn(List.of(abandoned));
+
+        boolean cancelled = s3DeletionQueue.cancelPending("user/images/abc.png");
+
+        assertTrue(cancelled);
+        verify(s3DeletionRepository).deleteAllInBatch(List.of(abandoned));
+    }
+
+    @Test
+    void fail_AttemptsRemaining_SchedulesRetryWithBackoff() {
+        S3Deletion deletion = deletion("user/images/abc.png", 1);
+        when(s3DeletionRepository.currentTimestamp()).thenReturn(DATABASE_NOW);
+        when(s3DeletionRepository.findAllById(List.of(deletion.getId()))).thenReturn(List.of(deletion));
+
+        s3DeletionQueue.fail(List.of(deletion), Map.of("user/images/abc.png", "SlowDown: Please reduce your request rate."));
+
+        assertEquals("SlowDown: Please reduce your request rate.", deletion.getLastError());
+        assertTrue(deletion.getAvailableAt().isAfter(DATABASE_NOW.plusSeconds(9)));
+    }
+
+    @Test
+    void fail_AttemptsExhausted_LeavesDeletionBehind() {
+        S3Deletion deletion = deletion("user/images/abc.png", 3);
+        LocalDateTime leasedUntil = deletion.getAvailableAt();
+        when(s3DeletionRepository.currentTimestamp()).thenReturn(DATABASE_NOW);
+        when(s3DeletionRepository.findAllById(List.of(deletion.getId()))).thenReturn(List.of(deletion));
+
+        s3DeletionQueue.fail(List.of(deletion), Map.of("user/images/abc.png", "AccessDenied: Access Denied"));
+
+        assertEquals("AccessDenied: Access Denied", deletion.getLastError());
+        assertEquals(leasedUntil, deletion.getAvailableAt());
+    }
+
+    @Test
+    void retryDelay_GrowsExponentiallyUpToMaximum() {
+        Duration first = s3DeletionQueue.retryDelay(1);
+        Duration second = s3DeletionQueue.retryDelay(2);
+        Duration capped = s3DeletionQueue.retryDelay(10);
+
+        assertTrue(first.toSeconds() >= 10 && first.toSeconds() <= 12);
+        assertTrue(second.toSeconds() >= 20 && second.toSeconds() <= 24);
+        assertTrue(capped.toSeconds() >= 60 && capped.toSeconds() <= 72);
+    }
+
+    private S3Deletion deletion(String s3Key, int attempts) {
+        return S3Deletion.builder()
+                .s3Key(s3Key)
+                .attempts(attempts)
+                .availableAt(DATABASE_NOW)
+                .build();
+    }
+}
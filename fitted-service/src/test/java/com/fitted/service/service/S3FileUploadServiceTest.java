@@ -1,31 +1,75 @@
 package com.fitted.service.service;
 
+import com.fitted.service.concurrency.DownstreamLimiter;
+import com.fitted.service.exception.DownstreamBusyException;
 import com.fitted.service.exception.s3.S3FileUploadServerException;
 import com.fitted.service.exception.s3.S3FileUploadValidationException;
 import com.fitted.service.properties.AWSProperties;
+import com.fitted.service.properties.DownstreamProperties;
+import com.fitted.service.repository.StoredImageRepository;
+import com.fitted.service.utils.FileUtils;
 import com.fitted.service.utils.ServiceTestDataUtils;
+import com.fitted.service.utils.SniffedMultipartFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
 import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Error;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.UploadPartRequest;
 import software.amazon.awssdk.services.s3.model.UploadPartResponse;
-
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -38,12 +82,33 @@ class S3FileUploadServiceTest {
     @Mock
     private S3Client s3Client;
 
+    @Mock
+    private S3AsyncClient s3AsyncClient;
+
+    @Mock
+    private S3Presigner s3Presigner;
+
+    @Mock
+    private ExecutorService s3UploadExecutor;
+
     @Mock
     private AWSProperties awsProperties;
 
     @Mock
     private AWSProperties.S3Properties s3Properties;
 
+    @Spy
+    private DownstreamLimiter downstreamLimiter = new DownstreamLimiter(new DownstreamProperties(), new SimpleMeterRegistry());
+
+    @Mock
+    private StoredImageRepository storedImageRepository;
+
+    @Mock
+    private S3DeletionQueue s3DeletionQueue;
+
+    @Spy
+    private S3PartBufferPool s3PartBufferPool = new S3PartBufferPool(new AWSProperties());
+
     @InjectMocks
     private S3FileUploadService s3FileUploadService;
 
@@ -129,43 +194,180 @@ class S3FileUploadServiceTest {
     }
 
     @Test
-    void uploadImageFileMultipart_Success() {
+    void uploadImageFileAsync_Success() {
         // Arrange
         MockMultipartFile imageFile = ServiceTestDataUtils.createValidJpegFile("test.jpg");
         String keyFileName = "test-key";
 
-        // Setup mocks
         when(awsProperties.getS3()).thenReturn(s3Properties);
         when(s3Properties.getBucketName()).thenReturn(ServiceTestDataUtils.TEST_BUCKET_NAME);
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
 
-        CreateMultipartUploadResponse createResponse = CreateMultipartUploadResponse.builder()
-                .uploadId("test-upload-id")
-                .build();
+        // Act
+        String result = s3FileUploadService.uploadImageFileAsync(imageFile, keyFileName).join();
 
-        UploadPartResponse uploadPartResponse = UploadPartResponse.builder()
-                .eTag("test-etag")
-                .build();
+        // Assert
+        assertEquals("s3://test-bucket/test-key", result);
+        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+    }
 
-        CompleteMultipartUploadResponse completeResponse = CompleteMultipartUploadResponse.builder()
-                .bucket(ServiceTestDataUtils.TEST_BUCKET_NAME)
-                .key(keyFileName)
-                .build();
+    @Test
+    void uploadImageFileAsync_S3Exception_CompletesWithServerException() {
+        // Arrange
+        MockMultipartFile imageFile = ServiceTestDataUtils.createValidJpegFile("test.jpg");
+        String keyFileName = "test-key";
 
-        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
-                .thenReturn(createResponse);
-        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
-                .thenReturn(uploadPartResponse);
-        when(s3Client.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
-                .thenReturn(completeResponse);
+        when(awsProperties.getS3()).thenReturn(s3Properties);
+        when(s3Properties.getBucketName()).thenReturn(ServiceTestDataUtils.TEST_BUCKET_NAME);
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().message("S3 error").build()));
+
+        // Act
+        CompletableFuture<String> result = s3FileUploadService.uploadImageFileAsync(imageFile, keyFileName);
+
+        // Assert
+        CompletionException exception = assertThrows(CompletionException.class, result::join);
+        assertTrue(exception.getCause() instanceof S3FileUploadServerException);
+        assertTrue(exception.getCause().getMessage().contains("S3 error"));
+    }
+
+    @Test
+    void uploadImageFileAsync_UploadSettles_ClosesStream() throws IOException {
+        // Arrange
+        MultipartFile imageFile = spy(ServiceTestDataUtils.createValidJpegFile("test.jpg"));
+        InputStream stream = spy(new ByteArrayInputStream(imageFile.getBytes()));
+        when(imageFile.getInputStream()).thenReturn(stream);
+        when(awsProperties.getS3()).thenReturn(s3Properties);
+        when(s3Properties.getBucketName()).thenReturn(ServiceTestDataUtils.TEST_BUCKET_NAME);
+        CompletableFuture<PutObjectResponse> putObject = new CompletableFuture<>();
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class))).thenReturn(putObject);
+
+        // Act
+        CompletableFuture<String> result = s3FileUploadService.uploadImageFileAsync(imageFile, "test-key");
+        verify(stream, never()).close();
+        putObject.completeExceptionally(S3Exception.builder().message("S3 error").build());
+
+        // Assert
+        assertThrows(CompletionException.class, result::join);
+        verify(stream).close();
+    }
+
+    @Test
+    void uploadImageFileAsync_S3Busy_ClosesStream() throws IOException {
+        // Arrange
+        MultipartFile imageFile = spy(ServiceTestDataUtils.createValidJpegFile("test.jpg"));
+        InputStream stream = spy(new ByteArrayInputStream(imageFile.getBytes()));
+        when(imageFile.getInputStream()).thenReturn(stream);
+        when(awsProperties.getS3()).thenReturn(s3Properties);
+        when(s3Properties.getBucketName()).thenReturn(ServiceTestDataUtils.TEST_BUCKET_NAME);
+        doThrow(new DownstreamBusyException("S3 is busy")).when(downstreamLimiter).callAsync(any(), any());
+
+        // Act & Assert
+        assertThrows(S3FileUploadServerException.class, () -> s3FileUploadService.uploadImageFileAsync(imageFile, "test-key"));
+        verify(stream).close();
+        verify(s3AsyncClient, never()).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
+    }
+
+    @Test
+    void uploadImageFileMultipart_Success() {
+        // Arrange
+        MultipartFile imageFile = new GeneratedMultipartFile(12L * 1024 * 1024);
+        String keyFileName = "test-key";
+        stubMultipartUpload(keyFileName);
 
         // Act
         String result = s3FileUploadService.uploadImageFileMultipart(imageFile, keyFileName);
 
         // Assert
         assertEquals("s3://test-bucket/test-key", result);
-        verify(s3Client, times(1)).createMultipartUpload(any(CreateMultipartUploadRequest.class));
-        verify(s3Client, times(1)).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
-        verify(s3Client, times(1)).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        ArgumentCaptor<UploadPartRequest> partCaptor = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(s3AsyncClient, times(2)).uploadPart(partCaptor.capture(), any(AsyncRequestBody.class));
+        assertEquals(List.of(1, 2), partCaptor.getAllValues().stream().map(UploadPartRequest::partNumber).toList());
+        assertEquals(List.of(6L * 1024 * 1024, 6L * 1024 * 1024),
+                partCaptor.getAllValues().stream().map(UploadPartRequest::contentLength).toList());
+        ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3Client).completeMultipartUpload(completeCaptor.capture());
+        assertEquals(2, completeCaptor.getValue().multipartUpload().parts().size());
+        verify(s3Client, never()).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+    }
+
+    @Test
+    void uploadImageFileMultipart_HeapUseDoesNotGrowWithFileSize() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+
+        // Arrange
+        String keyFileName = "test-key";
+        stubMultipartUpload(keyFileName);
+        // Warm up so class loading and first-call allocations are not measured
+        s3FileUploadService.uploadImageFileMultipart(new GeneratedMultipartFile(16L * 1024 * 1024), keyFileName);
+
+        // Act
+        long smallFileAllocated = allocatedBytesDuringUpload(threadMXBean, 16L * 1024 * 1024, keyFileName);
+        long largeFileAllocated = allocatedBytesDuringUpload(threadMXBean, 512L * 1024 * 1024, keyFileName);
+
+        // Assert: parts are read into reused direct buffers, so a 512MB file costs about as much heap as a 16MB one
+        assertTrue(largeFileAllocated < 4L * 1024 * 1024,
+                "512MB upload allocated " + largeFileAllocated + " bytes of heap");
+        assertTrue(largeFileAllocated < smallFileAllocated + 2L * 1024 * 1024,
+                "heap allocation grew from " + smallFileAllocated + " to " + largeFileAllocated + " bytes");
+    }
+
+    @Test
+    void uploadImageFile_AboveThreshold_UsesMultipartUpload() {
+        // Arrange
+        MultipartFile imageFile = new GeneratedMultipartFile(12L * 1024 * 1024);
+        String keyFileName = "test-key";
+        stubMultipartUpload(keyFileName);
+        when(s3Properties.getMultipartThresholdBytes()).thenReturn(8L * 1024 * 1024);
+
+        // Act
+        String result = s3FileUploadService.uploadImageFile(imageFile, keyFileName);
+
+        // Assert
+        assertEquals("s3://test-bucket/test-key", result);
+        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+    }
+
+    @Test
+    void uploadImageFile_BelowThreshold_UsesSinglePut() {
+        // Arrange
+        MockMultipartFile imageFile = ServiceTestDataUtils.createValidJpegFile("test.jpg");
+        when(awsProperties.getS3()).thenReturn(s3Properties);
+        when(s3Properties.getBucketName()).thenReturn(ServiceTestDataUtils.TEST_BUCKET_NAME);
+        when(s3Properties.getMultipartThresholdBytes()).thenReturn(8L * 1024 * 1024);
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenReturn(PutObjectResponse.builder().build());
+
+        // Act
+        s3FileUploadService.uploadImageFile(imageFile, "test-key");
+
+        // Assert
+        verify(s3Client).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        verify(s3Client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void uploadImageFileMultipart_PartFails_AbortsUploadAndReleasesBuffers() {
+        // Arrange
+        MultipartFile imageFile = new GeneratedMultipartFile(12L * 1024 * 1024);
+        when(awsProperties.getS3()).thenReturn(s3Properties);
+        when(s3Properties.getBucketName()).thenReturn(ServiceTestDataUtils.TEST_BUCKET_NAME);
+        when(s3Properties.getMultipartMaxInFlightParts()).thenReturn(4);
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("test-upload-id").build());
+        when(s3AsyncClient.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().message("S3 error").build()));
+
+        // Act & Assert
+        S3FileUploadServerException exception = assertThrows(S3FileUploadServerException.class,
+                () -> s3FileUploadService.uploadImageFileMultipart(imageFile, "test-key"));
+        assertTrue(exception.getMessage().contains("S3 error"));
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        verify(s3PartBufferPool, times(1)).acquire();
+        verify(s3PartBufferPool, times(1)).release(any(ByteBuffer.class));
     }
 
     @Test
@@ -188,4 +390,407 @@ class S3FileUploadServiceTest {
         assertTrue(exception.getMessage().contains("S3 error"));
         verify(s3Client, times(1)).createMultipartUpload(any(CreateMultipartUploadRequest.class));
     }
+
+    @Test
+    void downloadFile_Success() {
+        // Arrange
+        byte[] imageBytes = {1, 2, 3};
+        when(awsProperties.getS3()).thenReturn(s3Properties);
+        when(s3Properties.getBucketName()).thenReturn(ServiceTestDataUtils.TEST_BUCKET_NAME);
+        when(s3Client.getObjectAsBytes(any(GetObjectRequest.class)))
+                .thenReturn(ResponseBytes.fromByteArray(GetObjectResponse.builder().build(), imageBytes));
+
+        // Act
+        byte[] result = s3FileUploadService.downloadFile("s3://test-bucket/user/clothing-items/item_modified.png");
+
+        // Assert
+        assertArrayEquals(imageBytes, result);
+        verify(s3Client).getObjectAsBytes(GetObjectRequest.builder()
+                .bucket(ServiceTestDataUtils.TEST_BUCKET_NAME)
+                .key("user/clothing-items/item_modified.png")
+                .build());
+    }
+
+    @Test
+    void downloadFile_NotAnS3Url_ThrowsServerException() {
+        assertThrows(S3FileUploadServerException.class, () ->
+                s3FileUploadService.downloadFile("https://cdn.example.com/item_modified.png"));
+
+        verify(s3Client, never()).getObjectAsBytes(any(GetObjectRequest.class));
+    }
+
+    @Test
+    void verifyDirectUpload_ValidImage_ReturnsS3Url() throws IOException {
+        // Arrange
+        when(awsProperties.getS3()).thenReturn(s3Properties);
+        when(s3Properties.getBucketName()).thenReturn(ServiceTestDataUtils.TEST_BUCKET_NAME);
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenReturn(HeadObjectResponse.builder().contentLength(1024L).contentType("image/jpeg").build());
+        when(s3Client.getObjectAsBytes(any(GetObjectRequest.class)))
+                .thenReturn(ResponseBytes.fromByteArray(GetObjectResponse.builder().build(),
+                        ServiceTestDataUtils.createValidJpegFile("test.jpg").getBytes()));
+
+        // Act
+        String result = s3FileUploadService.verifyDirectUpload("test-key");
+
+        // Assert
+        assertEquals("s3://test-bucket/test-key", result);
+    }
+
+    @Test
+    void verifyDirectUpload_WrongMagicBytes_ThrowsValidationException() {
+        // Arrange
+        when(awsProperties.getS3()).thenReturn(s3Properties);
+        when(s3Properties.getBucketName()).thenReturn(ServiceTestDataUtils.TEST_BUCKET_NAME);
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenReturn(HeadObjectResponse.builder().contentLength(1024L).contentType("image/png").build());
+        when(s3Client.getObjectAsBytes(any(GetObjectRequest.class)))
+                .thenReturn(ResponseBytes.fromByteArray(GetObjectResponse.builder().build(), "<html></html>".getBytes()));
+
+        // Act & Assert
+        assertThrows(S3FileUploadValidationException.class, () -> s3FileUploadService.verifyDirectUpload("test-key"));
+    }
+
+    @Test
+    void verifyDirectUpload_TooLarge_ThrowsValidationExceptionWithoutReadingObject() {
+        // Arrange
+        when(awsProperties.getS3()).thenReturn(s3Properties);
+        when(s3Properties.getBucketName()).thenReturn(ServiceTestDataUtils.TEST_BUCKET_NAME);
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenReturn(HeadObjectResponse.builder().contentLength(50L * 1024 * 1024).contentType("image/png").build());
+
+        // Act & Assert
+        assertThrows(S3FileUploadValidationException.class, () -> s3FileUploadService.verifyDirectUpload("test-key"));
+        verify(s3Client, never()).getObjectAsBytes(any(GetObjectRequest.class));
+    }
+
+    @Test
+    void verifyDirectUpload_MissingObject_ThrowsValidationException() {
+        // Arrange
+        when(awsProperties.getS3()).thenReturn(s3Properties);
+        when(s3Properties.getBucketName()).thenReturn(ServiceTestDataUtils.TEST_BUCKET_NAME);
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenThrow(NoSuchKeyException.builder().statusCode(404).message("Not Found").build());
+
+        // Act & Assert
+        assertThrows(S3FileUploadValidationException.class, () -> s3FileUploadService.verifyDirectUpload("test-key"));
+    }
+
+    @Test
+    void uploadImageFileDeduplicated_AlreadyStored_SkipsUpload() {
+        // Arrange
+        MockMultipartFile imageFile = ServiceTestDataUtils.createValidJpegFile("test.jpg");
+        String expectedKey = ServiceTestDataUtils.USER_ID + "/images/" + sha256Hex(imageFile) + ".jpg";
+        stubBucket();
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder().build());
+
+        // Act
+        S3FileUploadService.UploadedImage result =
+                s3FileUploadService.uploadImageFileDeduplicated(imageFile, ServiceTestDataUtils.USER_ID);
+
+        // Assert
+        assertEquals(new S3FileUploadService.UploadedImage("s3://test-bucket/" + expectedKey, true), result);
+        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        verify(storedImageRepository, never()).retain(any());
+    }
+
+    @Test
+    void uploadImageFileDeduplicated_NotStored_PutsToDigestKeyIfAbsent() {
+        // Arrange
+        MockMultipartFile imageFile = ServiceTestDataUtils.createValidJpegFile("test.jpg");
+        String expectedKey = ServiceTestDataUtils.USER_ID + "/images/" + sha256Hex(imageFile) + ".jpg";
+        stubBucket();
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenThrow(NoSuchKeyException.builder().statusCode(404).message("Not Found").build());
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenReturn(PutObjectResponse.builder().build());
+
+        // Act
+        S3FileUploadService.UploadedImage result =
+                s3FileUploadService.uploadImageFileDeduplicated(imageFile, ServiceTestDataUtils.USER_ID);
+
+        // Assert
+        assertEquals(new S3FileUploadService.UploadedImage("s3://test-bucket/" + expectedKey, true), result);
+        PutObjectRequest putRequest = putRequest();
+        assertEquals(expectedKey, putRequest.key());
+        assertEquals("*", putRequest.ifNoneMatch());
+    }
+
+    @Test
+    void uploadImageFileDeduplicated_StoredByRacingUpload_KeepsExistingObject() {
+        // Arrange
+        MockMultipartFile imageFile = ServiceTestDataUtils.createValidJpegFile("test.jpg");
+        String expectedKey = ServiceTestDataUtils.USER_ID + "/images/" + sha256Hex(imageFile) + ".jpg";
+        stubBucket();
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenThrow(NoSuchKeyException.builder().statusCode(404).message("Not Found").build());
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenThrow(S3Exception.builder().statusCode(412).message("Precondition Failed").build());
+
+        // Act
+        S3FileUploadService.UploadedImage result =
+                s3FileUploadService.uploadImageFileDeduplicated(imageFile, ServiceTestDataUtils.USER_ID);
+
+        // Assert
+        assertEquals(new S3FileUploadService.UploadedImage("s3://test-bucket/" + expectedKey, true), result);
+    }
+
+    @Test
+    void uploadImageFileDeduplicated_DeletionInFlight_UploadsUnderOwnKey() {
+        // Arrange
+        MockMultipartFile imageFile = ServiceTestDataUtils.createValidJpegFile("test.jpg");
+        String contentAddressedKey = ServiceTestDataUtils.USER_ID + "/images/" + sha256Hex(imageFile) + ".jpg";
+        when(s3DeletionQueue.isDeletionInFlight(contentAddressedKey)).thenReturn(true);
+        stubBucket();
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenReturn(PutObjectResponse.builder().build());
+
+        // Act
+        S3FileUploadService.UploadedImage result =
+                s3FileUploadService.uploadImageFileDeduplicated(imageFile, ServiceTestDataUtils.USER_ID);
+
+        // Assert
+        String uploadKey = putRequest().key();
+        assertTrue(uploadKey.matches(ServiceTestDataUtils.USER_ID + "/images/uploads/[A-Za-z0-9]{10}\\.jpg"));
+        assertEquals(new S3FileUploadService.UploadedImage("s3://test-bucket/" + uploadKey, false), result);
+        verify(s3Client, never()).headObject(any(HeadObjectRequest.class));
+    }
+
+    @Test
+    void uploadImageFileDeduplicated_ValidatedFile_ReadsFileOnce() throws IOException {
+        // Arrange
+        MockMultipartFile imageFile = spy(ServiceTestDataUtils.createValidJpegFile("test.jpg"));
+        stubBucket();
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder().build());
+
+        // Act
+        try (SniffedMultipartFile validatedFile = FileUtils.validateFile(imageFile)) {
+            s3FileUploadService.uploadImageFileDeduplicated(validatedFile, ServiceTestDataUtils.USER_ID);
+        }
+
+        // Assert
+        verify(imageFile, times(1)).getInputStream();
+        verify(imageFile, never()).getBytes();
+    }
+
+    @Test
+    void retainUploadedImage_DigestKey_CancelsPendingDeletionsAndRetains() {
+        // Arrange
+        String key = ServiceTestDataUtils.USER_ID + "/images/abc.jpg";
+        when(s3DeletionQueue.cancelPending(key)).thenReturn(true);
+
+        // Act
+        s3FileUploadService.retainUploadedImage(new S3FileUploadService.UploadedImage("s3://test-bucket/" + key, true));
+
+        // Assert
+        verify(storedImageRepository).retain(key);
+    }
+
+    @Test
+    void retainUploadedImage_DeletionClaimedSinceUpload_ThrowsServerException() {
+        // Arrange
+        String key = ServiceTestDataUtils.USER_ID + "/images/abc.jpg";
+        when(s3DeletionQueue.cancelPending(key)).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(S3FileUploadServerException.class, () -> s3FileUploadService.retainUploadedImage(
+                new S3FileUploadService.UploadedImage("s3://test-bucket/" + key, true)));
+        verify(storedImageRepository, never()).retain(any());
+    }
+
+    @Test
+    void retainUploadedImage_OwnKey_AddsNoReference() {
+        // Act
+        s3FileUploadService.retainUploadedImage(new S3FileUploadService.UploadedImage(
+                "s3://test-bucket/" + ServiceTestDataUtils.USER_ID + "/images/uploads/abc.jpg", false));
+
+        // Assert
+        verify(s3DeletionQueue, never()).cancelPending(any());
+        verify(storedImageRepository, never()).retain(any());
+    }
+
+    @Test
+    void deleteFile_StillReferenced_KeepsObject() {
+        // Arrange
+        when(awsProperties.getS3()).thenReturn(s3Properties);
+        when(s3Properties.getBucketName()).thenReturn(ServiceTestDataUtils.TEST_BUCKET_NAME);
+        when(storedImageRepository.release("user/images/abc.png")).thenReturn(1);
+        when(storedImageRepository.deleteIfUnreferenced("user/images/abc.png")).thenReturn(0);
+
+        // Act
+        s3FileUploadService.deleteFile("s3://test-bucket/user/images/abc.png");
+
+        // Assert
+        verify(s3Client, never()).deleteObject(any(DeleteObjectRequest.class));
+    }
+
+    @Test
+    void deleteFile_LastReference_DeletesObject() {
+        // Arrange
+        when(awsProperties.getS3()).thenReturn(s3Properties);
+        when(s3Properties.getBucketName()).thenReturn(ServiceTestDataUtils.TEST_BUCKET_NAME);
+        when(storedImageRepository.release("user/images/abc.png")).thenReturn(1);
+        when(storedImageRepository.deleteIfUnreferenced("user/images/abc.png")).thenReturn(1);
+
+        // Act
+        s3FileUploadService.deleteFile("s3://test-bucket/user/images/abc.png");
+
+        // Assert
+        verify(s3Client).deleteObject(DeleteObjectRequest.builder()
+                .bucket(ServiceTestDataUtils.TEST_BUCKET_NAME)
+                .key("user/images/abc.png")
+                .build());
+    }
+
+    @Test
+    void scheduleDelete_EnqueuesOnlyUnreferencedObjects() {
+        // Arrange
+        when(storedImageRepository.release("user/images/shared.png")).thenReturn(1);
+        when(storedImageRepository.deleteIfUnreferenced("user/images/shared.png")).thenReturn(0);
+        when(storedImageRepository.release("user/images/last.png")).thenReturn(1);
+        when(storedImageRepository.deleteIfUnreferenced("user/images/last.png")).thenReturn(1);
+        when(storedImageRepository.release("user/clothing-items/item/untracked.png")).thenReturn(0);
+
+        // Act
+        s3FileUploadService.scheduleDelete(
+                "s3://test-bucket/user/images/shared.png",
+                "s3://test-bucket/user/images/last.png",
+                "s3://test-bucket/user/clothing-items/item/untracked.png");
+
+        // Assert
+        verify(s3DeletionQueue).enqueue(List.of("user/images/last.png", "user/clothing-items/item/untracked.png"));
+        verify(s3Client, never()).deleteObject(any(DeleteObjectRequest.class));
+    }
+
+    @Test
+    void deleteObjects_ReturnsPerKeyErrors() {
+        // Arrange
+        when(awsProperties.getS3()).thenReturn(s3Properties);
+        when(s3Properties.getBucketName()).thenReturn(ServiceTestDataUtils.TEST_BUCKET_NAME);
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(DeleteObjectsResponse.builder()
+                .errors(S3Error.builder().key("user/images/def.png").code("AccessDenied").message("Access Denied").build())
+                .build());
+
+        // Act
+        Map<String, String> errors = s3FileUploadService.deleteObjects(List.of("user/images/abc.png", "user/images/def.png"));
+
+        // Assert
+        assertEquals(Map.of("user/images/def.png", "AccessDenied: Access Denied"), errors);
+        ArgumentCaptor<DeleteObjectsRequest> deleteCaptor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3Client).deleteObjects(deleteCaptor.capture());
+        assertEquals(ServiceTestDataUtils.TEST_BUCKET_NAME, deleteCaptor.getValue().bucket());
+        assertEquals(List.of("user/images/abc.png", "user/images/def.png"),
+                deleteCaptor.getValue().delete().objects().stream().map(ObjectIdentifier::key).toList());
+        assertTrue(deleteCaptor.getValue().delete().quiet());
+    }
+
+    private void stubMultipartUpload(String keyFileName) {
+        when(awsProperties.getS3()).thenReturn(s3Properties);
+        when(s3Properties.getBucketName()).thenReturn(ServiceTestDataUtils.TEST_BUCKET_NAME);
+        when(s3Properties.getMultipartMaxInFlightParts()).thenReturn(4);
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("test-upload-id").build());
+        when(s3AsyncClient.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(UploadPartResponse.builder().eTag("test-etag").build()));
+        when(s3Client.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+                .thenReturn(CompleteMultipartUploadResponse.builder()
+                        .bucket(ServiceTestDataUtils.TEST_BUCKET_NAME)
+                        .key(keyFileName)
+                        .build());
+    }
+
+    private void stubBucket() {
+        when(awsProperties.getS3()).thenReturn(s3Properties);
+        when(s3Properties.getBucketName()).thenReturn(ServiceTestDataUtils.TEST_BUCKET_NAME);
+    }
+
+    private PutObjectRequest putRequest() {
+        ArgumentCaptor<PutObjectRequest> putCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3Client).putObject(putCaptor.capture(), any(RequestBody.class));
+        return putCaptor.getValue();
+    }
+
+    private static String sha256Hex(MultipartFile file) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(file.getBytes()));
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long allocatedBytesDuringUpload(com.sun.management.ThreadMXBean threadMXBean, long fileSize, String keyFileName) {
+        MultipartFile imageFile = new GeneratedMultipartFile(fileSize);
+        long before = threadMXBean.getCurrentThreadAllocatedBytes();
+        s3FileUploadService.uploadImageFileMultipart(imageFile, keyFileName);
+        return threadMXBean.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    /**
+     * A multipart file whose content is generated as it is read, so large files can be uploaded without the
+     * test itself holding them in memory.
+     */
+    private record GeneratedMultipartFile(long size) implements MultipartFile {
+
+        @Override
+        public String getName() {
+            return "imageFile";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return "large.jpg";
+        }
+
+        @Override
+        public String getContentType() {
+            return ServiceTestDataUtils.JPEG_CONTENT_TYPE;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            throw new UnsupportedOperationException("Content is only available as a stream");
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new InputStream() {
+                private long remaining = size;
+
+                @Override
+                public int read() {
+                    if (remaining == 0) {
+                        return -1;
+                    }
+                    remaining--;
+                    return (int) (remaining & 0xFF);
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) {
+                    if (remaining == 0) {
+                        return -1;
+                    }
+                    int count = (int) Math.min(length, remaining);
+                    Arrays.fill(bytes, offset, offset + count, (byte) remaining);
+                    remaining -= count;
+                    return count;
+                }
+            };
+        }
+
+        @Override
+        public void transferTo(File dest) {
+            throw new UnsupportedOperationException("Content is only available as a stream");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,186 @@
+package com.fitted.service.specifications;
+
+import com.fitted.service.dto.search.Filter;
+import com.fitted.service.dto.search.FilterItem;
+import com.fitted.service.dto.search.Search;
+import com.fitted.service.dto.search.SearchCursor;
+import com.fitted.service.repository.ClothingItemRepository;
+import com.fitted.service.repository.OutfitRepository;
+import com.fitted.service.utils.SearchUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Plans the SQL generated for each kind of search against the indexed schema and fails if any of it scans
+ * clothing_items or outfits sequentially. Sequential scans are disabled for the EXPLAIN, so with empty tables
+ * the planner still picks an index whenever one applies.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.fitted.service.specifications.CapturingStatementInspector"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class SearchQueryPlanTest {
+
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (clothing_items|outfits)\\b");
+    private static final UUID USER_ID = UUID.randomUUID();
+    private static final PageRequest FIRST_PAGE = PageRequest.of(0, 50, SearchUtils.getSort(SearchUtils.CURSOR_SORT_BY, false));
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(
+            DockerImageName.parse("pgvector/pgvector:pg16").asCompatibleSubstituteFor("postgres"))
+            .withInitScript("db/query-plan-test-init.sql");
+
+    private static boolean indexesCreated;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ClothingItemRepository clothingItemRepository;
+
+    @Autowired
+    private OutfitRepository outfitRepository;
+
+    @BeforeEach
+    void setUp() {
+        if (!indexesCreated) {
+            new ResourceDatabasePopulator(new ClassPathResource("db/migration/V5__add_search_indexes.sql"),
+                    new ClassPathResource("db/migration/V6__add_clothing_item_full_text_search.sql")).execute(dataSource);
+            indexesCreated = true;
+        }
+        CapturingStatementInspector.drain();
+    }
+
+    @Test
+    void clothingItems_DefaultListing_UsesIndex() {
+        clothingItemRepository.findAll(ClothingItemSpecification.buildClothingItemSpec(null, null, USER_ID), FIRST_PAGE);
+
+        assertNoSequentialScans();
+    }
+
+    @Test
+    void clothingItems_CursorPage_UsesIndex() {
+        SearchCursor cursor = new SearchCursor(LocalDateTime.now(), UUID.randomUUID());
+        Sort sort = FIRST_PAGE.getSort();
+        clothingItemRepository.findBy(ClothingItemSpecification.buildClothingItemSpec(null, null, USER_ID)
+                        .and(ClothingItemSpecification.buildClothingItemAfterCursorSpec(cursor, false)),
+                query -> query.sortBy(sort).limit(51).all());
+
+        assertNoSequentialScans();
+    }
+
+    @Test
+    void clothingItems_NameSearch_UsesIndex() {
+        clothingItemRepository.findAll(ClothingItemSpecification.buildClothingItemSpec(null,
+                Search.builder().searchText("shirt").build(), USER_ID), FIRST_PAGE);
+
+        assertNoSequentialScans();
+    }
+
+    @Test
+    void clothingItems_FullTextSearch_UsesIndex() {
+        Search search = Search.builder().searchText("navy wool winter").build();
+        clothingItemRepository.findAll(ClothingItemSpecification.buildClothingItemSpec(null, search, USER_ID)
+                        .and(ClothingItemSpecification.buildClothingItemRankedOrderSpec(search, FIRST_PAGE.getSort())),
+                PageRequest.of(0, 50));
+
+        assertNoSequentialScans();
+    }
+
+    @Test
+    void clothingItems_AttributeFilters_UseIndex() {
+        Filter filter = Filter.builder().filters(List.of(
+                FilterItem.builder().attribute("color").value("blue").build(),
+                FilterItem.builder().attribute("type").valueList(List.of("TOP", "BOTTOM")).build())).build();
+        clothingItemRepository.findAll(ClothingItemSpecification.buildClothingItemSpec(filter, null, USER_ID), FIRST_PAGE);
+
+        assertNoSequentialScans();
+    }
+
+    @Test
+    void outfits_DefaultListing_UsesIndex() {
+        outfitRepository.findAll(OutfitSpecification.buildOutfitSpec(null, null, USER_ID), FIRST_PAGE);
+
+        assertNoSequentialScans();
+    }
+
+    @Test
+    void outfits_TagSearch_UsesIndex() {
+        outfitRepository.findAll(OutfitSpecification.buildOutfitSpec(null,
+                Search.builder().searchText("Summer").build(), USER_ID), FIRST_PAGE);
+
+        assertNoSequentialScans();
+    }
+
+    private void assertNoSequentialScans() {
+        List<String> statements = CapturingStatementInspector.drain();
+        assertFalse(statements.isEmpty(), "No SQL was captured");
+        for (String sql : statements) {
+            String plan = explain(sql);
+            if (SEQ_SCAN.matcher(plan).find()) {
+                fail("Sequential scan in plan for:\n" + sql + "\n" + plan);
+            }
+        }
+    }
+
+    /**
+     * Plans the statement without parameter values; JDBC ? placeholders become numbered parameters.
+     */
+    private String explain(String sql) {
+        Matcher placeholders = Pattern.compile("\\?").matcher(sql);
+        StringBuilder numbered = new StringBuilder();
+        int parameter = 0;
+        while (placeholders.find()) {
+            placeholders.appendReplacement(numbered, "\\$" + ++parameter);
+        }
+        placeholders.appendTail(numbered);
+
+        return new JdbcTemplate(dataSource).execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET enable_seqscan = off");
+                List<String> lines = new ArrayList<>();
+                try (ResultSet plan = statement.executeQuery("EXPLAIN (GENERIC_PLAN) " + numbered)) {
+                    while (plan.next()) {
+                        lines.add(plan.getString(1));
+                    }
+                }
+                statement.execute("RESET enable_seqscan");
+                return String.join("\n", lines);
+            }
+        });
+    }
+}
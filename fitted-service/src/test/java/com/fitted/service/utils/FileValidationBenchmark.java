@@ -0,0 +1,156 @@
+package com.fitted.service.utils;
+
+import org.apache.tika.Tika;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares validating and then uploading a disk-backed multipart image, as ClothingItemService does.
+ * <p>
+ * {@code legacyValidateThenUpload} reproduces the previous path: a new Tika per file detecting from a fresh
+ * stream, followed by the upload opening the file again. {@code sniffThenUpload} is the current path through
+ * {@link FileUtils#validateFile(MultipartFile)}, which sniffs the magic bytes with the shared Tika and hands
+ * the same rewound stream to the upload, so the file is opened only once. The upload is simulated by draining the stream.
+ * <p>
+ * Not run by surefire. Run with:
+ * <pre>
+ * ./mvnw test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main FileValidationBenchmark"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileValidationBenchmark {
+
+    @Param({"1", "10"})
+    private int fileSizeMb;
+
+    private Path imagePath;
+    private MultipartFile imageFile;
+    private final byte[] drainBuffer = new byte[64 * 1024];
+
+    @Setup
+    public void setUp() throws IOException {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB), "jpg", jpeg);
+
+        // A real JPEG header padded to the target size; detection only looks at the leading bytes
+        byte[] content = Arrays.copyOf(jpeg.toByteArray(), fileSizeMb * 1024 * 1024);
+        byte[] padding = new byte[content.length - jpeg.size()];
+        new Random(42).nextBytes(padding);
+        System.arraycopy(padding, 0, content, jpeg.size(), padding.length);
+
+        imagePath = Files.createTempFile("file-validation-benchmark", ".jpg");
+        Files.write(imagePath, content);
+        imageFile = new DiskMultipartFile(imagePath);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(imagePath);
+    }
+
+    @Benchmark
+    public long legacyValidateThenUpload() throws IOException {
+        String detectedType = new Tika().detect(imageFile.getInputStream());
+        if (!"image/jpeg".equals(detectedType)) {
+            throw new IllegalStateException("Unexpected type: " + detectedType);
+        }
+        return drain(imageFile);
+    }
+
+    @Benchmark
+    public long sniffThenUpload() throws IOException {
+        try (SniffedMultipartFile validatedFile = FileUtils.validateFile(imageFile)) {
+            return drain(validatedFile);
+        }
+    }
+
+    private long drain(MultipartFile file) throws IOException {
+        long total = 0;
+        try (InputStream stream = file.getInputStream()) {
+            int read;
+            while ((read = stream.read(drainBuffer)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Disk-backed like the multipart files Spring hands to controllers, which are written to a temp file.
+     */
+    private record DiskMultipartFile(Path path) implements MultipartFile {
+
+        @Override
+        public String getName() {
+            return "imageFile";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return path.getFileName().toString();
+        }
+
+        @Override
+        public String getContentType() {
+            return "image/jpeg";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getSize() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            try {
+                return Files.size(path);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return Files.readAllBytes(path);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.copy(path, dest.toPath());
+        }
+    }
+}
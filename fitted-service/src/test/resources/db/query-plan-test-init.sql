@@ -0,0 +1,2 @@
+-- Extensions the entity schema needs before Hibernate creates it in SearchQueryPlanTest
+CREATE EXTENSION IF NOT EXISTS vector;